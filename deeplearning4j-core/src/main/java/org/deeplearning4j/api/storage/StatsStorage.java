@@ -182,6 +182,23 @@ public interface StatsStorage extends StatsStorageRouter {
      */
     List<Persistable> getUpdates(String sessionID, String typeID, String workerID, long[] timestamps);
 
+    /**
+     * Get the updates with timestamps in the specified range (inclusive), sorted by time. If there are more than
+     * maxPoints updates in the range, only maxPoints of them are returned: these are evenly spaced (by index) over
+     * the updates in the range, and always include the first and last update in the range.
+     * This allows (for example) charts to fetch only the points that will be plotted, without loading all updates.
+     *
+     * @param sessionID     Session ID to get the updates for
+     * @param typeID        Type ID to get the updates for
+     * @param workerID      Worker ID to get the updates for
+     * @param fromTimestamp Start of the range (inclusive)
+     * @param toTimestamp   End of the range (inclusive)
+     * @param maxPoints     Maximum number of updates to return. Must be positive
+     * @return              List of updates in the range
+     */
+    List<Persistable> getUpdatesInRange(String sessionID, String typeID, String workerID, long fromTimestamp,
+                    long toTimestamp, int maxPoints);
+
     /**
      * Get the session metadata, if any has been registered via {@link #putStorageMetaData(StorageMetaData)}
      *
@@ -3,6 +3,7 @@ package org.deeplearning4j.api.storage.impl;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
 import org.deeplearning4j.api.storage.Persistable;
 import org.deeplearning4j.api.storage.StatsStorageRouter;
 import org.deeplearning4j.api.storage.StorageMetaData;
@@ -10,10 +11,7 @@ import org.deeplearning4j.api.storage.StorageType;
 import org.nd4j.shade.jackson.databind.ObjectMapper;
 
 import javax.xml.bind.DatatypeConverter;
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -25,6 +23,12 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * Asynchronously post all updates to a remote UI that has remote listening enabled.<br>
  * Typically used with UIServer (don't forget to enable remote listener support - UIServer.getInstance().enableRemoteListener()
+ * <p>
+ * By default, each object is posted in a separate request, as JSON. For many workers and/or frequent updates, use
+ * the batched mode instead (see {@link Builder}): multiple objects are posted per request in a binary format (see
+ * {@link StorageBatchCodec}), optionally compressed, to the UI's {@link #DEFAULT_BULK_PATH} endpoint. In batched mode
+ * the queue can also be bounded: if the UI can't keep up, the oldest updates are dropped (metadata and static info are
+ * never dropped).
  *
  * @author Alex Black
  */
@@ -35,6 +39,18 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
      * Default path for posting data to the UI - i.e., http://localhost:9000/remoteReceive or similar
      */
     public static final String DEFAULT_PATH = "remoteReceive";
+    /**
+     * Default path for posting batches of data to the UI (batched mode) - i.e., http://localhost:9000/remoteReceiveBulk
+     */
+    public static final String DEFAULT_BULK_PATH = "remoteReceiveBulk";
+    /**
+     * Default maximum number of objects per request, in batched mode
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /**
+     * Default maximum number of queued objects in batched mode, before the oldest updates are dropped
+     */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
     /**
      * Default maximum number of (consecutive) retries on failure
      */
@@ -56,8 +72,12 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
     private int maxRetryCount;
     private long retryDelayMS;
     private double retryBackoffFactor;
+    private int batchSize;
+    private int maxQueueSize;
+    private boolean compress;
 
     private LinkedBlockingDeque<ToPost> queue = new LinkedBlockingDeque<>();
+    private AtomicLong droppedCount = new AtomicLong(0);
 
     private Thread postThread;
 
@@ -97,9 +117,17 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
      */
     public RemoteUIStatsStorageRouter(String address, String path, int maxRetryCount, long retryDelayMS,
                     double retryBackoffFactor) {
+        this(address, path, maxRetryCount, retryDelayMS, retryBackoffFactor, 0, 0, false);
+    }
+
+    private RemoteUIStatsStorageRouter(String address, String path, int maxRetryCount, long retryDelayMS,
+                    double retryBackoffFactor, int batchSize, int maxQueueSize, boolean compress) {
         this.maxRetryCount = maxRetryCount;
         this.retryDelayMS = retryDelayMS;
         this.retryBackoffFactor = retryBackoffFactor;
+        this.batchSize = batchSize;
+        this.maxQueueSize = maxQueueSize;
+        this.compress = compress;
 
         String url = address;
         if (path != null) {
@@ -138,7 +166,7 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
             }
         } else {
             for (StorageMetaData m : storageMetaData) {
-                queue.add(new ToPost(m, null, null));
+                enqueue(new ToPost(m, null, null));
             }
         }
     }
@@ -160,7 +188,7 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
             }
         } else {
             for (Persistable p : staticInfo) {
-                queue.add(new ToPost(null, p, null));
+                enqueue(new ToPost(null, p, null));
             }
         }
     }
@@ -182,9 +210,68 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
             }
         } else {
             for (Persistable p : updates) {
-                queue.add(new ToPost(null, null, p));
+                enqueue(new ToPost(null, null, p));
+            }
+        }
+    }
+
+    /**
+     * @return True if objects are posted in batches, in the binary format
+     */
+    public boolean isBatched() {
+        return batchSize > 0;
+    }
+
+    /**
+     * @return Number of updates dropped so far, due to the maximum queue size being reached (batched mode only)
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void enqueue(ToPost toPost) {
+        //Size check and add are done atomically, so concurrent puts can't exceed the max queue size
+        synchronized (queue) {
+            if (toPost.getUpdate() != null)
+                trimQueue(maxQueueSize - 1);
+            queue.add(toPost);
+        }
+    }
+
+    /**
+     * Add records that failed to be posted back to the head of the queue, in original order. Oldest updates are
+     * dropped if that exceeds the max queue size
+     */
+    private void requeue(List<ToPost> list) {
+        synchronized (queue) {
+            for (int i = list.size() - 1; i >= 0; i--) {
+                queue.addFirst(list.get(i));
+            }
+            trimQueue(maxQueueSize);
+        }
+    }
+
+    private void trimQueue(int maxSize) {
+        if (maxQueueSize <= 0)
+            return;
+
+        //Drop oldest update(s) if the queue is full. Metadata and static info are required by the UI: never dropped
+        while (queue.size() > maxSize && dropOldestUpdate()) {
+            long count = droppedCount.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                log.warn("RemoteUIStatsStorageRouter: queue is full (max size {}); dropped {} oldest updates so far",
+                                maxQueueSize, count);
+            }
+        }
+    }
+
+    private boolean dropOldestUpdate() {
+        for (ToPost t : queue) {
+            if (t.getUpdate() != null && queue.removeFirstOccurrence(t)) {
+                return true;
             }
         }
+        return false;
     }
 
     @AllArgsConstructor
@@ -224,6 +311,11 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
                     continue;
                 }
                 list.add(t);
+                if (batchSize > 0) {
+                    queue.drainTo(list, batchSize - 1); //Non-blocking
+                    postBatch(list);
+                    continue;
+                }
                 queue.drainTo(list); //Non-blocking
 
                 int successCount = 0;
@@ -252,6 +344,25 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
             }
         }
 
+        private void postBatch(List<ToPost> list) {
+            boolean success;
+            try {
+                success = tryPostBatch(list);
+            } catch (IOException e) {
+                log.warn("Error posting to remote UI at {}, consecutive failure count = {}. Waiting {} ms before retrying",
+                                url, failureCount + 1, nextDelayMs, e);
+                success = false;
+            }
+            if (success) {
+                failureCount = 0;
+                nextDelayMs = retryDelayMS;
+            } else {
+                failureCount++;
+                requeue(list); //Add back to be processed in original order
+                waitForRetry();
+            }
+        }
+
         private void waitForRetry() {
             if (maxRetryCount >= 0 && failureCount > maxRetryCount) {
                 throw new RuntimeException("RemoteUIStatsStorageRouter: hit maximum consecutive failures("
@@ -276,35 +387,70 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
         return connection;
     }
 
-    private boolean tryPost(ToPost toPost) throws IOException {
-
-        HttpURLConnection connection = getConnection();
-
-        String className;
-        byte[] asBytes;
-        StorageType type;
+    private static StorageBatchCodec.Entry toEntry(ToPost toPost) {
         if (toPost.getMeta() != null) {
             StorageMetaData smd = toPost.getMeta();
-            className = smd.getClass().getName();
-            asBytes = smd.encode();
-            type = StorageType.MetaData;
+            return new StorageBatchCodec.Entry(StorageType.MetaData, smd.getClass().getName(), smd.encode());
         } else if (toPost.getStaticInfo() != null) {
             Persistable p = toPost.getStaticInfo();
-            className = p.getClass().getName();
-            asBytes = p.encode();
-            type = StorageType.StaticInfo;
+            return new StorageBatchCodec.Entry(StorageType.StaticInfo, p.getClass().getName(), p.encode());
         } else {
             Persistable p = toPost.getUpdate();
-            className = p.getClass().getName();
-            asBytes = p.encode();
-            type = StorageType.Update;
+            return new StorageBatchCodec.Entry(StorageType.Update, p.getClass().getName(), p.encode());
         }
+    }
+
+    private boolean tryPostBatch(List<ToPost> list) throws IOException {
+        List<StorageBatchCodec.Entry> entries = new ArrayList<>(list.size());
+        for (ToPost t : list) {
+            entries.add(toEntry(t));
+        }
+        byte[] bytes = StorageBatchCodec.encode(entries, compress);
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        connection.setRequestProperty("Content-Type", "application/octet-stream");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(bytes);
+        }
+
+        //Always read the full response: the underlying (keep-alive) connection can then be reused for the next request
+        int responseCode = connection.getResponseCode();
+        InputStream is = (responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream());
+        String response = "";
+        if (is != null) {
+            try (InputStream in = is) {
+                response = IOUtils.toString(in);
+            }
+        }
+
+        if (responseCode != 200) {
+            if (responseCode == 403) {
+                log.warn("Error posting to remote UI at {} (Response code: 403)."
+                                + " Remote listener support is not enabled? use UIServer.getInstance().enableRemoteListener()",
+                                url);
+            } else {
+                log.warn("Error posting to remote UI at {} - received response code {}\tContent: {}", url,
+                                responseCode, response);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private boolean tryPost(ToPost toPost) throws IOException {
 
-        String base64 = DatatypeConverter.printBase64Binary(asBytes);
+        HttpURLConnection connection = getConnection();
+
+        StorageBatchCodec.Entry entry = toEntry(toPost);
+        String base64 = DatatypeConverter.printBase64Binary(entry.getBytes());
 
         Map<String, String> jsonObj = new LinkedHashMap<>();
-        jsonObj.put("type", type.name());
-        jsonObj.put("class", className);
+        jsonObj.put("type", entry.getType().name());
+        jsonObj.put("class", entry.getClassName());
         jsonObj.put("data", base64);
 
         String str;
@@ -352,4 +498,93 @@ public class RemoteUIStatsStorageRouter implements StatsStorageRouter {
 
         return true;
     }
+
+    /**
+     * Builder for a RemoteUIStatsStorageRouter in batched mode: multiple objects are posted per request, in a binary
+     * format, to the UI's {@link #DEFAULT_BULK_PATH} endpoint
+     */
+    public static class Builder {
+        private final String address;
+        private String path = DEFAULT_BULK_PATH;
+        private int maxRetryCount = DEFAULT_MAX_RETRIES;
+        private long retryDelayMS = DEFAULT_BASE_RETR_DELAY_MS;
+        private double retryBackoffFactor = DEFAULT_RETRY_BACKOFF_FACTOR;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+        private boolean compress = true;
+
+        /**
+         * @param address Address of the remote UI: for example, "http://localhost:9000"
+         */
+        public Builder(String address) {
+            this.address = address;
+        }
+
+        /**
+         * Path/endpoint to post to. Default: {@link #DEFAULT_BULK_PATH}
+         */
+        public Builder path(String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Maximum number of retries before failing. Set to -1 to always retry. Default: {@link #DEFAULT_MAX_RETRIES}
+         */
+        public Builder maxRetryCount(int maxRetryCount) {
+            this.maxRetryCount = maxRetryCount;
+            return this;
+        }
+
+        /**
+         * Base delay before retrying, in milliseconds. Default: {@link #DEFAULT_BASE_RETR_DELAY_MS}
+         */
+        public Builder retryDelayMS(long retryDelayMS) {
+            this.retryDelayMS = retryDelayMS;
+            return this;
+        }
+
+        /**
+         * Backoff factor for retrying. Default: {@link #DEFAULT_RETRY_BACKOFF_FACTOR}
+         */
+        public Builder retryBackoffFactor(double retryBackoffFactor) {
+            this.retryBackoffFactor = retryBackoffFactor;
+            return this;
+        }
+
+        /**
+         * Maximum number of objects to post per request. Default: {@link #DEFAULT_BATCH_SIZE}
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Maximum number of queued objects: when reached, the oldest updates are dropped. 0 for an unbounded queue.
+         * Default: {@link #DEFAULT_MAX_QUEUE_SIZE}
+         */
+        public Builder maxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * Whether to compress (GZIP) each batch. Default: true
+         */
+        public Builder compress(boolean compress) {
+            this.compress = compress;
+            return this;
+        }
+
+        public RemoteUIStatsStorageRouter build() {
+            if (batchSize < 1)
+                throw new IllegalArgumentException("Batch size must be positive, got " + batchSize);
+            if (maxQueueSize < 0)
+                throw new IllegalArgumentException("Max queue size must be 0 (unbounded) or positive, got "
+                                + maxQueueSize);
+            return new RemoteUIStatsStorageRouter(address, path, maxRetryCount, retryDelayMS, retryBackoffFactor,
+                            batchSize, maxQueueSize, compress);
+        }
+    }
 }
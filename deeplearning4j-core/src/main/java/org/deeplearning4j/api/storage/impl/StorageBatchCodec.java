@@ -0,0 +1,188 @@
+package org.deeplearning4j.api.storage.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NonNull;
+import org.deeplearning4j.api.storage.StorageType;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary format for posting multiple encoded {@link org.deeplearning4j.api.storage.Persistable} and
+ * {@link org.deeplearning4j.api.storage.StorageMetaData} objects in a single request, as used by
+ * {@link RemoteUIStatsStorageRouter} in batched mode, and the UI's bulk remote receive endpoint.<br>
+ * Each entry is the storage type, the class name and the bytes from {@code encode()} (i.e., SBE for the
+ * StatsListener's reports): no JSON or base64 encoding is used. The entries may optionally be compressed (GZIP).
+ * <p>
+ * Format: magic number (int), version (byte), flags (byte), then (compressed if the flag is set): number of entries
+ * (int), and for each entry: type name (UTF), class name (UTF), length (int), bytes.
+ * <p>
+ * Batches are received from the network, so decoding is limited to {@link #DEFAULT_MAX_DECODED_BYTES} of content
+ * (after decompression), and entry lengths are checked against the remaining content before allocating them.
+ */
+public class StorageBatchCodec {
+    public static final int MAGIC = 0x444C3442;
+    public static final byte VERSION = 1;
+    /**
+     * Default max size of decoded (decompressed) batch content: 64MB
+     */
+    public static final int DEFAULT_MAX_DECODED_BYTES = 64 * 1024 * 1024;
+    private static final byte FLAG_GZIP = 1;
+    private static final int HEADER_BYTES = 6;
+
+    private StorageBatchCodec() {}
+
+    @AllArgsConstructor
+    @Data
+    public static class Entry {
+        private final StorageType type;
+        private final String className;
+        private final byte[] bytes;
+    }
+
+    /**
+     * @param entries  Entries to encode
+     * @param compress Whether to GZIP compress the entries
+     * @return Encoded batch
+     */
+    public static byte[] encode(@NonNull List<Entry> entries, boolean compress) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            DataOutputStream header = new DataOutputStream(baos);
+            header.writeInt(MAGIC);
+            header.writeByte(VERSION);
+            header.writeByte(compress ? FLAG_GZIP : 0);
+            header.flush();
+
+            OutputStream os = (compress ? new GZIPOutputStream(baos) : baos);
+            DataOutputStream dos = new DataOutputStream(os);
+            dos.writeInt(entries.size());
+            for (Entry e : entries) {
+                dos.writeUTF(e.getType().name());
+                dos.writeUTF(e.getClassName());
+                dos.writeInt(e.getBytes().length);
+                dos.write(e.getBytes());
+            }
+            dos.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e); //Should never happen with ByteArrayOutputStream
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Decode batch, with at most {@link #DEFAULT_MAX_DECODED_BYTES} of content
+     *
+     * @param bytes Batch encoded with {@link #encode(List, boolean)}
+     * @return Decoded entries, in order
+     * @throws IOException If the bytes are not a valid batch
+     */
+    public static List<Entry> decode(@NonNull byte[] bytes) throws IOException {
+        return decode(bytes, DEFAULT_MAX_DECODED_BYTES);
+    }
+
+    /**
+     * @param bytes           Batch encoded with {@link #encode(List, boolean)}
+     * @param maxDecodedBytes Max size of batch content, after decompression
+     * @return Decoded entries, in order
+     * @throws IOException If the bytes are not a valid batch, or content exceeds maxDecodedBytes
+     */
+    public static List<Entry> decode(@NonNull byte[] bytes, int maxDecodedBytes) throws IOException {
+        if (maxDecodedBytes <= 0)
+            throw new IllegalArgumentException("Max decoded bytes must be positive, got " + maxDecodedBytes);
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+        int magic = header.readInt();
+        if (magic != MAGIC)
+            throw new IOException("Invalid batch: unexpected magic number " + Integer.toHexString(magic));
+        byte version = header.readByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported batch version: " + version);
+        byte flags = header.readByte();
+
+        //Without compression, content can't be longer than the remaining input
+        LimitedInputStream is;
+        if ((flags & FLAG_GZIP) != 0) {
+            is = new LimitedInputStream(new GZIPInputStream(header), maxDecodedBytes);
+        } else {
+            is = new LimitedInputStream(header, Math.min(maxDecodedBytes, bytes.length - HEADER_BYTES));
+        }
+        try (DataInputStream dis = new DataInputStream(is)) {
+            int count = dis.readInt();
+            if (count < 0)
+                throw new IOException("Invalid batch: negative number of entries");
+            List<Entry> out = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                StorageType type;
+                String typeName = dis.readUTF();
+                try {
+                    type = StorageType.valueOf(typeName);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid batch: unknown storage type " + typeName);
+                }
+                String className = dis.readUTF();
+                int length = dis.readInt();
+                if (length < 0)
+                    throw new IOException("Invalid batch: negative entry length");
+                if (length > is.remaining())
+                    throw new IOException("Invalid batch: entry length " + length + " exceeds remaining content ("
+                                    + is.remaining() + " bytes)");
+                byte[] b = new byte[length];
+                dis.readFully(b);
+                out.add(new Entry(type, className, b));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Stream that fails once more than the given number of bytes are read
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        private long remaining() {
+            return limit - count;
+        }
+
+        private void count(long n) throws IOException {
+            if (n > 0) {
+                count += n;
+                if (count > limit)
+                    throw new IOException("Invalid batch: content exceeds max size of " + limit + " bytes");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+    }
+}
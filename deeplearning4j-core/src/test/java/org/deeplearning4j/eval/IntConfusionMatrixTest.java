@@ -0,0 +1,133 @@
+package org.deeplearning4j.eval;
+
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntConfusionMatrixTest {
+
+    @Test
+    public void testDenseAndSparseMatchReference() {
+        Random r = new Random(12345);
+        //Dense for 10 classes; sparse (hashed) for 5000 classes
+        for (int nClasses : new int[] {10, 5000}) {
+            List<Integer> classes = new ArrayList<>();
+            for (int i = 0; i < nClasses; i++)
+                classes.add(i);
+            ConfusionMatrix<Integer> reference = new ConfusionMatrix<>(classes);
+            IntConfusionMatrix cm = new IntConfusionMatrix(nClasses);
+            IntConfusionMatrix other = new IntConfusionMatrix(nClasses);
+
+            int n = 3000;
+            int[] actual = new int[n];
+            int[] predicted = new int[n];
+            for (int i = 0; i < n; i++) {
+                //Mostly correct, to get repeated entries
+                actual[i] = r.nextInt(nClasses);
+                predicted[i] = r.nextDouble() < 0.7 ? actual[i] : r.nextInt(nClasses);
+                reference.add(actual[i], predicted[i]);
+                if (i % 2 == 0)
+                    cm.add(actual[i], predicted[i]);
+                else
+                    other.add(new int[] {actual[i]}, new int[] {predicted[i]});
+            }
+            cm.add(other);
+
+            assertEquals(reference.getMatrix(), cm.getMatrix());
+            for (int i = 0; i < n; i++)
+                assertEquals(reference.getCount(actual[i], predicted[i]), cm.getCount(actual[i], predicted[i]));
+            for (int c = 0; c < Math.min(nClasses, 50); c++) {
+                assertEquals(reference.getActualTotal(c), cm.getActualTotal(c));
+                assertEquals(reference.getPredictedTotal(c), cm.getPredictedTotal(c));
+            }
+
+            IntConfusionMatrix copy = new IntConfusionMatrix(cm);
+            assertEquals(cm, copy);
+            assertEquals(reference, cm);
+            assertEquals(cm.hashCode(), copy.hashCode());
+
+            copy.add(0, 1);
+            assertNotEquals(cm, copy);
+        }
+    }
+
+    @Test
+    public void testEvaluationCounts() {
+        //Batched true/false positive/negative counts should match single example evaluation
+        Nd4j.getRandom().setSeed(12345);
+        int nClasses = 7;
+        int nExamples = 50;
+        INDArray labels = Nd4j.zeros(nExamples, nClasses);
+        INDArray predictions = Nd4j.rand(nExamples, nClasses);
+        Random r = new Random(12345);
+        for (int i = 0; i < nExamples; i++)
+            labels.putScalar(i, r.nextInt(nClasses), 1.0);
+
+        Evaluation batched = new Evaluation(nClasses);
+        batched.eval(labels, predictions);
+
+        Evaluation single = new Evaluation(nClasses);
+        INDArray actualIdx = Nd4j.argMax(labels, 1);
+        INDArray predictedIdx = Nd4j.argMax(predictions, 1);
+        for (int i = 0; i < nExamples; i++)
+            single.eval(predictedIdx.getInt(i), actualIdx.getInt(i));
+
+        assertTrue(batched.getConfusionMatrix() instanceof IntConfusionMatrix);
+        assertEquals(single.getConfusionMatrix(), batched.getConfusionMatrix());
+        assertEquals(single.truePositives(), batched.truePositives());
+        assertEquals(single.falsePositives(), batched.falsePositives());
+        assertEquals(single.trueNegatives(), batched.trueNegatives());
+        assertEquals(single.falseNegatives(), batched.falseNegatives());
+        assertEquals(single.accuracy(), batched.accuracy(), 1e-10);
+        assertEquals(single.f1(), batched.f1(), 1e-10);
+    }
+
+    @Test(timeout = 60000L)
+    public void testConcurrentOppositeAdds() throws Exception {
+        final IntConfusionMatrix a = new IntConfusionMatrix(10);
+        final IntConfusionMatrix b = new IntConfusionMatrix(10);
+        final IntConfusionMatrix empty = new IntConfusionMatrix(10);
+        a.add(1, 2);
+        b.add(3, 4);
+
+        //a.add(b) and b.add(a) at the same time shouldn't deadlock
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            final boolean forward = t == 0;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        if (forward) {
+                            a.add(b);
+                            a.add(empty);
+                        } else {
+                            b.add(a);
+                            empty.add(b);
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        //Counts grow exponentially here and overflow, but totals have to stay consistent with counts
+        for (IntConfusionMatrix cm : new IntConfusionMatrix[] {a, b}) {
+            assertEquals(cm.getCount(1, 2), cm.getActualTotal(1));
+            assertEquals(cm.getCount(3, 4), cm.getPredictedTotal(4));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClass() {
+        new IntConfusionMatrix(3).add(1, 3);
+    }
+}
@@ -0,0 +1,156 @@
+package org.deeplearning4j.eval;
+
+import org.deeplearning4j.datasets.iterator.IteratorDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.ListDataSetIterator;
+import org.deeplearning4j.datasets.iterator.impl.MultiDataSetIteratorAdapter;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParallelEvaluatorTest {
+
+    private static DataSetIterator getData(int numExamples, int batchSize) {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray features = Nd4j.rand(numExamples, 4);
+        INDArray labels = Nd4j.zeros(numExamples, 3);
+        for (int i = 0; i < numExamples; i++)
+            labels.putScalar(i, (i * 7) % 3, 1.0);
+        List<DataSet> list = new DataSet(features, labels).asList();
+        return new ListDataSetIterator(list, batchSize);
+    }
+
+    private static MultiLayerNetwork getNetwork() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).weightInit(WeightInit.XAVIER)
+                        .list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                        .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(8).nOut(3).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testMultiLayerNetwork() {
+        MultiLayerNetwork net = getNetwork();
+        DataSetIterator iter = getData(203, 10);
+
+        IEvaluation[] expected = net.doEvaluation(iter, new Evaluation(3), new ROCMultiClass(20),
+                        new RegressionEvaluation(3));
+        for (int numWorkers : new int[] {1, 2, 4}) {
+            iter.reset();
+            IEvaluation[] actual = net.doEvaluation(iter, numWorkers, new Evaluation(3), new ROCMultiClass(20),
+                            new RegressionEvaluation(3));
+            assertEquals(3, actual.length);
+
+            Evaluation expEval = (Evaluation) expected[0];
+            Evaluation actEval = (Evaluation) actual[0];
+            assertEquals(expEval.getConfusionMatrix(), actEval.getConfusionMatrix());
+            assertEquals(expEval.accuracy(), actEval.accuracy(), 1e-10);
+            assertEquals(expEval.f1(), actEval.f1(), 1e-10);
+
+            ROCMultiClass expRoc = (ROCMultiClass) expected[1];
+            ROCMultiClass actRoc = (ROCMultiClass) actual[1];
+            for (int i = 0; i < 3; i++)
+                assertEquals(expRoc.calculateAUC(i), actRoc.calculateAUC(i), 1e-6);
+
+            RegressionEvaluation expReg = (RegressionEvaluation) expected[2];
+            RegressionEvaluation actReg = (RegressionEvaluation) actual[2];
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expReg.meanSquaredError(i), actReg.meanSquaredError(i), 1e-4);
+                assertEquals(expReg.correlationR2(i), actReg.correlationR2(i), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void testComputationGraph() {
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).graphBuilder().addInputs("in")
+                        .addLayer("dense", new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build(),
+                                        "in")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(8).nOut(3).build(), "dense")
+                        .setOutputs("out").build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+
+        DataSetIterator iter = getData(97, 8);
+        Evaluation expected = graph.evaluate(iter);
+
+        iter.reset();
+        Evaluation actual = graph.doEvaluation(iter, 3, new Evaluation())[0];
+        assertEquals(expected.getConfusionMatrix(), actual.getConfusionMatrix());
+        assertEquals(expected.accuracy(), actual.accuracy(), 1e-10);
+
+        MultiDataSetIterator mdsIter = new MultiDataSetIteratorAdapter(getData(97, 8));
+        actual = graph.doEvaluation(mdsIter, 3, new Evaluation())[0];
+        assertEquals(expected.getConfusionMatrix(), actual.getConfusionMatrix());
+        assertEquals(expected.accuracy(), actual.accuracy(), 1e-10);
+    }
+
+    @Test
+    public void testManyBatches() {
+        MultiLayerNetwork net = getNetwork();
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).graphBuilder().addInputs("in")
+                        .addLayer("dense", new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build(),
+                                        "in")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(8).nOut(3).build(), "dense")
+                        .setOutputs("out").build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init(net.params(), true);
+
+        Evaluation expected = net.evaluate(getData(3001, 3));
+        for (int numWorkers : new int[] {2, 4}) {
+            //Iterator supports async prefetch: many more batches than prefetched and queued for workers
+            DataSetIterator iter = new IteratorDataSetIterator(getData(3001, 3), 3);
+            assertTrue(iter.asyncSupported());
+            Evaluation actual = net.doEvaluation(iter, numWorkers, new Evaluation())[0];
+            assertEquals(expected.getConfusionMatrix(), actual.getConfusionMatrix());
+            assertEquals(expected.accuracy(), actual.accuracy(), 1e-10);
+
+            MultiDataSetIterator mdsIter =
+                            new MultiDataSetIteratorAdapter(new IteratorDataSetIterator(getData(3001, 3), 3));
+            actual = graph.doEvaluation(mdsIter, numWorkers, new Evaluation())[0];
+            assertEquals(expected.getConfusionMatrix(), actual.getConfusionMatrix());
+            assertEquals(expected.accuracy(), actual.accuracy(), 1e-10);
+        }
+    }
+
+    @Test
+    public void testWorkerFailure() {
+        MultiLayerNetwork net = getNetwork();
+        //Wrong number of features: exception should be propagated to the calling thread
+        List<DataSet> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            list.add(new DataSet(Nd4j.rand(5, 7), Nd4j.rand(5, 3)));
+
+        try {
+            net.doEvaluation(new ListDataSetIterator(list, 5), 2, new Evaluation());
+            fail("Expected exception");
+        } catch (Exception e) {
+            //expected
+        }
+    }
+}
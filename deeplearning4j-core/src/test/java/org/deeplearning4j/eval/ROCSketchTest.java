@@ -0,0 +1,132 @@
+package org.deeplearning4j.eval;
+
+import org.deeplearning4j.eval.curves.PrecisionRecallCurve;
+import org.deeplearning4j.eval.sketch.TDigest;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ROCSketchTest {
+
+    @Test
+    public void testTDigestQuantiles() {
+        Random r = new Random(12345);
+        int n = 100000;
+        double[] values = new double[n];
+        TDigest digest = new TDigest(100);
+        for (int i = 0; i < n; i += 1000) {
+            double[] batch = new double[1000];
+            for (int j = 0; j < batch.length; j++) {
+                batch[j] = r.nextGaussian();
+                values[i + j] = batch[j];
+            }
+            digest.add(batch);
+        }
+        Arrays.sort(values);
+
+        assertEquals(n, digest.getTotalWeight(), 0.0);
+        assertTrue(digest.size() < 200);
+        for (double q : new double[] {0.001, 0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+            double x = values[(int) (q * n)];
+            assertEquals(q, digest.cdf(x), 0.005);
+            //Values in the tails are sparse: only check quantiles in the bulk of the distribution
+            if (q >= 0.01 && q <= 0.99)
+                assertEquals(x, digest.quantile(q), 0.05);
+        }
+        assertEquals(0.0, digest.cdf(values[0] - 1), 0.0);
+        assertEquals(1.0, digest.cdf(values[n - 1]), 0.0);
+    }
+
+    @Test
+    public void testSketchVsExact() {
+        //Skewed predictions: most probabilities close to 0, where thresholded ROC is inaccurate
+        Random r = new Random(12345);
+        int nExamples = 20000;
+        INDArray labels = Nd4j.create(nExamples, 1);
+        INDArray predictions = Nd4j.create(nExamples, 1);
+        for (int i = 0; i < nExamples; i++) {
+            boolean positive = r.nextDouble() < 0.1;
+            double p = Math.pow(r.nextDouble(), positive ? 3 : 6);
+            labels.putScalar(i, positive ? 1.0 : 0.0);
+            predictions.putScalar(i, p);
+        }
+
+        ROC exact = new ROC(0);
+        ROC sketch = ROC.createSketch(200);
+        ROC merged = ROC.createSketch(200);
+        int batchSize = 1000;
+        for (int i = 0; i < nExamples; i += batchSize) {
+            INDArray l = labels.get(NDArrayIndex.interval(i, i + batchSize), NDArrayIndex.all());
+            INDArray p = predictions.get(NDArrayIndex.interval(i, i + batchSize), NDArrayIndex.all());
+            exact.eval(l, p);
+            sketch.eval(l, p);
+
+            ROC part = ROC.createSketch(200);
+            part.eval(l, p);
+            merged.merge(part);
+        }
+
+        assertEquals(exact.getCountActualPositive(), sketch.getCountActualPositive());
+        assertEquals(exact.getCountActualNegative(), sketch.getCountActualNegative());
+        assertEquals(exact.calculateAUC(), sketch.calculateAUC(), 0.005);
+        assertEquals(exact.calculateAUCPR(), sketch.calculateAUCPR(), 0.01);
+        assertEquals(exact.calculateAUC(), merged.calculateAUC(), 0.005);
+        assertEquals(exact.calculateAUCPR(), merged.calculateAUCPR(), 0.01);
+
+        PrecisionRecallCurve prc = sketch.getPrecisionRecallCurve();
+        assertEquals(0.0, prc.getThreshold(0), 0.0);
+        assertEquals(1.0, prc.getThreshold(prc.numPoints() - 1), 0.0);
+
+        sketch.reset();
+        assertEquals(0, sketch.getCountActualPositive());
+        assertTrue(sketch.getPositiveScores().isEmpty());
+    }
+
+    @Test
+    public void testSketchSerialization() {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray predictions = Nd4j.rand(500, 3);
+        predictions.diviColumnVector(predictions.sum(1));
+        INDArray labels = Nd4j.zeros(500, 3);
+        Random r = new Random(12345);
+        for (int i = 0; i < 500; i++)
+            labels.putScalar(i, r.nextInt(3), 1.0);
+
+        ROC roc = ROC.createSketch(100);
+        roc.eval(labels.getColumn(0), predictions.getColumn(0));
+        ROCBinary rocBinary = ROCBinary.createSketch(100);
+        rocBinary.eval(labels, predictions);
+        ROCMultiClass rocMultiClass = ROCMultiClass.createSketch(100);
+        rocMultiClass.eval(labels, predictions);
+
+        ROC fromJson = ROC.fromJson(roc.toJson(), ROC.class);
+        assertTrue(fromJson.isSketch());
+        assertEquals(roc.getPositiveScores(), fromJson.getPositiveScores());
+        assertEquals(roc.getNegativeScores(), fromJson.getNegativeScores());
+        assertEquals(roc.calculateAUC(), fromJson.calculateAUC(), 1e-10);
+
+        //Deserialized sketches can still be merged
+        fromJson.merge(roc);
+        assertEquals(2 * roc.getExampleCount(), fromJson.getExampleCount());
+        assertEquals(roc.calculateAUC(), fromJson.calculateAUC(), 0.01);
+
+        ROCBinary binaryFromJson = ROCBinary.fromJson(rocBinary.toJson(), ROCBinary.class);
+        ROCMultiClass multiClassFromJson = ROCMultiClass.fromJson(rocMultiClass.toJson(), ROCMultiClass.class);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rocBinary.getUnderlying()[i].isSketch());
+            assertEquals(rocBinary.calculateAUC(i), binaryFromJson.calculateAUC(i), 1e-10);
+            assertEquals(rocMultiClass.calculateAUC(i), multiClassFromJson.calculateAUC(i), 1e-10);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMergeDifferentModes() {
+        ROC.createSketch(100).merge(new ROC(0));
+    }
+}
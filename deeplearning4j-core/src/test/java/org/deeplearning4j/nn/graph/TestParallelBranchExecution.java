@@ -0,0 +1,257 @@
+package org.deeplearning4j.nn.graph;
+
+import org.deeplearning4j.nn.conf.CacheMode;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.graph.ElementWiseVertex;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.graph.util.ParallelBranchExecutor;
+import org.deeplearning4j.nn.layers.FrozenLayer;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.MultiDataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestParallelBranchExecution {
+
+    private static ComputationGraph getInceptionLikeGraph(boolean frozen) {
+        org.deeplearning4j.nn.conf.layers.Layer b0 = new DenseLayer.Builder().nIn(4).nOut(6).build();
+        if (frozen)
+            b0 = new org.deeplearning4j.nn.conf.layers.misc.FrozenLayer(b0);
+
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).activation(Activation.TANH).graphBuilder()
+                        .addInputs("in")
+                        .addLayer("a", new DenseLayer.Builder().nIn(4).nOut(5).build(), "in")
+                        .addLayer("b0", b0, "in")
+                        .addLayer("b1", new DenseLayer.Builder().nIn(6).nOut(5).build(), "b0")
+                        .addLayer("c0", new DenseLayer.Builder().nIn(4).nOut(3).build(), "in")
+                        .addLayer("c1", new DenseLayer.Builder().nIn(3).nOut(7).build(), "c0")
+                        .addLayer("c2", new DenseLayer.Builder().nIn(7).nOut(5).build(), "c1")
+                        .addVertex("add", new ElementWiseVertex(ElementWiseVertex.Op.Add), "a", "b1")
+                        .addVertex("merge", new MergeVertex(), "add", "c2", "a")
+                        .addLayer("out", new OutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(15).nOut(3).build(), "merge")
+                        .addLayer("out2", new OutputLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).nIn(5).nOut(2).build(), "c2")
+                        .setOutputs("out", "out2").build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        return graph;
+    }
+
+    private static MultiDataSet getData() {
+        INDArray labels = Nd4j.zeros(8, 3);
+        for (int i = 0; i < 8; i++)
+            labels.putScalar(i, i % 3, 1.0);
+        return new MultiDataSet(new INDArray[] {Nd4j.rand(8, 4)}, new INDArray[] {labels, Nd4j.rand(8, 2)});
+    }
+
+    @Test
+    public void testMatchesSequential() {
+        Nd4j.getRandom().setSeed(12345);
+        ComputationGraph parallel = getInceptionLikeGraph(false);
+        ComputationGraph sequential = parallel.clone();
+        parallel.setBranchParallelism(3);
+        assertEquals(3, parallel.getBranchParallelism());
+        assertEquals(1, sequential.getBranchParallelism());
+
+        try {
+            MultiDataSet data = getData();
+            INDArray in = data.getFeatures(0);
+
+            Map<String, INDArray> expActivations = sequential.feedForward(in, false);
+            Map<String, INDArray> actActivations = parallel.feedForward(in, false);
+            assertEquals(expActivations.keySet(), actActivations.keySet());
+            for (String s : expActivations.keySet())
+                assertEquals(s, expActivations.get(s), actActivations.get(s));
+
+            INDArray[] expOut = sequential.output(in);
+            INDArray[] actOut = parallel.output(in);
+            assertArrayEquals(expOut, actOut);
+
+            sequential.setInputs(data.getFeatures());
+            sequential.setLabels(data.getLabels());
+            sequential.computeGradientAndScore();
+            parallel.setInputs(data.getFeatures());
+            parallel.setLabels(data.getLabels());
+            parallel.computeGradientAndScore();
+
+            assertEquals(sequential.score(), parallel.score(), 1e-6);
+            assertEquals(sequential.gradient().gradient(), parallel.gradient().gradient());
+            Map<String, INDArray> expGrad = sequential.gradient().gradientForVariable();
+            Map<String, INDArray> actGrad = parallel.gradient().gradientForVariable();
+            assertEquals(new ArrayList<>(expGrad.keySet()), new ArrayList<>(actGrad.keySet()));
+            for (String s : expGrad.keySet())
+                assertEquals(s, expGrad.get(s), actGrad.get(s));
+
+            for (int i = 0; i < 3; i++) {
+                sequential.fit(data);
+                parallel.fit(data);
+            }
+            assertEquals(sequential.params(), parallel.params());
+
+            //Disabling parallel execution should switch back to sequential execution
+            parallel.setBranchParallelism(0);
+            assertEquals(1, parallel.getBranchParallelism());
+            assertArrayEquals(sequential.output(in), parallel.output(in));
+        } finally {
+            parallel.setBranchParallelism(0);
+        }
+    }
+
+    @Test
+    public void testFrozenLayer() {
+        Nd4j.getRandom().setSeed(12345);
+        //Layer "b0" is frozen: vertices before it in topological order are not trained
+        ComputationGraph parallel = getInceptionLikeGraph(true);
+        assertTrue(parallel.getLayer("b0") instanceof FrozenLayer);
+        ComputationGraph sequential = parallel.clone();
+        parallel.setBranchParallelism(2);
+
+        try {
+            MultiDataSet data = getData();
+            sequential.setInputs(data.getFeatures());
+            sequential.setLabels(data.getLabels());
+            sequential.computeGradientAndScore();
+            parallel.setInputs(data.getFeatures());
+            parallel.setLabels(data.getLabels());
+            parallel.computeGradientAndScore();
+
+            assertEquals(sequential.score(), parallel.score(), 1e-6);
+            assertEquals(sequential.gradient().gradientForVariable().keySet(),
+                            parallel.gradient().gradientForVariable().keySet());
+            assertEquals(sequential.gradient().gradient(), parallel.gradient().gradient());
+        } finally {
+            parallel.setBranchParallelism(0);
+        }
+    }
+
+    @Test
+    public void testCacheMode() {
+        for (WorkspaceMode mode : new WorkspaceMode[] {WorkspaceMode.NONE, WorkspaceMode.SEPARATE}) {
+            Nd4j.getRandom().setSeed(12345);
+            //LSTM layers borrow cache workspace during backprop when CacheMode is set
+            ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                            .weightInit(WeightInit.XAVIER).activation(Activation.TANH).cacheMode(CacheMode.DEVICE)
+                            .trainingWorkspaceMode(mode).inferenceWorkspaceMode(mode).graphBuilder()
+                            .addInputs("in")
+                            .addLayer("a0", new GravesLSTM.Builder().nIn(4).nOut(5).build(), "in")
+                            .addLayer("a1", new GravesLSTM.Builder().nIn(5).nOut(5).build(), "a0")
+                            .addLayer("b0", new LSTM.Builder().nIn(4).nOut(6).build(), "in")
+                            .addLayer("b1", new LSTM.Builder().nIn(6).nOut(6).build(), "b0")
+                            .addLayer("c", new GravesLSTM.Builder().nIn(4).nOut(7).build(), "in")
+                            .addVertex("merge", new MergeVertex(), "a1", "b1", "c")
+                            .addLayer("out", new RnnOutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                            .activation(Activation.SOFTMAX).nIn(18).nOut(3).build(), "merge")
+                            .setOutputs("out").build();
+            ComputationGraph parallel = new ComputationGraph(conf);
+            parallel.init();
+            ComputationGraph sequential = parallel.clone();
+            parallel.setBranchParallelism(2);
+            //Worker threads have no cache workspace, so vertices are executed sequentially
+            assertFalse(parallel.useBranchExecutor(false));
+            assertFalse(parallel.useBranchExecutor(true));
+
+            try {
+                INDArray labels = Nd4j.zeros(4, 3, 5);
+                for (int i = 0; i < 4; i++)
+                    for (int t = 0; t < 5; t++)
+                        labels.putScalar(new int[] {i, (i + t) % 3, t}, 1.0);
+                MultiDataSet data = new MultiDataSet(new INDArray[] {Nd4j.rand(new int[] {4, 4, 5})},
+                                new INDArray[] {labels});
+
+                for (int i = 0; i < 3; i++) {
+                    sequential.fit(data);
+                    parallel.fit(data);
+                }
+                assertEquals(mode.toString(), sequential.params(), parallel.params());
+                assertArrayEquals(sequential.output(data.getFeatures(0)), parallel.output(data.getFeatures(0)));
+
+                //Without cache mode, inference is executed in parallel, and training only if workspaces are disabled
+                parallel.setCacheMode(CacheMode.NONE);
+                assertTrue(parallel.useBranchExecutor(false));
+                assertEquals(mode == WorkspaceMode.NONE, parallel.useBranchExecutor(true));
+
+                //Runtime cache mode doesn't leak into serialized configuration
+                assertEquals(CacheMode.DEVICE, parallel.getConfiguration().getCacheMode());
+                assertEquals(conf.toJson(), parallel.getConfiguration().toJson());
+                parallel.setCacheMode(CacheMode.HOST);
+                assertFalse(parallel.useBranchExecutor(false));
+            } finally {
+                parallel.setBranchParallelism(0);
+            }
+        }
+    }
+
+    @Test
+    public void testExecutorOrderAndErrors() {
+        ParallelBranchExecutor executor = new ParallelBranchExecutor(2);
+        try {
+            //Diamond: 0 -> {1, 2} -> 3
+            int[][] dependencies = {null, {0}, {0}, {1, 2, 2}};
+            final List<Integer> completed = new ArrayList<>();
+            executor.execute(new int[] {0, 1, 2, 3}, dependencies, new ParallelBranchExecutor.VertexTask<Integer>() {
+                @Override
+                public Integer execute(int vertex) {
+                    return vertex * 10;
+                }
+
+                @Override
+                public void onComplete(int vertex, Integer result) {
+                    assertEquals(vertex * 10, result.intValue());
+                    completed.add(vertex);
+                }
+            });
+            assertEquals(4, completed.size());
+            assertEquals(0, completed.get(0).intValue());
+            assertEquals(3, completed.get(3).intValue());
+
+            try {
+                executor.execute(new int[] {0, 1}, new int[][] {{1}, {0}},
+                                new ParallelBranchExecutor.VertexTask<Object>() {
+                                    @Override
+                                    public Object execute(int vertex) {
+                                        return null;
+                                    }
+
+                                    @Override
+                                    public void onComplete(int vertex, Object result) {}
+                                });
+                fail("Expected exception");
+            } catch (IllegalStateException e) {
+                //expected: cycle
+            }
+
+            try {
+                executor.execute(new int[] {0}, new int[][] {null}, new ParallelBranchExecutor.VertexTask<Object>() {
+                    @Override
+                    public Object execute(int vertex) {
+                        throw new IllegalArgumentException("test");
+                    }
+
+                    @Override
+                    public void onComplete(int vertex, Object result) {}
+                });
+                fail("Expected exception");
+            } catch (IllegalArgumentException e) {
+                assertEquals("test", e.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
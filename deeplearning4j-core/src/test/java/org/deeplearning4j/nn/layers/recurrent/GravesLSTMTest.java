@@ -2,6 +2,7 @@ package org.deeplearning4j.nn.layers.recurrent;
 
 import org.nd4j.linalg.primitives.Pair;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
+import org.deeplearning4j.nn.conf.CacheMode;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.conf.Updater;
@@ -255,4 +256,40 @@ public class GravesLSTMTest {
             net.fit(in, labels);
         }
     }
+
+    @Test
+    public void testCacheModeTrainingPass() {
+        //Training forward pass with CacheMode set keeps the pass for backprop, and has to return activations as well
+        INDArray expectedParams = null;
+        for (CacheMode cacheMode : new CacheMode[] {CacheMode.NONE, CacheMode.DEVICE}) {
+            Nd4j.getRandom().setSeed(12345);
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                            .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT).iterations(1)
+                            .updater(Updater.SGD).learningRate(0.1).seed(12345).cacheMode(cacheMode).list()
+                            .layer(0, new org.deeplearning4j.nn.conf.layers.GravesLSTM.Builder()
+                                            .activation(Activation.TANH).nIn(3).nOut(4).build())
+                            .layer(1, new org.deeplearning4j.nn.conf.layers.LSTM.Builder().activation(Activation.TANH)
+                                            .nIn(4).nOut(4).build())
+                            .layer(2, new org.deeplearning4j.nn.conf.layers.RnnOutputLayer.Builder()
+                                            .lossFunction(LossFunctions.LossFunction.MSE).nIn(4).nOut(2)
+                                            .activation(Activation.TANH).build())
+                            .build();
+
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+
+            INDArray in = Nd4j.rand(new int[] {3, 3, 5});
+            INDArray labels = Nd4j.rand(new int[] {3, 2, 5});
+
+            List<INDArray> activations = net.feedForward(in, true);
+            for (INDArray activation : activations)
+                assertNotNull(cacheMode.toString(), activation);
+
+            net.fit(in, labels);
+            if (expectedParams == null)
+                expectedParams = net.params().dup();
+            else
+                assertEquals(cacheMode.toString(), expectedParams, net.params());
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package org.deeplearning4j.nn.layers.recurrent;
+
+import org.deeplearning4j.nn.api.OptimizationAlgorithm;
+import org.deeplearning4j.nn.conf.BackpropType;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.Updater;
+import org.deeplearning4j.nn.conf.layers.Layer;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.util.DataTypeUtil;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batched input projection in {@link LSTMHelpers} should give the same activations, scores and gradients as
+ * per time step calculation
+ */
+public class LSTMBatchedInputProjectionTest {
+    private static final double EPS = 1e-10;
+
+    private DataBuffer.Type initialType;
+
+    @Before
+    public void before() {
+        initialType = Nd4j.dataType();
+        DataTypeUtil.setDTypeForContext(DataBuffer.Type.DOUBLE);
+    }
+
+    @After
+    public void after() {
+        LSTMHelpers.setBatchedInputProjection(true);
+        DataTypeUtil.setDTypeForContext(initialType);
+    }
+
+    @Test
+    public void testGravesLSTM() {
+        checkAll(new org.deeplearning4j.nn.conf.layers.GravesLSTM.Builder().nIn(5).nOut(7)
+                        .activation(Activation.TANH).build());
+    }
+
+    @Test
+    public void testLSTM() {
+        checkAll(new org.deeplearning4j.nn.conf.layers.LSTM.Builder().nIn(5).nOut(7).activation(Activation.TANH)
+                        .build());
+    }
+
+    @Test
+    public void testGravesBidirectionalLSTM() {
+        checkAll(new org.deeplearning4j.nn.conf.layers.GravesBidirectionalLSTM.Builder().nIn(5).nOut(7)
+                        .activation(Activation.TANH).build());
+    }
+
+    private static void checkAll(Layer lstm) {
+        DataSet data = data(4, 5, 3, 13, false);
+        DataSet masked = data(4, 5, 3, 13, true);
+
+        checkOutputAndGradients(conf(lstm, false), data);
+        checkOutputAndGradients(conf(lstm, false), masked);
+
+        // bidirectional layers don't support TBPTT
+        if (!(lstm instanceof org.deeplearning4j.nn.conf.layers.GravesBidirectionalLSTM)) {
+            checkOutputAndGradients(conf(lstm, true), data);
+            checkFit(conf(lstm, true), data);
+            checkFit(conf(lstm, true), masked);
+        }
+    }
+
+    private static MultiLayerConfiguration conf(Layer lstm, boolean tbptt) {
+        NeuralNetConfiguration.ListBuilder builder = new NeuralNetConfiguration.Builder().seed(12345)
+                        .optimizationAlgo(OptimizationAlgorithm.STOCHASTIC_GRADIENT_DESCENT).updater(Updater.SGD)
+                        .learningRate(0.1).weightInit(WeightInit.XAVIER).list().layer(0, lstm.clone())
+                        .layer(1, new RnnOutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(7).nOut(3).build());
+
+        if (tbptt) {
+            // backward length below forward length, so backprop doesn't reach the first time steps of a segment
+            builder.backpropType(BackpropType.TruncatedBPTT).tBPTTForwardLength(6).tBPTTBackwardLength(4);
+        }
+
+        return builder.build();
+    }
+
+    private static DataSet data(int miniBatch, int nIn, int nOut, int length, boolean masks) {
+        Random r = new Random(12345);
+        INDArray features = Nd4j.rand(new int[] {miniBatch, nIn, length}).subi(0.5);
+        INDArray labels = Nd4j.zeros(miniBatch, nOut, length);
+        for (int i = 0; i < miniBatch; i++)
+            for (int t = 0; t < length; t++)
+                labels.putScalar(new int[] {i, r.nextInt(nOut), t}, 1.0);
+
+        if (!masks)
+            return new DataSet(features, labels);
+
+        // variable length sequences
+        INDArray mask = Nd4j.ones(miniBatch, length);
+        for (int i = 0; i < miniBatch; i++)
+            for (int t = length - 2 * i; t < length; t++)
+                mask.putScalar(i, t, 0.0);
+
+        return new DataSet(features, labels, mask, mask.dup());
+    }
+
+    private static MultiLayerNetwork[] networks(MultiLayerConfiguration conf) {
+        MultiLayerNetwork batched = new MultiLayerNetwork(conf.clone());
+        batched.init();
+        MultiLayerNetwork perStep = new MultiLayerNetwork(conf.clone());
+        perStep.init();
+        perStep.setParams(batched.params().dup());
+        return new MultiLayerNetwork[] {batched, perStep};
+    }
+
+    private static void checkOutputAndGradients(MultiLayerConfiguration conf, DataSet data) {
+        MultiLayerNetwork[] nets = networks(conf);
+
+        INDArray[] outputs = new INDArray[2];
+        double[] scores = new double[2];
+        Map<String, INDArray>[] gradients = new Map[2];
+        for (int i = 0; i < 2; i++) {
+            LSTMHelpers.setBatchedInputProjection(i == 0);
+            MultiLayerNetwork net = nets[i];
+
+            net.setLayerMaskArrays(data.getFeaturesMaskArray(), data.getLabelsMaskArray());
+            outputs[i] = net.output(data.getFeatures(), false);
+
+            net.setInput(data.getFeatures());
+            net.setLabels(data.getLabels());
+            net.setLayerMaskArrays(data.getFeaturesMaskArray(), data.getLabelsMaskArray());
+            net.computeGradientAndScore();
+            scores[i] = net.score();
+            gradients[i] = net.gradient().gradientForVariable();
+            net.clearLayerMaskArrays();
+        }
+
+        assertClose(outputs[1], outputs[0]);
+        assertEquals(scores[1], scores[0], EPS);
+        assertEquals(gradients[1].keySet(), gradients[0].keySet());
+        for (String key : gradients[1].keySet())
+            assertClose(gradients[1].get(key), gradients[0].get(key));
+    }
+
+    private static void checkFit(MultiLayerConfiguration conf, DataSet data) {
+        MultiLayerNetwork[] nets = networks(conf);
+
+        for (int i = 0; i < 2; i++) {
+            LSTMHelpers.setBatchedInputProjection(i == 0);
+            for (int epoch = 0; epoch < 3; epoch++)
+                nets[i].fit(data);
+        }
+
+        assertClose(nets[1].params(), nets[0].params());
+    }
+
+    private static void assertClose(INDArray expected, INDArray actual) {
+        assertEquals(expected.length(), actual.length());
+        double maxDiff = Nd4j.getExecutioner().execAndReturn(
+                        new org.nd4j.linalg.api.ops.impl.transforms.Abs(expected.sub(actual))).maxNumber().doubleValue();
+        assertTrue("Max difference: " + maxDiff, maxDiff < EPS);
+    }
+}
@@ -0,0 +1,284 @@
+package org.deeplearning4j.nn.streaming;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.LSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.weights.WeightInit;
+import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RnnStreamingInferenceTest {
+
+    private static MultiLayerNetwork getNetwork() {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).weightInit(WeightInit.XAVIER)
+                        .list()
+                        .layer(0, new GravesLSTM.Builder().nIn(3).nOut(6).activation(Activation.TANH).build())
+                        .layer(1, new LSTM.Builder().nIn(6).nOut(5).activation(Activation.TANH).build())
+                        .layer(2, new RnnOutputLayer.Builder(LossFunctions.LossFunction.MCXENT)
+                                        .activation(Activation.SOFTMAX).nIn(5).nOut(4).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+        return net;
+    }
+
+    @Test
+    public void testMatchesRnnTimeStep() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = getNetwork();
+        MultiLayerNetwork reference = net.clone();
+
+        RnnStreamingInference inference =
+                        new RnnStreamingInference.Builder(net).workers(2).batchLimit(4).initialCapacity(2).build();
+        try {
+            int numSessions = 7;
+            List<RnnSession> sessions = new ArrayList<>();
+            List<INDArray> sequences = new ArrayList<>();
+            Map<RnnSession, List<Future<INDArray[]>>> futures = new HashMap<>();
+            for (int i = 0; i < numSessions; i++) {
+                RnnSession session = inference.openSession();
+                sessions.add(session);
+                sequences.add(Nd4j.rand(new int[] {1, 3, 4 + i}));
+                futures.put(session, new ArrayList<Future<INDArray[]>>());
+            }
+            assertEquals(numSessions, inference.numSessions());
+
+            //Interleave time steps of all sessions, without waiting for results
+            for (int t = 0; t < 4 + numSessions; t++) {
+                for (int i = 0; i < numSessions; i++) {
+                    INDArray sequence = sequences.get(i);
+                    if (t < sequence.size(2)) {
+                        INDArray step = sequence.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t));
+                        futures.get(sessions.get(i)).add(inference.stepAsync(sessions.get(i), step));
+                    }
+                }
+            }
+
+            for (int i = 0; i < numSessions; i++) {
+                reference.rnnClearPreviousState();
+                INDArray expected = reference.rnnTimeStep(sequences.get(i));
+                List<Future<INDArray[]>> sessionFutures = futures.get(sessions.get(i));
+                for (int t = 0; t < sessionFutures.size(); t++) {
+                    INDArray[] out = sessionFutures.get(t).get();
+                    assertEquals(1, out.length);
+                    INDArray expStep = expected.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t));
+                    assertEquals(expStep, out[0]);
+                }
+            }
+
+            //Closed session slot is reused by new session, which should start from zero state
+            RnnSession closed = sessions.get(0);
+            inference.closeSession(closed);
+            assertTrue(closed.isClosed());
+            try {
+                inference.stepAsync(closed, Nd4j.rand(1, 3));
+                fail("Expected exception");
+            } catch (IllegalStateException e) {
+                //expected
+            }
+
+            RnnSession session = inference.openSession();
+            INDArray sequence = Nd4j.rand(new int[] {1, 3, 5});
+            reference.rnnClearPreviousState();
+            INDArray expected = reference.rnnTimeStep(sequence);
+            for (int t = 0; t < 5; t++) {
+                INDArray step = sequence.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t));
+                INDArray[] out = inference.step(session, step);
+                assertEquals(expected.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t)), out[0]);
+            }
+            assertEquals(numSessions, inference.numSessions());
+        } finally {
+            inference.shutdown();
+        }
+    }
+
+    @Test
+    public void testComputationGraph() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        ComputationGraphConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345)
+                        .weightInit(WeightInit.XAVIER).graphBuilder().addInputs("in")
+                        .addLayer("lstm", new GravesLSTM.Builder().nIn(3).nOut(5).activation(Activation.TANH).build(),
+                                        "in")
+                        .addLayer("out", new RnnOutputLayer.Builder(LossFunctions.LossFunction.MSE)
+                                        .activation(Activation.IDENTITY).nIn(5).nOut(2).build(), "lstm")
+                        .setOutputs("out").build();
+        ComputationGraph graph = new ComputationGraph(conf);
+        graph.init();
+        ComputationGraph reference = graph.clone();
+
+        RnnStreamingInference inference = new RnnStreamingInference.Builder(graph).workers(1).build();
+        try {
+            RnnSession s1 = inference.openSession();
+            RnnSession s2 = inference.openSession();
+            INDArray seq1 = Nd4j.rand(new int[] {1, 3, 6});
+            INDArray seq2 = Nd4j.rand(new int[] {1, 3, 6});
+
+            List<Future<INDArray[]>> f1 = new ArrayList<>();
+            List<Future<INDArray[]>> f2 = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                f1.add(inference.stepAsync(s1, seq1.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t))));
+                f2.add(inference.stepAsync(s2, seq2.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t))));
+            }
+
+            reference.rnnClearPreviousState();
+            INDArray exp1 = reference.rnnTimeStep(seq1)[0];
+            reference.rnnClearPreviousState();
+            INDArray exp2 = reference.rnnTimeStep(seq2)[0];
+            for (int t = 0; t < 6; t++) {
+                assertEquals(exp1.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t)), f1.get(t).get()[0]);
+                assertEquals(exp2.get(NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.point(t)), f2.get(t).get()[0]);
+            }
+        } finally {
+            inference.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentCloseAndStep() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = getNetwork();
+        MultiLayerNetwork reference = net.clone();
+        final INDArray input = Nd4j.rand(1, 3);
+        reference.rnnClearPreviousState();
+        INDArray expected = reference.rnnTimeStep(input);
+
+        final RnnStreamingInference inference =
+                        new RnnStreamingInference.Builder(net).workers(1).batchLimit(8).initialCapacity(2).build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 5; round++) {
+                int numSessions = 16;
+                List<Future<List<Future<INDArray[]>>>> submitters = new ArrayList<>();
+                List<RnnSession> sessions = new ArrayList<>();
+                for (int i = 0; i < numSessions; i++) {
+                    final RnnSession session = inference.openSession();
+                    sessions.add(session);
+                    //Keep stepping until session gets closed
+                    submitters.add(executor.submit(new Callable<List<Future<INDArray[]>>>() {
+                        @Override
+                        public List<Future<INDArray[]>> call() {
+                            List<Future<INDArray[]>> futures = new ArrayList<>();
+                            while (true) {
+                                try {
+                                    futures.add(inference.stepAsync(session, input));
+                                } catch (IllegalStateException e) {
+                                    return futures;
+                                }
+                            }
+                        }
+                    }));
+                }
+
+                for (RnnSession session : sessions)
+                    inference.closeSession(session);
+
+                //Every time step accepted before close should be processed
+                for (Future<List<Future<INDArray[]>>> submitter : submitters)
+                    for (Future<INDArray[]> future : submitter.get())
+                        assertNotNull(future.get()[0]);
+
+                //Freed slots are reused by new sessions, which should start from zero state
+                List<RnnSession> fresh = new ArrayList<>();
+                for (int i = 0; i < numSessions; i++)
+                    fresh.add(inference.openSession());
+                for (RnnSession session : fresh) {
+                    assertEquals(expected, inference.step(session, input)[0]);
+                    inference.closeSession(session);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            inference.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownDuringSteps() throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        MultiLayerNetwork net = getNetwork();
+        final INDArray input = Nd4j.rand(1, 3);
+
+        for (int round = 0; round < 10; round++) {
+            final RnnStreamingInference inference = new RnnStreamingInference.Builder(net).workers(1).batchLimit(2)
+                            .queueLimit(4).build();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<List<Future<INDArray[]>>>> submitters = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    final RnnSession session = inference.openSession();
+                    //Keep stepping until inference is shut down
+                    submitters.add(executor.submit(new Callable<List<Future<INDArray[]>>>() {
+                        @Override
+                        public List<Future<INDArray[]>> call() {
+                            List<Future<INDArray[]>> futures = new ArrayList<>();
+                            while (true) {
+                                try {
+                                    futures.add(inference.stepAsync(session, input));
+                                } catch (IllegalStateException e) {
+                                    return futures;
+                                }
+                            }
+                        }
+                    }));
+                }
+
+                Thread.sleep(20);
+                inference.shutdown();
+
+                //Every time step is either processed or failed, none is left waiting forever
+                for (Future<List<Future<INDArray[]>>> submitter : submitters) {
+                    for (Future<INDArray[]> future : submitter.get(10, TimeUnit.SECONDS)) {
+                        try {
+                            assertNotNull(future.get(10, TimeUnit.SECONDS)[0]);
+                        } catch (ExecutionException e) {
+                            assertTrue(e.getCause() instanceof IllegalStateException);
+                        }
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testStateStore() {
+        RnnStateStore store = new RnnStateStore(1, 1);
+        int[] slots = {store.allocate(), store.allocate(), store.allocate()};
+        assertTrue(store.getCapacity() >= 3);
+        assertNull(store.gather(0, slots));
+
+        Map<String, INDArray> state = new HashMap<>();
+        state.put("s", Nd4j.create(new double[][] {{1, 2}, {3, 4}, {5, 6}}));
+        store.scatter(0, slots, state);
+        assertEquals(Nd4j.create(new double[][] {{5, 6}, {1, 2}}), store.gather(0, new int[] {slots[2], slots[0]}).get("s"));
+
+        store.release(slots[1]);
+        assertEquals(2, store.size());
+        int reused = store.allocate();
+        assertEquals(slots[1], reused);
+        assertEquals(Nd4j.zeros(1, 2), store.gather(0, new int[] {reused}).get("s"));
+    }
+}
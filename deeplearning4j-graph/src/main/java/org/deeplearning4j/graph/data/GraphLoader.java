@@ -4,6 +4,7 @@ import org.deeplearning4j.graph.api.Edge;
 import org.deeplearning4j.graph.api.Vertex;
 import org.deeplearning4j.graph.data.impl.DelimitedEdgeLineProcessor;
 import org.deeplearning4j.graph.data.impl.WeightedEdgeLineProcessor;
+import org.deeplearning4j.graph.graph.CSRGraph;
 import org.deeplearning4j.graph.graph.Graph;
 import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
 import org.deeplearning4j.graph.vertexfactory.VertexFactory;
@@ -12,6 +13,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /** Utility methods for loading graphs
@@ -172,4 +174,118 @@ public class GraphLoader {
 
         return graph;
     }
+
+    /** Load a graph into memory as {@link CSRGraph}, using a given EdgeLineProcessor. Assumes one edge per line.<br>
+     * File is read twice: first pass counts edges per vertex, second pass fills the primitive CSR arrays. Hence no
+     * object is retained per edge, and memory use is roughly 4 bytes per edge (8 bytes for weighted graphs), or twice
+     * that for undirected edges.<br>
+     * Multiple edges between the same pair of vertices are retained.
+     * @param path Path to the file containing the edges, one per line
+     * @param lineProcessor EdgeLineProcessor used to convert lines of text into edges (or null for comment lines etc)
+     * @param vertexFactory Used to create vertices
+     * @param numVertices number of vertices in the graph
+     * @param weighted if true, edge values (which must be Numbers) are stored as edge weights
+     * @return CSRGraph
+     */
+    public static <V> CSRGraph<V> loadCSRGraph(String path, EdgeLineProcessor<?> lineProcessor,
+                    VertexFactory<V> vertexFactory, int numVertices, boolean weighted) throws IOException {
+        if (numVertices <= 0)
+            throw new IllegalArgumentException("Invalid number of vertices: " + numVertices);
+
+        List<Vertex<V>> vertices = new ArrayList<>(numVertices);
+        for (int i = 0; i < numVertices; i++)
+            vertices.add(vertexFactory.create(i));
+
+        return loadCSRGraph(path, lineProcessor, vertices, weighted);
+    }
+
+    /** Load graph as {@link CSRGraph}, assuming vertices are in one file and edges are in another file.
+     * @see #loadCSRGraph(String, EdgeLineProcessor, VertexFactory, int, boolean)
+     * @param vertexFilePath Path to file containing vertices, one per line
+     * @param edgeFilePath Path to the file containing edges, one per line
+     * @param vertexLoader VertexLoader, for loading vertices from the file
+     * @param edgeLineProcessor EdgeLineProcessor, converts text lines into edges
+     * @param weighted if true, edge values (which must be Numbers) are stored as edge weights
+     * @return CSRGraph loaded from files
+     */
+    public static <V> CSRGraph<V> loadCSRGraph(String vertexFilePath, String edgeFilePath,
+                    VertexLoader<V> vertexLoader, EdgeLineProcessor<?> edgeLineProcessor, boolean weighted)
+                    throws IOException {
+        return loadCSRGraph(edgeFilePath, edgeLineProcessor, vertexLoader.loadVertices(vertexFilePath), weighted);
+    }
+
+    private static <V> CSRGraph<V> loadCSRGraph(String path, EdgeLineProcessor<?> lineProcessor,
+                    List<Vertex<V>> vertices, boolean weighted) throws IOException {
+        int numVertices = vertices.size();
+
+        //First pass: count number of edges out of each vertex
+        int[] counts = new int[numVertices];
+        long numEdges = 0;
+        boolean directed = true;
+        try (BufferedReader br = new BufferedReader(new FileReader(new File(path)))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Edge<?> edge = lineProcessor.processLine(line);
+                if (edge == null)
+                    continue;
+                checkEdge(edge, numVertices, weighted);
+
+                counts[edge.getFrom()]++;
+                numEdges++;
+                if (!edge.isDirected()) {
+                    counts[edge.getTo()]++;
+                    numEdges++;
+                    directed = false;
+                }
+            }
+        }
+
+        if (numEdges > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Too many edges for CSRGraph: " + numEdges);
+
+        int[] offsets = new int[numVertices + 1];
+        for (int i = 0; i < numVertices; i++)
+            offsets[i + 1] = offsets[i] + counts[i];
+
+        //counts are reused as insert positions
+        System.arraycopy(offsets, 0, counts, 0, numVertices);
+        int[] targets = new int[(int) numEdges];
+        float[] weights = weighted ? new float[(int) numEdges] : null;
+
+        //Second pass: fill targets and weights
+        try (BufferedReader br = new BufferedReader(new FileReader(new File(path)))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Edge<?> edge = lineProcessor.processLine(line);
+                if (edge == null)
+                    continue;
+                checkEdge(edge, numVertices, weighted);
+
+                float weight = weighted ? ((Number) edge.getValue()).floatValue() : 0.0f;
+                insertEdge(edge.getFrom(), edge.getTo(), weight, counts, offsets, targets, weights);
+                if (!edge.isDirected())
+                    insertEdge(edge.getTo(), edge.getFrom(), weight, counts, offsets, targets, weights);
+            }
+        }
+
+        return new CSRGraph<>(vertices, offsets, targets, weights, directed);
+    }
+
+    private static void checkEdge(Edge<?> edge, int numVertices, boolean weighted) {
+        if (edge.getFrom() < 0 || edge.getFrom() >= numVertices || edge.getTo() < 0 || edge.getTo() >= numVertices)
+            throw new IllegalArgumentException("Invalid edge: " + edge + ", from/to indexes out of range");
+        if (weighted && !(edge.getValue() instanceof Number))
+            throw new IllegalArgumentException("Invalid edge: " + edge + ", weighted graph requires numeric edge values");
+    }
+
+    private static void insertEdge(int from, int to, float weight, int[] positions, int[] offsets, int[] targets,
+                    float[] weights) {
+        int pos = positions[from]++;
+        if (pos >= offsets[from + 1])
+            throw new IllegalStateException("Edge file was modified while loading graph: more edges found for vertex "
+                            + from + " than in first pass");
+        targets[pos] = to;
+        if (weights != null)
+            weights[pos] = weight;
+    }
 }
@@ -0,0 +1,230 @@
+package org.deeplearning4j.graph.graph;
+
+import org.deeplearning4j.graph.api.BaseGraph;
+import org.deeplearning4j.graph.api.Edge;
+import org.deeplearning4j.graph.api.Vertex;
+import org.deeplearning4j.graph.exception.NoEdgesException;
+
+import java.util.*;
+
+/**Immutable graph, with adjacency stored in compressed sparse row (CSR) format: targets of edges going out of vertex i
+ * are stored in {@code targets[offsets[i]]} to {@code targets[offsets[i+1]-1]}, with (optional) edge weights stored
+ * in {@code weights} at the same positions.<br>
+ * Unlike {@link Graph}, no object is created per edge, so CSRGraph is suited for large graphs. For undirected graphs,
+ * each edge is stored twice (once for each direction).<br>
+ * CSRGraph is usually created using {@link org.deeplearning4j.graph.data.GraphLoader#loadCSRGraph}.
+ * Edge values returned by {@link #getEdgesOut(int)} are edge weights, or 1.0 for unweighted graphs.
+ */
+public class CSRGraph<V> extends BaseGraph<V, Double> {
+    private final List<Vertex<V>> vertices;
+    private final int[] offsets;
+    private final int[] targets;
+    private final float[] weights;
+    private final boolean directed;
+
+    /**
+     * @param vertices vertices of the graph
+     * @param offsets offsets of adjacency lists, of length numVertices + 1
+     * @param targets targets of edges
+     * @param weights weights of edges, same length as targets. May be null for unweighted graphs
+     * @param directed whether edges are directed or not. For undirected graphs, targets should contain both directions
+     */
+    public CSRGraph(List<Vertex<V>> vertices, int[] offsets, int[] targets, float[] weights, boolean directed) {
+        if (offsets.length != vertices.size() + 1)
+            throw new IllegalArgumentException("Invalid offsets: expected length " + (vertices.size() + 1) + ", got "
+                            + offsets.length);
+        if (offsets[0] != 0 || offsets[vertices.size()] != targets.length)
+            throw new IllegalArgumentException("Invalid offsets: first offset should be 0, and last offset should be "
+                            + targets.length);
+        if (weights != null && weights.length != targets.length)
+            throw new IllegalArgumentException("Invalid weights: expected length " + targets.length + ", got "
+                            + weights.length);
+
+        this.vertices = vertices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.directed = directed;
+    }
+
+    @Override
+    public int numVertices() {
+        return vertices.size();
+    }
+
+    /** Number of stored edges. For undirected graphs, each edge is counted twice */
+    public int numEdges() {
+        return targets.length;
+    }
+
+    /** Whether this graph has edge weights */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public Vertex<V> getVertex(int idx) {
+        if (idx < 0 || idx >= vertices.size())
+            throw new IllegalArgumentException("Invalid index: " + idx);
+        return vertices.get(idx);
+    }
+
+    @Override
+    public List<Vertex<V>> getVertices(int[] indexes) {
+        List<Vertex<V>> out = new ArrayList<>(indexes.length);
+        for (int i : indexes)
+            out.add(getVertex(i));
+        return out;
+    }
+
+    @Override
+    public List<Vertex<V>> getVertices(int from, int to) {
+        if (to < from || from < 0 || to >= vertices.size())
+            throw new IllegalArgumentException("Invalid range: from=" + from + ", to=" + to);
+        List<Vertex<V>> out = new ArrayList<>(to - from + 1);
+        for (int i = from; i <= to; i++)
+            out.add(getVertex(i));
+        return out;
+    }
+
+    @Override
+    public void addEdge(Edge<Double> edge) {
+        throw new UnsupportedOperationException("CSRGraph is immutable: edges can't be added after construction");
+    }
+
+    @Override
+    public List<Edge<Double>> getEdgesOut(int vertex) {
+        checkVertex(vertex);
+        int start = offsets[vertex];
+        int end = offsets[vertex + 1];
+        List<Edge<Double>> out = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++)
+            out.add(new Edge<>(vertex, targets[i], weights == null ? 1.0 : (double) weights[i], directed));
+        return out;
+    }
+
+    @Override
+    public int getVertexDegree(int vertex) {
+        checkVertex(vertex);
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    @Override
+    public Vertex<V> getRandomConnectedVertex(int vertex, Random rng) throws NoEdgesException {
+        return vertices.get(getRandomConnectedVertexIndex(vertex, rng));
+    }
+
+    /**Randomly sample a vertex connected to a given vertex, uniformly at random. Same as
+     * {@link #getRandomConnectedVertex(int, Random)}, but returns index of the vertex, without creating any objects
+     * @param vertex vertex to randomly sample from
+     * @param rng Random number generator to use
+     * @return index of a vertex connected to the specified vertex
+     * @throws NoEdgesException thrown if the specified vertex has no outgoing edges
+     */
+    public int getRandomConnectedVertexIndex(int vertex, Random rng) throws NoEdgesException {
+        int degree = getVertexDegree(vertex);
+        if (degree == 0)
+            throw new NoEdgesException("Cannot generate random connected vertex: vertex " + vertex
+                            + " has no outgoing/undirected edges");
+        return targets[offsets[vertex] + rng.nextInt(degree)];
+    }
+
+    /**Randomly sample a vertex connected to a given vertex, with probability proportional to edge weight.
+     * For unweighted graphs, sampling is uniform. No objects are created.
+     * @param vertex vertex to randomly sample from
+     * @param rng Random number generator to use
+     * @return index of a vertex connected to the specified vertex
+     * @throws NoEdgesException thrown if the specified vertex has no outgoing edges
+     */
+    public int getWeightedRandomConnectedVertexIndex(int vertex, Random rng) throws NoEdgesException {
+        if (weights == null)
+            return getRandomConnectedVertexIndex(vertex, rng);
+
+        int start = offsets[vertex];
+        int end = offsets[vertex + 1];
+        if (start == end)
+            throw new NoEdgesException("Cannot generate random connected vertex: vertex " + vertex
+                            + " has no outgoing/undirected edges");
+
+        double totalWeight = 0.0;
+        for (int i = start; i < end; i++)
+            totalWeight += weights[i];
+
+        double threshold = rng.nextDouble() * totalWeight;
+        double sumWeight = 0.0;
+        for (int i = start; i < end; i++) {
+            sumWeight += weights[i];
+            if (sumWeight >= threshold)
+                return targets[i];
+        }
+        //Only reachable due to rounding
+        return targets[end - 1];
+    }
+
+    @Override
+    public List<Vertex<V>> getConnectedVertices(int vertex) {
+        checkVertex(vertex);
+        List<Vertex<V>> list = new ArrayList<>(getVertexDegree(vertex));
+        for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++)
+            list.add(vertices.get(targets[i]));
+        return list;
+    }
+
+    @Override
+    public int[] getConnectedVertexIndices(int vertex) {
+        checkVertex(vertex);
+        return Arrays.copyOfRange(targets, offsets[vertex], offsets[vertex + 1]);
+    }
+
+    private void checkVertex(int vertex) {
+        if (vertex < 0 || vertex >= vertices.size())
+            throw new IllegalArgumentException("Invalid vertex index: " + vertex);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("CSRGraph {");
+        sb.append("\nVertices {");
+        for (Vertex<V> v : vertices) {
+            sb.append("\n\t").append(v);
+        }
+        sb.append("\n}");
+        sb.append("\nEdges {");
+        for (int i = 0; i < vertices.size(); i++) {
+            sb.append("\n\t").append(i).append(":");
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                sb.append(" ").append(targets[j]);
+                if (weights != null)
+                    sb.append("(").append(weights[j]).append(")");
+            }
+        }
+        sb.append("\n}");
+        sb.append("\n}");
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CSRGraph))
+            return false;
+        CSRGraph g = (CSRGraph) o;
+        return directed == g.directed && Arrays.equals(offsets, g.offsets) && Arrays.equals(targets, g.targets)
+                        && Arrays.equals(weights, g.weights) && vertices.equals(g.vertices);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 23;
+        result = 31 * result + (directed ? 1 : 0);
+        result = 31 * result + Arrays.hashCode(offsets);
+        result = 31 * result + Arrays.hashCode(targets);
+        result = 31 * result + Arrays.hashCode(weights);
+        result = 31 * result + vertices.hashCode();
+        return result;
+    }
+}
@@ -3,8 +3,8 @@ package org.deeplearning4j.graph.iterator;
 import org.deeplearning4j.graph.api.IGraph;
 import org.deeplearning4j.graph.api.IVertexSequence;
 import org.deeplearning4j.graph.api.NoEdgeHandling;
-import org.deeplearning4j.graph.api.Vertex;
 import org.deeplearning4j.graph.exception.NoEdgesException;
+import org.deeplearning4j.graph.graph.CSRGraph;
 import org.deeplearning4j.graph.graph.VertexSequence;
 
 import java.util.NoSuchElementException;
@@ -22,6 +22,7 @@ public class RandomWalkIterator<V> implements GraphWalkIterator<V> {
     private final NoEdgeHandling mode;
     private final int firstVertex;
     private final int lastVertex;
+    private final CSRGraph<V> csrGraph;
 
 
     private int position;
@@ -60,6 +61,7 @@ public class RandomWalkIterator<V> implements GraphWalkIterator<V> {
      * @param firstVertex first vertex index (inclusive) to start random walks from
      * @param lastVertex last vertex index (exclusive) to start random walks from
      */
+    @SuppressWarnings("unchecked")
     public RandomWalkIterator(IGraph<V, ?> graph, int walkLength, long rngSeed, NoEdgeHandling mode, int firstVertex,
                     int lastVertex) {
         this.graph = graph;
@@ -68,6 +70,8 @@ public class RandomWalkIterator<V> implements GraphWalkIterator<V> {
         this.mode = mode;
         this.firstVertex = firstVertex;
         this.lastVertex = lastVertex;
+        //CSR graphs are walked using vertex indices only, without creating edge or vertex objects
+        this.csrGraph = graph instanceof CSRGraph ? (CSRGraph<V>) graph : null;
 
         order = new int[lastVertex - firstVertex];
         for (int i = 0; i < order.length; i++)
@@ -86,9 +90,9 @@ public class RandomWalkIterator<V> implements GraphWalkIterator<V> {
         if (walkLength == 0)
             return new VertexSequence<>(graph, indices);
 
-        Vertex<V> next;
+        int next;
         try {
-            next = graph.getRandomConnectedVertex(currVertexIdx, rng);
+            next = randomConnectedVertexIndex(currVertexIdx);
         } catch (NoEdgesException e) {
             switch (mode) {
                 case SELF_LOOP_ON_DISCONNECTED:
@@ -101,17 +105,22 @@ public class RandomWalkIterator<V> implements GraphWalkIterator<V> {
                     throw new RuntimeException("Unknown/not implemented NoEdgeHandling mode: " + mode);
             }
         }
-        indices[1] = next.vertexID();
+        indices[1] = next;
         currVertexIdx = indices[1];
 
         for (int i = 2; i <= walkLength; i++) { //<= walk length: i.e., if walk length = 2, it contains 3 vertices etc
-            next = graph.getRandomConnectedVertex(currVertexIdx, rng);
-            currVertexIdx = next.vertexID();
+            currVertexIdx = randomConnectedVertexIndex(currVertexIdx);
             indices[i] = currVertexIdx;
         }
         return new VertexSequence<>(graph, indices);
     }
 
+    private int randomConnectedVertexIndex(int vertex) {
+        if (csrGraph != null)
+            return csrGraph.getRandomConnectedVertexIndex(vertex, rng);
+        return graph.getRandomConnectedVertex(vertex, rng).vertexID();
+    }
+
     @Override
     public boolean hasNext() {
         return position < order.length;
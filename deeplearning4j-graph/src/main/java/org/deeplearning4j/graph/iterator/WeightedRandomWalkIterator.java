@@ -5,6 +5,7 @@ import org.deeplearning4j.graph.api.IGraph;
 import org.deeplearning4j.graph.api.IVertexSequence;
 import org.deeplearning4j.graph.api.NoEdgeHandling;
 import org.deeplearning4j.graph.exception.NoEdgesException;
+import org.deeplearning4j.graph.graph.CSRGraph;
 import org.deeplearning4j.graph.graph.VertexSequence;
 
 import java.util.List;
@@ -27,6 +28,7 @@ public class WeightedRandomWalkIterator<V> implements GraphWalkIterator<V> {
     private final NoEdgeHandling mode;
     private final int firstVertex;
     private final int lastVertex;
+    private final CSRGraph<V> csrGraph;
 
 
     private int position;
@@ -66,6 +68,7 @@ public class WeightedRandomWalkIterator<V> implements GraphWalkIterator<V> {
      * @param firstVertex first vertex index (inclusive) to start random walks from
      * @param lastVertex last vertex index (exclusive) to start random walks from
      */
+    @SuppressWarnings("unchecked")
     public WeightedRandomWalkIterator(IGraph<V, ? extends Number> graph, int walkLength, long rngSeed,
                     NoEdgeHandling mode, int firstVertex, int lastVertex) {
         this.graph = graph;
@@ -74,6 +77,8 @@ public class WeightedRandomWalkIterator<V> implements GraphWalkIterator<V> {
         this.mode = mode;
         this.firstVertex = firstVertex;
         this.lastVertex = lastVertex;
+        //CSR graphs are walked using vertex indices only, without creating edge or vertex objects
+        this.csrGraph = graph instanceof CSRGraph ? (CSRGraph<V>) graph : null;
 
         order = new int[lastVertex - firstVertex];
         for (int i = 0; i < order.length; i++)
@@ -93,6 +98,12 @@ public class WeightedRandomWalkIterator<V> implements GraphWalkIterator<V> {
             return new VertexSequence<>(graph, indices);
 
         for (int i = 1; i <= walkLength; i++) {
+            if (csrGraph != null && csrGraph.getVertexDegree(currVertexIdx) > 0) {
+                currVertexIdx = csrGraph.getWeightedRandomConnectedVertexIndex(currVertexIdx, rng);
+                indices[i] = currVertexIdx;
+                continue;
+            }
+
             List<? extends Edge<? extends Number>> edgeList = graph.getEdgesOut(currVertexIdx);
 
             //First: check if there are any outgoing edges from this vertex. If not: handle the situation
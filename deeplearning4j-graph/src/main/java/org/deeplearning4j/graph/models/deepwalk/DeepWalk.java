@@ -160,11 +160,12 @@ public class DeepWalk<V, E> extends GraphVectorsImpl<V, E> {
             throw new UnsupportedOperationException("DeepWalk not initialized (call initialize before fit)");
         int walkLength = iterator.walkLength();
 
+        //Walk buffer is reused: lookup table updates are applied in place, so nothing is allocated per vertex pair
+        int[] walk = new int[walkLength + 1];
         while (iterator.hasNext()) {
             IVertexSequence<V> sequence = iterator.next();
 
             //Skipgram model:
-            int[] walk = new int[walkLength + 1];
             int i = 0;
             while (sequence.hasNext())
                 walk[i++] = sequence.next().vertexID();
@@ -200,6 +201,7 @@ public class DeepWalk<V, E> extends GraphVectorsImpl<V, E> {
         private long seed = System.currentTimeMillis();
         private double learningRate = 0.01;
         private int windowSize = 2;
+        private int workers = Runtime.getRuntime().availableProcessors();
 
         /** Sets the size of the vectors to be learned for each vertex in the graph */
         public Builder<V, E> vectorSize(int vectorSize) {
@@ -219,6 +221,17 @@ public class DeepWalk<V, E> extends GraphVectorsImpl<V, E> {
             return this;
         }
 
+        /** Number of threads used by {@link DeepWalk#fit(IGraph, int)} and
+         * {@link DeepWalk#fit(GraphWalkIteratorProvider)}. Defaults to number of available processors.<br>
+         * Threads update shared weights without locking (Hogwild style)
+         */
+        public Builder<V, E> workers(int workers) {
+            if (workers < 1)
+                throw new IllegalArgumentException("Number of workers must be positive, got " + workers);
+            this.workers = workers;
+            return this;
+        }
+
         /** Seed for random number generation (used for repeatability).
          * Note however that parallel/async gradient descent might result in behaviour that
          * is not repeatable, in spite of setting seed
@@ -234,6 +247,7 @@ public class DeepWalk<V, E> extends GraphVectorsImpl<V, E> {
             dw.windowSize = windowSize;
             dw.learningRate = learningRate;
             dw.seed = seed;
+            dw.nThreads = workers;
 
             return dw;
         }
@@ -1,11 +1,16 @@
 package org.deeplearning4j.graph.models.embeddings;
 
 import org.apache.commons.math3.util.FastMath;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.javacpp.indexer.Indexer;
 import org.deeplearning4j.graph.models.BinaryTree;
 import org.nd4j.linalg.api.blas.Level1;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 
+import java.util.Arrays;
+
 /** A standard in-memory implementation of a lookup table for vector representations of the vertices in a graph
  * @author Alex Black
  */
@@ -21,6 +26,15 @@ public class InMemoryGraphLookupTable implements GraphVectorLookupTable {
     protected double[] expTable;
     protected static double MAX_EXP = 6;
 
+    //Direct access to weights for in-place updates, rebuilt whenever weights arrays are replaced
+    protected volatile InPlaceWeights inPlaceWeights;
+    protected ThreadLocal<double[]> errorBuffers = new ThreadLocal<double[]>() {
+        @Override
+        protected double[] initialValue() {
+            return new double[vectorSize];
+        }
+    };
+
     public InMemoryGraphLookupTable(int nVertices, int vectorSize, BinaryTree tree, double learningRate) {
         this.nVertices = nVertices;
         this.vectorSize = vectorSize;
@@ -54,8 +68,53 @@ public class InMemoryGraphLookupTable implements GraphVectorLookupTable {
         this.outWeights = Nd4j.rand(nVertices - 1, vectorSize).subi(0.5).divi(vectorSize); //Full binary tree with L leaves has L-1 inner nodes
     }
 
+    /** Apply a hierarchical softmax update for the pair of vertices (first -> second).<br>
+     * Updates are applied in place, directly on the weight buffers, without allocating gradient arrays. No locking
+     * is used: concurrent calls from multiple threads are allowed, and updates may race (i.e., Hogwild style SGD).
+     * Results for single thread are the same as applying gradients from {@link #vectorsAndGradients(int, int)}.
+     */
     @Override
     public void iterate(int first, int second) {
+        InPlaceWeights weights = getInPlaceWeights();
+        if (weights == null) {
+            iterateWithGradients(first, second);
+            return;
+        }
+
+        int codeLength = tree.getCodeLength(second);
+        long code = tree.getCode(second);
+        int[] innerNodesForVertex = tree.getPathInnerNodes(second);
+
+        double[] accumError = errorBuffers.get();
+        Arrays.fill(accumError, 0.0);
+
+        long vecOffset = (long) first * vectorSize;
+        for (int i = 0; i < codeLength; i++) {
+            long innerOffset = (long) innerNodesForVertex[i] * vectorSize;
+
+            double dot = 0.0;
+            for (int j = 0; j < vectorSize; j++)
+                dot += weights.getOut(innerOffset + j) * weights.getVector(vecOffset + j);
+            double sigmoidDot = sigmoid(dot);
+
+            //Gradient coefficient for this inner node: left or right?
+            double g = getBit(code, i) ? sigmoidDot - 1 : sigmoidDot;
+
+            //Accumulate error using inner node vector before its update, then update inner node
+            for (int j = 0; j < vectorSize; j++) {
+                double inner = weights.getOut(innerOffset + j);
+                accumError[j] += g * inner;
+                weights.putOut(innerOffset + j, inner - learningRate * g * weights.getVector(vecOffset + j));
+            }
+        }
+
+        for (int j = 0; j < vectorSize; j++)
+            weights.putVector(vecOffset + j, weights.getVector(vecOffset + j) - learningRate * accumError[j]);
+    }
+
+    /** Apply update using gradients from {@link #vectorsAndGradients(int, int)}. Used if weights can't be accessed
+     * directly, i.e. for non-contiguous arrays */
+    protected void iterateWithGradients(int first, int second) {
         //Get vectors and gradients
         //vecAndGrads[0][0] is vector of vertex(first); vecAndGrads[1][0] is corresponding gradient
         INDArray[][] vecAndGrads = vectorsAndGradients(first, second);
@@ -67,6 +126,15 @@ public class InMemoryGraphLookupTable implements GraphVectorLookupTable {
         }
     }
 
+    protected InPlaceWeights getInPlaceWeights() {
+        InPlaceWeights weights = inPlaceWeights;
+        if (weights == null || weights.vertexVectors != vertexVectors || weights.outWeights != outWeights) {
+            weights = new InPlaceWeights(vertexVectors, outWeights);
+            inPlaceWeights = weights;
+        }
+        return weights.supported ? weights : null;
+    }
+
     /** Returns vertex vector and vector gradients, plus inner node vectors and inner node gradients<br>
      * Specifically, out[0] are vectors, out[1] are gradients for the corresponding vectors<br>
      * out[0][0] is vector for first vertex; out[0][1] is gradient for this vertex vector<br>
@@ -189,4 +257,62 @@ public class InMemoryGraphLookupTable implements GraphVectorLookupTable {
     public void setVertexVectors(INDArray vertexVectors) {
         this.vertexVectors = vertexVectors;
     }
+
+    /** Direct (indexer based) access to vertex vectors and inner node vectors, for in-place updates.
+     * Only used for contiguous row-major arrays, as rows are addressed as {@code row * vectorSize} */
+    protected static class InPlaceWeights {
+        private final INDArray vertexVectors;
+        private final INDArray outWeights;
+        private final boolean supported;
+        private FloatIndexer floatVectors;
+        private FloatIndexer floatOut;
+        private DoubleIndexer doubleVectors;
+        private DoubleIndexer doubleOut;
+
+        protected InPlaceWeights(INDArray vertexVectors, INDArray outWeights) {
+            this.vertexVectors = vertexVectors;
+            this.outWeights = outWeights;
+
+            Indexer vectorsIndexer = isPlain(vertexVectors) ? vertexVectors.data().indexer() : null;
+            Indexer outIndexer = isPlain(outWeights) ? outWeights.data().indexer() : null;
+            if (vectorsIndexer instanceof FloatIndexer && outIndexer instanceof FloatIndexer) {
+                floatVectors = (FloatIndexer) vectorsIndexer;
+                floatOut = (FloatIndexer) outIndexer;
+                supported = true;
+            } else if (vectorsIndexer instanceof DoubleIndexer && outIndexer instanceof DoubleIndexer) {
+                doubleVectors = (DoubleIndexer) vectorsIndexer;
+                doubleOut = (DoubleIndexer) outIndexer;
+                supported = true;
+            } else {
+                supported = false;
+            }
+        }
+
+        private static boolean isPlain(INDArray array) {
+            return array != null && array.ordering() == 'c' && array.offset() == 0 && !array.isView()
+                            && array.elementWiseStride() == 1;
+        }
+
+        protected double getVector(long i) {
+            return floatVectors != null ? floatVectors.get(i) : doubleVectors.get(i);
+        }
+
+        protected void putVector(long i, double value) {
+            if (floatVectors != null)
+                floatVectors.put(i, (float) value);
+            else
+                doubleVectors.put(i, value);
+        }
+
+        protected double getOut(long i) {
+            return floatOut != null ? floatOut.get(i) : doubleOut.get(i);
+        }
+
+        protected void putOut(long i, double value) {
+            if (floatOut != null)
+                floatOut.put(i, (float) value);
+            else
+                doubleOut.put(i, value);
+        }
+    }
 }
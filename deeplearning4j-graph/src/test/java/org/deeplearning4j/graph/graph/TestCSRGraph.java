@@ -0,0 +1,125 @@
+package org.deeplearning4j.graph.graph;
+
+import org.deeplearning4j.graph.api.Edge;
+import org.deeplearning4j.graph.api.IGraph;
+import org.deeplearning4j.graph.api.IVertexSequence;
+import org.deeplearning4j.graph.api.NoEdgeHandling;
+import org.deeplearning4j.graph.data.GraphLoader;
+import org.deeplearning4j.graph.data.impl.DelimitedEdgeLineProcessor;
+import org.deeplearning4j.graph.data.impl.WeightedEdgeLineProcessor;
+import org.deeplearning4j.graph.iterator.GraphWalkIterator;
+import org.deeplearning4j.graph.iterator.RandomWalkIterator;
+import org.deeplearning4j.graph.iterator.WeightedRandomWalkIterator;
+import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
+import org.junit.Test;
+import org.nd4j.linalg.io.ClassPathResource;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TestCSRGraph {
+
+    @Test
+    public void testUndirectedMatchesGraph() throws Exception {
+        String path = new ClassPathResource("testgraph_7vertices.txt").getTempFileFromArchive().getAbsolutePath();
+
+        IGraph<String, String> graph = GraphLoader.loadUndirectedGraphEdgeListFile(path, 7, ",");
+        CSRGraph<String> csr = GraphLoader.loadCSRGraph(path, new DelimitedEdgeLineProcessor(",", false),
+                        new StringVertexFactory(), 7, false);
+
+        assertEquals(graph.numVertices(), csr.numVertices());
+        assertFalse(csr.isDirected());
+        assertFalse(csr.isWeighted());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(graph.getVertex(i), csr.getVertex(i));
+            assertEquals(graph.getVertexDegree(i), csr.getVertexDegree(i));
+            assertArrayEquals(sorted(graph.getConnectedVertexIndices(i)), sorted(csr.getConnectedVertexIndices(i)));
+            for (Edge<Double> e : csr.getEdgesOut(i)) {
+                assertEquals(i, e.getFrom());
+                assertEquals(1.0, e.getValue(), 0.0);
+            }
+        }
+
+        try {
+            csr.addEdge(0, 1, 1.0, false);
+            fail("Expected exception");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testWeightedDirected() throws Exception {
+        String path = new ClassPathResource("WeightedGraph.txt").getTempFileFromArchive().getAbsolutePath();
+        int numVertices = 9;
+
+        IGraph<String, Double> graph = GraphLoader.loadWeightedEdgeListFile(path, numVertices, ",", true, "//");
+        CSRGraph<String> csr = GraphLoader.loadCSRGraph(path, new WeightedEdgeLineProcessor(",", true, "//"),
+                        new StringVertexFactory(), numVertices, true);
+
+        assertTrue(csr.isDirected());
+        assertTrue(csr.isWeighted());
+        assertEquals(13, csr.numEdges());
+        for (int i = 0; i < numVertices; i++)
+            assertEquals(new HashSet<>(graph.getEdgesOut(i)), new HashSet<>(csr.getEdgesOut(i)));
+    }
+
+    @Test
+    public void testRandomWalks() throws Exception {
+        String path = new ClassPathResource("WeightedGraph.txt").getTempFileFromArchive().getAbsolutePath();
+        int numVertices = 9;
+        CSRGraph<String> csr = GraphLoader.loadCSRGraph(path, new WeightedEdgeLineProcessor(",", true, "//"),
+                        new StringVertexFactory(), numVertices, true);
+
+        int walkLength = 6;
+        RandomWalkIterator<String> iter =
+                        new RandomWalkIterator<>(csr, walkLength, 12345, NoEdgeHandling.EXCEPTION_ON_DISCONNECTED);
+        checkWalks(csr, collect(iter), walkLength);
+
+        WeightedRandomWalkIterator<String> weightedIter = new WeightedRandomWalkIterator<>(csr, walkLength, 12345);
+        checkWalks(csr, collect(weightedIter), walkLength);
+
+        //Vertex 0 has edges with weights 1 and 3: expect 0->3 about 3x more often than 0->1
+        Random rng = new Random(12345);
+        int count3 = 0;
+        for (int i = 0; i < 10000; i++)
+            if (csr.getWeightedRandomConnectedVertexIndex(0, rng) == 3)
+                count3++;
+        assertEquals(0.75, count3 / 10000.0, 0.02);
+    }
+
+    private static List<int[]> collect(GraphWalkIterator<String> iter) {
+        List<int[]> walks = new ArrayList<>();
+        while (iter.hasNext())
+            walks.add(toIndices(iter.next()));
+        return walks;
+    }
+
+    private static int[] toIndices(IVertexSequence<String> sequence) {
+        int[] out = new int[sequence.sequenceLength()];
+        int i = 0;
+        while (sequence.hasNext())
+            out[i++] = sequence.next().vertexID();
+        return out;
+    }
+
+    private static void checkWalks(CSRGraph<String> csr, List<int[]> walks, int walkLength) {
+        assertEquals(csr.numVertices(), walks.size());
+        Set<Integer> starts = new HashSet<>();
+        for (int[] walk : walks) {
+            assertEquals(walkLength + 1, walk.length);
+            assertTrue(starts.add(walk[0]));
+            for (int i = 1; i < walk.length; i++) {
+                int[] connected = csr.getConnectedVertexIndices(walk[i - 1]);
+                assertTrue(Arrays.toString(walk), Arrays.binarySearch(sorted(connected), walk[i]) >= 0);
+            }
+        }
+    }
+
+    private static int[] sorted(int[] array) {
+        int[] copy = array.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
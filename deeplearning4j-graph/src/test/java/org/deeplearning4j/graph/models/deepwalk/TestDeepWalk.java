@@ -10,8 +10,10 @@ import org.deeplearning4j.graph.iterator.RandomWalkIterator;
 import org.deeplearning4j.graph.iterator.parallel.GraphWalkIteratorProvider;
 import org.deeplearning4j.graph.iterator.parallel.WeightedRandomWalkGraphIteratorProvider;
 import org.deeplearning4j.graph.models.GraphVectors;
+import org.deeplearning4j.graph.models.embeddings.InMemoryGraphLookupTable;
 import org.deeplearning4j.graph.models.loader.GraphVectorSerializer;
 import org.deeplearning4j.graph.vertexfactory.StringVertexFactory;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
@@ -244,4 +246,61 @@ public class TestDeepWalk {
         deepWalk.fit(iteratorProvider);
 
     }
+
+    @Test
+    public void testInPlaceUpdateMatchesGradients() {
+        Nd4j.getRandom().setSeed(12345);
+        IGraph<String, String> graph = generateRandomGraph(50, 4);
+
+        DeepWalk<String, String> deepWalk = new DeepWalk.Builder<String, String>().learningRate(0.1).vectorSize(8)
+                        .windowSize(2).build();
+        deepWalk.initialize(graph);
+        InMemoryGraphLookupTable table = (InMemoryGraphLookupTable) deepWalk.lookupTable();
+
+        Random r = new Random(12345);
+        for (int t = 0; t < 20; t++) {
+            int first = r.nextInt(50);
+            int second = r.nextInt(50);
+            if (first == second)
+                continue;
+
+            //Expected: v = v - lr * gradient, for vertex vector and all inner nodes on path
+            INDArray[][] vecAndGrads = table.vectorsAndGradients(first, second);
+            INDArray[] expected = new INDArray[vecAndGrads[0].length];
+            for (int i = 0; i < expected.length; i++)
+                expected[i] = vecAndGrads[0][i].sub(vecAndGrads[1][i].mul(0.1));
+
+            table.iterate(first, second);
+
+            int[] innerNodes = table.getTree().getPathInnerNodes(second);
+            assertEquals(expected[0], table.getVector(first));
+            for (int i = 1; i < expected.length; i++)
+                assertEquals(expected[i], table.getInnerNodeVector(innerNodes[i - 1]));
+        }
+    }
+
+    /**
+     * Reports random walks per second vs number of threads. Throughput should scale close to linearly, as threads
+     * update shared weights in place without locking or allocation.
+     */
+    @Test
+    @Ignore
+    public void benchmarkThreadScaling() {
+        int nVertices = 20000;
+        int walkLength = 40;
+        IGraph<String, String> graph = generateRandomGraph(nVertices, 10);
+
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            DeepWalk<String, String> deepWalk = new DeepWalk.Builder<String, String>().learningRate(0.01)
+                            .vectorSize(128).windowSize(5).workers(threads).seed(12345).build();
+            deepWalk.initialize(graph);
+
+            long start = System.nanoTime();
+            deepWalk.fit(graph, walkLength);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format("threads=%d: %.1f walks/sec", threads, nVertices / seconds));
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package org.deeplearning4j.nearestneighbor.server;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.Shape;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Point store backed by memory-mapped chunk files written with
+ * {@link org.nd4j.serde.binary.BinarySerde#writeArrayToDisk(INDArray, File)}.
+ *
+ * Each chunk is mapped read-only and wrapped into INDArray without copying, so the points stay in the OS page cache:
+ * startup doesn't depend on dataset size, and multiple server processes serving the same files share the same
+ * physical memory.
+ *
+ * Chunk arrays don't own the mapping behind them: it's released once this store is closed and collected. So raw chunks
+ * are available only within this package, where the server builds its index over them and keeps the store open for
+ * as long as that index is used. Single points are read with {@link #getPoint(int)}, which copies the row out of
+ * mapped memory.
+ *
+ * PLEASE NOTE: chunks are read-only, and data type of chunks should match Nd4j data type.
+ */
+@Slf4j
+public class MappedPointStore implements Closeable {
+    private INDArray[] chunks;
+    // strong references to mapped memory behind the chunks
+    private MappedByteBuffer[] buffers;
+    @Getter
+    private final int rows;
+    @Getter
+    private final int columns;
+
+    public MappedPointStore(@NonNull INDArray[] chunks) {
+        this(chunks, new MappedByteBuffer[0]);
+    }
+
+    protected MappedPointStore(@NonNull INDArray[] chunks, @NonNull MappedByteBuffer[] buffers) {
+        if (chunks.length == 0)
+            throw new DL4JInvalidInputException("At least one chunk is required");
+
+        this.chunks = chunks;
+        this.buffers = buffers;
+        this.columns = chunks[0].columns();
+
+        int rows = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i].rank() != 2)
+                throw new DL4JInvalidInputException("MappedPointStore assumes 2D chunks");
+
+            if (chunks[i].columns() != columns)
+                throw new DL4JInvalidInputException("MappedPointStore requires equal 2D chunks. Got columns mismatch.");
+
+            rows += chunks[i].rows();
+        }
+        this.rows = rows;
+    }
+
+    /**
+     * This method maps given chunk files and creates point store over them
+     *
+     * @param paths paths to chunk files
+     * @return
+     * @throws IOException
+     */
+    public static MappedPointStore open(@NonNull String... paths) throws IOException {
+        INDArray[] chunks = new INDArray[paths.length];
+        MappedByteBuffer[] buffers = new MappedByteBuffer[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            log.info("Mapping chunk {} of {}", i + 1, paths.length);
+            buffers[i] = map(new File(paths[i]));
+            chunks[i] = wrap(buffers[i], new File(paths[i]));
+        }
+
+        return new MappedPointStore(chunks, buffers);
+    }
+
+    /**
+     * This method returns point with given index, copied out of mapped memory, so it stays valid after the store is
+     * closed
+     *
+     * @param index index of the point, counted through all chunks in order
+     * @return
+     */
+    public synchronized INDArray getPoint(int index) {
+        if (index < 0 || index >= rows)
+            throw new DL4JInvalidInputException("Point index " + index + " is out of range [0, " + rows + ")");
+
+        INDArray[] chunks = getChunks();
+        int chunk = 0;
+        while (index >= chunks[chunk].rows())
+            index -= chunks[chunk++].rows();
+
+        return chunks[chunk].getRow(index).dup();
+    }
+
+    /**
+     * @return chunks backed by mapped memory, valid only while this store is open
+     */
+    synchronized INDArray[] getChunks() {
+        if (chunks == null)
+            throw new IllegalStateException("MappedPointStore was closed");
+        return chunks;
+    }
+
+    /**
+     * This method releases chunks and mapped buffers held by this store. Mappings are released by GC, once no chunk
+     * views are reachable anymore.
+     */
+    @Override
+    public synchronized void close() {
+        chunks = null;
+        buffers = null;
+    }
+
+    /**
+     * This method memory-maps single file written with BinarySerde, and returns INDArray backed by mapped memory.
+     * Data isn't copied.
+     *
+     * PLEASE NOTE: returned array doesn't keep the mapping alive, so caller has to hold the buffer returned by
+     * {@link #map(File)} instead. Use {@link #open(String...)}, which takes care of that.
+     *
+     * @param mapped buffer returned by {@link #map(File)}
+     * @param file file the buffer was mapped from, used in error messages
+     * @return
+     */
+    public static INDArray wrap(@NonNull MappedByteBuffer mapped, @NonNull File file) {
+        ByteBuffer byteBuffer = mapped.duplicate().order(ByteOrder.nativeOrder());
+        int rank = byteBuffer.getInt();
+        if (rank < 0)
+            throw new IllegalStateException("Found negative integer. Corrupt serialization?");
+
+        DataBuffer.Type type = DataBuffer.Type.values()[byteBuffer.getInt()];
+        if (type == DataBuffer.Type.COMPRESSED)
+            throw new DL4JInvalidInputException("Compressed chunks can't be memory-mapped: [" + file.getAbsolutePath() + "]");
+
+        if (type != Nd4j.dataType())
+            throw new DL4JInvalidInputException("Chunk [" + file.getAbsolutePath() + "] has data type " + type
+                            + ", but Nd4j data type is " + Nd4j.dataType());
+
+        int shapeBufferLength = Shape.shapeInfoLength(rank);
+        DataBuffer shapeBuff = Nd4j.createBufferDetached(new int[shapeBufferLength]);
+        for (int i = 0; i < shapeBufferLength; i++)
+            shapeBuff.put(i, byteBuffer.getInt());
+
+        // everything after shape information is raw data, which is wrapped as is
+        ByteBuffer slice = byteBuffer.slice().order(ByteOrder.nativeOrder());
+        DataBuffer buff = Nd4j.createBuffer(slice, type, Shape.length(shapeBuff));
+
+        return Nd4j.createArrayFromShapeBuffer(buff, shapeBuff);
+    }
+
+    /**
+     * This method memory-maps single file read-only
+     *
+     * @param file
+     * @return mapped buffer, which has to stay reachable while arrays wrapping it are used
+     * @throws IOException
+     */
+    public static MappedByteBuffer map(@NonNull File file) throws IOException {
+        if (file.length() > Integer.MAX_VALUE)
+            throw new DL4JInvalidInputException("Chunk file [" + file.getAbsolutePath()
+                            + "] exceeds 2GB and can't be mapped as a single buffer. Please split it into smaller chunks.");
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // mapping stays valid after channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+    }
+}
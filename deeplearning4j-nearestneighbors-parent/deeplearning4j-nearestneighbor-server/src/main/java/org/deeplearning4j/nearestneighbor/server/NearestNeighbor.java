@@ -22,7 +22,8 @@ public class NearestNeighbor {
     private INDArray points;
 
     public List<NearestNeighborsResult> search() {
-        INDArray input = points.slice(record.getInputIndex());
+        // points might be absent if tree is built over multiple chunks
+        INDArray input = points != null ? points.slice(record.getInputIndex()) : tree.getPoint(record.getInputIndex());
         List<NearestNeighborsResult> results = new ArrayList<>();
         if (input.isVector()) {
             List<DataPoint> add = new ArrayList<>();
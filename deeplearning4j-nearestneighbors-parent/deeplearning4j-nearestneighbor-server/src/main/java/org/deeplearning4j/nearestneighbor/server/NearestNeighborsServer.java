@@ -5,6 +5,7 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
+import org.deeplearning4j.clustering.hnsw.HNSWIndex;
 import org.deeplearning4j.clustering.sptree.DataPoint;
 import org.deeplearning4j.clustering.vptree.VPTree;
 import org.deeplearning4j.clustering.vptree.VPTreeFillSearch;
@@ -23,9 +24,12 @@ import play.routing.RoutingDsl;
 import play.server.Server;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static play.mvc.Controller.request;
 import static play.mvc.Results.*;
@@ -52,8 +56,31 @@ public class NearestNeighborsServer {
     private String similarityFunction = "euclidean";
     @Parameter(names = {"--invert"}, arity = 1)
     private boolean invert = false;
+    @Parameter(names = {"--mmap"}, arity = 1, description = "Memory-map chunk files and use them as point store, "
+                    + "instead of copying them into single array")
+    private boolean mmap = false;
+    @Parameter(names = {"--workers"}, arity = 1, description = "Number of workers used for tree building")
+    private int workers = 1;
+    @Parameter(names = {"--treePath"}, arity = 1, description = "Path to the saved tree. If file exists, tree is "
+                    + "loaded from it instead of being built, otherwise built tree is saved there")
+    private String treePath = null;
+    @Parameter(names = {"--searchWorkers"}, arity = 1, description = "Number of threads used for batched search")
+    private int searchWorkers = Runtime.getRuntime().availableProcessors();
+    @Parameter(names = {"--index"}, arity = 1, description = "Index type: vptree (exact) or hnsw (approximate)")
+    private String index = "vptree";
+    @Parameter(names = {"--hnswM"}, arity = 1, description = "HNSW: number of links per node")
+    private int hnswM = 16;
+    @Parameter(names = {"--hnswEfConstruction"}, arity = 1, description = "HNSW: candidates list size for insertion")
+    private int hnswEfConstruction = 200;
+    @Parameter(names = {"--hnswEfSearch"}, arity = 1, description = "HNSW: candidates list size for search")
+    private int hnswEfSearch = 50;
 
     private Server server;
+    private ExecutorService searchExecutor;
+    private VPTree tree;
+    private HNSWIndex hnsw;
+    // keeps mapped chunks alive for the whole server lifetime
+    private MappedPointStore pointStore;
 
     public void runMain(String... args) throws Exception {
         JCommander jcmdr = new JCommander(this);
@@ -105,35 +132,71 @@ public class NearestNeighborsServer {
         if (labels.size() > 0 && labels.size() != rows)
             throw new DL4JInvalidInputException(String.format("Number of labels must match number of rows in points matrix (expected %d, found %d)", rows, labels.size()));
 
-        final INDArray points = Nd4j.createUninitialized(rows, cols);
-
-        int lastPosition = 0;
-        for (int i = 0; i < pathArr.length; i++) {
-            log.info("Loading chunk {} of {}", i + 1, pathArr.length);
-            INDArray pointsArr = BinarySerde.readFromDisk(new File(pathArr[i]));
-
-            points.get(NDArrayIndex.interval(lastPosition, lastPosition + pointsArr.rows())).assign(pointsArr);
-            lastPosition += pointsArr.rows();
+        searchExecutor = Executors.newFixedThreadPool(Math.max(1, searchWorkers), r -> {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setDaemon(true);
+            t.setName("NearestNeighbors search thread");
+            return t;
+        });
+
+        final INDArray points;
+        final INDArray[] chunks;
+        if (mmap) {
+            // chunks are used in place, tree keeps views of mapped memory
+            pointStore = MappedPointStore.open(pathArr);
+            chunks = pointStore.getChunks();
+            points = chunks.length == 1 ? chunks[0] : null;
+        } else {
+            points = Nd4j.createUninitialized(rows, cols);
+
+            int lastPosition = 0;
+            for (int i = 0; i < pathArr.length; i++) {
+                log.info("Loading chunk {} of {}", i + 1, pathArr.length);
+                INDArray pointsArr = BinarySerde.readFromDisk(new File(pathArr[i]));
+
+                points.get(NDArrayIndex.interval(lastPosition, lastPosition + pointsArr.rows())).assign(pointsArr);
+                lastPosition += pointsArr.rows();
+
+                // let's ensure we don't bring too much stuff in next loop
+                System.gc();
+            }
 
-            // let's ensure we don't bring too much stuff in next loop
-            System.gc();
+            chunks = new INDArray[] {points};
         }
 
-        VPTree tree = new VPTree(points, similarityFunction, invert);
+        switch (index) {
+            case "vptree":
+                tree = buildOrLoad(chunks);
+                break;
+            case "hnsw":
+                hnsw = buildHnsw(chunks);
+                break;
+            default:
+                throw new DL4JInvalidInputException("Unknown index type: [" + index + "], vptree or hnsw expected");
+        }
 
         RoutingDsl routingDsl = new RoutingDsl();
         //return the host information for a given id
         routingDsl.POST("/knn").routeTo(FunctionUtil.function0((() -> {
             try {
                 NearestNeighborRequest record = Json.fromJson(request().body().asJson(), NearestNeighborRequest.class);
-                NearestNeighbor nearestNeighbor =
-                                NearestNeighbor.builder().points(points).record(record).tree(tree).build();
 
                 if (record == null)
                     return badRequest(Json.toJson(Collections.singletonMap("status", "invalid json passed.")));
 
-                NearstNeighborsResults results =
-                                NearstNeighborsResults.builder().results(nearestNeighbor.search()).build();
+                NearstNeighborsResults results;
+                if (hnsw != null) {
+                    INDArray input = pointStore != null ? pointStore.getPoint(record.getInputIndex())
+                                    : points.getRow(record.getInputIndex());
+                    List<DataPoint> found = new ArrayList<>();
+                    List<Double> distances = new ArrayList<>();
+                    hnsw.search(input, record.getK(), found, distances);
+                    results = toResults(found, distances, Collections.<String>emptyList());
+                } else {
+                    NearestNeighbor nearestNeighbor =
+                                    NearestNeighbor.builder().points(points).record(record).tree(tree).build();
+                    results = NearstNeighborsResults.builder().results(nearestNeighbor.search()).build();
+                }
 
 
                 return ok(Json.toJson(results));
@@ -154,7 +217,12 @@ public class NearestNeighborsServer {
                 List<DataPoint> results;
                 List<Double> distances;
 
-                if (record.isForceFillK()) {
+                if (hnsw != null) {
+                    // HNSW always returns k results, as long as index has enough points
+                    results = new ArrayList<>();
+                    distances = new ArrayList<>();
+                    hnsw.search(arr, record.getK(), results, distances);
+                } else if (record.isForceFillK()) {
                     VPTreeFillSearch vpTreeFillSearch = new VPTreeFillSearch(tree, record.getK(), arr);
                     vpTreeFillSearch.search();
                     results = vpTreeFillSearch.getResults();
@@ -171,16 +239,44 @@ public class NearestNeighborsServer {
                                     results.size(), distances.size()));
                 }
 
-                List<NearestNeighborsResult> nnResult = new ArrayList<>();
-                for (int i=0; i<results.size(); i++) {
-                    if (labels.size() > 0)
-                        nnResult.add(new NearestNeighborsResult(results.get(i).getIndex(), distances.get(i), labels.get(results.get(i).getIndex())));
+                NearstNeighborsResults results2 = toResults(results, distances, labels);
+                return ok(Json.toJson(results2));
+
+            } catch (Exception e) {
+                e.printStackTrace();
+                return internalServerError();
+            }
+        })));
+
+        // batched search: ndarray holds one query per row, results are returned in the same order
+        routingDsl.POST("/knnbatch").routeTo(FunctionUtil.function0((() -> {
+            try {
+                Base64NDArrayBody record = Json.fromJson(request().body().asJson(), Base64NDArrayBody.class);
+                if (record == null)
+                    return badRequest(Json.toJson(Collections.singletonMap("status", "invalid json passed.")));
+
+                INDArray queries = Nd4jBase64.fromBase64(record.getNdarray());
+
+                List<NearstNeighborsResults> batchResults = new ArrayList<>(queries.rows());
+                if (record.isForceFillK() && hnsw == null) {
+                    for (int q = 0; q < queries.rows(); q++) {
+                        VPTreeFillSearch vpTreeFillSearch = new VPTreeFillSearch(tree, record.getK(), queries.getRow(q));
+                        vpTreeFillSearch.search();
+                        batchResults.add(toResults(vpTreeFillSearch.getResults(), vpTreeFillSearch.getDistances(), labels));
+                    }
+                } else {
+                    List<List<DataPoint>> results = new ArrayList<>();
+                    List<List<Double>> distances = new ArrayList<>();
+                    if (hnsw != null)
+                        hnsw.searchBatch(queries, record.getK(), results, distances, searchExecutor);
                     else
-                        nnResult.add(new NearestNeighborsResult(results.get(i).getIndex(), distances.get(i)));
+                        tree.searchBatch(queries, record.getK(), results, distances, searchExecutor);
+
+                    for (int q = 0; q < results.size(); q++)
+                        batchResults.add(toResults(results.get(q), distances.get(q), labels));
                 }
 
-                NearstNeighborsResults results2 = NearstNeighborsResults.builder().results(nnResult).build();
-                return ok(Json.toJson(results2));
+                return ok(Json.toJson(NearestNeighborsBatchResults.builder().results(batchResults).build()));
 
             } catch (Exception e) {
                 e.printStackTrace();
@@ -193,12 +289,120 @@ public class NearestNeighborsServer {
 
     }
 
+    /**
+     * This method loads tree from treePath if it exists, or builds it over given chunks (and saves it, if treePath
+     * was specified)
+     *
+     * @param chunks
+     * @return
+     * @throws IOException
+     */
+    protected VPTree buildOrLoad(INDArray[] chunks) throws IOException {
+        File treeFile = treePath == null ? null : new File(treePath);
+        if (treeFile != null && treeFile.exists()) {
+            log.info("Loading tree from {}", treeFile.getAbsolutePath());
+            VPTree tree = VPTree.load(treeFile, chunks);
+
+            // saved tree defines distances, so it must agree with what was requested
+            if (!similarityFunction.equals(tree.getSimilarityFunction()) || invert != tree.isInvert())
+                throw new IllegalStateException("Tree at " + treeFile.getAbsolutePath() + " was built with similarityFunction="
+                                + tree.getSimilarityFunction() + ", invert=" + tree.isInvert()
+                                + ", but server was started with similarityFunction=" + similarityFunction
+                                + ", invert=" + invert + ". Remove saved tree or fix server arguments");
+
+            return tree;
+        }
+
+        VPTree tree = new VPTree(chunks, similarityFunction, workers, invert);
+        if (treeFile != null) {
+            log.info("Saving tree to {}", treeFile.getAbsolutePath());
+            tree.save(treeFile);
+        }
+
+        return tree;
+    }
+
+    /**
+     * This method builds HNSW index over given chunks
+     *
+     * @param chunks
+     * @return
+     */
+    protected HNSWIndex buildHnsw(INDArray[] chunks) {
+        if (treePath != null)
+            log.warn("Saved trees are supported only for vptree index, treePath will be ignored");
+
+        int rows = 0;
+        for (INDArray chunk : chunks)
+            rows += chunk.rows();
+
+        // points are never modified here, so they're read in place: mapped chunks stay in page cache
+        HNSWIndex hnswIndex = new HNSWIndex.Builder().m(hnswM).efConstruction(hnswEfConstruction).efSearch(hnswEfSearch)
+                        .similarityFunction(hnswSimilarityFunction(similarityFunction, invert)).initialCapacity(rows)
+                        .copyVectors(false).build();
+
+        for (int i = 0; i < chunks.length; i++) {
+            log.info("Adding chunk {} of {} to HNSW index", i + 1, chunks.length);
+            hnswIndex.addAll(chunks[i], searchExecutor);
+        }
+
+        return hnswIndex;
+    }
+
+    /**
+     * HNSW index works with distances only, so similarity function and invert flag are translated into HNSW distance
+     * with the same neighbors order: inverted cosine similarity becomes cosine distance, and inverted dot product
+     * becomes HNSW dot distance (negative dot product).
+     *
+     * @param similarityFunction
+     * @param invert
+     * @return
+     */
+    protected static String hnswSimilarityFunction(String similarityFunction, boolean invert) {
+        if (invert) {
+            switch (similarityFunction) {
+                case "cosinesimilarity":
+                    return HNSWIndex.COSINE_DISTANCE;
+                case HNSWIndex.DOT:
+                    return HNSWIndex.DOT;
+                default:
+                    throw new DL4JInvalidInputException("HNSW index doesn't support inverted [" + similarityFunction
+                                    + "], only cosinesimilarity and dot can be inverted");
+            }
+        }
+
+        if (HNSWIndex.DOT.equals(similarityFunction))
+            throw new DL4JInvalidInputException(
+                            "HNSW index can't minimize dot product, please use dot with --invert true instead");
+
+        return similarityFunction;
+    }
+
+    protected static NearstNeighborsResults toResults(List<DataPoint> results, List<Double> distances,
+                    List<String> labels) {
+        List<NearestNeighborsResult> nnResult = new ArrayList<>();
+        for (int i=0; i<results.size(); i++) {
+            if (labels.size() > 0)
+                nnResult.add(new NearestNeighborsResult(results.get(i).getIndex(), distances.get(i), labels.get(results.get(i).getIndex())));
+            else
+                nnResult.add(new NearestNeighborsResult(results.get(i).getIndex(), distances.get(i)));
+        }
+
+        return NearstNeighborsResults.builder().results(nnResult).build();
+    }
+
     /**
      * Stop the server
      */
     public void stop() {
         if (server != null)
             server.stop();
+
+        if (searchExecutor != null)
+            searchExecutor.shutdown();
+
+        if (pointStore != null)
+            pointStore.close();
     }
 
     public static void main(String[] args) throws Exception {
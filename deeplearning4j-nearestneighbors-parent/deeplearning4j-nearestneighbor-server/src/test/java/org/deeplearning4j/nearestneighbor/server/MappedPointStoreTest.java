@@ -0,0 +1,137 @@
+package org.deeplearning4j.nearestneighbor.server;
+
+import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.deeplearning4j.clustering.vptree.VPTree;
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.serde.binary.BinarySerde;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedPointStoreTest {
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    @Test
+    public void testMapArray() throws Exception {
+        INDArray arr = Nd4j.rand(17, 9);
+        File file = testDir.newFile();
+        BinarySerde.writeArrayToDisk(arr, file);
+
+        MappedByteBuffer buffer = MappedPointStore.map(file);
+        INDArray mapped = MappedPointStore.wrap(buffer, file);
+        assertEquals(BinarySerde.readFromDisk(file), mapped);
+        assertEquals(arr, mapped);
+        assertEquals(arr.getRow(5), mapped.getRow(5));
+    }
+
+    @Test
+    public void testChunksSurviveGc() throws Exception {
+        INDArray arr = Nd4j.rand(64, 16);
+        File file = testDir.newFile();
+        BinarySerde.writeArrayToDisk(arr, file);
+
+        MappedPointStore store = MappedPointStore.open(file.getAbsolutePath());
+        INDArray chunk = store.getChunks()[0];
+
+        // store holds the mapped buffer, so mapping can't go away under the chunk
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(arr, chunk);
+
+        store.close();
+        try {
+            store.getChunks();
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPointsAreCopies() throws Exception {
+        INDArray arr = Nd4j.rand(30, 8);
+        File first = testDir.newFile();
+        File second = testDir.newFile();
+        BinarySerde.writeArrayToDisk(arr.get(NDArrayIndex.interval(0, 20), NDArrayIndex.all()), first);
+        BinarySerde.writeArrayToDisk(arr.get(NDArrayIndex.interval(20, 30), NDArrayIndex.all()), second);
+
+        MappedPointStore store = MappedPointStore.open(first.getAbsolutePath(), second.getAbsolutePath());
+        INDArray head = store.getPoint(3);
+        INDArray tail = store.getPoint(27);
+        assertFalse(tail.isView());
+
+        // points don't depend on mapped buffers, so they survive closed store
+        store.close();
+        store = null;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(arr.getRow(3), head);
+        assertEquals(arr.getRow(27), tail);
+    }
+
+    @Test(expected = DL4JInvalidInputException.class)
+    public void testPointOutOfRange() throws Exception {
+        File file = testDir.newFile();
+        BinarySerde.writeArrayToDisk(Nd4j.rand(5, 3), file);
+        MappedPointStore.open(file.getAbsolutePath()).getPoint(5);
+    }
+
+    @Test
+    public void testTreeOverMappedChunks() throws Exception {
+        Nd4j.getRandom().setSeed(119);
+        INDArray arr = Nd4j.rand(40, 6);
+
+        File first = testDir.newFile();
+        File second = testDir.newFile();
+        BinarySerde.writeArrayToDisk(arr.get(NDArrayIndex.interval(0, 25), NDArrayIndex.all()), first);
+        BinarySerde.writeArrayToDisk(arr.get(NDArrayIndex.interval(25, 40), NDArrayIndex.all()), second);
+
+        MappedPointStore store = MappedPointStore.open(first.getAbsolutePath(), second.getAbsolutePath());
+        assertEquals(40, store.getRows());
+        assertEquals(6, store.getColumns());
+
+        VPTree tree = new VPTree(store.getChunks(), VPTree.EUCLIDEAN, 1, false);
+        List<DataPoint> results = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        tree.search(arr.getRow(31), 3, results, distances);
+
+        assertEquals(3, results.size());
+        boolean found = false;
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).getIndex() == 31) {
+                assertEquals(0.0, distances.get(i), 1e-5);
+                assertEquals(arr.getRow(31), results.get(i).getPoint());
+                found = true;
+            }
+        }
+        assertTrue(found);
+
+        // saved tree should be reusable with the same mapped chunks
+        File treeFile = testDir.newFile();
+        tree.save(treeFile);
+        VPTree restored = VPTree.load(treeFile, store.getChunks());
+        List<DataPoint> restoredResults = new ArrayList<>();
+        List<Double> restoredDistances = new ArrayList<>();
+        restored.search(arr.getRow(31), 3, restoredResults, restoredDistances);
+        assertEquals(distances, restoredDistances);
+    }
+}
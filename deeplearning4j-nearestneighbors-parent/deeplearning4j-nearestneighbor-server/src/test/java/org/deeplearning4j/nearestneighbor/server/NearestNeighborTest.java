@@ -5,10 +5,12 @@ import org.deeplearning4j.clustering.vptree.VPTree;
 import org.deeplearning4j.clustering.vptree.VPTreeFillSearch;
 import org.deeplearning4j.nearestneighbor.client.NearestNeighborsClient;
 import org.deeplearning4j.nearestneighbor.model.NearestNeighborRequest;
+import org.deeplearning4j.nearestneighbor.model.NearestNeighborsBatchResults;
 import org.deeplearning4j.nearestneighbor.model.NearstNeighborsResults;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.serde.binary.BinarySerde;
 
 import java.io.File;
@@ -66,6 +68,66 @@ public class NearestNeighborTest {
         NearestNeighborsClient client = new NearestNeighborsClient("http://localhost:" + localPort);
         NearstNeighborsResults result = client.knnNew(5, rand.getRow(0));
         assertEquals(5, result.getResults().size());
+
+        NearestNeighborsBatchResults batch = client.knnBatch(5, rand.getRow(0));
+        assertEquals(1, batch.getResults().size());
+        assertEquals(result, batch.getResults().get(0));
+        server.stop();
+    }
+
+    @Test
+    public void testServerHnsw() throws Exception {
+        int localPort = getAvailablePort();
+        Nd4j.getRandom().setSeed(7);
+        INDArray rand = Nd4j.randn(50, 5);
+        File writeToTmp = new File(System.getProperty("java.io.tmpdir"), "ndarray" + UUID.randomUUID().toString());
+        writeToTmp.deleteOnExit();
+        BinarySerde.writeArrayToDisk(rand, writeToTmp);
+        NearestNeighborsServer server = new NearestNeighborsServer();
+        server.runMain("--ndarrayPath", writeToTmp.getAbsolutePath(), "--nearestNeighborsPort",
+                        String.valueOf(localPort), "--index", "hnsw");
+
+        NearestNeighborsClient client = new NearestNeighborsClient("http://localhost:" + localPort);
+        NearstNeighborsResults result = client.knnNew(5, rand.getRow(3));
+        assertEquals(5, result.getResults().size());
+        assertEquals(3, result.getResults().get(0).getIndex());
+
+        result = client.knn(7, 4);
+        assertEquals(4, result.getResults().size());
+        assertEquals(7, result.getResults().get(0).getIndex());
+
+        NearestNeighborsBatchResults batch = client.knnBatch(2, rand);
+        assertEquals(50, batch.getResults().size());
+        assertEquals(10, batch.getResults().get(10).getResults().get(0).getIndex());
+        server.stop();
+    }
+
+    @Test
+    public void testServerMapped() throws Exception {
+        int localPort = getAvailablePort();
+        Nd4j.getRandom().setSeed(7);
+        INDArray rand = Nd4j.randn(10, 5);
+        File first = new File(System.getProperty("java.io.tmpdir"), "ndarray" + UUID.randomUUID().toString());
+        File second = new File(System.getProperty("java.io.tmpdir"), "ndarray" + UUID.randomUUID().toString());
+        first.deleteOnExit();
+        second.deleteOnExit();
+        BinarySerde.writeArrayToDisk(rand.get(NDArrayIndex.interval(0, 6), NDArrayIndex.all()), first);
+        BinarySerde.writeArrayToDisk(rand.get(NDArrayIndex.interval(6, 10), NDArrayIndex.all()), second);
+        NearestNeighborsServer server = new NearestNeighborsServer();
+        server.runMain("--ndarrayPath", first.getAbsolutePath() + "," + second.getAbsolutePath(),
+                        "--nearestNeighborsPort", String.valueOf(localPort), "--mmap", "true");
+
+        NearestNeighborsClient client = new NearestNeighborsClient("http://localhost:" + localPort);
+        NearstNeighborsResults result = client.knnNew(5, rand.getRow(7));
+        assertEquals(5, result.getResults().size());
+
+        result = client.knn(8, 3);
+        assertEquals(3, result.getResults().size());
+
+        NearestNeighborsBatchResults batch = client.knnBatch(3, rand);
+        assertEquals(10, batch.getResults().size());
+        for (int i = 0; i < 10; i++)
+            assertEquals(3, batch.getResults().get(i).getResults().size());
         server.stop();
     }
 
@@ -4,6 +4,7 @@ import com.mashape.unirest.http.ObjectMapper;
 import com.mashape.unirest.http.Unirest;
 import lombok.AllArgsConstructor;
 import org.deeplearning4j.nearestneighbor.model.Base64NDArrayBody;
+import org.deeplearning4j.nearestneighbor.model.NearestNeighborsBatchResults;
 import org.deeplearning4j.nearestneighbor.model.NearestNeighborRequest;
 import org.deeplearning4j.nearestneighbor.model.NearstNeighborsResults;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -93,5 +94,28 @@ public class NearestNeighborsClient {
         return ret;
     }
 
+    /**
+     * Run a k nearest neighbors search
+     * for each row of the given matrix
+     * (note that this is for NEW data points)
+     * @param k the number of results
+     *          to retrieve for each query
+     * @param queries the queries to run the search on,
+     *                one query per row
+     * @return results for each query, in the same
+     * order as queries
+     * @throws Exception
+     */
+    public NearestNeighborsBatchResults knnBatch(int k, INDArray queries) throws Exception {
+        Base64NDArrayBody base64NDArrayBody =
+                        Base64NDArrayBody.builder().k(k).ndarray(Nd4jBase64.base64String(queries)).build();
+
+        NearestNeighborsBatchResults ret = Unirest.post(url + "/knnbatch").header("accept", "application/json")
+                        .header("Content-Type", "application/json").body(base64NDArrayBody)
+                        .asObject(NearestNeighborsBatchResults.class).getBody();
+
+        return ret;
+    }
+
 
 }
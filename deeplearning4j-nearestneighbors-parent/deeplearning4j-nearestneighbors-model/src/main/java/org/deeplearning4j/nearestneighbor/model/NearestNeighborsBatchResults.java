@@ -0,0 +1,21 @@
+package org.deeplearning4j.nearestneighbor.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Results of batched search: one {@link NearstNeighborsResults} per query, in the same order as queries
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearestNeighborsBatchResults implements Serializable {
+    private List<NearstNeighborsResults> results;
+
+}
@@ -0,0 +1,825 @@
+package org.deeplearning4j.clustering.hnsw;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Approximate nearest neighbors index, based on Hierarchical Navigable Small World graphs:
+ * Malkov, Yashunin, "Efficient and robust approximate nearest neighbor search using Hierarchical Navigable
+ * Small World graphs", https://arxiv.org/abs/1603.09320
+ *
+ * Recall/speed tradeoff is controlled by M (number of links per node), efConstruction (size of candidates list
+ * used during insertion) and efSearch (size of candidates list used during search, can be changed at any time).
+ *
+ * Points can be added at any time, and searches can run concurrently with each other and with inserts.
+ * Distances are calculated in java, since each distance is too small to justify an op call. By default vectors are
+ * copied into on-heap float arrays. With {@link Builder#copyVectors(boolean)} disabled, rows of float matrices passed
+ * to {@link #addAll(INDArray, ExecutorService)} are read in place instead, so memory-mapped points aren't duplicated
+ * on heap.
+ *
+ * Supported similarity functions: euclidean, manhattan, cosinedistance, dot (distance is negative dot product).
+ */
+@Slf4j
+public class HNSWIndex {
+    public static final String EUCLIDEAN = "euclidean";
+    public static final String MANHATTAN = "manhattan";
+    public static final String COSINE_DISTANCE = "cosinedistance";
+    public static final String DOT = "dot";
+
+    @Getter
+    private final int m;
+    @Getter
+    private final int maxConnectionsZero;
+    @Getter
+    private final int efConstruction;
+    @Getter
+    private volatile int efSearch;
+    @Getter
+    private final String similarityFunction;
+    @Getter
+    private final boolean copyVectors;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private volatile int dimensions = -1;
+    private volatile Node[] nodes;
+    // ids handed out by reserve(), nodes for some of them might be still being inserted
+    private final AtomicInteger reserved = new AtomicInteger(0);
+    // points completely inserted into the graph
+    private final AtomicInteger inserted = new AtomicInteger(0);
+    private volatile Node entryPoint;
+    private final Object entryLock = new Object();
+    private final Object growLock = new Object();
+    // matrices referenced by nodes, kept to keep memory behind them alive
+    private final List<INDArray> sources = Collections.synchronizedList(new ArrayList<INDArray>());
+
+    private final ThreadLocal<VisitedList> visited = new ThreadLocal<>();
+
+    protected HNSWIndex(Builder builder) {
+        this.m = builder.m;
+        this.maxConnectionsZero = 2 * builder.m;
+        this.efConstruction = Math.max(builder.efConstruction, builder.m);
+        this.efSearch = builder.efSearch;
+        this.similarityFunction = builder.similarityFunction;
+        this.copyVectors = builder.copyVectors;
+        this.levelMultiplier = 1.0 / Math.log(Math.max(2, builder.m));
+        this.random = new Random(builder.seed);
+        this.nodes = new Node[Math.max(16, builder.initialCapacity)];
+
+        switch (similarityFunction) {
+            case EUCLIDEAN:
+            case MANHATTAN:
+            case COSINE_DISTANCE:
+            case DOT:
+                break;
+            default:
+                throw new ND4JIllegalStateException("Unsupported similarity function for HNSW index: [" + similarityFunction
+                                + "]. Supported functions: euclidean, manhattan, cosinedistance, dot");
+        }
+    }
+
+    /**
+     * This method changes size of candidates list used by search. Larger values give better recall and slower search.
+     *
+     * @param efSearch
+     */
+    public void setEfSearch(int efSearch) {
+        if (efSearch < 1)
+            throw new ND4JIllegalStateException("efSearch should be positive, but got " + efSearch);
+
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * This method returns number of points added to this index. Points of addAll() call in progress are counted
+     * once each of them is inserted.
+     *
+     * @return
+     */
+    public int size() {
+        return inserted.get();
+    }
+
+    /**
+     * This method returns point with given index
+     *
+     * PLEASE NOTE: while addAll() is in progress, indices of its points are already reserved, but some of them aren't
+     * inserted yet. ND4JIllegalStateException is thrown for such indices, as well as for indices never handed out.
+     *
+     * @param index
+     * @return
+     */
+    public INDArray getPoint(int index) {
+        Node node = node(index);
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < vector.length; i++)
+            vector[i] = node.vector.get(node.offset + i);
+
+        return Nd4j.create(vector);
+    }
+
+    /**
+     * This method adds single point to the index
+     *
+     * @param point row vector
+     * @return index of the point
+     */
+    public int add(@NonNull INDArray point) {
+        return add(toFloats(point));
+    }
+
+    /**
+     * This method adds single point to the index
+     *
+     * @param vector
+     * @return index of the point
+     */
+    public int add(@NonNull float[] vector) {
+        int id = reserve(1);
+        insert(id, FloatBuffer.wrap(vector), 0, vector.length);
+        return id;
+    }
+
+    /**
+     * This method adds all rows of given matrix, in calling thread
+     *
+     * @param points
+     * @return index of the first added point, rest of points get consecutive indices
+     */
+    public int addAll(@NonNull INDArray points) {
+        return addAll(points, null);
+    }
+
+    /**
+     * This method adds all rows of given matrix, using given executor.
+     *
+     * PLEASE NOTE: if {@link #isCopyVectors()} is false, rows of float matrix are used in place, so matrix must not be
+     * modified afterwards.
+     *
+     * @param points
+     * @param executorService executor to use, or null to use calling thread
+     * @return index of the first added point, rest of points get consecutive indices
+     */
+    public int addAll(@NonNull INDArray points, ExecutorService executorService) {
+        final int rows = points.rows();
+        final FloatBuffer buffer = copyVectors ? null : referencedBuffer(points);
+        final int base = reserve(rows);
+
+        if (executorService == null) {
+            for (int r = 0; r < rows; r++)
+                insertRow(base + r, points, buffer, r);
+
+            return base;
+        }
+
+        // first point is inserted synchronously, so there's an entry point for everyone else
+        insertRow(base, points, buffer, 0);
+
+        final AtomicInteger cursor = new AtomicInteger(1);
+        final INDArray source = points;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    int r;
+                    while ((r = cursor.getAndIncrement()) < rows)
+                        insertRow(base + r, source, buffer, r);
+
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> future : futures)
+                future.get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        return base;
+    }
+
+    /**
+     * This method searches k approximate nearest neighbors of the target, with current efSearch.
+     * Results are sorted by distance, nearest first.
+     *
+     * @param target
+     * @param k
+     * @param results
+     * @param distances
+     */
+    public void search(@NonNull INDArray target, int k, List<DataPoint> results, List<Double> distances) {
+        search(target, k, efSearch, results, distances);
+    }
+
+    /**
+     * This method searches k approximate nearest neighbors of the target, with given ef.
+     * Results are sorted by distance, nearest first.
+     *
+     * @param target
+     * @param k
+     * @param ef size of candidates list, values below k are treated as k
+     * @param results
+     * @param distances
+     */
+    public void search(@NonNull INDArray target, int k, int ef, List<DataPoint> results, List<Double> distances) {
+        results.clear();
+        distances.clear();
+
+        int[] ids = new int[k];
+        float[] dists = new float[k];
+        int found = search(toFloats(target), k, ef, ids, dists);
+        for (int i = 0; i < found; i++) {
+            results.add(new DataPoint(ids[i], getPoint(ids[i])));
+            distances.add((double) dists[i]);
+        }
+    }
+
+    /**
+     * This method searches k nearest neighbors for each row of queries matrix
+     *
+     * @param queries queries matrix, one query per row
+     * @param k number of neighbors to look for
+     * @param results results for each query, in the same order as queries
+     * @param distances distances for each query, in the same order as queries
+     * @param executorService executor used to process queries in parallel, or null to use calling thread
+     */
+    public void searchBatch(@NonNull final INDArray queries, final int k, final List<List<DataPoint>> results,
+                    final List<List<Double>> distances, ExecutorService executorService) {
+        final int rows = queries.rows();
+        final List<List<DataPoint>> res = new ArrayList<>(Collections.<List<DataPoint>>nCopies(rows, null));
+        final List<List<Double>> dist = new ArrayList<>(Collections.<List<Double>>nCopies(rows, null));
+
+        if (executorService == null) {
+            for (int q = 0; q < rows; q++) {
+                res.set(q, new ArrayList<DataPoint>());
+                dist.set(q, new ArrayList<Double>());
+                search(queries.getRow(q), k, res.get(q), dist.get(q));
+            }
+        } else {
+            List<Future<Void>> futures = new ArrayList<>(rows);
+            for (int q = 0; q < rows; q++) {
+                final int query = q;
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        List<DataPoint> r = new ArrayList<>();
+                        List<Double> d = new ArrayList<>();
+                        search(queries.getRow(query), k, r, d);
+                        res.set(query, r);
+                        dist.set(query, d);
+                        return null;
+                    }
+                }));
+            }
+
+            try {
+                for (Future<Void> future : futures)
+                    future.get();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        results.clear();
+        results.addAll(res);
+        distances.clear();
+        distances.addAll(dist);
+    }
+
+    /**
+     * This method searches k approximate nearest neighbors of the target
+     *
+     * @param query
+     * @param k
+     * @param ef
+     * @param ids array of at least k elements, indices of neighbors will be stored there, nearest first
+     * @param dists array of at least k elements, distances to neighbors will be stored there
+     * @return number of neighbors found
+     */
+    public int search(@NonNull float[] query, int k, int ef, int[] ids, float[] dists) {
+        Node entry = entryPoint;
+        if (entry == null || k < 1)
+            return 0;
+
+        checkDimensions(query.length);
+        FloatBuffer queryBuffer = FloatBuffer.wrap(query);
+        float queryNorm = norm(queryBuffer, 0, query.length);
+
+        Node current = entry;
+        float currentDistance = distance(queryBuffer, 0, queryNorm, current);
+        for (int layer = entry.level; layer > 0; layer--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] links = current.links(layer);
+                for (int link : links) {
+                    Node candidate = node(link);
+                    float d = distance(queryBuffer, 0, queryNorm, candidate);
+                    if (d < currentDistance) {
+                        currentDistance = d;
+                        current = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        PriorityQueue<Candidate> found =
+                        searchLayer(queryBuffer, 0, queryNorm, current, currentDistance, Math.max(ef, k), 0);
+        while (found.size() > k)
+            found.poll();
+
+        int count = found.size();
+        for (int i = count - 1; i >= 0; i--) {
+            Candidate c = found.poll();
+            ids[i] = c.id;
+            dists[i] = reportedDistance(c.distance);
+        }
+
+        return count;
+    }
+
+    protected int reserve(int count) {
+        synchronized (growLock) {
+            int base = reserved.get();
+            int required = base + count;
+            if (required > nodes.length) {
+                int capacity = nodes.length;
+                while (capacity < required)
+                    capacity = capacity * 2;
+
+                nodes = Arrays.copyOf(nodes, capacity);
+            }
+
+            reserved.set(required);
+            return base;
+        }
+    }
+
+    /**
+     * This method inserts row of given matrix, either in place (if buffer is provided) or as on-heap copy
+     */
+    protected void insertRow(int id, INDArray points, FloatBuffer buffer, int row) {
+        if (buffer == null) {
+            float[] vector = toFloats(points.getRow(row));
+            insert(id, FloatBuffer.wrap(vector), 0, vector.length);
+        } else {
+            int offset = (int) (points.offset() + (long) row * points.stride(0));
+            insert(id, buffer, offset, points.columns());
+        }
+    }
+
+    /**
+     * This method returns buffer over memory behind given matrix, if its rows can be read in place: data type is
+     * float, and each row is contiguous. Otherwise null is returned, and rows are copied.
+     */
+    protected FloatBuffer referencedBuffer(INDArray points) {
+        if (points.data().dataType() != DataBuffer.Type.FLOAT || points.rank() != 2 || points.ordering() != 'c'
+                        || (points.columns() > 1 && points.stride(1) != 1)
+                        || points.data().length() > Integer.MAX_VALUE / 4) {
+            log.warn("Points of shape {} can't be used in place, vectors will be copied",
+                            Arrays.toString(points.shape()));
+            return null;
+        }
+
+        sources.add(points);
+        // absolute reads only, so the same buffer can be shared by all threads
+        return points.data().asNio().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    protected void insert(int id, FloatBuffer vector, int offset, int length) {
+        checkDimensions(length);
+
+        int level;
+        synchronized (random) {
+            level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        }
+
+        Node node = new Node(id, vector, offset, norm(vector, offset, length), level);
+        // node becomes visible for other threads only after it's stored in nodes array
+        synchronized (growLock) {
+            nodes[id] = node;
+        }
+
+        Node entry;
+        synchronized (entryLock) {
+            entry = entryPoint;
+            if (entry == null) {
+                entryPoint = node;
+                inserted.incrementAndGet();
+                return;
+            }
+        }
+
+        Node current = entry;
+        float currentDistance = distance(vector, offset, node.norm, current);
+        for (int layer = entry.level; layer > level; layer--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int link : current.links(layer)) {
+                    Node candidate = node(link);
+                    float d = distance(vector, offset, node.norm, candidate);
+                    if (d < currentDistance) {
+                        currentDistance = d;
+                        current = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        int topLayer = Math.min(level, entry.level);
+        for (int layer = topLayer; layer >= 0; layer--) {
+            PriorityQueue<Candidate> candidates =
+                            searchLayer(vector, offset, node.norm, current, currentDistance, efConstruction, layer);
+
+            List<Candidate> sorted = new ArrayList<>(candidates);
+            Collections.sort(sorted);
+            current = node(sorted.get(0).id);
+            currentDistance = sorted.get(0).distance;
+
+            node.setLinks(layer, selectNeighbors(sorted, m));
+        }
+
+        // node gets incoming links only after its own links are set on all layers, otherwise concurrent search
+        // might reach it via upper layer and get stuck on a layer below
+        for (int layer = topLayer; layer >= 0; layer--) {
+            int maxConnections = layer == 0 ? maxConnectionsZero : m;
+            for (int neighbor : node.links(layer))
+                connect(node(neighbor), id, layer, maxConnections);
+        }
+
+        if (level > entry.level) {
+            synchronized (entryLock) {
+                if (level > entryPoint.level)
+                    entryPoint = node;
+            }
+        }
+
+        inserted.incrementAndGet();
+    }
+
+    /**
+     * This method adds link from given node to the new node, shrinking links with the same heuristic if needed
+     */
+    protected void connect(Node node, int newLink, int layer, int maxConnections) {
+        synchronized (node) {
+            int[] links = node.links(layer);
+            int[] updated = Arrays.copyOf(links, links.length + 1);
+            updated[links.length] = newLink;
+
+            if (updated.length > maxConnections) {
+                List<Candidate> candidates = new ArrayList<>(updated.length);
+                for (int link : updated)
+                    candidates.add(new Candidate(link, distance(node.vector, node.offset, node.norm, node(link))));
+
+                Collections.sort(candidates);
+                updated = selectNeighbors(candidates, maxConnections);
+            }
+
+            node.setLinks(layer, updated);
+        }
+    }
+
+    /**
+     * Neighbors selection heuristic: candidate is taken only if it's closer to the base than to any of already
+     * selected neighbors, which keeps links spread in different directions. Remaining slots are filled with
+     * closest pruned candidates.
+     *
+     * @param sorted candidates sorted by distance to base, ascending
+     * @param limit maximal number of neighbors
+     * @return
+     */
+    protected int[] selectNeighbors(List<Candidate> sorted, int limit) {
+        int[] selected = new int[Math.min(limit, sorted.size())];
+        int count = 0;
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : sorted) {
+            if (count >= selected.length)
+                break;
+
+            Node candidateNode = node(candidate.id);
+            boolean good = true;
+            for (int i = 0; i < count; i++) {
+                if (distance(candidateNode.vector, candidateNode.offset, candidateNode.norm,
+                                node(selected[i])) < candidate.distance) {
+                    good = false;
+                    break;
+                }
+            }
+
+            if (good)
+                selected[count++] = candidate.id;
+            else
+                pruned.add(candidate);
+        }
+
+        for (int i = 0; i < pruned.size() && count < selected.length; i++)
+            selected[count++] = pruned.get(i).id;
+
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Greedy beam search within single layer
+     *
+     * @return max-heap of ef closest nodes found
+     */
+    protected PriorityQueue<Candidate> searchLayer(FloatBuffer query, int queryOffset, float queryNorm, Node entry,
+                    float entryDistance, int ef, int layer) {
+        VisitedList visitedList = visited.get();
+        if (visitedList == null) {
+            visitedList = new VisitedList();
+            visited.set(visitedList);
+        }
+        // concurrent inserts may add nodes during search, VisitedList grows if needed
+        visitedList.reset(reserved.get());
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(ef + 1);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(ef + 1, Collections.reverseOrder());
+
+        Candidate first = new Candidate(entry.id, entryDistance);
+        candidates.add(first);
+        results.add(first);
+        visitedList.visit(entry.id);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (closest.distance > results.peek().distance && results.size() >= ef)
+                break;
+
+            for (int link : node(closest.id).links(layer)) {
+                if (!visitedList.visit(link))
+                    continue;
+
+                float d = distance(query, queryOffset, queryNorm, node(link));
+                if (results.size() < ef || d < results.peek().distance) {
+                    Candidate candidate = new Candidate(link, d);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef)
+                        results.poll();
+                }
+            }
+        }
+
+        return results;
+    }
+
+    protected Node node(int id) {
+        Node[] current = nodes;
+        Node node = id >= 0 && id < current.length ? current[id] : null;
+        if (node == null)
+            throw new ND4JIllegalStateException("Point [" + id + "] wasn't added to the index yet");
+
+        return node;
+    }
+
+    protected void checkDimensions(int length) {
+        if (dimensions < 0) {
+            synchronized (growLock) {
+                if (dimensions < 0)
+                    dimensions = length;
+            }
+        }
+
+        if (length != dimensions)
+            throw new ND4JIllegalStateException("Point should have " + dimensions + " dimensions, but got "
+                            + length + " instead");
+    }
+
+    protected float distance(FloatBuffer query, int queryOffset, float queryNorm, Node node) {
+        FloatBuffer vector = node.vector;
+        int offset = node.offset;
+        int length = dimensions;
+        switch (similarityFunction) {
+            case MANHATTAN: {
+                float sum = 0.0f;
+                for (int i = 0; i < length; i++)
+                    sum += Math.abs(query.get(queryOffset + i) - vector.get(offset + i));
+                return sum;
+            }
+            case COSINE_DISTANCE: {
+                float dot = dot(query, queryOffset, vector, offset, length);
+                float denominator = queryNorm * node.norm;
+                return denominator == 0.0f ? 1.0f : 1.0f - dot / denominator;
+            }
+            case DOT:
+                return -dot(query, queryOffset, vector, offset, length);
+            default: {
+                // squared distance is used internally, see reportedDistance()
+                float sum = 0.0f;
+                for (int i = 0; i < length; i++) {
+                    float diff = query.get(queryOffset + i) - vector.get(offset + i);
+                    sum += diff * diff;
+                }
+                return sum;
+            }
+        }
+    }
+
+    protected float reportedDistance(float distance) {
+        return EUCLIDEAN.equals(similarityFunction) ? (float) Math.sqrt(distance) : distance;
+    }
+
+    protected static float dot(FloatBuffer x, int xOffset, FloatBuffer y, int yOffset, int length) {
+        float sum = 0.0f;
+        for (int i = 0; i < length; i++)
+            sum += x.get(xOffset + i) * y.get(yOffset + i);
+        return sum;
+    }
+
+    protected static float norm(FloatBuffer x, int offset, int length) {
+        return (float) Math.sqrt(dot(x, offset, x, offset, length));
+    }
+
+    protected static float[] toFloats(INDArray vector) {
+        if (!vector.isVector() && !vector.isScalar())
+            throw new ND4JIllegalStateException("Point should be a vector, but got shape "
+                            + Arrays.toString(vector.shape()));
+
+        float[] ret = new float[vector.length()];
+        for (int i = 0; i < ret.length; i++)
+            ret[i] = vector.getFloat(i);
+
+        return ret;
+    }
+
+    protected static class Node {
+        protected final int id;
+        // either wrapped on-heap copy, or buffer of the source matrix, see Builder.copyVectors()
+        protected final FloatBuffer vector;
+        protected final int offset;
+        protected final float norm;
+        protected final int level;
+        // links for each layer, arrays are replaced, never modified in place
+        protected final AtomicReferenceArray<int[]> links;
+
+        protected Node(int id, FloatBuffer vector, int offset, float norm, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.offset = offset;
+            this.norm = norm;
+            this.level = level;
+            this.links = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++)
+                links.set(i, new int[0]);
+        }
+
+        protected int[] links(int layer) {
+            return layer > level ? new int[0] : links.get(layer);
+        }
+
+        protected void setLinks(int layer, int[] links) {
+            this.links.set(layer, links);
+        }
+    }
+
+    protected static class Candidate implements Comparable<Candidate> {
+        protected final int id;
+        protected final float distance;
+
+        protected Candidate(int id, float distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int cmp = Float.compare(distance, o.distance);
+            return cmp != 0 ? cmp : Integer.compare(id, o.id);
+        }
+    }
+
+    /**
+     * Visited marks, reused between searches within the same thread
+     */
+    protected static class VisitedList {
+        private int[] marks = new int[0];
+        private int generation = 0;
+
+        protected void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[capacity];
+                generation = 0;
+            }
+
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * @return true if id wasn't visited yet
+         */
+        protected boolean visit(int id) {
+            // node might be added after reset(), so marks are grown on demand
+            if (id >= marks.length)
+                marks = Arrays.copyOf(marks, Math.max(id + 1, marks.length * 2));
+
+            if (marks[id] == generation)
+                return false;
+
+            marks[id] = generation;
+            return true;
+        }
+    }
+
+    public static class Builder {
+        private int m = 16;
+        private int efConstruction = 200;
+        private int efSearch = 50;
+        private String similarityFunction = EUCLIDEAN;
+        private long seed = 119;
+        private int initialCapacity = 1024;
+        private boolean copyVectors = true;
+
+        /**
+         * Number of links per node on upper layers, layer 0 gets 2 * M links. Larger values give better recall
+         * for high-dimensional data, at the cost of memory and insertion time.
+         *
+         * Default value: 16
+         */
+        public Builder m(int m) {
+            if (m < 2)
+                throw new ND4JIllegalStateException("M should be at least 2, but got " + m);
+
+            this.m = m;
+            return this;
+        }
+
+        /**
+         * Size of candidates list used during insertion. Default value: 200
+         */
+        public Builder efConstruction(int efConstruction) {
+            this.efConstruction = efConstruction;
+            return this;
+        }
+
+        /**
+         * Size of candidates list used during search. Default value: 50
+         */
+        public Builder efSearch(int efSearch) {
+            if (efSearch < 1)
+                throw new ND4JIllegalStateException("efSearch should be positive, but got " + efSearch);
+
+            this.efSearch = efSearch;
+            return this;
+        }
+
+        public Builder similarityFunction(@NonNull String similarityFunction) {
+            this.similarityFunction = similarityFunction;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Expected number of points, used to avoid reallocations
+         */
+        public Builder initialCapacity(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * If false, rows of float matrices passed to addAll() are read in place instead of being copied on heap,
+         * i.e. memory-mapped points stay in page cache. Such matrices must not be modified while index is used.
+         *
+         * Default value: true
+         */
+        public Builder copyVectors(boolean copyVectors) {
+            this.copyVectors = copyVectors;
+            return this;
+        }
+
+        public HNSWIndex build() {
+            return new HNSWIndex(this);
+        }
+    }
+}
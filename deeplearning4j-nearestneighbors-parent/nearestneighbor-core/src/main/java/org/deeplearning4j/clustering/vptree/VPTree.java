@@ -31,7 +31,9 @@ import org.nd4j.linalg.api.ops.impl.accum.Dot;
 import org.nd4j.linalg.api.ops.impl.accum.distances.*;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -48,12 +50,31 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class VPTree {
 
     public static final String EUCLIDEAN = "euclidean";
+    // upper bound for number of elements gathered at once for distances calculation on tree levels below root
+    public static final int GATHER_BLOCK_ELEMENTS = 1 << 22;
+
+    // node fields within flat layout
+    protected static final int NODE_STRIDE = 4;
+    protected static final int NODE_INDEX = 0;
+    protected static final int NODE_THRESHOLD = 1;
+    protected static final int NODE_LEFT = 2;
+    protected static final int NODE_RIGHT = 3;
+
+    protected static final int FORMAT_MAGIC = 0x56505452; // "VPTR"
+    protected static final int FORMAT_VERSION = 1;
     private double tau;
     @Getter
     @Setter
     private INDArray items;
+    @Getter
+    private INDArray[] chunks;
     private List<INDArray> itemsList;
     private Node root;
+    // flat array-of-structs tree layout: NODE_STRIDE ints per node, nodes are stored in pre-order, root goes first
+    private int[] layout;
+    // lazily resolved points of nodes, in layout order
+    private INDArray[] nodePoints;
+    @Getter
     private String similarityFunction;
     @Getter
     private boolean invert = false;
@@ -66,6 +87,10 @@ public class VPTree {
 
     WorkspaceConfiguration workspaceConfiguration;
 
+    private VPTree() {
+        //
+    }
+
     /**
      *
      * @param points
@@ -96,6 +121,7 @@ public class VPTree {
         this.invert = invert;
         this.items = items;
         root = buildFromPoints(items);
+        flatten();
         workers = 1;
     }
 
@@ -121,6 +147,7 @@ public class VPTree {
         this.invert = invert;
         this.similarityFunction = similarityFunction;
         root = buildFromPoints(this.items);
+        flatten();
 
     }
 
@@ -149,9 +176,39 @@ public class VPTree {
 
         this.workers = workers;
         root = buildFromPoints(items);
+        flatten();
     }
 
 
+    /**
+     * This constructor builds tree over multiple row-wise chunks of the same points matrix, without stacking them
+     * into single INDArray. Chunks are used as is, so they might be views over memory-mapped files.
+     * Indices of points are global, i.e. first row of second chunk has index equal to number of rows in first chunk.
+     *
+     * @param chunks 2D chunks with equal number of columns
+     * @param similarityFunction the similarity function to use
+     * @param workers number of parallel workers for tree building (increases memory requirements!)
+     * @param invert whether to invert the metric (different optimization objective)
+     */
+    public VPTree(@NonNull INDArray[] chunks, String similarityFunction, int workers, boolean invert) {
+        if (chunks.length == 0)
+            throw new ND4JIllegalStateException("At least one chunk of points is required");
+
+        for (int i = 1; i < chunks.length; i++)
+            if (chunks[i].columns() != chunks[0].columns())
+                throw new ND4JIllegalStateException("All chunks should have equal number of columns, but chunk " + i
+                                + " has " + chunks[i].columns() + " columns instead of " + chunks[0].columns());
+
+        this.similarityFunction = similarityFunction;
+        this.invert = invert;
+        this.chunks = chunks;
+        this.items = chunks.length == 1 ? chunks[0] : null;
+
+        this.workers = workers;
+        root = buildFromChunks(chunks);
+        flatten();
+    }
+
     /**
      *
      * @param items
@@ -238,7 +295,33 @@ public class VPTree {
     }
 
     public void calcDistancesRelativeTo(INDArray basePoint, INDArray distancesArr) {
-        calcDistancesRelativeTo(items, basePoint, distancesArr);
+        if (chunks == null)
+            calcDistancesRelativeTo(items, basePoint, distancesArr);
+        else
+            calcDistancesRelativeTo(chunks, basePoint, distancesArr);
+    }
+
+    /**
+     * This method calculates distances from basePoint to each row of given row-wise chunks, directly over chunks
+     *
+     * @param chunks
+     * @param basePoint
+     * @param distancesArr
+     */
+    protected void calcDistancesRelativeTo(INDArray[] chunks, INDArray basePoint, INDArray distancesArr) {
+        if (chunks.length == 1) {
+            calcDistancesRelativeTo(chunks[0], basePoint, distancesArr);
+            return;
+        }
+
+        int offset = 0;
+        for (INDArray chunk : chunks) {
+            INDArray chunkDistances = Nd4j.create(chunk.rows(), 1);
+            calcDistancesRelativeTo(chunk, basePoint, chunkDistances);
+            distancesArr.get(NDArrayIndex.interval(offset, offset + chunk.rows()), NDArrayIndex.all())
+                            .assign(chunkDistances);
+            offset += chunk.rows();
+        }
     }
 
 
@@ -323,14 +406,13 @@ public class VPTree {
         MemoryWorkspace workspace =
                         Nd4j.getWorkspaceManager().getAndActivateWorkspace(workspaceConfiguration, "VPTREE_WORSKPACE");
 
-        INDArray items = Nd4j.vstack(points);
-        int randomPoint = MathUtils.randomNumberBetween(0, items.rows() - 1, Nd4j.getRandom());
+        int randomPoint = MathUtils.randomNumberBetween(0, points.size() - 1, Nd4j.getRandom());
         INDArray basePoint = points.get(randomPoint);//items.getRow(randomPoint);
         ret.point = basePoint;
         ret.index = indices.get(randomPoint);
-        INDArray distancesArr = Nd4j.create(items.rows(), 1);
+        INDArray distancesArr = Nd4j.create(points.size(), 1);
 
-        calcDistancesRelativeTo(items, basePoint, distancesArr);
+        calcDistancesRelativeTo(points, basePoint, distancesArr);
 
         double medianDistance = distancesArr.medianNumber().doubleValue();
 
@@ -369,7 +451,11 @@ public class VPTree {
     }
 
     private Node buildFromPoints(INDArray items) {
-        if (executorService == null && items == this.items) {
+        return buildFromChunks(new INDArray[] {items});
+    }
+
+    private Node buildFromChunks(INDArray[] chunks) {
+        if (executorService == null) {
 
             executorService = Executors.newFixedThreadPool(workers, new ThreadFactory() {
                 @Override
@@ -404,13 +490,18 @@ public class VPTree {
         MemoryWorkspace workspace =
                         Nd4j.getWorkspaceManager().getAndActivateWorkspace(workspaceConfiguration, "VPTREE_WORSKPACE");
 
-        int randomPoint = MathUtils.randomNumberBetween(0, items.rows() - 1, Nd4j.getRandom());
-        INDArray basePoint = items.getRow(randomPoint);
-        INDArray distancesArr = Nd4j.create(items.rows(), 1);
+        int numRows = 0;
+        for (INDArray chunk : chunks)
+            numRows += chunk.rows();
+
+        int randomPoint = MathUtils.randomNumberBetween(0, numRows - 1, Nd4j.getRandom());
+        INDArray basePoint = getRow(chunks, randomPoint);
+        INDArray distancesArr = Nd4j.create(numRows, 1);
         ret.point = basePoint;
         ret.index = randomPoint;
 
-        calcDistancesRelativeTo(items, basePoint, distancesArr);
+        // distances are calculated chunk by chunk, directly over original chunks
+        calcDistancesRelativeTo(chunks, basePoint, distancesArr);
 
         double medianDistance = distancesArr.medianNumber().doubleValue();
 
@@ -421,16 +512,19 @@ public class VPTree {
         List<INDArray> rightPoints = new ArrayList<>();
         List<Integer> rightIndices = new ArrayList<>();
 
-        for (int i = 0; i < distancesArr.length(); i++) {
-            if (i == randomPoint)
-                continue;
-
-            if (distancesArr.getDouble(i) < medianDistance) {
-                leftPoints.add(items.getRow(i));
-                leftIndices.add(i);
-            } else {
-                rightPoints.add(items.getRow(i));
-                rightIndices.add(i);
+        int i = 0;
+        for (INDArray chunk : chunks) {
+            for (int r = 0; r < chunk.rows(); r++, i++) {
+                if (i == randomPoint)
+                    continue;
+
+                if (distancesArr.getDouble(i) < medianDistance) {
+                    leftPoints.add(chunk.getRow(r));
+                    leftIndices.add(i);
+                } else {
+                    rightPoints.add(chunk.getRow(r));
+                    rightIndices.add(i);
+                }
             }
         }
 
@@ -459,6 +553,76 @@ public class VPTree {
         return ret;
     }
 
+    /**
+     * This method calculates distances from basePoint to each of given points. Points are gathered into
+     * contiguous blocks of at most {@link #GATHER_BLOCK_ELEMENTS} elements, so memory used for calculation
+     * doesn't depend on number of points.
+     *
+     * @param points
+     * @param basePoint
+     * @param distancesArr
+     */
+    protected void calcDistancesRelativeTo(List<INDArray> points, INDArray basePoint, INDArray distancesArr) {
+        int blockRows = Math.max(1, GATHER_BLOCK_ELEMENTS / Math.max(1, basePoint.columns()));
+        if (points.size() <= blockRows) {
+            calcDistancesRelativeTo(Nd4j.vstack(points), basePoint, distancesArr);
+            return;
+        }
+
+        for (int start = 0; start < points.size(); start += blockRows) {
+            int end = Math.min(points.size(), start + blockRows);
+            INDArray block = Nd4j.vstack(points.subList(start, end));
+            INDArray blockDistances = Nd4j.create(end - start, 1);
+            calcDistancesRelativeTo(block, basePoint, blockDistances);
+            distancesArr.get(NDArrayIndex.interval(start, end), NDArrayIndex.all()).assign(blockDistances);
+        }
+    }
+
+    /**
+     * This method returns row with given global index from the list of row-wise chunks
+     *
+     * @param chunks
+     * @param index
+     * @return
+     */
+    protected static INDArray getRow(INDArray[] chunks, int index) {
+        int offset = index;
+        for (INDArray chunk : chunks) {
+            if (offset < chunk.rows())
+                return chunk.getRow(offset);
+
+            offset -= chunk.rows();
+        }
+
+        throw new ND4JIllegalStateException("Row index [" + index + "] is out of bounds");
+    }
+
+    /**
+     * This method returns number of points stored in this tree
+     *
+     * @return
+     */
+    public int numPoints() {
+        if (chunks == null)
+            return items.rows();
+
+        int rows = 0;
+        for (INDArray chunk : chunks)
+            rows += chunk.rows();
+
+        return rows;
+    }
+
+    /**
+     * This method returns point with given index
+     *
+     * @param index
+     * @return
+     */
+    public INDArray getPoint(int index) {
+        return chunks == null ? items.getRow(index) : getRow(chunks, index);
+    }
+
 
 
     /**
@@ -469,17 +633,22 @@ public class VPTree {
      * @param distances
      */
     public void search(@NonNull INDArray target, int k, List<DataPoint> results, List<Double> distances) {
-        if (items != null)
-            if (!target.isVector() || target.columns() != items.columns() || target.rows() > 1)
+        INDArray reference = items != null ? items : chunks != null ? chunks[0] : null;
+        if (reference != null)
+            if (!target.isVector() || target.columns() != reference.columns() || target.rows() > 1)
                 throw new ND4JIllegalStateException("Target for search should have shape of [" + 1 + ", "
-                                + items.columns() + "] but got " + Arrays.toString(target.shape()) + " instead");
+                                + reference.columns() + "] but got " + Arrays.toString(target.shape()) + " instead");
 
-        k = Math.min(k, items.rows());
+        k = Math.min(k, numPoints());
         results.clear();
         distances.clear();
 
-        PriorityQueue<HeapObject> pq = new PriorityQueue<>(items.rows(), new HeapObjectComparator());
-        search(root, target, k + 1, pq, Double.MAX_VALUE);
+        // queue never holds more than k + 1 elements, so there's no sense to allocate it for all points
+        PriorityQueue<HeapObject> pq = new PriorityQueue<>(k + 2, new HeapObjectComparator());
+        if (layout != null)
+            search(0, target, k + 1, pq, Double.MAX_VALUE);
+        else
+            search(root, target, k + 1, pq, Double.MAX_VALUE);
 
         if (pq.size() > k)
             pq.poll();
@@ -551,6 +720,333 @@ public class VPTree {
     }
 
 
+    /**
+     * This method does the same as {@link #search(Node, INDArray, int, PriorityQueue, double)}, but over flat layout.
+     * Search radius is taken from the queue as soon as it's full, so subtrees are pruned with the best known radius.
+     *
+     * @param position position of the node within flat layout
+     * @param target
+     * @param k
+     * @param pq
+     * @param cTau
+     */
+    protected void search(int position, INDArray target, int k, PriorityQueue<HeapObject> pq, double cTau) {
+        if (position < 0)
+            return;
+
+        double tau = cTau;
+
+        int base = position * NODE_STRIDE;
+        INDArray point = nodePoint(position);
+        double distance = distance(point, target);
+        if (distance < tau) {
+            if (pq.size() == k)
+                pq.poll();
+
+            pq.add(new HeapObject(layout[base + NODE_INDEX], point, distance));
+            if (pq.size() == k)
+                tau = pq.peek().getDistance();
+        }
+
+        int left = layout[base + NODE_LEFT];
+        int right = layout[base + NODE_RIGHT];
+
+        if (left < 0 && right < 0)
+            return;
+
+        float threshold = Float.intBitsToFloat(layout[base + NODE_THRESHOLD]);
+        if (distance < threshold) {
+            if (distance - tau < threshold) {
+                search(left, target, k, pq, tau);
+                tau = currentTau(pq, k, tau);
+            }
+
+            if (distance + tau >= threshold)
+                search(right, target, k, pq, tau);
+
+        } else {
+            if (distance + tau >= threshold) {
+                search(right, target, k, pq, tau);
+                tau = currentTau(pq, k, tau);
+            }
+
+            if (distance - tau < threshold)
+                search(left, target, k, pq, tau);
+        }
+    }
+
+    private static double currentTau(PriorityQueue<HeapObject> pq, int k, double tau) {
+        return pq.size() == k ? Math.min(tau, pq.peek().getDistance()) : tau;
+    }
+
+    /**
+     * This method searches k nearest neighbors for each row of queries matrix, see {@link VPTreeBatchSearch}
+     *
+     * @param queries queries matrix, one query per row
+     * @param k number of neighbors to look for
+     * @param results results for each query, in the same order as queries
+     * @param distances distances for each query, in the same order as queries
+     */
+    public void searchBatch(@NonNull INDArray queries, int k, List<List<DataPoint>> results,
+                    List<List<Double>> distances) {
+        searchBatch(queries, k, results, distances, null);
+    }
+
+    /**
+     * This method searches k nearest neighbors for each row of queries matrix, see {@link VPTreeBatchSearch}
+     *
+     * @param queries queries matrix, one query per row
+     * @param k number of neighbors to look for
+     * @param results results for each query, in the same order as queries
+     * @param distances distances for each query, in the same order as queries
+     * @param executorService executor used to process blocks of queries in parallel, or null to use calling thread
+     */
+    public void searchBatch(@NonNull INDArray queries, int k, List<List<DataPoint>> results,
+                    List<List<Double>> distances, ExecutorService executorService) {
+        VPTreeBatchSearch batchSearch = new VPTreeBatchSearch(this, k, queries);
+        batchSearch.search(executorService);
+
+        results.clear();
+        results.addAll(batchSearch.getResults());
+        distances.clear();
+        distances.addAll(batchSearch.getDistances());
+    }
+
+    protected boolean hasLayout() {
+        return layout != null;
+    }
+
+    protected int nodeIndex(int position) {
+        return layout[position * NODE_STRIDE + NODE_INDEX];
+    }
+
+    protected float nodeThreshold(int position) {
+        return Float.intBitsToFloat(layout[position * NODE_STRIDE + NODE_THRESHOLD]);
+    }
+
+    protected int nodeLeft(int position) {
+        return layout[position * NODE_STRIDE + NODE_LEFT];
+    }
+
+    protected int nodeRight(int position) {
+        return layout[position * NODE_STRIDE + NODE_RIGHT];
+    }
+
+    /**
+     * This method returns point for given position within flat layout
+     *
+     * @param position
+     * @return
+     */
+    protected INDArray nodePoint(int position) {
+        INDArray point = nodePoints[position];
+        if (point == null) {
+            // that's benign race: any thread will resolve the same view
+            point = getPoint(layout[position * NODE_STRIDE + NODE_INDEX]);
+            nodePoints[position] = point;
+        }
+
+        return point;
+    }
+
+    /**
+     * This method converts built Node-based tree into flat layout, and releases Node objects
+     */
+    protected void flatten() {
+        if (root == null)
+            return;
+
+        int numNodes = numPoints();
+        int[] layout = new int[numNodes * NODE_STRIDE];
+        INDArray[] nodePoints = new INDArray[numNodes];
+
+        // pre-order traversal, so left child is stored right after its parent
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Integer> links = new ArrayDeque<>();
+        nodes.push(root);
+        links.push(-1);
+        int position = 0;
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+            int link = links.pop();
+
+            if (position >= numNodes)
+                throw new ND4JIllegalStateException("VPTree has more nodes than points: " + numNodes);
+
+            if (link >= 0)
+                layout[link] = position;
+
+            int base = position * NODE_STRIDE;
+            layout[base + NODE_INDEX] = node.getIndex();
+            layout[base + NODE_THRESHOLD] = Float.floatToIntBits(node.getThreshold());
+            layout[base + NODE_LEFT] = -1;
+            layout[base + NODE_RIGHT] = -1;
+            nodePoints[position] = node.getPoint();
+
+            if (node.getRight() != null) {
+                nodes.push(node.getRight());
+                links.push(base + NODE_RIGHT);
+            }
+
+            if (node.getLeft() != null) {
+                nodes.push(node.getLeft());
+                links.push(base + NODE_LEFT);
+            }
+
+            position++;
+        }
+
+        if (position != numNodes)
+            throw new ND4JIllegalStateException(
+                            "VPTree has " + position + " nodes, but " + numNodes + " points were expected");
+
+        this.layout = layout;
+        this.nodePoints = nodePoints;
+        this.root = null;
+    }
+
+    /**
+     * This method saves tree structure (node indices, thresholds and children links) to the given file.
+     * Points aren't saved, so the same points should be provided on load.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void save(@NonNull File file) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            save(os);
+        }
+    }
+
+    /**
+     * This method saves tree structure (node indices, thresholds and children links) to the given stream.
+     * Points aren't saved, so the same points should be provided on load.
+     *
+     * PLEASE NOTE: stream isn't closed
+     *
+     * @param stream
+     * @throws IOException
+     */
+    public void save(@NonNull OutputStream stream) throws IOException {
+        if (layout == null)
+            throw new ND4JIllegalStateException("VPTree wasn't built yet, nothing to save");
+
+        DataOutputStream dos = new DataOutputStream(stream);
+        dos.writeInt(FORMAT_MAGIC);
+        dos.writeInt(FORMAT_VERSION);
+        dos.writeUTF(similarityFunction == null ? EUCLIDEAN : similarityFunction);
+        dos.writeBoolean(invert);
+        dos.writeInt(numPoints());
+        dos.writeInt(getPoint(0).columns());
+        dos.writeInt(layout.length / NODE_STRIDE);
+        for (int i = 0; i < layout.length; i++)
+            dos.writeInt(layout[i]);
+
+        dos.flush();
+    }
+
+    /**
+     * This method loads tree saved earlier with {@link #save(File)}, built over given points. No distances are calculated.
+     *
+     * @param file
+     * @param items the same points tree was built over
+     * @return
+     * @throws IOException
+     */
+    public static VPTree load(@NonNull File file, @NonNull INDArray items) throws IOException {
+        return load(file, new INDArray[] {items});
+    }
+
+    /**
+     * This method loads tree saved earlier with {@link #save(File)}, built over given row-wise chunks.
+     * No distances are calculated.
+     *
+     * @param file
+     * @param chunks the same chunks (or their concatenation) tree was built over
+     * @return
+     * @throws IOException
+     */
+    public static VPTree load(@NonNull File file, @NonNull INDArray[] chunks) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            return load(is, chunks);
+        }
+    }
+
+    /**
+     * This method loads tree saved earlier with {@link #save(OutputStream)}, built over given row-wise chunks.
+     * No distances are calculated.
+     *
+     * PLEASE NOTE: stream isn't closed
+     *
+     * @param stream
+     * @param chunks the same chunks (or their concatenation) tree was built over
+     * @return
+     * @throws IOException
+     */
+    public static VPTree load(@NonNull InputStream stream, @NonNull INDArray[] chunks) throws IOException {
+        DataInputStream dis = new DataInputStream(stream);
+        if (dis.readInt() != FORMAT_MAGIC)
+            throw new ND4JIllegalStateException("Stream doesn't contain VPTree");
+
+        int version = dis.readInt();
+        if (version != FORMAT_VERSION)
+            throw new ND4JIllegalStateException("Unsupported VPTree format version: " + version);
+
+        VPTree tree = new VPTree();
+        tree.similarityFunction = dis.readUTF();
+        tree.invert = dis.readBoolean();
+        tree.chunks = chunks;
+        tree.items = chunks.length == 1 ? chunks[0] : null;
+
+        int numPoints = dis.readInt();
+        int columns = dis.readInt();
+        if (tree.numPoints() != numPoints || chunks[0].columns() != columns)
+            throw new ND4JIllegalStateException("VPTree was built over [" + numPoints + ", " + columns
+                            + "] points, but [" + tree.numPoints() + ", " + chunks[0].columns() + "] were provided");
+
+        int numNodes = dis.readInt();
+        if (numNodes != numPoints)
+            throw new ND4JIllegalStateException("Corrupt VPTree: " + numNodes + " nodes for " + numPoints + " points");
+
+        int[] layout = new int[numNodes * NODE_STRIDE];
+        for (int i = 0; i < layout.length; i++)
+            layout[i] = dis.readInt();
+
+        validateLayout(layout, numNodes, numPoints);
+
+        tree.layout = layout;
+        tree.nodePoints = new INDArray[numNodes];
+        return tree;
+    }
+
+
+    /**
+     * This method checks that loaded layout can be traversed safely: point indices are within [0, numPoints), and
+     * children links are within [-1, numNodes). Since nodes are stored in pre-order, every child must be stored after
+     * its parent, so corrupt links can't form cycles either.
+     *
+     * @throws IOException if layout is corrupt
+     */
+    protected static void validateLayout(int[] layout, int numNodes, int numPoints) throws IOException {
+        for (int position = 0; position < numNodes; position++) {
+            int base = position * NODE_STRIDE;
+            int index = layout[base + NODE_INDEX];
+            if (index < 0 || index >= numPoints)
+                throw new IOException("Corrupt VPTree: node " + position + " points to index " + index + ", but only "
+                                + numPoints + " points are available");
+
+            for (int link : new int[] {layout[base + NODE_LEFT], layout[base + NODE_RIGHT]}) {
+                if (link < -1 || link >= numNodes)
+                    throw new IOException("Corrupt VPTree: node " + position + " links to node " + link + ", but only "
+                                    + numNodes + " nodes are available");
+
+                if (link >= 0 && link <= position)
+                    throw new IOException("Corrupt VPTree: node " + position + " links back to node " + link);
+            }
+        }
+    }
+
+
     protected class HeapObjectComparator implements Comparator<HeapObject> {
 
         @Override
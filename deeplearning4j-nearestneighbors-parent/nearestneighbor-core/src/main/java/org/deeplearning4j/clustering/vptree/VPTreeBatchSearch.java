@@ -0,0 +1,286 @@
+package org.deeplearning4j.clustering.vptree;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.deeplearning4j.clustering.sptree.HeapObject;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Batched k-nearest neighbors search over {@link VPTree}.
+ *
+ * Queries are split into blocks, and each block walks the tree together: distances from node point to all
+ * queries of the block still interested in that node are calculated with a single op, instead of separate
+ * {@link VPTree#distance(INDArray, INDArray)} call per query. Blocks are processed in parallel if executor is provided.
+ *
+ * Results are exactly the same as for {@link VPTree#search(INDArray, int, List, List)} called for each query.
+ */
+public class VPTreeBatchSearch {
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+
+    private VPTree vpTree;
+    private int k;
+    private INDArray queries;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+
+    @Getter
+    private List<List<DataPoint>> results;
+    @Getter
+    private List<List<Double>> distances;
+
+    public VPTreeBatchSearch(@NonNull VPTree vpTree, int k, @NonNull INDArray queries) {
+        this(vpTree, k, queries, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     *
+     * @param vpTree the tree to search in
+     * @param k number of neighbors to look for
+     * @param queries queries matrix, one query per row
+     * @param blockSize number of queries walking the tree together
+     */
+    public VPTreeBatchSearch(@NonNull VPTree vpTree, int k, @NonNull INDArray queries, int blockSize) {
+        if (queries.rank() != 2)
+            throw new ND4JIllegalStateException("Queries should be 2D matrix, but got rank " + queries.rank());
+
+        if (blockSize < 1)
+            throw new ND4JIllegalStateException("Block size should be positive, but got " + blockSize);
+
+        this.vpTree = vpTree;
+        this.k = k;
+        this.queries = queries;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * This method runs search in the calling thread
+     */
+    public void search() {
+        search(null);
+    }
+
+    /**
+     * This method runs search, with blocks of queries processed by given executor
+     *
+     * @param executorService executor to use, or null to use calling thread
+     */
+    public void search(ExecutorService executorService) {
+        int numQueries = queries.rows();
+        results = new ArrayList<>(numQueries);
+        distances = new ArrayList<>(numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            results.add(null);
+            distances.add(null);
+        }
+
+        List<BlockSearch> blocks = new ArrayList<>();
+        for (int start = 0; start < numQueries; start += blockSize)
+            blocks.add(new BlockSearch(start, Math.min(numQueries, start + blockSize)));
+
+        if (executorService == null || blocks.size() == 1) {
+            for (BlockSearch block : blocks)
+                block.call();
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<>();
+        for (BlockSearch block : blocks)
+            futures.add(executorService.submit(block));
+
+        try {
+            for (Future<Void> future : futures)
+                future.get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected class BlockSearch implements Callable<Void> {
+        private final int start;
+        private final int end;
+
+        private INDArray block;
+        private PriorityQueue<HeapObject>[] queues;
+        private double[] taus;
+        private int maxSize;
+
+        // per-depth buffers, so they survive recursion into children
+        private List<double[]> depthDistances = new ArrayList<>();
+        private List<int[]> depthLeft = new ArrayList<>();
+        private List<int[]> depthRight = new ArrayList<>();
+
+        protected BlockSearch(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Void call() {
+            int size = end - start;
+            block = queries.get(NDArrayIndex.interval(start, end), NDArrayIndex.all());
+            if (block.columns() != vpTree.getPoint(0).columns())
+                throw new ND4JIllegalStateException("Queries should have " + vpTree.getPoint(0).columns()
+                                + " columns, but got " + block.columns() + " instead");
+
+            int numPoints = vpTree.numPoints();
+            int kk = Math.min(k, numPoints);
+            maxSize = kk + 1;
+
+            queues = new PriorityQueue[size];
+            taus = new double[size];
+            int[] active = new int[size];
+            for (int q = 0; q < size; q++) {
+                queues[q] = new PriorityQueue<>(maxSize + 1, vpTree.new HeapObjectComparator());
+                taus[q] = Double.MAX_VALUE;
+                active[q] = q;
+            }
+
+            if (vpTree.hasLayout()) {
+                visit(0, active, size, 0);
+            } else {
+                // Node-based tree, nothing to batch here
+                for (int q = 0; q < size; q++) {
+                    List<DataPoint> res = new ArrayList<>();
+                    List<Double> dist = new ArrayList<>();
+                    vpTree.search(block.getRow(q), k, res, dist);
+                    results.set(start + q, res);
+                    distances.set(start + q, dist);
+                }
+                return null;
+            }
+
+            for (int q = 0; q < size; q++) {
+                PriorityQueue<HeapObject> pq = queues[q];
+                if (pq.size() > kk)
+                    pq.poll();
+
+                List<DataPoint> res = new ArrayList<>(pq.size());
+                List<Double> dist = new ArrayList<>(pq.size());
+                while (!pq.isEmpty()) {
+                    HeapObject ho = pq.poll();
+                    res.add(new DataPoint(ho.getIndex(), ho.getPoint()));
+                    dist.add(ho.getDistance());
+                }
+
+                if (vpTree.isInvert()) {
+                    Collections.reverse(res);
+                    Collections.reverse(dist);
+                }
+
+                results.set(start + q, res);
+                distances.set(start + q, dist);
+            }
+
+            return null;
+        }
+
+        private void visit(int position, int[] active, int numActive, int depth) {
+            if (position < 0 || numActive == 0)
+                return;
+
+            if (depthDistances.size() <= depth) {
+                depthDistances.add(new double[taus.length]);
+                depthLeft.add(new int[taus.length]);
+                depthRight.add(new int[taus.length]);
+            }
+
+            double[] dist = depthDistances.get(depth);
+            INDArray point = vpTree.nodePoint(position);
+            calcDistances(point, active, numActive, dist);
+
+            int index = vpTree.nodeIndex(position);
+            for (int i = 0; i < numActive; i++) {
+                int q = active[i];
+                if (dist[q] < taus[q]) {
+                    PriorityQueue<HeapObject> pq = queues[q];
+                    if (pq.size() == maxSize)
+                        pq.poll();
+
+                    pq.add(new HeapObject(index, point, dist[q]));
+                    if (pq.size() == maxSize)
+                        taus[q] = pq.peek().getDistance();
+                }
+            }
+
+            int left = vpTree.nodeLeft(position);
+            int right = vpTree.nodeRight(position);
+            if (left < 0 && right < 0)
+                return;
+
+            float threshold = vpTree.nodeThreshold(position);
+
+            // every query descends into its near child first, same as VPTree.search() does: queries inside the ball
+            // start with left child, queries outside of it start with right one. Near children of both groups are
+            // visited first, since queries of one group can't affect radius of another one.
+            int[] leftActive = depthLeft.get(depth);
+            int[] rightActive = depthRight.get(depth);
+            int numLeft = 0;
+            int numRight = 0;
+            for (int i = 0; i < numActive; i++) {
+                int q = active[i];
+                if (dist[q] < threshold) {
+                    if (left >= 0 && dist[q] - taus[q] < threshold)
+                        leftActive[numLeft++] = q;
+                } else {
+                    if (right >= 0 && dist[q] + taus[q] >= threshold)
+                        rightActive[numRight++] = q;
+                }
+            }
+
+            visit(left, leftActive, numLeft, depth + 1);
+            visit(right, rightActive, numRight, depth + 1);
+
+            // radius might shrink after near child, so far children are filtered afterwards
+            numRight = 0;
+            if (right >= 0)
+                for (int i = 0; i < numActive; i++) {
+                    int q = active[i];
+                    if (dist[q] < threshold && dist[q] + taus[q] >= threshold)
+                        rightActive[numRight++] = q;
+                }
+
+            visit(right, rightActive, numRight, depth + 1);
+
+            numLeft = 0;
+            if (left >= 0)
+                for (int i = 0; i < numActive; i++) {
+                    int q = active[i];
+                    if (dist[q] >= threshold && dist[q] - taus[q] < threshold)
+                        leftActive[numLeft++] = q;
+                }
+
+            visit(left, leftActive, numLeft, depth + 1);
+        }
+
+        private void calcDistances(INDArray point, int[] active, int numActive, double[] dist) {
+            if (numActive == 1) {
+                dist[active[0]] = vpTree.distance(point, block.getRow(active[0]));
+                return;
+            }
+
+            // distances are rounded to float, same as VPTree.distance() does, so results match single searches
+            if (numActive * 2 >= taus.length) {
+                // most of queries are interested in this node, so it's cheaper to process whole block
+                INDArray result = Nd4j.create(taus.length, 1);
+                vpTree.calcDistancesRelativeTo(block, point, result);
+                for (int i = 0; i < numActive; i++)
+                    dist[active[i]] = (float) result.getDouble(active[i]);
+            } else {
+                INDArray subset = Nd4j.pullRows(block, 1, Arrays.copyOf(active, numActive));
+                INDArray result = Nd4j.create(numActive, 1);
+                vpTree.calcDistancesRelativeTo(subset, point, result);
+                for (int i = 0; i < numActive; i++)
+                    dist[active[i]] = (float) result.getDouble(i);
+            }
+        }
+    }
+}
@@ -42,12 +42,12 @@ public class VPTreeFillSearch {
         //fill till there is k results
         //by going down the list
         //   if(results.size() < k) {
-        INDArray distancesArr = Nd4j.create(vpTree.getItems().rows(), 1);
+        INDArray distancesArr = Nd4j.create(vpTree.numPoints(), 1);
         vpTree.calcDistancesRelativeTo(target, distancesArr);
         INDArray[] sortWithIndices = Nd4j.sortWithIndices(distancesArr, 0, !vpTree.isInvert());
         results.clear();
         distances.clear();
-        if (vpTree.getItems().isVector()) {
+        if (vpTree.getItems() != null && vpTree.getItems().isVector()) {
             for (int i = 0; i < k; i++) {
                 int idx = sortWithIndices[0].getInt(i);
                 results.add(new DataPoint(idx, Nd4j.scalar(vpTree.getItems().getDouble(idx))));
@@ -56,7 +56,7 @@ public class VPTreeFillSearch {
         } else {
             for (int i = 0; i < k; i++) {
                 int idx = sortWithIndices[0].getInt(i);
-                results.add(new DataPoint(idx, vpTree.getItems().getRow(idx)));
+                results.add(new DataPoint(idx, vpTree.getPoint(idx)));
                 distances.add(sortWithIndices[1].getDouble(idx));
             }
         }
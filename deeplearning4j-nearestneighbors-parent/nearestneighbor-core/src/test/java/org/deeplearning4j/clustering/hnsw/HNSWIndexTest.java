@@ -0,0 +1,307 @@
+package org.deeplearning4j.clustering.hnsw;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.clustering.sptree.DataPoint;
+import org.deeplearning4j.clustering.vptree.VPTree;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class HNSWIndexTest {
+
+    @Test
+    public void testExactMatch() {
+        Nd4j.getRandom().setSeed(12);
+        INDArray points = Nd4j.rand(300, 10);
+        HNSWIndex index = new HNSWIndex.Builder().m(8).efConstruction(64).build();
+        assertEquals(0, index.addAll(points));
+        assertEquals(300, index.size());
+
+        for (int i = 0; i < points.rows(); i += 17) {
+            List<DataPoint> results = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            index.search(points.getRow(i), 3, results, distances);
+
+            assertEquals(3, results.size());
+            assertEquals(i, results.get(0).getIndex());
+            assertEquals(0.0, distances.get(0), 1e-5);
+            assertTrue(distances.get(0) <= distances.get(1) && distances.get(1) <= distances.get(2));
+        }
+
+        assertEquals(points.getRow(42), index.getPoint(42));
+    }
+
+    @Test
+    public void testRecall() {
+        Nd4j.getRandom().setSeed(119);
+        INDArray points = Nd4j.rand(1000, 16);
+        INDArray queries = Nd4j.rand(50, 16);
+        int k = 10;
+
+        HNSWIndex index = new HNSWIndex.Builder().m(12).efConstruction(100).efSearch(50).build();
+        index.addAll(points);
+
+        double recall = recall(index, points, queries, k);
+        log.info("Recall@{}: {}", k, recall);
+        assertTrue("Recall is too low: " + recall, recall >= 0.9);
+    }
+
+    @Test
+    public void testIncrementalInsert() {
+        Nd4j.getRandom().setSeed(12);
+        INDArray points = Nd4j.rand(200, 6);
+        HNSWIndex index = new HNSWIndex.Builder().similarityFunction(HNSWIndex.COSINE_DISTANCE).build();
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, index.add(points.getRow(i)));
+
+        List<DataPoint> results = new ArrayList<>();
+        List<Double> distances = new ArrayList<>();
+        index.search(points.getRow(150), 1, results, distances);
+        assertNotEquals(150, results.get(0).getIndex());
+
+        for (int i = 100; i < 200; i++)
+            assertEquals(i, index.add(points.getRow(i)));
+
+        index.search(points.getRow(150), 1, results, distances);
+        assertEquals(150, results.get(0).getIndex());
+        assertEquals(0.0, distances.get(0), 1e-5);
+    }
+
+    @Test
+    public void testConcurrentSearchAndInsert() throws Exception {
+        Nd4j.getRandom().setSeed(12);
+        final INDArray points = Nd4j.rand(1000, 8);
+        final HNSWIndex index = new HNSWIndex.Builder().m(8).efConstruction(50).build();
+        index.addAll(points.get(NDArrayIndex.interval(0, 100),
+                        NDArrayIndex.all()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AtomicBoolean inserting = new AtomicBoolean(true);
+        try {
+            List<Future<?>> searches = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                searches.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        int i = 0;
+                        while (inserting.get()) {
+                            List<DataPoint> results = new ArrayList<>();
+                            List<Double> distances = new ArrayList<>();
+                            index.search(points.getRow(i++ % 100), 5, results, distances);
+                            assertEquals(5, results.size());
+                        }
+                    }
+                }));
+            }
+
+            index.addAll(points.get(NDArrayIndex.interval(100, 1000),
+                            NDArrayIndex.all()), executor);
+            inserting.set(false);
+
+            for (Future<?> f : searches)
+                f.get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i += 97) {
+            List<DataPoint> results = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            index.search(points.getRow(i), 1, results, distances);
+            assertEquals(i, results.get(0).getIndex());
+        }
+    }
+
+    @Test
+    public void testReservedPoints() {
+        Nd4j.getRandom().setSeed(12);
+        INDArray points = Nd4j.rand(10, 4);
+        HNSWIndex index = new HNSWIndex.Builder().m(8).efConstruction(32).initialCapacity(4).build();
+        index.addAll(points);
+
+        // ids reserved by addAll() in progress aren't counted, and can't be read until their points are inserted
+        assertEquals(10, index.reserve(3));
+        assertEquals(10, index.size());
+        assertEquals(points.getRow(9), index.getPoint(9));
+        for (int id : new int[] {10, 12, 100, -1}) {
+            try {
+                index.getPoint(id);
+                fail("Exception expected for id " + id);
+            } catch (ND4JIllegalStateException e) {
+                // expected
+            }
+        }
+
+        index.insertRow(11, points, null, 0);
+        assertEquals(11, index.size());
+        assertEquals(points.getRow(0), index.getPoint(11));
+    }
+
+    @Test
+    public void testConcurrentGrowth() throws Exception {
+        // small initial capacity, so nodes array is reallocated while searches are running
+        Nd4j.getRandom().setSeed(119);
+        final INDArray points = Nd4j.rand(2000, 4);
+        final HNSWIndex index = new HNSWIndex.Builder().m(4).efConstruction(20).initialCapacity(1).build();
+        index.add(points.getRow(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        final AtomicBoolean inserting = new AtomicBoolean(true);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        int i = 0;
+                        while (inserting.get()) {
+                            List<DataPoint> results = new ArrayList<>();
+                            index.search(points.getRow(i++ % 2000), 3, results, new ArrayList<Double>());
+                            assertFalse(results.isEmpty());
+                        }
+                    }
+                }));
+            }
+
+            final AtomicInteger cursor = new AtomicInteger(1);
+            List<Future<?>> inserts = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                inserts.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        int r;
+                        while ((r = cursor.getAndIncrement()) < 2000)
+                            index.add(points.getRow(r));
+                    }
+                }));
+            }
+
+            for (Future<?> f : inserts)
+                f.get();
+            inserting.set(false);
+
+            for (Future<?> f : futures)
+                f.get();
+        } finally {
+            inserting.set(false);
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2000, index.size());
+    }
+
+    @Test
+    public void testVectorsInPlace() throws Exception {
+        Nd4j.getRandom().setSeed(12);
+        INDArray all = Nd4j.rand(400, 10);
+        // view with non-zero offset, rows are still contiguous
+        INDArray points = all.get(NDArrayIndex.interval(100, 400), NDArrayIndex.all());
+
+        HNSWIndex copied = new HNSWIndex.Builder().m(8).efConstruction(64).build();
+        HNSWIndex inPlace = new HNSWIndex.Builder().m(8).efConstruction(64).copyVectors(false).build();
+        copied.addAll(points);
+        inPlace.addAll(points);
+
+        for (int i = 0; i < points.rows(); i += 13) {
+            assertEquals(points.getRow(i), inPlace.getPoint(i));
+
+            List<DataPoint> expResults = new ArrayList<>();
+            List<Double> expDistances = new ArrayList<>();
+            copied.search(points.getRow(i), 5, expResults, expDistances);
+
+            List<DataPoint> results = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            inPlace.search(points.getRow(i), 5, results, distances);
+
+            assertEquals(i, results.get(0).getIndex());
+            assertEquals(expDistances, distances);
+        }
+
+        // index reads points in place
+        points.getRow(7).assign(100.0);
+        assertEquals(points.getRow(7), inPlace.getPoint(7));
+        assertNotEquals(points.getRow(7), copied.getPoint(7));
+    }
+
+    /**
+     * Recall vs queries per second on synthetic data, HNSW with different efSearch values vs exact VPTree search.
+     */
+    @Test
+    @Ignore
+    public void benchmarkRecallVsQps() {
+        int numPoints = 20000;
+        int numQueries = 200;
+        int dims = 300;
+        int k = 10;
+
+        Nd4j.getRandom().setSeed(12);
+        INDArray points = Nd4j.randn(numPoints, dims);
+        INDArray queries = Nd4j.randn(numQueries, dims);
+
+        long start = System.nanoTime();
+        VPTree tree = new VPTree(points, false);
+        log.info("VPTree built in {} ms", (System.nanoTime() - start) / 1000000);
+
+        start = System.nanoTime();
+        for (int q = 0; q < numQueries; q++)
+            tree.search(queries.getRow(q), k, new ArrayList<DataPoint>(), new ArrayList<Double>());
+        double vpQps = numQueries / ((System.nanoTime() - start) / 1e9);
+        log.info("VPTree: recall 1.0, {} queries/sec", String.format("%.1f", vpQps));
+
+        start = System.nanoTime();
+        HNSWIndex index = new HNSWIndex.Builder().m(16).efConstruction(200).initialCapacity(numPoints).build();
+        index.addAll(points);
+        log.info("HNSW built in {} ms", (System.nanoTime() - start) / 1000000);
+
+        for (int ef : new int[] {10, 20, 50, 100, 200, 400}) {
+            index.setEfSearch(ef);
+            start = System.nanoTime();
+            for (int q = 0; q < numQueries; q++)
+                index.search(queries.getRow(q), k, new ArrayList<DataPoint>(), new ArrayList<Double>());
+            double qps = numQueries / ((System.nanoTime() - start) / 1e9);
+
+            log.info("HNSW efSearch={}: recall {}, {} queries/sec", ef,
+                            String.format("%.3f", recall(index, points, queries, k)), String.format("%.1f", qps));
+        }
+    }
+
+    /**
+     * Fraction of true k nearest neighbors (by brute force) returned by the index
+     */
+    protected static double recall(HNSWIndex index, INDArray points, INDArray queries, int k) {
+        int hits = 0;
+        for (int q = 0; q < queries.rows(); q++) {
+            INDArray distances = points.subRowVector(queries.getRow(q)).norm2(1);
+
+            INDArray[] sorted = Nd4j.sortWithIndices(distances, 0, true);
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < k; i++)
+                expected.add(sorted[0].getInt(i));
+
+            List<DataPoint> results = new ArrayList<>();
+            index.search(queries.getRow(q), k, results, new ArrayList<Double>());
+            for (DataPoint p : results)
+                if (expected.contains(p.getIndex()))
+                    hits++;
+        }
+
+        return hits / (double) (queries.rows() * k);
+    }
+}
@@ -25,15 +25,25 @@ import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.primitives.Pair;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Anatoly Borisov
@@ -61,6 +71,163 @@ public class VpTreeNodeTest {
     }
 
 
+    @Test
+    public void testKnnChunks() {
+        Nd4j.getRandom().setSeed(12);
+        INDArray arr = Nd4j.randn(30, 5);
+        INDArray[] chunks = new INDArray[] {arr.get(NDArrayIndex.interval(0, 10), NDArrayIndex.all()).dup(),
+                        arr.get(NDArrayIndex.interval(10, 17), NDArrayIndex.all()).dup(),
+                        arr.get(NDArrayIndex.interval(17, 30), NDArrayIndex.all()).dup()};
+
+        VPTree full = new VPTree(arr, false);
+        VPTree chunked = new VPTree(chunks, VPTree.EUCLIDEAN, 1, false);
+        assertEquals(30, chunked.numPoints());
+        assertEquals(arr.getRow(25), chunked.getPoint(25));
+
+        for (int q = 0; q < arr.rows(); q += 7) {
+            List<DataPoint> expResults = new ArrayList<>();
+            List<Double> expDistances = new ArrayList<>();
+            full.search(arr.getRow(q), 5, expResults, expDistances);
+
+            List<DataPoint> results = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            chunked.search(arr.getRow(q), 5, results, distances);
+
+            assertEquals(expResults.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expResults.get(i).getIndex(), results.get(i).getIndex());
+                assertEquals(expDistances.get(i), distances.get(i), 1e-5);
+                assertEquals(arr.getRow(results.get(i).getIndex()), results.get(i).getPoint());
+            }
+
+            VPTreeFillSearch fillSearch = new VPTreeFillSearch(chunked, 5, arr.getRow(q));
+            fillSearch.search();
+            assertEquals(q, fillSearch.getResults().get(0).getIndex());
+        }
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        Nd4j.getRandom().setSeed(12);
+        INDArray arr = Nd4j.randn(50, 4);
+        VPTree tree = new VPTree(arr, "manhattan", 1, false);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        tree.save(baos);
+        VPTree restored = VPTree.load(new ByteArrayInputStream(baos.toByteArray()), new INDArray[] {arr});
+
+        assertEquals(50, restored.numPoints());
+        for (int q = 0; q < arr.rows(); q += 3) {
+            List<DataPoint> expResults = new ArrayList<>();
+            List<Double> expDistances = new ArrayList<>();
+            tree.search(arr.getRow(q), 4, expResults, expDistances);
+
+            List<DataPoint> results = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            restored.search(arr.getRow(q), 4, results, distances);
+
+            assertEquals(expDistances, distances);
+            for (int i = 0; i < results.size(); i++)
+                assertEquals(expResults.get(i).getIndex(), results.get(i).getIndex());
+        }
+    }
+
+    @Test(expected = ND4JIllegalStateException.class)
+    public void testLoadMismatch() throws Exception {
+        INDArray arr = Nd4j.randn(20, 4);
+        VPTree tree = new VPTree(arr, false);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        tree.save(baos);
+        VPTree.load(new ByteArrayInputStream(baos.toByteArray()), new INDArray[] {Nd4j.randn(21, 4)});
+    }
+
+    @Test
+    public void testLoadCorrupt() throws Exception {
+        INDArray arr = Nd4j.randn(20, 4);
+        VPTree tree = new VPTree(arr, false);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        tree.save(baos);
+        byte[] bytes = baos.toByteArray();
+        // layout goes last: NODE_STRIDE ints per node
+        int layoutOffset = bytes.length - 20 * VPTree.NODE_STRIDE * 4;
+
+        // point index out of range, left link out of range, right link pointing back to the root
+        int[][] corruptions = {{VPTree.NODE_INDEX, 20}, {VPTree.NODE_LEFT, 20}, {VPTree.NODE_RIGHT, 0}};
+        for (int[] corruption : corruptions) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(layoutOffset + corruption[0] * 4, corruption[1]);
+            try {
+                VPTree.load(new ByteArrayInputStream(corrupt), new INDArray[] {arr});
+                fail("IOException expected for " + Arrays.toString(corruption));
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSearchBatch() throws Exception {
+        Nd4j.getRandom().setSeed(12);
+        INDArray arr = Nd4j.rand(200, 8);
+        INDArray queries = Nd4j.rand(150, 8);
+        VPTree tree = new VPTree(arr, false);
+
+        List<List<DataPoint>> batchResults = new ArrayList<>();
+        List<List<Double>> batchDistances = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            tree.searchBatch(queries, 7, batchResults, batchDistances, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(150, batchResults.size());
+        for (int q = 0; q < queries.rows(); q++) {
+            List<DataPoint> results = new ArrayList<>();
+            List<Double> distances = new ArrayList<>();
+            tree.search(queries.getRow(q), 7, results, distances);
+
+            assertEquals(distances, batchDistances.get(q));
+            for (int i = 0; i < results.size(); i++)
+                assertEquals(results.get(i).getIndex(), batchResults.get(q).get(i).getIndex());
+        }
+    }
+
+    @Test
+    public void testSearchBatchDuplicateDistances() throws Exception {
+        // small integer grid gives lots of equal distances, so visiting order has to match single search exactly
+        Random random = new Random(119);
+        for (int trial = 0; trial < 5; trial++) {
+            int numPoints = 50 + random.nextInt(250);
+            int k = 1 + random.nextInt(10);
+            INDArray arr = Nd4j.create(numPoints, 3);
+            INDArray queries = Nd4j.create(100, 3);
+            for (int i = 0; i < numPoints; i++)
+                for (int j = 0; j < 3; j++)
+                    arr.putScalar(i, j, random.nextInt(4));
+            for (int i = 0; i < 100; i++)
+                for (int j = 0; j < 3; j++)
+                    queries.putScalar(i, j, random.nextInt(5) - 0.5 * random.nextInt(2));
+
+            VPTree tree = new VPTree(arr, trial % 2 == 0 ? "euclidean" : "manhattan", 1, false);
+            List<List<DataPoint>> batchResults = new ArrayList<>();
+            List<List<Double>> batchDistances = new ArrayList<>();
+            tree.searchBatch(queries, k, batchResults, batchDistances, null);
+
+            for (int q = 0; q < queries.rows(); q++) {
+                List<DataPoint> results = new ArrayList<>();
+                List<Double> distances = new ArrayList<>();
+                tree.search(queries.getRow(q), k, results, distances);
+
+                assertEquals(distances, batchDistances.get(q));
+                for (int i = 0; i < results.size(); i++)
+                    assertEquals(results.get(i).getIndex(), batchResults.get(q).get(i).getIndex());
+            }
+        }
+    }
+
     @Test
     public void testParallel() {
         Nd4j.getRandom().setSeed(7);
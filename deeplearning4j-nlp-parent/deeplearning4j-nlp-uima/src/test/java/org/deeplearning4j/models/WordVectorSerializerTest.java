@@ -621,6 +621,37 @@ public class WordVectorSerializerTest {
         assertEquals(arrayLive, arrayStatic);
     }
 
+    /**
+     * This method tests mapped binary file saving & loading as static model
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStaticLoaderMapped() throws Exception {
+        WordVectors vectorsLive = WordVectorSerializer.loadTxtVectors(textFile);
+
+        File tempFile = File.createTempFile("mapped", "w2v");
+        tempFile.deleteOnExit();
+
+        WordVectorSerializer.writeMappedModel(vectorsLive, tempFile);
+        WordVectors vectorsMapped = WordVectorSerializer.loadMappedModel(tempFile);
+        WordVectors vectorsStatic = WordVectorSerializer.loadStaticModel(tempFile);
+
+        assertEquals(vectorsLive.vocab().numWords(), vectorsMapped.vocab().numWords());
+        for (String word : new String[] {"Morgan_Freeman", "JA_Montalbano"}) {
+            INDArray arrayLive = vectorsLive.getWordVectorMatrix(word);
+
+            assertNotEquals(null, arrayLive);
+            assertEquals(arrayLive, vectorsMapped.getWordVectorMatrix(word));
+            assertEquals(arrayLive, vectorsStatic.getWordVectorMatrix(word));
+            assertArrayEquals(vectorsLive.getWordVector(word), vectorsMapped.getWordVector(word), 1e-5);
+            assertEquals(vectorsLive.indexOf(word), vectorsMapped.indexOf(word));
+        }
+
+        assertEquals(vectorsLive.similarity("Morgan_Freeman", "JA_Montalbano"),
+                        vectorsMapped.similarity("Morgan_Freeman", "JA_Montalbano"), 1e-5);
+    }
+
     @Test
     public void testUnifiedLoaderArchive1() throws Exception {
         logger.info("Executor name: {}", Nd4j.getExecutioner().getClass().getSimpleName());
@@ -15,7 +15,6 @@ import org.deeplearning4j.text.tokenization.tokenizer.Tokenizer;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
-import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.util.FeatureUtil;
 
 import java.io.BufferedReader;
@@ -74,13 +73,17 @@ public class BagOfWordsVectorizer extends BaseTextVectorizer {
 
     @Override
     public INDArray transform(List<String> tokens) {
-        INDArray input = Nd4j.create(1, vocabCache.numWords());
-        for (String token : tokens) {
-            int idx = vocabCache.indexOf(token);
-            if (vocabCache.indexOf(token) >= 0)
-                input.putScalar(idx, vocabCache.wordFrequency(token));
-        }
-        return input;
+        return transformSparse(tokens).toDense();
+    }
+
+    @Override
+    protected double vocabWeight(VocabWord word) {
+        return vocabCache.wordFrequency(word.getLabel());
+    }
+
+    @Override
+    protected double sparseValue(double wordFrequency, int count, int documentLength) {
+        return wordFrequency;
     }
 
     /**
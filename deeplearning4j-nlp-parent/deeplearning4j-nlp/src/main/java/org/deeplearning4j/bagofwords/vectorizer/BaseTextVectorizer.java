@@ -14,7 +14,17 @@ import org.deeplearning4j.text.invertedindex.InvertedIndex;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author raver119@gmail.com
@@ -32,6 +42,13 @@ public abstract class BaseTextVectorizer implements TextVectorizer {
     protected transient InvertedIndex<VocabWord> index;
     protected boolean isParallel = true;
 
+    // per-word weights, indexed by vocabulary index, precomputed once for sparse transforms
+    private transient double[] vocabWeights;
+    private transient long vocabWeightsDocs = -1;
+
+    // shared by all vectorizers: threads are created on demand, up to the number of submitted tasks, and exit when idle
+    private static ThreadPoolExecutor transformExecutor;
+
     protected LabelsSource getLabelsSource() {
         return labelsSource;
     }
@@ -51,6 +68,169 @@ public abstract class BaseTextVectorizer implements TextVectorizer {
                         .allowParallelTokenization(isParallel).build();
 
         constructor.buildJointVocabulary(false, true);
+
+        synchronized (this) {
+            vocabWeights = null;
+        }
+    }
+
+    /**
+     * This method returns weight of the given vocabulary word, that's used by {@link #sparseValue(double, int, int)}.
+     * It's called once per vocabulary word, and results are cached until vocabulary changes.
+     *
+     * @param word vocabulary word
+     * @return weight, i.e. idf of the word
+     */
+    protected double vocabWeight(VocabWord word) {
+        return 1.0;
+    }
+
+    /**
+     * This method returns value of a single sparse vector entry
+     *
+     * @param vocabWeight    weight of the word, as returned by {@link #vocabWeight(VocabWord)}
+     * @param count          number of times word appeared in the document
+     * @param documentLength number of tokens in the document
+     * @return value
+     */
+    protected double sparseValue(double vocabWeight, int count, int documentLength) {
+        return count;
+    }
+
+    /**
+     * Returns per-word weights indexed by vocabulary index, recomputing them if vocabulary has changed
+     */
+    protected synchronized double[] getVocabWeights() {
+        int numWords = vocabCache.numWords();
+        long numDocs = vocabCache.totalNumberOfDocs();
+        if (vocabWeights == null || vocabWeights.length != numWords || vocabWeightsDocs != numDocs) {
+            double[] weights = new double[numWords];
+            for (int i = 0; i < numWords; i++)
+                weights[i] = vocabWeight(vocabCache.elementAtIndex(i));
+            vocabWeights = weights;
+            vocabWeightsDocs = numDocs;
+        }
+        return vocabWeights;
+    }
+
+    /**
+     * Transforms the text into sparse vector, without allocating dense vocabulary-sized row
+     *
+     * @param text text to transform
+     * @return {@link SparseVector} of vocabulary size
+     */
+    public SparseVector transformSparse(String text) {
+        return transformSparse(tokenizerFactory.create(text).getTokens());
+    }
+
+    /**
+     * Transforms the tokens of a single document into sparse vector, without allocating dense vocabulary-sized row
+     *
+     * @param tokens document tokens
+     * @return {@link SparseVector} of vocabulary size
+     */
+    public SparseVector transformSparse(List<String> tokens) {
+        return transformSparse(tokens, getVocabWeights());
+    }
+
+    protected SparseVector transformSparse(List<String> tokens, double[] weights) {
+        // vocabulary indices of known tokens, sorted so that equal words become adjacent
+        int[] indices = new int[tokens.size()];
+        int known = 0;
+        for (String token : tokens) {
+            int idx = vocabCache.indexOf(token);
+            if (idx >= 0)
+                indices[known++] = idx;
+        }
+        Arrays.sort(indices, 0, known);
+
+        int unique = 0;
+        double[] values = new double[known];
+        for (int i = 0; i < known;) {
+            int idx = indices[i];
+            int count = 0;
+            while (i < known && indices[i] == idx) {
+                count++;
+                i++;
+            }
+            indices[unique] = idx;
+            values[unique++] = sparseValue(weights[idx], count, tokens.size());
+        }
+
+        return new SparseVector(weights.length, Arrays.copyOf(indices, unique), Arrays.copyOf(values, unique));
+    }
+
+    /**
+     * Transforms a batch of documents into CSR matrix, one row per document. Documents are tokenized and counted in
+     * parallel, if parallel tokenization is allowed.
+     *
+     * @param documents texts to transform
+     * @return {@link CsrMatrix} of shape [documents.size(), vocabulary size]
+     */
+    public CsrMatrix transformBatch(final List<String> documents) {
+        final double[] weights = getVocabWeights();
+        final SparseVector[] rows = new SparseVector[documents.size()];
+
+        int numThreads = isParallel ? Math.min(Runtime.getRuntime().availableProcessors(), documents.size() / 16) : 1;
+        if (numThreads <= 1) {
+            for (int i = 0; i < rows.length; i++)
+                rows[i] = transformSparse(tokenizerFactory.create(documents.get(i)).getTokens(), weights);
+        } else {
+            ExecutorService executor = getTransformExecutor();
+            int chunk = (rows.length + numThreads - 1) / numThreads;
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int start = t * chunk;
+                final int end = Math.min(rows.length, start + chunk);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = start; i < end; i++)
+                            rows[i] = transformSparse(tokenizerFactory.create(documents.get(i)).getTokens(),
+                                            weights);
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        int[] rowPointers = new int[rows.length + 1];
+        for (int i = 0; i < rows.length; i++)
+            rowPointers[i + 1] = rowPointers[i] + rows[i].nnz();
+
+        int[] columnIndices = new int[rowPointers[rows.length]];
+        double[] values = new double[rowPointers[rows.length]];
+        for (int i = 0; i < rows.length; i++) {
+            System.arraycopy(rows[i].getIndices(), 0, columnIndices, rowPointers[i], rows[i].nnz());
+            System.arraycopy(rows[i].getValues(), 0, values, rowPointers[i], rows[i].nnz());
+        }
+
+        return new CsrMatrix(rows.length, weights.length, rowPointers, columnIndices, values);
+    }
+
+    private static synchronized ExecutorService getTransformExecutor() {
+        if (transformExecutor == null) {
+            int numThreads = Runtime.getRuntime().availableProcessors();
+            transformExecutor = new ThreadPoolExecutor(numThreads, numThreads, 30, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                                public Thread newThread(Runnable r) {
+                                    Thread t = Executors.defaultThreadFactory().newThread(r);
+                                    t.setName("TextVectorizer transform thread");
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
+            transformExecutor.allowCoreThreadTimeOut(true);
+        }
+        return transformExecutor;
     }
 
     @Override
@@ -0,0 +1,70 @@
+package org.deeplearning4j.bagofwords.vectorizer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse row (CSR) format, one row per document, as produced by
+ * {@link BaseTextVectorizer#transformBatch(java.util.List)}.
+ *
+ * Entries of row i are stored at positions rowPointers[i] (inclusive) to rowPointers[i + 1] (exclusive) of
+ * columnIndices and values arrays, sorted by column index.
+ */
+@Getter
+public class CsrMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] rowPointers;
+    private final int[] columnIndices;
+    private final double[] values;
+
+    public CsrMatrix(int rows, int columns, @NonNull int[] rowPointers, @NonNull int[] columnIndices,
+                    @NonNull double[] values) {
+        if (rowPointers.length != rows + 1)
+            throw new IllegalArgumentException("Row pointers length should be rows + 1 = " + (rows + 1) + ", got "
+                            + rowPointers.length);
+        if (columnIndices.length != values.length || rowPointers[rows] != values.length)
+            throw new IllegalArgumentException("Column indices, values and row pointers don't match: "
+                            + columnIndices.length + ", " + values.length + ", " + rowPointers[rows]);
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPointers = rowPointers;
+        this.columnIndices = columnIndices;
+        this.values = values;
+    }
+
+    /**
+     * @return number of non-zero entries
+     */
+    public int nnz() {
+        return values.length;
+    }
+
+    /**
+     * @return given row as separate SparseVector
+     */
+    public SparseVector getRow(int row) {
+        if (row < 0 || row >= rows)
+            throw new IllegalArgumentException("Invalid row " + row + ", number of rows: " + rows);
+        int start = rowPointers[row];
+        int end = rowPointers[row + 1];
+        return new SparseVector(columns, Arrays.copyOfRange(columnIndices, start, end),
+                        Arrays.copyOfRange(values, start, end));
+    }
+
+    /**
+     * @return dense matrix of shape [rows, columns]. Please note: this can use a lot of memory for large vocabularies
+     */
+    public INDArray toDense() {
+        INDArray ret = Nd4j.create(rows, columns);
+        for (int r = 0; r < rows; r++) {
+            for (int i = rowPointers[r]; i < rowPointers[r + 1]; i++)
+                ret.putScalar(r, columnIndices[i], values[i]);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,53 @@
+package org.deeplearning4j.bagofwords.vectorizer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+
+/**
+ * Sparse row vector, as produced by {@link BaseTextVectorizer#transformSparse(java.util.List)}:
+ * sorted vocabulary indices of words present in a document, and their respective values
+ */
+@Getter
+public class SparseVector {
+    private final int length;
+    private final int[] indices;
+    private final double[] values;
+
+    public SparseVector(int length, @NonNull int[] indices, @NonNull double[] values) {
+        if (indices.length != values.length)
+            throw new IllegalArgumentException("Indices and values should have same length: got " + indices.length
+                            + " vs " + values.length);
+        this.length = length;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * @return number of non-zero entries
+     */
+    public int nnz() {
+        return indices.length;
+    }
+
+    /**
+     * @return value at given index, 0.0 if there's no such entry
+     */
+    public double get(int index) {
+        int pos = Arrays.binarySearch(indices, index);
+        return pos >= 0 ? values[pos] : 0.0;
+    }
+
+    /**
+     * @return dense row vector of shape [1, length]
+     */
+    public INDArray toDense() {
+        INDArray ret = Nd4j.create(1, length);
+        for (int i = 0; i < indices.length; i++)
+            ret.putScalar(indices[i], values[i]);
+        return ret;
+    }
+}
@@ -17,7 +17,6 @@ import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 import org.deeplearning4j.util.MathUtils;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
-import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.util.FeatureUtil;
 
 import java.io.BufferedReader;
@@ -25,7 +24,6 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author raver119@gmail.com
@@ -103,25 +101,17 @@ public class TfidfVectorizer extends BaseTextVectorizer {
 
     @Override
     public INDArray transform(List<String> tokens) {
-        INDArray ret = Nd4j.create(1, vocabCache.numWords());
-
-        Map<String, AtomicLong> counts = new HashMap<>();
-        for (String token : tokens) {
-            if (!counts.containsKey(token))
-                counts.put(token, new AtomicLong(0));
+        return transformSparse(tokens).toDense();
+    }
 
-            counts.get(token).incrementAndGet();
-        }
+    @Override
+    protected double vocabWeight(VocabWord word) {
+        return idfForWord(word.getLabel());
+    }
 
-        for (int i = 0; i < tokens.size(); i++) {
-            int idx = vocabCache.indexOf(tokens.get(i));
-            if (idx >= 0) {
-                double tf_idf = tfidfWord(tokens.get(i), counts.get(tokens.get(i)).longValue(), tokens.size());
-                //log.info("TF-IDF for word: {} -> {} / {} => {}", tokens.get(i), counts.get(tokens.get(i)).longValue(), tokens.size(), tf_idf);
-                ret.putScalar(idx, tf_idf);
-            }
-        }
-        return ret;
+    @Override
+    protected double sparseValue(double idf, int count, int documentLength) {
+        return MathUtils.tfidf(tfForWord(count, documentLength), idf);
     }
 
     public double tfidfWord(String word, long wordCount, long documentLength) {
@@ -49,6 +49,7 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
     protected double learningRate = 0.0d;
     protected int maxmemory = 0;
     protected int batchSize = 1000;
+    protected boolean spillingCounter = false;
 
     private AdaGrad weightAdaGrad;
     private AdaGrad biasAdaGrad;
@@ -108,7 +109,8 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
         coOccurrences = new AbstractCoOccurrences.Builder<T>()
                         // TODO: symmetric should be handled via VectorsConfiguration
                         .symmetric(this.symmetric).windowSize(configuration.getWindow()).iterate(iterator)
-                        .workers(workers).vocabCache(vocabCache).maxMemory(maxmemory).build();
+                        .workers(workers).vocabCache(vocabCache).maxMemory(maxmemory)
+                        .spillingCounter(spillingCounter).build();
 
         coOccurrences.fit();
     }
@@ -258,9 +260,12 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
                 // now we fetch pairs into batch
                 List<Pair<Pair<T, T>, Double>> pairs = new ArrayList<>();
                 int cnt = 0;
-                while (coList.hasNext() && cnt < batchSize) {
-                    pairs.add(coList.next());
-                    cnt++;
+                // iterator is shared between threads, so hasNext() + next() should be atomic
+                synchronized (coList) {
+                    while (coList.hasNext() && cnt < batchSize) {
+                        pairs.add(coList.next());
+                        cnt++;
+                    }
                 }
 
                 if (shuffle)
@@ -304,6 +309,7 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
         protected int maxmemory = 0;
 
         protected int batchSize = 1000;
+        protected boolean spillingCounter = false;
 
         public Builder() {
 
@@ -357,6 +363,18 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
             return this;
         }
 
+        /**
+         * If set to true, cooccurrences are counted in packed primitive tables, spilled to disk as sorted runs and
+         * merged afterwards, instead of in-memory CountMap. Recommended for large corpora. Default value: false
+         *
+         * @param reallySpill
+         * @return
+         */
+        public Builder<T> spillingCounter(boolean reallySpill) {
+            this.spillingCounter = reallySpill;
+            return this;
+        }
+
         /**
          * Parameter specifying cutoff in weighting function; default 100.0
          *
@@ -399,6 +417,7 @@ public class GloVe<T extends SequenceElement> implements ElementsLearningAlgorit
             ret.learningRate = this.learningRate;
             ret.maxmemory = this.maxmemory;
             ret.batchSize = this.batchSize;
+            ret.spillingCounter = this.spillingCounter;
 
             return ret;
         }
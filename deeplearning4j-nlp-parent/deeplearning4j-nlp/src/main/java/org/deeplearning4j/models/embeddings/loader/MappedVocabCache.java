@@ -0,0 +1,251 @@
+package org.deeplearning4j.models.embeddings.loader;
+
+import lombok.NonNull;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.util.AbstractList;
+import java.util.Collection;
+
+/**
+ * Read-only VocabCache view over vocabulary of {@link MappedWordVectorStorage}.
+ *
+ * Nothing is copied on creation: labels and frequencies are read from mapped memory, and lookups by label go
+ * through {@link MappedWordVectorStorage#indexOf(String)}. VocabWord instances are created on demand, and are detached
+ * copies. Mapped format doesn't keep Huffman tree, document counts or storage ids, so this vocabulary can only back
+ * lookup-only models, like {@link org.deeplearning4j.models.word2vec.StaticWord2Vec}.
+ */
+public class MappedVocabCache implements VocabCache<VocabWord> {
+    private static final long serialVersionUID = -6383251328315042147L;
+
+    private final transient MappedWordVectorStorage storage;
+    private volatile long totalWordCount = -1;
+
+    protected MappedVocabCache(@NonNull MappedWordVectorStorage storage) {
+        this.storage = storage;
+    }
+
+    private VocabWord materialize(int index) {
+        if (index < 0 || index >= storage.getNumWords())
+            return null;
+
+        VocabWord word = new VocabWord(storage.getFrequency(index), storage.getLabel(index));
+        word.setIndex(index);
+        return word;
+    }
+
+    @Override
+    public void loadVocab() {
+        // vocabulary is mapped by MappedWordVectorStorage.open()
+    }
+
+    @Override
+    public boolean vocabExists() {
+        return storage.getNumWords() > 0;
+    }
+
+    @Override
+    public void saveVocab() {
+        // use WordVectorSerializer.writeMappedModel() instead
+    }
+
+    @Override
+    public Collection<String> words() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size())
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+                return storage.getLabel(index);
+            }
+
+            @Override
+            public int size() {
+                return storage.getNumWords();
+            }
+        };
+    }
+
+    @Override
+    public void incrementWordCount(String word) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public void incrementWordCount(String word, int increment) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public int wordFrequency(@NonNull String word) {
+        int index = storage.indexOf(word);
+        return index >= 0 ? (int) storage.getFrequency(index) : 0;
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return storage.indexOf(word) >= 0;
+    }
+
+    @Override
+    public String wordAtIndex(int index) {
+        return index >= 0 && index < storage.getNumWords() ? storage.getLabel(index) : null;
+    }
+
+    @Override
+    public VocabWord elementAtIndex(int index) {
+        return materialize(index);
+    }
+
+    /**
+     * Returns index for specified label
+     *
+     * @param label the label to get index for
+     * @return >=0 if label exists, -2 if specified label wasn't found
+     */
+    @Override
+    public int indexOf(String label) {
+        int index = storage.indexOf(label);
+        return index >= 0 ? index : -2;
+    }
+
+    /**
+     * Returns view over elements of this vocabulary, in order of their indexes. Each access creates new VocabWord.
+     */
+    @Override
+    public Collection<VocabWord> vocabWords() {
+        return new AbstractList<VocabWord>() {
+            @Override
+            public VocabWord get(int index) {
+                if (index < 0 || index >= size())
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+                return materialize(index);
+            }
+
+            @Override
+            public int size() {
+                return storage.getNumWords();
+            }
+        };
+    }
+
+    @Override
+    public long totalWordOccurrences() {
+        if (totalWordCount < 0) {
+            long total = 0;
+            for (int i = 0; i < storage.getNumWords(); i++)
+                total += (long) storage.getFrequency(i);
+            totalWordCount = total;
+        }
+
+        return totalWordCount;
+    }
+
+    @Override
+    public VocabWord wordFor(@NonNull String word) {
+        return materialize(storage.indexOf(word));
+    }
+
+    @Override
+    public VocabWord wordFor(long id) {
+        throw new UnsupportedOperationException("MappedVocabCache doesn't keep storage ids, use wordFor(String)");
+    }
+
+    @Override
+    public void addWordToIndex(int index, String word) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public void addWordToIndex(int index, long elementId) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    @Deprecated
+    public void putVocabWord(String word) {
+        if (!containsWord(word))
+            throw new IllegalStateException("Specified label is not present in vocabulary");
+    }
+
+    @Override
+    public int numWords() {
+        return storage.getNumWords();
+    }
+
+    @Override
+    public int docAppearedIn(String word) {
+        // document counts aren't saved in mapped format
+        return containsWord(word) ? 0 : -1;
+    }
+
+    @Override
+    public void incrementDocCount(String word, long howMuch) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public void setCountForDoc(String word, long count) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public long totalNumberOfDocs() {
+        return 0;
+    }
+
+    @Override
+    public void incrementTotalDocCount() {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public void incrementTotalDocCount(long by) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public Collection<VocabWord> tokens() {
+        return vocabWords();
+    }
+
+    @Override
+    public void addToken(VocabWord word) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public VocabWord tokenFor(String word) {
+        return wordFor(word);
+    }
+
+    @Override
+    public VocabWord tokenFor(long id) {
+        return wordFor(id);
+    }
+
+    @Override
+    public boolean hasToken(String token) {
+        return containsWord(token);
+    }
+
+    @Override
+    public void importVocabulary(VocabCache<VocabWord> vocabCache) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public void updateWordsOccurencies() {
+        // frequencies never change
+    }
+
+    @Override
+    public void removeElement(String label) {
+        throw new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+
+    @Override
+    public void removeElement(VocabWord element) {
+        removeElement(element.getLabel());
+    }
+}
@@ -0,0 +1,434 @@
+package org.deeplearning4j.models.embeddings.loader;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.exception.DL4JInvalidInputException;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.AbstractStorage;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Read-only AbstractStorage implementation, backed by memory-mapped binary word vectors file.
+ *
+ * File layout:
+ * 1) Header: magic, version, data type, byte order, number of words, vector length, vocab offset, matrix offset
+ * 2) Vocabulary: label offsets (numWords + 1 ints), word frequencies (numWords doubles), UTF-8 labels
+ * 3) Matrix: numWords rows with fixed stride of vectorLength elements, starting at page boundary
+ *
+ * Matrix is mapped read-only and wrapped into INDArray without copying: loading time doesn't depend on model size,
+ * and multiple JVMs using the same file share the same physical memory through OS page cache. Files larger than 2GB
+ * are mapped as several chunks of whole rows.
+ *
+ * Vocabulary stays mapped as well: labels are decoded on demand, and lookup by label goes through an open-addressing
+ * int table built on first use, see {@link #getVocabCache()}.
+ *
+ * Neither INDArray nor its DataBuffer keeps a reference to the mapped ByteBuffer, and the mapping is released once that
+ * buffer is garbage collected. So mapped chunks never leave this storage: {@link #get(Integer)} copies requested row
+ * out of mapped memory, and returned vectors stay valid after the storage is gone.
+ *
+ * PLEASE NOTE: data type and byte order of the file should match Nd4j data type and native byte order.
+ */
+@Slf4j
+public class MappedWordVectorStorage implements AbstractStorage<Integer> {
+    public static final int FORMAT_MAGIC = 0x57564D50;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 40;
+    public static final int PAGE_SIZE = 4096;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BYTE_ORDER_LITTLE_ENDIAN = 0;
+    private static final int BYTE_ORDER_BIG_ENDIAN = 1;
+
+    @Getter
+    private final int numWords;
+    @Getter
+    private final int vectorLength;
+    private final int rowsPerChunk;
+    private final INDArray[] chunks;
+    // strong references to mapped memory behind the chunks
+    private final MappedByteBuffer[] buffers;
+
+    // vocabulary section stays mapped, labels are decoded on demand
+    private final ByteBuffer vocab;
+    private final int labelsStart;
+
+    // open-addressing table of label hashes, holding index + 1, or 0 for empty slot. Built on first lookup
+    private volatile int[] labelTable;
+    private int[] labelHashes;
+    private int mask;
+    private volatile MappedVocabCache vocabCache;
+
+    private MappedWordVectorStorage(int numWords, int vectorLength, int rowsPerChunk, INDArray[] chunks,
+                    MappedByteBuffer[] buffers, ByteBuffer vocab) {
+        this.numWords = numWords;
+        this.vectorLength = vectorLength;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+        this.buffers = buffers;
+        this.vocab = vocab;
+        this.labelsStart = (numWords + 1) * 4 + numWords * 8;
+    }
+
+    /**
+     * This method writes word vectors in mapped binary format
+     *
+     * @param vectors WordVectors to be saved
+     * @param file destination file
+     * @throws IOException
+     */
+    public static void write(@NonNull WordVectors vectors, @NonNull File file) throws IOException {
+        VocabCache<?> vocabCache = vectors.vocab();
+        int numWords = vocabCache.numWords();
+        if (numWords == 0)
+            throw new DL4JInvalidInputException("Can't save empty vocabulary");
+
+        byte[][] labels = new byte[numWords][];
+        long labelsLength = 0;
+        for (int i = 0; i < numWords; i++) {
+            labels[i] = vocabCache.wordAtIndex(i).getBytes(UTF8);
+            labelsLength += labels[i].length;
+        }
+
+        long vocabLength = (numWords + 1) * 4L + numWords * 8L + labelsLength;
+        if (vocabLength > Integer.MAX_VALUE)
+            throw new DL4JInvalidInputException("Vocabulary section exceeds 2GB");
+
+        long matrixOffset = align(HEADER_SIZE + vocabLength);
+        int vectorLength = -1;
+        DataBuffer.Type type = Nd4j.dataType();
+        int elementSize = type == DataBuffer.Type.DOUBLE ? 8 : 4;
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 20))) {
+            INDArray first = vectors.getWordVectorMatrix(vocabCache.wordAtIndex(0));
+            vectorLength = first.length();
+
+            dos.writeInt(FORMAT_MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeInt(type.ordinal());
+            dos.writeInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? BYTE_ORDER_LITTLE_ENDIAN
+                            : BYTE_ORDER_BIG_ENDIAN);
+            dos.writeInt(numWords);
+            dos.writeInt(vectorLength);
+            dos.writeLong(HEADER_SIZE);
+            dos.writeLong(matrixOffset);
+
+            int offset = 0;
+            for (int i = 0; i < numWords; i++) {
+                dos.writeInt(offset);
+                offset += labels[i].length;
+            }
+            dos.writeInt(offset);
+
+            for (int i = 0; i < numWords; i++)
+                dos.writeDouble(vocabCache.wordFrequency(vocabCache.wordAtIndex(i)));
+
+            for (int i = 0; i < numWords; i++)
+                dos.write(labels[i]);
+
+            for (long i = HEADER_SIZE + vocabLength; i < matrixOffset; i++)
+                dos.writeByte(0);
+
+            // matrix is written in native byte order, so it can be wrapped as is after mapping
+            ByteBuffer row = ByteBuffer.allocate(vectorLength * elementSize).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < numWords; i++) {
+                INDArray vector = vectors.getWordVectorMatrix(vocabCache.wordAtIndex(i));
+                if (vector.length() != vectorLength)
+                    throw new DL4JInvalidInputException("All vectors should have length " + vectorLength
+                                    + ", but vector " + i + " has length " + vector.length());
+
+                row.clear();
+                for (int e = 0; e < vectorLength; e++) {
+                    if (elementSize == 8)
+                        row.putDouble(vector.getDouble(e));
+                    else
+                        row.putFloat(vector.getFloat(e));
+                }
+                dos.write(row.array(), 0, row.position());
+            }
+        }
+    }
+
+    /**
+     * This method memory-maps previously saved word vectors file
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static MappedWordVectorStorage open(@NonNull File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (file.length() < HEADER_SIZE)
+                throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] is too short");
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != FORMAT_MAGIC)
+                throw new DL4JInvalidInputException(
+                                "File [" + file.getAbsolutePath() + "] isn't mapped word vectors file");
+
+            int version = header.getInt();
+            if (version != FORMAT_VERSION)
+                throw new DL4JInvalidInputException("Unsupported mapped word vectors format version: " + version);
+
+            DataBuffer.Type type = DataBuffer.Type.values()[header.getInt()];
+            if (type != Nd4j.dataType())
+                throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] has data type " + type
+                                + ", but Nd4j data type is " + Nd4j.dataType());
+
+            ByteOrder order = header.getInt() == BYTE_ORDER_LITTLE_ENDIAN ? ByteOrder.LITTLE_ENDIAN
+                            : ByteOrder.BIG_ENDIAN;
+            if (order != ByteOrder.nativeOrder())
+                throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] was written with " + order
+                                + " byte order, and can't be mapped on " + ByteOrder.nativeOrder() + " platform");
+
+            int numWords = header.getInt();
+            int vectorLength = header.getInt();
+            long vocabOffset = header.getLong();
+            long matrixOffset = header.getLong();
+
+            int elementSize = type == DataBuffer.Type.DOUBLE ? 8 : 4;
+            long rowBytes = (long) vectorLength * elementSize;
+            if (matrixOffset + rowBytes * numWords > file.length())
+                throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] is truncated");
+
+            // mapping stays valid after channel is closed
+            MappedByteBuffer vocab = channel.map(FileChannel.MapMode.READ_ONLY, vocabOffset,
+                            matrixOffset - vocabOffset);
+
+            int rowsPerChunk = (int) Math.min(numWords, Integer.MAX_VALUE / rowBytes);
+            int numChunks = (numWords + rowsPerChunk - 1) / rowsPerChunk;
+            INDArray[] chunks = new INDArray[numChunks];
+            MappedByteBuffer[] buffers = new MappedByteBuffer[numChunks];
+            for (int c = 0; c < numChunks; c++) {
+                int rows = Math.min(rowsPerChunk, numWords - c * rowsPerChunk);
+                buffers[c] = channel.map(FileChannel.MapMode.READ_ONLY, matrixOffset + c * rowsPerChunk * rowBytes,
+                                rows * rowBytes);
+                buffers[c].order(ByteOrder.nativeOrder());
+
+                DataBuffer buffer = Nd4j.createBuffer(buffers[c], type, rows * vectorLength);
+                chunks[c] = Nd4j.create(buffer, new int[] {rows, vectorLength});
+            }
+
+            log.debug("Mapped {} word vectors of length {} in {} chunks", numWords, vectorLength, numChunks);
+
+            return new MappedWordVectorStorage(numWords, vectorLength, rowsPerChunk, chunks, buffers, vocab);
+        }
+    }
+
+    /**
+     * This method returns label of the word with given index, decoded from mapped vocabulary
+     *
+     * @param index
+     * @return
+     */
+    public String getLabel(int index) {
+        checkIndex(index);
+        int start = vocab.getInt(index * 4);
+        int end = vocab.getInt((index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = vocab.get(labelsStart + start + i);
+
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * This method returns index of the word with given label, without decoding mapped labels
+     *
+     * @param label
+     * @return index of the word, or -1 if there's no such word
+     */
+    public int indexOf(String label) {
+        if (label == null)
+            return -1;
+
+        int[] table = labelTable;
+        if (table == null)
+            table = buildLabelTable();
+
+        byte[] bytes = label.getBytes(UTF8);
+        int hash = hash(bytes);
+        int pos = mix(hash) & mask;
+        int entry;
+        while ((entry = table[pos]) != 0) {
+            int index = entry - 1;
+            if (labelHashes[index] == hash && sameLabel(index, bytes))
+                return index;
+            pos = (pos + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * This method returns frequency of the word with given index
+     *
+     * @param index
+     * @return
+     */
+    public double getFrequency(int index) {
+        checkIndex(index);
+        return vocab.getDouble((numWords + 1) * 4 + index * 8);
+    }
+
+    /**
+     * This method returns read-only VocabCache backed by mapped vocabulary, see {@link MappedVocabCache}
+     *
+     * @return
+     */
+    public VocabCache<VocabWord> getVocabCache() {
+        if (vocabCache == null) {
+            synchronized (this) {
+                if (vocabCache == null)
+                    vocabCache = new MappedVocabCache(this);
+            }
+        }
+
+        return vocabCache;
+    }
+
+    /**
+     * This method returns vector of the word with given index, copied out of mapped memory
+     *
+     * @param key index of the word
+     * @return
+     */
+    @Override
+    public INDArray get(Integer key) {
+        if (!containsKey(key))
+            return null;
+
+        // row views would outlive mapping if storage gets collected, so they're never handed out
+        return chunks[key / rowsPerChunk].getRow(key % rowsPerChunk).dup();
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        return key != null && key >= 0 && key < numWords;
+    }
+
+    @Override
+    public long size() {
+        return numWords;
+    }
+
+    @Override
+    public void store(Integer key, INDArray object) {
+        throw new UnsupportedOperationException("MappedWordVectorStorage is read-only");
+    }
+
+    @Override
+    public void store(Integer key, float[] array) {
+        throw new UnsupportedOperationException("MappedWordVectorStorage is read-only");
+    }
+
+    @Override
+    public void store(Integer key, double[] array) {
+        throw new UnsupportedOperationException("MappedWordVectorStorage is read-only");
+    }
+
+    @Override
+    public boolean storeIfAbsent(Integer key, INDArray object) {
+        throw new UnsupportedOperationException("MappedWordVectorStorage is read-only");
+    }
+
+    @Override
+    public void drop(Integer key) {
+        throw new UnsupportedOperationException("MappedWordVectorStorage is read-only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("MappedWordVectorStorage is read-only");
+    }
+
+    /**
+     * This method checks if given file starts with mapped word vectors header
+     *
+     * @param file
+     * @return
+     */
+    public static boolean isMappedFormat(@NonNull File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE)
+            return false;
+
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            return dis.readInt() == FORMAT_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private synchronized int[] buildLabelTable() {
+        if (labelTable != null)
+            return labelTable;
+
+        int capacity = Integer.highestOneBit(Math.max(2, numWords) * 2 - 1) << 1;
+        int[] hashes = new int[numWords];
+        int[] table = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < numWords; i++) {
+            int start = vocab.getInt(i * 4);
+            int end = vocab.getInt((i + 1) * 4);
+            int h = 0;
+            for (int b = start; b < end; b++)
+                h = 31 * h + vocab.get(labelsStart + b);
+            hashes[i] = h;
+
+            int pos = mix(h) & mask;
+            while (table[pos] != 0)
+                pos = (pos + 1) & mask;
+            table[pos] = i + 1;
+        }
+
+        labelHashes = hashes;
+        // volatile write publishes hashes and mask as well
+        labelTable = table;
+        return table;
+    }
+
+    private boolean sameLabel(int index, byte[] bytes) {
+        int start = vocab.getInt(index * 4);
+        int end = vocab.getInt((index + 1) * 4);
+        if (end - start != bytes.length)
+            return false;
+
+        for (int i = 0; i < bytes.length; i++)
+            if (vocab.get(labelsStart + start + i) != bytes[i])
+                return false;
+
+        return true;
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 0;
+        for (byte b : bytes)
+            h = 31 * h + b;
+        return h;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= numWords)
+            throw new DL4JInvalidInputException("Word index " + index + " is out of range [0, " + numWords + ")");
+    }
+
+    private static long align(long offset) {
+        return (offset + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+    }
+}
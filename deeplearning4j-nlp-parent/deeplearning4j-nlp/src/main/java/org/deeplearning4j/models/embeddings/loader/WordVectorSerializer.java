@@ -48,6 +48,7 @@ import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
 import org.deeplearning4j.models.word2vec.wordstore.VocabularyHolder;
 import org.deeplearning4j.models.word2vec.wordstore.VocabularyWord;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.CompactVocabCache;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.InMemoryLookupCache;
 import org.deeplearning4j.text.documentiterator.LabelsSource;
 import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
@@ -2207,6 +2208,62 @@ public class WordVectorSerializer {
         return vocabCache;
     }
 
+    /**
+     * This method saves vocab cache to provided File in compact binary form, including Huffman codes and points.
+     * This is a standalone vocabulary file: it's not part of model files written by writeWord2VecModel() and similar
+     * methods.
+     *
+     * @param vocabCache
+     * @param file
+     * @throws IOException
+     */
+    public static void writeCompactVocabCache(@NonNull VocabCache<? extends SequenceElement> vocabCache,
+                    @NonNull File file) throws IOException {
+        try (OutputStream stream = new FileOutputStream(file)) {
+            writeCompactVocabCache(vocabCache, stream);
+        }
+    }
+
+    /**
+     * This method saves vocab cache to provided OutputStream in compact binary form, including Huffman codes and points.
+     * Vocab caches other than CompactVocabCache are converted first.
+     *
+     * @param vocabCache
+     * @param stream
+     * @throws IOException
+     */
+    public static void writeCompactVocabCache(@NonNull VocabCache<? extends SequenceElement> vocabCache,
+                    @NonNull OutputStream stream) throws IOException {
+        CompactVocabCache cache = vocabCache instanceof CompactVocabCache ? (CompactVocabCache) vocabCache
+                        : CompactVocabCache.fromVocabCache(vocabCache);
+        cache.write(stream);
+    }
+
+    /**
+     * This method reads vocab cache saved with writeCompactVocabCache() from provided file. Returned vocabulary is
+     * read-only.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static CompactVocabCache readCompactVocabCache(@NonNull File file) throws IOException {
+        try (InputStream stream = new FileInputStream(file)) {
+            return readCompactVocabCache(stream);
+        }
+    }
+
+    /**
+     * This method reads vocab cache saved with writeCompactVocabCache() from provided InputStream.
+     *
+     * @param stream
+     * @return
+     * @throws IOException
+     */
+    public static CompactVocabCache readCompactVocabCache(@NonNull InputStream stream) throws IOException {
+        return CompactVocabCache.read(stream);
+    }
+
     /**
      * This is utility holder class
      */
@@ -2528,11 +2585,48 @@ public class WordVectorSerializer {
         return null;
     }
 
+    /**
+     * This method saves word vectors in binary format, suitable for memory-mapping with {@link #loadMappedModel(File)}
+     *
+     * @param vectors WordVectors to be saved
+     * @param file destination file
+     */
+    public static void writeMappedModel(@NonNull WordVectors vectors, @NonNull File file) {
+        try {
+            MappedWordVectorStorage.write(vectors, file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * This method memory-maps word vectors previously saved with {@link #writeMappedModel(WordVectors, File)}.
+     * Vectors aren't loaded into heap or off-heap memory, only looked up rows are copied out of mapped file.
+     *
+     * In return you get StaticWord2Vec model, which might be used as lookup table only.
+     *
+     * @param file File should point to previously saved mapped model
+     * @return
+     */
+    public static StaticWord2Vec loadMappedModel(@NonNull File file) {
+        if (!file.exists() || file.isDirectory())
+            throw new RuntimeException(
+                            new FileNotFoundException("File [" + file.getAbsolutePath() + "] was not found"));
+
+        try {
+            MappedWordVectorStorage storage = MappedWordVectorStorage.open(file);
+            return new StaticWord2Vec.Builder(storage, storage.getVocabCache()).build();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * This method restores previously saved w2v model. File can be in one of the following formats:
      * 1) Binary model, either compressed or not. Like well-known Google Model
      * 2) Popular CSV word2vec text format
      * 3) DL4j compressed format
+     * 4) Mapped binary format, saved with {@link #writeMappedModel(WordVectors, File)}
      *
      * In return you get StaticWord2Vec model, which might be used as lookup table only in multi-gpu environment.
      *
@@ -2545,6 +2639,9 @@ public class WordVectorSerializer {
             throw new RuntimeException(
                             new FileNotFoundException("File [" + file.getAbsolutePath() + "] was not found"));
 
+        if (MappedWordVectorStorage.isMappedFormat(file))
+            return loadMappedModel(file);
+
         int originalFreq = Nd4j.getMemoryManager().getOccasionalGcFrequency();
         boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
 
@@ -1,6 +1,5 @@
 package org.deeplearning4j.models.embeddings.reader.impl;
 
-import com.google.common.collect.Lists;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NonNull;
@@ -35,6 +34,7 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
     protected volatile WeightLookupTable<T> lookupTable;
 
     protected volatile boolean normalized = false;
+    protected volatile NearestWordsEngine nearestWordsEngine;
 
 
     public BasicModelUtils() {
@@ -48,6 +48,7 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
 
         // reset normalization trigger on init call
         this.normalized = false;
+        this.nearestWordsEngine = null;
     }
 
     /**
@@ -225,38 +226,10 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
     @Override
     public Collection<String> wordsNearest(INDArray words, int top) {
         if (lookupTable instanceof InMemoryLookupTable) {
-            InMemoryLookupTable l = (InMemoryLookupTable) lookupTable;
-
-            INDArray syn0 = l.getSyn0();
-
-            if (!normalized) {
-                synchronized (this) {
-                    if (!normalized) {
-                        syn0.diviColumnVector(syn0.norm2(1));
-                        normalized = true;
-                    }
-                }
-            }
-
-            INDArray similarity = Transforms.unitVec(words).mmul(syn0.transpose());
-
-            List<Double> highToLowSimList = getTopN(similarity, top + 20);
-
-            List<WordSimilarity> result = new ArrayList<>();
+            // UNK & STOP might be among candidates, so couple of extra candidates are requested
+            NearestWordsEngine.TopResults results = getNearestWordsEngine().search(Transforms.unitVec(words), top + 2);
 
-            for (int i = 0; i < highToLowSimList.size(); i++) {
-                String word = vocabCache.wordAtIndex(highToLowSimList.get(i).intValue());
-                if (word != null && !word.equals("UNK") && !word.equals("STOP")) {
-                    INDArray otherVec = lookupTable.vector(word);
-                    double sim = Transforms.cosineSim(words, otherVec);
-
-                    result.add(new WordSimilarity(word, sim));
-                }
-            }
-
-            Collections.sort(result, new SimilarityComparator());
-
-            return getLabels(result, top);
+            return getLabels(results, top);
         }
 
         Counter<String> distances = new Counter<>();
@@ -275,36 +248,77 @@ public class BasicModelUtils<T extends SequenceElement> implements ModelUtils<T>
     }
 
     /**
-     * Get top N elements
+     * This method returns nearest words for each of given vectors. All queries are processed in single pass over
+     * lookup table.
      *
-     * @param vec the vec to extract the top elements from
-     * @param N the number of elements to extract
-     * @return the indices and the sorted top N elements
+     * @param queries matrix of vectors, one query per row
+     * @param top the top n words per query
+     * @return nearest words, one collection per query
      */
-    private List<Double> getTopN(INDArray vec, int N) {
-        ArrayComparator comparator = new ArrayComparator();
-        PriorityQueue<Double[]> queue = new PriorityQueue<>(vec.rows(), comparator);
-
-        for (int j = 0; j < vec.length(); j++) {
-            final Double[] pair = new Double[] {vec.getDouble(j), (double) j};
-            if (queue.size() < N) {
-                queue.add(pair);
-            } else {
-                Double[] head = queue.peek();
-                if (comparator.compare(pair, head) > 0) {
-                    queue.poll();
-                    queue.add(pair);
+    public List<Collection<String>> wordsNearestBatch(@NonNull INDArray queries, int top) {
+        List<Collection<String>> result = new ArrayList<>();
+        if (lookupTable instanceof InMemoryLookupTable) {
+            INDArray normalizedQueries = queries.divColumnVector(queries.norm2(1));
+            NearestWordsEngine.TopResults[] results = getNearestWordsEngine().searchBatch(normalizedQueries, top + 2);
+            for (NearestWordsEngine.TopResults r : results)
+                result.add(getLabels(r, top));
+
+            return result;
+        }
+
+        for (int i = 0; i < queries.rows(); i++)
+            result.add(wordsNearest(queries.getRow(i), top));
+
+        return result;
+    }
+
+    /**
+     * This method returns NearestWordsEngine built over normalized syn0, normalizing lookup table if it wasn't done yet
+     *
+     * @return
+     */
+    protected NearestWordsEngine getNearestWordsEngine() {
+        INDArray syn0 = ((InMemoryLookupTable) lookupTable).getSyn0();
+
+        if (!normalized) {
+            synchronized (this) {
+                if (!normalized) {
+                    syn0.diviColumnVector(syn0.norm2(1));
+                    normalized = true;
                 }
             }
         }
 
-        List<Double> lowToHighSimLst = new ArrayList<>();
+        NearestWordsEngine engine = nearestWordsEngine;
+        if (engine == null || engine.getMatrix() != syn0) {
+            synchronized (this) {
+                engine = nearestWordsEngine;
+                if (engine == null || engine.getMatrix() != syn0) {
+                    // previous engine was built over replaced syn0, its threads aren't needed anymore
+                    if (engine != null)
+                        engine.close();
+
+                    engine = new NearestWordsEngine(syn0);
+                    nearestWordsEngine = engine;
+                }
+            }
+        }
+
+        return engine;
+    }
+
+    protected List<String> getLabels(NearestWordsEngine.TopResults results, int limit) {
+        List<String> labels = new ArrayList<>();
+        for (int index : results.getIndices()) {
+            String word = vocabCache.wordAtIndex(index);
+            if (word != null && !word.equals("UNK") && !word.equals("STOP"))
+                labels.add(word);
 
-        while (!queue.isEmpty()) {
-            double ind = queue.poll()[1];
-            lowToHighSimLst.add(ind);
+            if (labels.size() >= limit)
+                break;
         }
-        return Lists.reverse(lowToHighSimLst);
+
+        return labels;
     }
 
     /**
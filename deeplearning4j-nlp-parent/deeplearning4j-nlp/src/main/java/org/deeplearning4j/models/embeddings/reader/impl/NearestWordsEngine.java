@@ -0,0 +1,332 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NonNull;
+import org.bytedeco.javacpp.indexer.DoubleIndexer;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.javacpp.indexer.Indexer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Top-k similarity search over rows of a weights matrix, i.e. syn0.
+ *
+ * Matrix is processed in cache-sized blocks of rows: similarities of all queries against a block are calculated
+ * with single gemm call, and candidates are collected into bounded heaps instead of sorting full similarity
+ * vector. Blocks are split between worker threads, every worker keeps its own heaps, and heaps are merged at the end.
+ *
+ * Worker threads are owned by the engine: they're created on first multi-threaded search, stop after being idle for
+ * a while, and are shut down by {@link #close()}.
+ *
+ * PLEASE NOTE: similarity here is dot product. If both matrix rows and queries are unit vectors, it's cosine similarity.
+ */
+public class NearestWordsEngine implements Closeable {
+    /**
+     * Default size of single block, in bytes
+     */
+    public static final int DEFAULT_BLOCK_BYTES = 256 * 1024;
+
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    private volatile ThreadPoolExecutor executor;
+    private volatile boolean closed = false;
+
+    @Getter
+    private final INDArray matrix;
+    private final int blockRows;
+    private final int workers;
+
+    public NearestWordsEngine(@NonNull INDArray matrix) {
+        this(matrix, Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    /**
+     *
+     * @param matrix matrix to search in, one element per row
+     * @param workers number of threads used for single search
+     * @param blockRows number of matrix rows processed at once. If 0, block size is chosen to fit into CPU cache
+     */
+    public NearestWordsEngine(@NonNull INDArray matrix, int workers, int blockRows) {
+        if (matrix.rank() != 2)
+            throw new ND4JIllegalStateException("Matrix should be 2D, but got rank " + matrix.rank());
+
+        if (workers < 1)
+            throw new ND4JIllegalStateException("Number of workers should be positive, but got " + workers);
+
+        if (blockRows <= 0)
+            blockRows = Math.max(64, DEFAULT_BLOCK_BYTES / (matrix.columns() * matrix.data().getElementSize()));
+
+        this.matrix = matrix;
+        this.blockRows = blockRows;
+        this.workers = workers;
+    }
+
+    /**
+     * This method returns top-k rows for single query
+     *
+     * @param query query vector
+     * @param k number of rows to return
+     * @return
+     */
+    public TopResults search(@NonNull INDArray query, int k) {
+        return searchBatch(query.reshape(1, query.length()), k)[0];
+    }
+
+    /**
+     * This method returns top-k rows for each of queries
+     *
+     * @param queries queries matrix, one query per row
+     * @param k number of rows to return per query
+     * @return results, one per query, sorted by descending similarity
+     */
+    public TopResults[] searchBatch(@NonNull INDArray queries, int k) {
+        if (closed)
+            throw new ND4JIllegalStateException("NearestWordsEngine was closed");
+
+        if (queries.rank() != 2 || queries.columns() != matrix.columns())
+            throw new ND4JIllegalStateException("Queries should be 2D matrix with " + matrix.columns()
+                            + " columns, but got shape " + java.util.Arrays.toString(queries.shape()));
+
+        final int numRows = matrix.rows();
+        final int numQueries = queries.rows();
+        k = Math.min(k, numRows);
+        if (k <= 0) {
+            TopResults[] empty = new TopResults[numQueries];
+            for (int q = 0; q < numQueries; q++)
+                empty[q] = new TopResults(new int[0], new float[0]);
+            return empty;
+        }
+
+        final INDArray q = queries.isView() || queries.ordering() != 'c' ? queries.dup('c') : queries;
+        final int numBlocks = (numRows + blockRows - 1) / blockRows;
+        int numTasks = Math.min(workers, numBlocks);
+
+        final int kk = k;
+        List<BoundedHeap[]> partial = new ArrayList<>();
+        if (numTasks == 1) {
+            partial.add(scan(q, kk, 0, numBlocks));
+        } else {
+            List<Future<BoundedHeap[]>> futures = new ArrayList<>();
+            int blocksPerTask = (numBlocks + numTasks - 1) / numTasks;
+            for (int t = 0; t < numTasks; t++) {
+                final int first = t * blocksPerTask;
+                final int last = Math.min(numBlocks, first + blocksPerTask);
+                if (first >= last)
+                    break;
+
+                futures.add(getExecutor().submit(new Callable<BoundedHeap[]>() {
+                    @Override
+                    public BoundedHeap[] call() throws Exception {
+                        return scan(q, kk, first, last);
+                    }
+                }));
+            }
+
+            try {
+                for (Future<BoundedHeap[]> future : futures)
+                    partial.add(future.get());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        TopResults[] results = new TopResults[numQueries];
+        for (int i = 0; i < numQueries; i++) {
+            BoundedHeap merged = partial.get(0)[i];
+            for (int t = 1; t < partial.size(); t++)
+                merged.offerAll(partial.get(t)[i]);
+
+            results[i] = merged.toResults();
+        }
+
+        return results;
+    }
+
+    /**
+     * This method scans given range of blocks, and returns heap per query
+     */
+    protected BoundedHeap[] scan(INDArray queries, int k, int firstBlock, int lastBlock) {
+        int numQueries = queries.rows();
+        BoundedHeap[] heaps = new BoundedHeap[numQueries];
+        for (int q = 0; q < numQueries; q++)
+            heaps[q] = new BoundedHeap(k);
+
+        INDArray similarities = null;
+        for (int b = firstBlock; b < lastBlock; b++) {
+            int start = b * blockRows;
+            int end = Math.min(matrix.rows(), start + blockRows);
+            int rows = end - start;
+
+            // gemm output is column-major, so similarities of each row of the block are laid out together
+            if (similarities == null || similarities.columns() != rows)
+                similarities = Nd4j.create(new int[] {numQueries, rows}, 'f');
+
+            INDArray block = matrix.get(NDArrayIndex.interval(start, end), NDArrayIndex.all());
+            Nd4j.gemm(queries, block, similarities, false, true, 1.0, 0.0);
+
+            // similarities are read in place, fresh 'f' array has no offset
+            Indexer indexer = similarities.data().indexer();
+            if (indexer instanceof FloatIndexer) {
+                FloatIndexer values = (FloatIndexer) indexer;
+                for (int r = 0; r < rows; r++) {
+                    long offset = (long) r * numQueries;
+                    for (int q = 0; q < numQueries; q++)
+                        heaps[q].offer(start + r, values.get(offset + q));
+                }
+            } else {
+                DoubleIndexer values = (DoubleIndexer) indexer;
+                for (int r = 0; r < rows; r++) {
+                    long offset = (long) r * numQueries;
+                    for (int q = 0; q < numQueries; q++)
+                        heaps[q].offer(start + r, (float) values.get(offset + q));
+                }
+            }
+        }
+
+        return heaps;
+    }
+
+    protected ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (closed)
+                    throw new ND4JIllegalStateException("NearestWordsEngine was closed");
+
+                if (executor == null) {
+                    // idle threads die, so engines that were dropped without close() don't keep threads around
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, IDLE_TIMEOUT_SECONDS,
+                                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                                        public Thread newThread(Runnable r) {
+                                            Thread t = Executors.defaultThreadFactory().newThread(r);
+                                            t.setName("NearestWordsEngine thread");
+                                            t.setDaemon(true);
+                                            return t;
+                                        }
+                                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                }
+            }
+        }
+
+        return executor;
+    }
+
+    /**
+     * This method shuts down worker threads. Engine can't be used afterwards
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (executor != null)
+                executor.shutdown();
+        }
+    }
+
+    /**
+     * Top-k results for single query: row indices and similarities, sorted by descending similarity
+     */
+    @Data
+    @AllArgsConstructor
+    public static class TopResults {
+        private int[] indices;
+        private float[] similarities;
+    }
+
+    /**
+     * Min-heap of fixed capacity over primitive arrays, keeping k largest values seen so far
+     */
+    protected static class BoundedHeap {
+        private final int capacity;
+        private final int[] indices;
+        private final float[] values;
+        private int size;
+
+        protected BoundedHeap(int capacity) {
+            this.capacity = capacity;
+            this.indices = new int[capacity];
+            this.values = new float[capacity];
+        }
+
+        protected void offer(int index, float value) {
+            // NaN never gets into results
+            if (!(value == value))
+                return;
+
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!less(value, index, values[parent], indices[parent]))
+                        break;
+
+                    values[i] = values[parent];
+                    indices[i] = indices[parent];
+                    i = parent;
+                }
+                values[i] = value;
+                indices[i] = index;
+            } else if (less(values[0], indices[0], value, index)) {
+                siftDown(index, value, size);
+            }
+        }
+
+        protected void offerAll(BoundedHeap other) {
+            for (int i = 0; i < other.size; i++)
+                offer(other.indices[i], other.values[i]);
+        }
+
+        protected TopResults toResults() {
+            int[] resultIndices = new int[size];
+            float[] resultValues = new float[size];
+
+            // popping minimum into the tail gives descending order
+            for (int n = size; n > 0; n--) {
+                resultIndices[n - 1] = indices[0];
+                resultValues[n - 1] = values[0];
+                if (n > 1)
+                    siftDown(indices[n - 1], values[n - 1], n - 1);
+            }
+            size = 0;
+
+            return new TopResults(resultIndices, resultValues);
+        }
+
+        private void siftDown(int index, float value, int heapSize) {
+            int i = 0;
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < heapSize && less(values[right], indices[right], values[child], indices[child]))
+                    child = right;
+
+                if (!less(values[child], indices[child], value, index))
+                    break;
+
+                values[i] = values[child];
+                indices[i] = indices[child];
+                i = child;
+            }
+            values[i] = value;
+            indices[i] = index;
+        }
+
+        /**
+         * Lower similarity is "less". On ties, higher index is "less", so lower indices win
+         */
+        private static boolean less(float v1, int i1, float v2, int i2) {
+            return v1 < v2 || (v1 == v2 && i1 > i2);
+        }
+    }
+}
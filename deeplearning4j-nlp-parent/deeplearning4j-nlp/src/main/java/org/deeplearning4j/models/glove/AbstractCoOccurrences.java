@@ -22,6 +22,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -53,6 +54,9 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
 
     private ShadowCopyThread shadowThread;
 
+    // if not null, packed per-thread tables with sorted spills are used instead of CountMap + ShadowCopyThread
+    private SpillingCoOccurrenceCounter spillingCounter;
+
     //    private Counter<Integer> sentenceOccurrences = Util.parallelCounter();
     //private CounterMap<T, T> coOccurrenceCounts = Util.parallelCounterMap();
     private volatile CountMap<T> coOccurrenceCounts = new CountMap<>();
@@ -74,6 +78,9 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
      * @return distance weight
      */
     public double getCoOccurrenceCount(@NonNull T element1, @NonNull T element2) {
+        if (spillingCounter != null)
+            return SpillingCoOccurrenceCounter.lookup(targetFile, element1.getIndex(), element2.getIndex());
+
         return coOccurrenceCounts.getCount(element1, element2);
     }
 
@@ -100,6 +107,11 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
     }
 
     public void fit() {
+        if (spillingCounter != null) {
+            fitSpilling();
+            return;
+        }
+
         shadowThread = new ShadowCopyThread();
         shadowThread.start();
 
@@ -125,6 +137,77 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
         logger.info("CoOccurrences map was built.");
     }
 
+    private void fitSpilling() {
+        sequenceIterator.reset();
+
+        List<CoOccurrencesCalculatorThread> threads = new ArrayList<>();
+        for (int x = 0; x < workers; x++) {
+            threads.add(x, new CoOccurrencesCalculatorThread(x, new FilteredSequenceIterator<>(
+                            new SynchronizedSequenceIterator<>(sequenceIterator), vocabCache), processedSequences));
+            threads.get(x).start();
+        }
+
+        for (int x = 0; x < workers; x++) {
+            try {
+                threads.get(x).join();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        spillingCounter.merge(targetFile);
+        logger.info("CoOccurrences map was built.");
+    }
+
+    /**
+     * Iterator over merged binary file produced by SpillingCoOccurrenceCounter
+     */
+    private Iterator<Pair<Pair<T, T>, Double>> spillingIterator() {
+        final SpillingCoOccurrenceCounter.RecordReader reader;
+        try {
+            reader = new SpillingCoOccurrenceCounter.RecordReader(targetFile);
+        } catch (Exception e) {
+            logger.error("Target file was not found on last stage!");
+            throw new RuntimeException(e);
+        }
+
+        return new Iterator<Pair<Pair<T, T>, Double>>() {
+            private boolean fetched;
+            private boolean hasNext;
+
+            @Override
+            public synchronized boolean hasNext() {
+                if (!fetched) {
+                    try {
+                        hasNext = reader.next();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    fetched = true;
+                    if (!hasNext)
+                        reader.close();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public synchronized Pair<Pair<T, T>, Double> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                fetched = false;
+
+                T element1 = vocabCache.elementAtIndex(reader.getIndex1());
+                T element2 = vocabCache.elementAtIndex(reader.getIndex2());
+                return new Pair<>(new Pair<>(element1, element2), reader.getWeight());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove() method can't be supported on read-only interface");
+            }
+        };
+    }
+
     /**
      *
      *  This method returns iterator with elements pairs and their weights. Resulting iterator is safe to use in multi-threaded environment.
@@ -133,6 +216,9 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
      * @return
      */
     public Iterator<Pair<Pair<T, T>, Double>> iterator() {
+        if (spillingCounter != null)
+            return spillingIterator();
+
         final SentenceIterator iterator;
 
         try {
@@ -182,6 +268,7 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
         protected int workers = Runtime.getRuntime().availableProcessors();
         protected File target;
         protected long maxmemory = Runtime.getRuntime().maxMemory();
+        protected boolean spillingCounter = false;
 
         public Builder() {
 
@@ -229,6 +316,22 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
             return this;
         }
 
+        /**
+         * If set to true, cooccurrences are counted in packed per-thread primitive tables, which are spilled to disk
+         * as sorted runs when memory limit is reached, and k-way merged after counting.
+         * This uses much less memory per word pair than default CountMap-based counting.
+         *
+         * Please note: in this mode targetFile will contain binary records (int, int, double) sorted by indexes, instead of text.
+         * Default value: false
+         *
+         * @param reallySpill
+         * @return
+         */
+        public Builder<T> spillingCounter(boolean reallySpill) {
+            this.spillingCounter = reallySpill;
+            return this;
+        }
+
         /**
          * Path to save cooccurrence map after construction.
          * If targetFile is not specified, temporary file will be used.
@@ -266,6 +369,10 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
             }
             ret.memory_threshold = this.maxmemory;
 
+            if (this.spillingCounter)
+                ret.spillingCounter = new SpillingCoOccurrenceCounter(Math.max(1, ret.workers),
+                                ret.getMemoryThreshold(), null);
+
 
             logger.info("Actual memory limit: [" + this.maxmemory + "]");
 
@@ -332,9 +439,19 @@ public class AbstractCoOccurrences<T extends SequenceElement> implements Seriali
                         }
 
 
+                        double nWeight = 1.0 / (j - x + Nd4j.EPS_THRESHOLD);
+
+                        if (spillingCounter != null) {
+                            int first = Math.min(wordIdx, otherWord);
+                            int second = Math.max(wordIdx, otherWord);
+                            spillingCounter.increment(threadId, first, second, nWeight);
+                            if (symmetric)
+                                spillingCounter.increment(threadId, second, first, nWeight);
+                            continue;
+                        }
+
                         T tokenX = vocabCache.wordFor(tokens.get(x));
                         T tokenJ = vocabCache.wordFor(tokens.get(j));
-                        double nWeight = 1.0 / (j - x + Nd4j.EPS_THRESHOLD);
 
                         while (getMemoryFootprint() >= getMemoryThreshold()) {
                             try {
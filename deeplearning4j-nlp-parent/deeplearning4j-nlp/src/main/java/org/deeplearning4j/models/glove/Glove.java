@@ -40,6 +40,7 @@ public class Glove extends SequenceVectors<VocabWord> {
         private boolean symmetric;
         protected double alpha = 0.75d;
         private int maxmemory = (int) (Runtime.getRuntime().totalMemory() / 1024 / 1024 / 1024);
+        private boolean spillingCounter = false;
 
         protected TokenizerFactory tokenFactory;
         protected SentenceIterator sentenceIterator;
@@ -335,6 +336,18 @@ public class Glove extends SequenceVectors<VocabWord> {
             return this;
         }
 
+        /**
+         * If set to true, cooccurrences are counted in packed primitive tables, spilled to disk as sorted runs and
+         * merged afterwards, instead of in-memory CountMap. Recommended for large corpora. Default value: false
+         *
+         * @param reallySpill
+         * @return
+         */
+        public Builder spillingCounter(boolean reallySpill) {
+            this.spillingCounter = reallySpill;
+            return this;
+        }
+
         /**
          * This method allows you to specify SequenceElement that will be used as UNK element, if UNK is used
          *
@@ -421,7 +434,7 @@ public class Glove extends SequenceVectors<VocabWord> {
 
             ret.elementsLearningAlgorithm = new GloVe.Builder<VocabWord>().learningRate(this.learningRate)
                             .shuffle(this.shuffle).symmetric(this.symmetric).xMax(this.xMax).alpha(this.alpha)
-                            .maxMemory(maxmemory).build();
+                            .maxMemory(maxmemory).spillingCounter(spillingCounter).build();
 
             return ret;
         }
@@ -0,0 +1,231 @@
+package org.deeplearning4j.models.glove.count;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table for cooccurrence weights, keyed by packed pairs of vocabulary indexes.
+ *
+ * Each pair is stored as a single long key (index1 &lt;&lt; 32 | index2) plus a double weight, in two primitive arrays:
+ * 16 bytes per slot, instead of a Pair, two boxed elements and an AtomicDouble per entry as in {@link CountMap}.
+ * Table grows by doubling until maxCapacity slots are used; after that {@link #isFull()} signals that contents should
+ * be spilled to disk via {@link #writeSorted(DataOutputStream)}.
+ *
+ * Please note: this class is NOT thread safe, it's meant to be used as a per-thread shard.
+ */
+public class PackedCoOccurrenceTable {
+    private static final long EMPTY = -1L;
+    private static final double LOAD_FACTOR = 0.75;
+
+    private final int maxCapacity;
+    private long[] keys;
+    private double[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    /**
+     * @param initialCapacity Initial number of slots, rounded up to a power of 2
+     * @param maxCapacity     Maximum number of slots, rounded down to a power of 2
+     */
+    public PackedCoOccurrenceTable(int initialCapacity, int maxCapacity) {
+        if (initialCapacity < 2 || maxCapacity < initialCapacity)
+            throw new IllegalArgumentException("Invalid capacity: initial [" + initialCapacity + "], max ["
+                            + maxCapacity + "]");
+        this.maxCapacity = Integer.highestOneBit(maxCapacity);
+        allocate(Math.min(this.maxCapacity, Integer.highestOneBit(initialCapacity - 1) << 1));
+    }
+
+    public static long pack(int index1, int index2) {
+        return ((long) index1 << 32) | (index2 & 0xFFFFFFFFL);
+    }
+
+    public static int first(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int second(long key) {
+        return (int) key;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        // MurmurHash3 finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Adds weight to the given pair of vocabulary indexes
+     */
+    public void increment(int index1, int index2, double weight) {
+        if (index1 < 0 || index2 < 0)
+            throw new IllegalArgumentException("Indexes should be non-negative: [" + index1 + ", " + index2 + "]");
+        if (size >= threshold && keys.length < maxCapacity)
+            rehash(keys.length << 1);
+
+        long key = pack(index1, index2);
+        int pos = hash(key) & mask;
+        while (keys[pos] != EMPTY) {
+            if (keys[pos] == key) {
+                values[pos] += weight;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+
+        if (size >= keys.length - 1)
+            throw new IllegalStateException("PackedCoOccurrenceTable is full, contents should be spilled first");
+        keys[pos] = key;
+        values[pos] = weight;
+        size++;
+    }
+
+    public double get(int index1, int index2) {
+        long key = pack(index1, index2);
+        int pos = hash(key) & mask;
+        while (keys[pos] != EMPTY) {
+            if (keys[pos] == key)
+                return values[pos];
+            pos = (pos + 1) & mask;
+        }
+        return 0.0;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY)
+                continue;
+            int pos = hash(oldKeys[i]) & mask;
+            while (keys[pos] != EMPTY)
+                pos = (pos + 1) & mask;
+            keys[pos] = oldKeys[i];
+            values[pos] = oldValues[i];
+            size++;
+        }
+    }
+
+    /**
+     * @return true if table reached max capacity and load factor, so it should be spilled before adding more pairs
+     */
+    public boolean isFull() {
+        return size >= threshold && keys.length >= maxCapacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Approximate memory used by this table, in bytes
+     */
+    public long getMemoryFootprint() {
+        return keys.length * 16L;
+    }
+
+    /**
+     * Writes all entries, sorted by packed key, as (long key, double weight) records, and clears the table.
+     * Storage is reused for sorting, so no extra memory is allocated.
+     *
+     * @return number of records written
+     */
+    public int writeSorted(DataOutputStream out) throws IOException {
+        // compact entries to the beginning of arrays
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                keys[n] = keys[i];
+                values[n] = values[i];
+                n++;
+            }
+        }
+
+        sort(keys, values, 0, n - 1);
+        for (int i = 0; i < n; i++) {
+            out.writeLong(keys[i]);
+            out.writeDouble(values[i]);
+        }
+
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        return n;
+    }
+
+    /**
+     * In-place quicksort of keys (all distinct), moving values along with them
+     */
+    private static void sort(long[] k, double[] v, int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            // median of three as pivot
+            if (k[mid] < k[lo])
+                swap(k, v, mid, lo);
+            if (k[hi] < k[lo])
+                swap(k, v, hi, lo);
+            if (k[hi] < k[mid])
+                swap(k, v, hi, mid);
+            long pivot = k[mid];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (k[i] < pivot)
+                    i++;
+                while (k[j] > pivot)
+                    j--;
+                if (i <= j)
+                    swap(k, v, i++, j--);
+            }
+
+            // recurse into smaller part, loop over larger one
+            if (j - lo < hi - i) {
+                sort(k, v, lo, j);
+                lo = i;
+            } else {
+                sort(k, v, i, hi);
+                hi = j;
+            }
+        }
+
+        for (int i = lo + 1; i <= hi; i++) {
+            long key = k[i];
+            double value = v[i];
+            int j = i - 1;
+            while (j >= lo && k[j] > key) {
+                k[j + 1] = k[j];
+                v[j + 1] = v[j];
+                j--;
+            }
+            k[j + 1] = key;
+            v[j + 1] = value;
+        }
+    }
+
+    private static void swap(long[] k, double[] v, int a, int b) {
+        long tk = k[a];
+        k[a] = k[b];
+        k[b] = tk;
+        double tv = v[a];
+        v[a] = v[b];
+        v[b] = tv;
+    }
+}
@@ -0,0 +1,271 @@
+package org.deeplearning4j.models.glove.count;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Cooccurrence counter with bounded memory use, for corpora where cooccurrence map doesn't fit into memory.
+ *
+ * Counts are accumulated in per-thread {@link PackedCoOccurrenceTable} shards, so no locking is involved while
+ * counting. As soon as a shard reaches its share of memory limit, its contents are sorted and spilled to disk as a
+ * run. {@link #merge(File)} then k-way merges all runs into single file sorted by (index1, index2), summing weights
+ * of equal pairs.
+ *
+ * Each record is (int index1, int index2, double weight), i.e. same binary layout as {@link BinaryCoOccurrenceWriter}.
+ */
+public class SpillingCoOccurrenceCounter {
+    private static final Logger log = LoggerFactory.getLogger(SpillingCoOccurrenceCounter.class);
+
+    public static final int RECORD_SIZE = 16;
+    // max number of runs merged at once, to keep number of open files and read buffers bounded
+    protected static final int MAX_MERGE_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final PackedCoOccurrenceTable[] shards;
+    private final File tempDir;
+    private final List<File> runs = new ArrayList<>();
+    @Getter
+    private volatile int numberOfSpills;
+
+    /**
+     * @param numShards   Number of shards, each shard should be used by single thread only
+     * @param memoryLimit Total memory available for all shards, in bytes
+     * @param tempDir     Directory for spilled runs, or null to use default temporary-file directory
+     */
+    public SpillingCoOccurrenceCounter(int numShards, long memoryLimit, File tempDir) {
+        if (numShards < 1)
+            throw new IllegalArgumentException("Number of shards should be positive, got " + numShards);
+
+        long slots = memoryLimit / RECORD_SIZE / numShards;
+        int maxCapacity = (int) Math.max(1 << 10, Math.min(1 << 30, slots));
+        int initialCapacity = Math.min(1 << 16, maxCapacity);
+
+        this.tempDir = tempDir;
+        this.shards = new PackedCoOccurrenceTable[numShards];
+        for (int i = 0; i < numShards; i++)
+            shards[i] = new PackedCoOccurrenceTable(initialCapacity, maxCapacity);
+    }
+
+    public int getNumberOfShards() {
+        return shards.length;
+    }
+
+    /**
+     * Adds weight to the given pair. Should be called only by thread that owns given shard
+     */
+    public void increment(int shard, int index1, int index2, double weight) {
+        PackedCoOccurrenceTable table = shards[shard];
+        table.increment(index1, index2, weight);
+        if (table.isFull())
+            spill(table);
+    }
+
+    private void spill(PackedCoOccurrenceTable table) {
+        try {
+            File run = File.createTempFile("cooccurrence", "run", tempDir);
+            run.deleteOnExit();
+            try (DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE))) {
+                int written = table.writeSorted(out);
+                log.debug("Spilled [{}] pairs to [{}]", written, run);
+            }
+
+            synchronized (runs) {
+                runs.add(run);
+                numberOfSpills++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Spills remaining in-memory counts, and merges all runs into target file. Should be called after all counting
+     * threads are finished. Temporary runs are removed afterwards.
+     *
+     * @param target File to save cooccurrence pairs to
+     * @return number of distinct pairs written
+     */
+    public long merge(@NonNull File target) {
+        for (PackedCoOccurrenceTable table : shards) {
+            if (!table.isEmpty())
+                spill(table);
+        }
+
+        List<File> pending;
+        synchronized (runs) {
+            pending = new ArrayList<>(runs);
+            runs.clear();
+        }
+
+        try {
+            // multi-pass merge, if we have too many runs
+            while (pending.size() > MAX_MERGE_FAN_IN) {
+                List<File> next = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i += MAX_MERGE_FAN_IN) {
+                    List<File> group = pending.subList(i, Math.min(i + MAX_MERGE_FAN_IN, pending.size()));
+                    File run = File.createTempFile("cooccurrence", "run", tempDir);
+                    run.deleteOnExit();
+                    mergeRuns(group, run);
+                    next.add(run);
+                }
+                pending = next;
+            }
+
+            long pairs = mergeRuns(pending, target);
+            log.info("Merged [{}] spilled runs into [{}] cooccurrence pairs", numberOfSpills, pairs);
+            return pairs;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long mergeRuns(List<File> files, File target) throws IOException {
+        PriorityQueue<RecordReader> queue = new PriorityQueue<>(Math.max(1, files.size()),
+                        new Comparator<RecordReader>() {
+                            @Override
+                            public int compare(RecordReader o1, RecordReader o2) {
+                                return Long.compare(o1.getKey(), o2.getKey());
+                            }
+                        });
+
+        long pairs = 0;
+        try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new FileOutputStream(target), BUFFER_SIZE))) {
+            int bufferSize = Math.max(64 * 1024, BUFFER_SIZE / Math.max(1, files.size()));
+            for (File file : files) {
+                RecordReader reader = new RecordReader(file, bufferSize);
+                if (reader.next())
+                    queue.add(reader);
+                else
+                    reader.close();
+            }
+
+            while (!queue.isEmpty()) {
+                RecordReader reader = queue.poll();
+                long key = reader.getKey();
+                double weight = reader.getWeight();
+                if (reader.next())
+                    queue.add(reader);
+                else
+                    reader.close();
+
+                // sum weights of the same pair coming from other runs
+                while (!queue.isEmpty() && queue.peek().getKey() == key) {
+                    RecordReader other = queue.poll();
+                    weight += other.getWeight();
+                    if (other.next())
+                        queue.add(other);
+                    else
+                        other.close();
+                }
+
+                out.writeLong(key);
+                out.writeDouble(weight);
+                pairs++;
+            }
+        } finally {
+            for (RecordReader reader : queue)
+                reader.close();
+            for (File file : files)
+                file.delete();
+        }
+
+        return pairs;
+    }
+
+    /**
+     * Looks up weight of the given pair in file produced by {@link #merge(File)}, using binary search
+     *
+     * @return weight of the pair, or 0.0 if there's no such pair
+     */
+    public static double lookup(@NonNull File merged, int index1, int index2) {
+        long key = PackedCoOccurrenceTable.pack(index1, index2);
+        try (RandomAccessFile raf = new RandomAccessFile(merged, "r")) {
+            long lo = 0;
+            long hi = raf.length() / RECORD_SIZE - 1;
+            while (lo <= hi) {
+                long mid = (lo + hi) >>> 1;
+                raf.seek(mid * RECORD_SIZE);
+                long midKey = raf.readLong();
+                if (midKey < key)
+                    lo = mid + 1;
+                else if (midKey > key)
+                    hi = mid - 1;
+                else
+                    return raf.readDouble();
+            }
+            return 0.0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sequential reader for runs and merged files
+     */
+    public static class RecordReader implements AutoCloseable {
+        private final DataInputStream stream;
+        @Getter
+        private long key;
+        @Getter
+        private double weight;
+
+        public RecordReader(@NonNull File file) throws IOException {
+            this(file, BUFFER_SIZE);
+        }
+
+        protected RecordReader(File file, int bufferSize) throws IOException {
+            this.stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), bufferSize));
+        }
+
+        /**
+         * Advances to the next record
+         *
+         * @return false if there are no more records
+         */
+        public boolean next() throws IOException {
+            try {
+                key = stream.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            weight = stream.readDouble();
+            return true;
+        }
+
+        public int getIndex1() {
+            return PackedCoOccurrenceTable.first(key);
+        }
+
+        public int getIndex2() {
+            return PackedCoOccurrenceTable.second(key);
+        }
+
+        @Override
+        public void close() {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                //
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.deeplearning4j.models.paragraphvectors;
 
-import com.google.common.collect.Lists;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -14,6 +13,7 @@ import org.deeplearning4j.models.embeddings.learning.impl.sequence.DM;
 import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
 import org.deeplearning4j.models.embeddings.reader.ModelUtils;
 import org.deeplearning4j.models.embeddings.reader.impl.BasicModelUtils;
+import org.deeplearning4j.models.embeddings.reader.impl.NearestWordsEngine;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.models.sequencevectors.interfaces.SequenceIterator;
 import org.deeplearning4j.models.sequencevectors.interfaces.VectorsListener;
@@ -53,6 +53,7 @@ public class ParagraphVectors extends Word2Vec {
     @Setter
     protected transient LabelAwareIterator labelAwareIterator;
     protected INDArray labelsMatrix;
+    protected transient volatile NearestWordsEngine labelsEngine;
     protected List<VocabWord> labelsList = new ArrayList<>();
     protected boolean normalizedLabels = false;
 
@@ -343,6 +344,10 @@ public class ParagraphVectors extends Word2Vec {
 
     /**
      * This method does inference on a given List&lt;String&gt;
+     *
+     * PLEASE NOTE: each document is processed separately here. For high-throughput inference over large number of
+     * documents, consider {@link ParagraphVectorsInference} instead.
+     *
      * @param documents
      * @return INDArrays in the same order as input texts
      */
@@ -565,11 +570,11 @@ public class ParagraphVectors extends Word2Vec {
             }
         }
 
-        INDArray similarity = Transforms.unitVec(labelVector).mmul(labelsMatrix.transpose());
-        List<Double> highToLowSimList = getTopN(similarity, topN + 20);
+        NearestWordsEngine.TopResults candidates = getLabelsEngine().search(Transforms.unitVec(labelVector), topN + 20);
+        int[] indices = candidates.getIndices();
 
-        for (int i = 0; i < highToLowSimList.size(); i++) {
-            String word = labelsList.get(highToLowSimList.get(i).intValue()).getLabel();
+        for (int i = 0; i < indices.length; i++) {
+            String word = labelsList.get(indices[i]).getLabel();
             if (word != null && !word.equals("UNK") && !word.equals("STOP")) {
                 INDArray otherVec = lookupTable.vector(word);
                 double sim = Transforms.cosineSim(labelVector, otherVec);
@@ -584,36 +589,27 @@ public class ParagraphVectors extends Word2Vec {
     }
 
     /**
-     * Get top N elements
+     * This method returns NearestWordsEngine built over labels matrix
      *
-     * @param vec the vec to extract the top elements from
-     * @param N the number of elements to extract
-     * @return the indices and the sorted top N elements
+     * @return
      */
-    private List<Double> getTopN(INDArray vec, int N) {
-        BasicModelUtils.ArrayComparator comparator = new BasicModelUtils.ArrayComparator();
-        PriorityQueue<Double[]> queue = new PriorityQueue<>(vec.rows(), comparator);
-
-        for (int j = 0; j < vec.length(); j++) {
-            final Double[] pair = new Double[] {vec.getDouble(j), (double) j};
-            if (queue.size() < N) {
-                queue.add(pair);
-            } else {
-                Double[] head = queue.peek();
-                if (comparator.compare(pair, head) > 0) {
-                    queue.poll();
-                    queue.add(pair);
+    protected NearestWordsEngine getLabelsEngine() {
+        NearestWordsEngine engine = labelsEngine;
+        if (engine == null || engine.getMatrix() != labelsMatrix) {
+            synchronized (this) {
+                engine = labelsEngine;
+                if (engine == null || engine.getMatrix() != labelsMatrix) {
+                    // labels were extracted again, previous engine isn't needed anymore
+                    if (engine != null)
+                        engine.close();
+
+                    engine = new NearestWordsEngine(labelsMatrix);
+                    labelsEngine = engine;
                 }
             }
         }
 
-        List<Double> lowToHighSimLst = new ArrayList<>();
-
-        while (!queue.isEmpty()) {
-            double ind = queue.poll()[1];
-            lowToHighSimLst.add(ind);
-        }
-        return Lists.reverse(lowToHighSimLst);
+        return engine;
     }
 
     /**
@@ -0,0 +1,562 @@
+package org.deeplearning4j.models.paragraphvectors;
+
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.learning.impl.sequence.DBOW;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.aggregates.Aggregate;
+import org.nd4j.linalg.api.ops.aggregates.impl.AggregateCBOW;
+import org.nd4j.linalg.api.ops.aggregates.impl.AggregateSkipGram;
+import org.nd4j.linalg.api.rng.Random;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput-oriented inference of paragraph vectors for previously unseen documents.
+ *
+ * Unlike {@link ParagraphVectors#inferVectorBatched(List)}, documents aren't processed one by one: each worker takes
+ * up to batchLimit pending documents from the bounded request queue, stacks their vectors into a single matrix, and
+ * runs PV-DBOW or PV-DM updates of all documents together, as batches of aggregate ops against the frozen
+ * syn0/syn1/syn1Neg of the model. Each batch holds at most one op per document, so every document vector is still
+ * updated sequentially: initial vector, random stream and order of updates are the same as in
+ * {@link ParagraphVectors#inferVector(String)}, so are the results.
+ *
+ * PLEASE NOTE: model weights are never updated during inference, so single instance can be shared by any number of
+ * producer threads. Submission blocks while request queue is full.
+ */
+@Slf4j
+public class ParagraphVectorsInference {
+    public static final int DEFAULT_NUM_WORKERS = 2;
+    public static final int DEFAULT_BATCH_LIMIT = 256;
+    public static final int DEFAULT_QUEUE_LIMIT = 4096;
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final VocabCache<VocabWord> vocab;
+    private final InMemoryLookupTable<VocabWord> lookupTable;
+    private final TokenizerFactory tokenizerFactory;
+    private final INDArray expTable;
+    private final boolean dbow;
+    private final boolean useHierarchicSoftmax;
+    private final boolean trainElementsVectors;
+    private final int layerSize;
+    private final int window;
+    private final int negative;
+    private final double sampling;
+    private final long seed;
+
+    private final double learningRate;
+    private final double minLearningRate;
+    private final int iterations;
+    private final int batchLimit;
+
+    private final BlockingQueue<InferenceRequest> queue;
+    private final InferenceWorker[] workers;
+    private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+
+    private final AtomicLong documentsProcessed = new AtomicLong(0);
+    private final AtomicLong startTime = new AtomicLong(0);
+    private final AtomicLong lastReport = new AtomicLong(0);
+
+    protected ParagraphVectorsInference(@NonNull ParagraphVectors model, int numWorkers, int batchLimit,
+                    int queueLimit, double learningRate, double minLearningRate, int iterations) {
+        if (model.getVocab() == null || model.getVocab().numWords() == 0)
+            model.reassignExistingModel();
+
+        if (model.getVocab() == null || model.getVocab().numWords() == 0)
+            throw new IllegalStateException("ParagraphVectors model has no vocabulary");
+        if (!(model.getLookupTable() instanceof InMemoryLookupTable))
+            throw new IllegalArgumentException("Only InMemoryLookupTable is supported");
+        if (model.getTokenizerFactory() == null)
+            throw new IllegalStateException("TokenizerFactory should be defined, prior to inference");
+
+        VectorsConfiguration configuration = model.getConfiguration();
+        this.vocab = model.getVocab();
+        this.lookupTable = (InMemoryLookupTable<VocabWord>) model.getLookupTable();
+        this.tokenizerFactory = model.getTokenizerFactory();
+        this.dbow = DBOW.class.getCanonicalName().equals(configuration.getSequenceLearningAlgorithm());
+        this.useHierarchicSoftmax = configuration.isUseHierarchicSoftmax();
+        this.trainElementsVectors = configuration.isTrainElementsVectors();
+        this.layerSize = lookupTable.layerSize();
+        this.window = configuration.getWindow();
+        this.negative = (int) configuration.getNegative();
+        this.sampling = configuration.getSampling();
+        this.seed = configuration.getSeed();
+
+        if (negative > 0 && lookupTable.getSyn1Neg() == null)
+            lookupTable.initNegative();
+        this.expTable = Nd4j.create(lookupTable.getExpTable());
+
+        this.learningRate = learningRate;
+        this.minLearningRate = minLearningRate;
+        this.iterations = iterations;
+        this.batchLimit = batchLimit;
+        this.queue = new ArrayBlockingQueue<>(queueLimit);
+
+        this.workers = new InferenceWorker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new InferenceWorker(i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * This method submits document for inference, and returns immediately, unless request queue is full
+     *
+     * @param text document to infer vector for
+     * @return future with inferred vector, shape [1, layerSize]
+     */
+    public Future<INDArray> inferVectorAsync(@NonNull String text) {
+        checkShutdown();
+
+        SettableFuture<INDArray> future = SettableFuture.create();
+        InferenceRequest request = new InferenceRequest(text, future);
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        // workers could have drained the queue for the last time after the check above: nobody would take this request
+        if (isShutdown.get() && queue.remove(request))
+            future.setException(new IllegalStateException("ParagraphVectorsInference was shut down"));
+
+        return future;
+    }
+
+    /**
+     * This method infers vector for single document, and blocks until it's processed.
+     * Documents submitted concurrently are processed together with this one.
+     *
+     * @param text document to infer vector for
+     * @return inferred vector, shape [1, layerSize]
+     */
+    public INDArray inferVector(@NonNull String text) {
+        return get(inferVectorAsync(text));
+    }
+
+    /**
+     * This method infers vectors for given documents
+     *
+     * @param texts documents to infer vectors for
+     * @return inferred vectors, in the same order as input texts
+     */
+    public List<INDArray> inferVectors(@NonNull List<String> texts) {
+        List<Future<INDArray>> futures = new ArrayList<>(texts.size());
+        for (String text : texts)
+            futures.add(inferVectorAsync(text));
+
+        List<INDArray> results = new ArrayList<>(texts.size());
+        for (Future<INDArray> future : futures)
+            results.add(get(future));
+        return results;
+    }
+
+    /**
+     * @return number of documents processed so far
+     */
+    public long getDocumentsProcessed() {
+        return documentsProcessed.get();
+    }
+
+    /**
+     * @return average number of documents processed per second, since first document was processed
+     */
+    public double getDocumentsPerSecond() {
+        long start = startTime.get();
+        if (start == 0)
+            return 0.0;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return seconds > 0 ? documentsProcessed.get() / seconds : 0.0;
+    }
+
+    /**
+     * This method stops all workers. Pending documents are failed
+     */
+    public void shutdown() {
+        if (!isShutdown.compareAndSet(false, true))
+            return;
+
+        for (InferenceWorker worker : workers)
+            worker.shutdown();
+
+        log.info("Documents processed: [{}]; Documents/sec: [{}];", documentsProcessed.get(),
+                        String.format("%.2f", getDocumentsPerSecond()));
+    }
+
+    private void checkShutdown() {
+        if (isShutdown.get())
+            throw new IllegalStateException("ParagraphVectorsInference was shut down");
+    }
+
+    private static INDArray get(Future<INDArray> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void reportProgress(int processed) {
+        long now = System.nanoTime();
+        startTime.compareAndSet(0, now);
+        long total = documentsProcessed.addAndGet(processed);
+
+        long last = lastReport.get();
+        if (last == 0) {
+            lastReport.compareAndSet(0, now);
+        } else if (now - last > REPORT_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+            log.info("Documents processed: [{}]; Documents/sec: [{}];", total,
+                            String.format("%.2f", getDocumentsPerSecond()));
+        }
+    }
+
+    /**
+     * Huffman codes and points of the element, in form accepted by aggregate ops
+     */
+    private int[][] huffman(VocabWord word, Map<Integer, int[][]> cache) {
+        if (!useHierarchicSoftmax)
+            return new int[][] {new int[0], new int[0]};
+
+        int[][] result = cache.get(word.getIndex());
+        if (result == null) {
+            int[] points = new int[word.getCodeLength()];
+            int[] codes = new int[word.getCodeLength()];
+            for (int i = 0; i < word.getCodeLength(); i++) {
+                // same checks as SkipGram and CBOW do
+                int point = word.getPoints().get(i);
+                if (point < 0 || (dbow && point >= vocab.numWords()))
+                    continue;
+
+                codes[i] = word.getCodes().get(i);
+                points[i] = point;
+            }
+            result = new int[][] {points, codes};
+            cache.put(word.getIndex(), result);
+        }
+        return result;
+    }
+
+    private static long nextRandom(long value) {
+        return Math.abs(value * 25214903917L + 11);
+    }
+
+    private void flush(List<Aggregate> aggregates) {
+        if (!aggregates.isEmpty()) {
+            Nd4j.getExecutioner().exec(aggregates);
+            aggregates.clear();
+        }
+    }
+
+    /**
+     * This method infers vectors for all given requests jointly
+     */
+    protected void execute(List<InferenceRequest> batch) {
+        List<InferenceRequest> requests = new ArrayList<>(batch.size());
+        List<VocabWord[]> documents = new ArrayList<>(batch.size());
+        int maxLength = 0;
+        for (InferenceRequest request : batch) {
+            List<String> tokens = tokenizerFactory.create(request.text).getTokens();
+            List<VocabWord> document = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                VocabWord word = vocab.wordFor(token);
+                if (word != null)
+                    document.add(word);
+            }
+
+            if (document.isEmpty()) {
+                request.future.setException(new ND4JIllegalStateException(
+                                "Text passed for inference has no matches in model vocabulary."));
+                continue;
+            }
+
+            requests.add(request);
+            documents.add(document.toArray(new VocabWord[document.size()]));
+            maxLength = Math.max(maxLength, document.size());
+        }
+
+        int n = requests.size();
+        if (n == 0)
+            return;
+
+        // initial vectors and random streams are the same as ParagraphVectors.inferVector() uses for each document
+        INDArray vectors = Nd4j.create(n, layerSize);
+        INDArray[] rows = new INDArray[n];
+        long[] nextRandom = new long[n];
+        for (int i = 0; i < n; i++) {
+            Sequence<VocabWord> sequence = new Sequence<>(Arrays.asList(documents.get(i)));
+            Random random = Nd4j.getRandomFactory().getNewRandomInstance(seed * sequence.hashCode(), layerSize + 1);
+            rows[i] = vectors.getRow(i);
+            rows[i].assign(Nd4j.rand(new int[] {1, layerSize}, random).subi(0.5).divi(layerSize));
+            nextRandom[i] = seed;
+        }
+
+        int numWords = vocab.numWords();
+        double totalWords = vocab.totalWordOccurrences();
+        Map<Integer, int[][]> huffmanCache = new HashMap<>();
+        List<Aggregate> aggregates = new ArrayList<>(n);
+        double alpha = learningRate;
+
+        for (int iter = 0; iter < iterations; iter++) {
+            VocabWord[][] sampled = new VocabWord[n][];
+            for (int d = 0; d < n; d++) {
+                if (dbow) {
+                    nextRandom[d] = nextRandom(nextRandom[d]);
+                    sampled[d] = subsample(documents.get(d), nextRandom, d, totalWords);
+                } else {
+                    sampled[d] = documents.get(d);
+                }
+            }
+
+            // one op per document in each batch: ops executed in parallel never update the same vector
+            for (int position = 0; position < maxLength; position++) {
+                for (int d = 0; d < n; d++) {
+                    VocabWord[] document = sampled[d];
+                    if (position >= document.length)
+                        continue;
+
+                    VocabWord word = document[position];
+                    if (dbow) {
+                        if (word.getLabel().equals("STOP") || word.getLabel().equals("UNK"))
+                            continue;
+
+                        int[][] huffman = huffman(word, huffmanCache);
+                        aggregates.add(new AggregateSkipGram(lookupTable.getSyn0(), lookupTable.getSyn1(),
+                                        lookupTable.getSyn1Neg(), expTable, lookupTable.getTable(), -1, huffman[0],
+                                        huffman[1], negative, word.getIndex(), layerSize, alpha, nextRandom[d],
+                                        numWords, rows[d]));
+                    } else {
+                        nextRandom[d] = nextRandom(nextRandom[d]);
+                        int[] windowWords = window(document, position, window > 0 ? (int) nextRandom[d] % window : 0);
+
+                        int[][] huffman = huffman(word, huffmanCache);
+                        aggregates.add(new AggregateCBOW(lookupTable.getSyn0(), lookupTable.getSyn1(),
+                                        lookupTable.getSyn1Neg(), expTable, lookupTable.getTable(), word.getIndex(),
+                                        windowWords, huffman[0], huffman[1], negative, word.getIndex(), layerSize,
+                                        alpha, nextRandom[d], numWords, 0, trainElementsVectors, rows[d]));
+                    }
+                    nextRandom[d] = nextRandom(nextRandom[d]);
+                }
+                flush(aggregates);
+            }
+
+            alpha = ((alpha - minLearningRate) / (iterations - iter)) + minLearningRate;
+        }
+
+        // counters are updated first, so they already include these documents once futures complete
+        reportProgress(n);
+
+        for (int i = 0; i < n; i++)
+            requests.get(i).future.set(rows[i].dup());
+    }
+
+    /**
+     * Indexes of context words around given position, as used by PV-DM
+     */
+    private int[] window(VocabWord[] document, int position, int b) {
+        int end = window * 2 + 1 - b;
+        int[] context = new int[end - b];
+        int cnt = 0;
+        for (int a = b; a < end; a++) {
+            if (a != window) {
+                int c = position - window + a;
+                if (c >= 0 && c < document.length)
+                    context[cnt++] = document[c].getIndex();
+            }
+        }
+        return Arrays.copyOf(context, cnt);
+    }
+
+    /**
+     * Frequent words subsampling, as used by SkipGram
+     */
+    private VocabWord[] subsample(VocabWord[] document, long[] nextRandom, int d, double totalWords) {
+        if (sampling <= 0)
+            return document;
+
+        List<VocabWord> result = new ArrayList<>(document.length);
+        for (VocabWord word : document) {
+            double ran = (Math.sqrt(word.getElementFrequency() / (sampling * totalWords)) + 1)
+                            * (sampling * totalWords) / word.getElementFrequency();
+
+            nextRandom[d] = nextRandom(nextRandom[d]);
+            if (ran < (nextRandom[d] & 0xFFFF) / (double) 65536)
+                continue;
+            result.add(word);
+        }
+        return result.toArray(new VocabWord[result.size()]);
+    }
+
+    protected static class InferenceRequest {
+        protected final String text;
+        protected final SettableFuture<INDArray> future;
+
+        protected InferenceRequest(String text, SettableFuture<INDArray> future) {
+            this.text = text;
+            this.future = future;
+        }
+    }
+
+    protected class InferenceWorker extends Thread {
+        private volatile boolean running = true;
+
+        protected InferenceWorker(int workerId) {
+            setName("ParagraphVectorsInference worker " + workerId);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<InferenceRequest> pending = new ArrayList<>(batchLimit);
+            while (running) {
+                try {
+                    InferenceRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null)
+                        continue;
+
+                    pending.add(first);
+                    queue.drainTo(pending, batchLimit - 1);
+                    execute(pending);
+                    pending.clear();
+                } catch (InterruptedException e) {
+                    // shutdown
+                    break;
+                } catch (Throwable t) {
+                    log.error("ParagraphVectorsInference worker failed", t);
+                    fail(pending, t);
+                    pending.clear();
+                }
+            }
+
+            fail(pending, new IllegalStateException("ParagraphVectorsInference was shut down"));
+            List<InferenceRequest> left = new ArrayList<>();
+            queue.drainTo(left);
+            fail(left, new IllegalStateException("ParagraphVectorsInference was shut down"));
+        }
+
+        protected void shutdown() {
+            running = false;
+            interrupt();
+        }
+
+        private void fail(List<InferenceRequest> requests, Throwable t) {
+            for (InferenceRequest request : requests)
+                request.future.setException(t);
+        }
+    }
+
+    public static class Builder {
+        private final ParagraphVectors model;
+        private int workers = DEFAULT_NUM_WORKERS;
+        private int batchLimit = DEFAULT_BATCH_LIMIT;
+        private int queueLimit = DEFAULT_QUEUE_LIMIT;
+        private double learningRate;
+        private double minLearningRate;
+        private int iterations;
+
+        public Builder(@NonNull ParagraphVectors model) {
+            this.model = model;
+            VectorsConfiguration configuration = model.getConfiguration();
+            this.learningRate = configuration.getLearningRate();
+            this.minLearningRate = configuration.getMinLearningRate();
+            this.iterations = configuration.getEpochs() * configuration.getIterations();
+        }
+
+        /**
+         * This method defines number of worker threads. Each worker processes its own batch of documents.
+         *
+         * @param workers
+         * @return
+         */
+        public Builder workers(int workers) {
+            if (workers < 1)
+                throw new IllegalArgumentException("Number of workers should be positive, got " + workers);
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * This method defines max number of documents processed jointly by single worker
+         *
+         * @param limit
+         * @return
+         */
+        public Builder batchLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalArgumentException("Batch limit should be positive, got " + limit);
+            this.batchLimit = limit;
+            return this;
+        }
+
+        /**
+         * This method defines max number of documents waiting for processing. Submission blocks when it's reached.
+         *
+         * @param limit
+         * @return
+         */
+        public Builder queueLimit(int limit) {
+            if (limit < 1)
+                throw new IllegalArgumentException("Queue limit should be positive, got " + limit);
+            this.queueLimit = limit;
+            return this;
+        }
+
+        /**
+         * This method defines initial learning rate for inference. Default value is taken from model configuration.
+         *
+         * @param learningRate
+         * @return
+         */
+        public Builder learningRate(double learningRate) {
+            this.learningRate = learningRate;
+            return this;
+        }
+
+        /**
+         * This method defines final learning rate for inference. Default value is taken from model configuration.
+         *
+         * @param minLearningRate
+         * @return
+         */
+        public Builder minLearningRate(double minLearningRate) {
+            this.minLearningRate = minLearningRate;
+            return this;
+        }
+
+        /**
+         * This method defines number of passes over each document. Default value is epochs * iterations of the model.
+         *
+         * @param iterations
+         * @return
+         */
+        public Builder iterations(int iterations) {
+            if (iterations < 1)
+                throw new IllegalArgumentException("Number of iterations should be positive, got " + iterations);
+            this.iterations = iterations;
+            return this;
+        }
+
+        public ParagraphVectorsInference build() {
+            return new ParagraphVectorsInference(model, workers, batchLimit, queueLimit, learningRate,
+                            minLearningRate, iterations);
+        }
+    }
+}
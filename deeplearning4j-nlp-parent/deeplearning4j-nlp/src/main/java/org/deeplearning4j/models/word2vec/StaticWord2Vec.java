@@ -20,6 +20,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * This is special limited Word2Vec implementation, suited for serving as lookup table in concurrent multi-gpu environment
  * This implementation DOES NOT load all vectors onto any of gpus, instead of that it holds vectors in, optionally, compressed state in host memory.
  * This implementation DOES NOT provide some of original Word2Vec methods, such as wordsNearest or wordsNearestSum.
+ * Vectors can also be memory-mapped from file, see {@link org.deeplearning4j.models.embeddings.loader.MappedWordVectorStorage}.
  *
  * @author raver119@gmail.com
  */
@@ -0,0 +1,294 @@
+package org.deeplearning4j.models.word2vec.wordstore;
+
+import lombok.NonNull;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+
+import java.util.Arrays;
+
+/**
+ * Hash-partitioned element counter, used by {@link VocabConstructor} to count word frequencies from multiple threads.
+ *
+ * Labels are split into independent shards by hash, each shard guarded by its own monitor (lock striping), so threads
+ * counting different words rarely contend. Within a shard, counts are kept in primitive arrays of an open-addressing
+ * table, and only one SequenceElement instance is kept per distinct label.
+ *
+ * Optionally, number of entries kept in memory can be bounded: when a shard overflows, least frequent entries are
+ * pruned (lossy counting). Each entry keeps the max number of occurrences it could have lost before it was (re)inserted,
+ * and entries are pruned by their count plus that error, so occurrences lost by a word that was pruned, seen again and
+ * pruned again are accounted for. Frequency of any element that survives can then be underestimated by at most
+ * {@link #getPruningErrorBound()} occurrences, so elements with frequency of at least minWordFrequency + bound are
+ * never lost.
+ */
+public class ShardedVocabCounter<T extends SequenceElement> {
+    private final Shard<T>[] shards;
+    private final int shardBits;
+
+    /**
+     * @param numShards  number of shards, rounded up to a power of 2
+     * @param maxEntries max number of distinct entries to keep in memory, or 0 for no limit
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedVocabCounter(int numShards, long maxEntries) {
+        if (numShards < 1)
+            throw new IllegalArgumentException("Number of shards should be positive, got " + numShards);
+        if (maxEntries < 0)
+            throw new IllegalArgumentException("Max number of entries should be non-negative, got " + maxEntries);
+
+        this.shardBits = 32 - Integer.numberOfLeadingZeros(numShards - 1);
+        int n = 1 << shardBits;
+        int maxPerShard = maxEntries == 0 ? 0 : (int) Math.max(16, Math.min(1 << 29, maxEntries / n));
+        this.shards = new Shard[n];
+        for (int i = 0; i < n; i++)
+            shards[i] = new Shard<>(maxPerShard);
+    }
+
+    private static int hash(String label) {
+        int h = label.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Shard<T> shardFor(int hash) {
+        return shardBits == 0 ? shards[0] : shards[hash >>> (32 - shardBits)];
+    }
+
+    /**
+     * Adds count occurrences of the label, that appeared in a single sequence
+     *
+     * @param label    element label
+     * @param count    number of occurrences in the sequence
+     * @param sequence sequence the label comes from, used to fetch SequenceElement if label wasn't seen before
+     */
+    public void increment(@NonNull String label, long count, @NonNull Sequence<T> sequence) {
+        int hash = hash(label);
+        Shard<T> shard = shardFor(hash);
+        synchronized (shard) {
+            shard.increment(label, hash, count, sequence);
+        }
+    }
+
+    /**
+     * Adds sequence label as special element, if it's not known yet
+     */
+    public void addLabel(@NonNull T label) {
+        int hash = hash(label.getLabel());
+        Shard<T> shard = shardFor(hash);
+        synchronized (shard) {
+            shard.addLabel(label, hash);
+        }
+    }
+
+    /**
+     * @return max number of occurrences that could be missing from frequency of any element due to pruning
+     */
+    public long getPruningErrorBound() {
+        long bound = 0;
+        for (Shard<T> shard : shards) {
+            synchronized (shard) {
+                bound = Math.max(bound, shard.pruneBound);
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * @return number of distinct elements counted
+     */
+    public long size() {
+        long size = 0;
+        for (Shard<T> shard : shards) {
+            synchronized (shard) {
+                size += shard.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Transfers counted elements with final frequencies into the given cache. Should be called after all counting
+     * threads are finished.
+     *
+     * @param cache            target cache
+     * @param minWordFrequency elements with lower frequency are skipped, unless they are labels or special elements
+     */
+    public void transferTo(@NonNull AbstractCache<T> cache, int minWordFrequency) {
+        for (Shard<T> shard : shards) {
+            synchronized (shard) {
+                for (int i = 0; i < shard.keys.length; i++) {
+                    if (shard.keys[i] == null)
+                        continue;
+
+                    @SuppressWarnings("unchecked")
+                    T element = (T) shard.elements[i];
+                    if (minWordFrequency > 0 && shard.counts[i] < minWordFrequency && !element.isSpecial()
+                                    && !element.isLabel())
+                        continue;
+
+                    element.setElementFrequency(shard.counts[i]);
+                    if (shard.docs[i] > 0)
+                        element.setSequencesCount(shard.docs[i]);
+                    cache.addToken(element);
+                }
+            }
+        }
+    }
+
+    private static class Shard<T extends SequenceElement> {
+        private final int maxEntries;
+        private String[] keys;
+        private int[] hashes;
+        private long[] counts;
+        private long[] docs;
+        // max number of occurrences missing from counts, due to earlier pruning of the same label
+        private long[] errors;
+        private Object[] elements;
+        private int mask;
+        private int size;
+        private long pruneBound;
+
+        private Shard(int maxEntries) {
+            this.maxEntries = maxEntries;
+            allocate(64);
+        }
+
+        private void allocate(int capacity) {
+            keys = new String[capacity];
+            hashes = new int[capacity];
+            counts = new long[capacity];
+            docs = new long[capacity];
+            errors = new long[capacity];
+            elements = new Object[capacity];
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        private int find(String label, int hash) {
+            int pos = hash & mask;
+            while (keys[pos] != null) {
+                if (hashes[pos] == hash && keys[pos].equals(label))
+                    return pos;
+                pos = (pos + 1) & mask;
+            }
+            return -(pos + 1);
+        }
+
+        private void increment(String label, int hash, long count, Sequence<T> sequence) {
+            int pos = find(label, hash);
+            if (pos >= 0) {
+                counts[pos] += count;
+                docs[pos]++;
+                return;
+            }
+
+            T element = sequence.getElementByLabel(label);
+            if (element == null)
+                throw new IllegalStateException("Sequence has no element for label [" + label + "]");
+            insert(-pos - 1, label, hash, count, 1, element);
+        }
+
+        private void addLabel(T label, int hash) {
+            int pos = find(label.getLabel(), hash);
+            if (pos >= 0)
+                return;
+
+            label.setSpecial(true);
+            label.markAsLabel(true);
+            insert(-pos - 1, label.getLabel(), hash, 1, 0, label);
+        }
+
+        private void insert(int pos, String label, int hash, long count, long docCount, T element) {
+            keys[pos] = label;
+            hashes[pos] = hash;
+            counts[pos] = count;
+            docs[pos] = docCount;
+            // any earlier occurrences of this label were pruned with threshold of at most pruneBound
+            errors[pos] = pruneBound;
+            elements[pos] = element;
+            size++;
+
+            if (maxEntries > 0 && size > maxEntries)
+                prune();
+            else if (size * 2 > keys.length)
+                rehash(keys.length * 2);
+        }
+
+        private void rehash(int capacity) {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            long[] oldCounts = counts;
+            long[] oldDocs = docs;
+            long[] oldErrors = errors;
+            Object[] oldElements = elements;
+
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null)
+                    continue;
+                int pos = oldHashes[i] & mask;
+                while (keys[pos] != null)
+                    pos = (pos + 1) & mask;
+                keys[pos] = oldKeys[i];
+                hashes[pos] = oldHashes[i];
+                counts[pos] = oldCounts[i];
+                docs[pos] = oldDocs[i];
+                errors[pos] = oldErrors[i];
+                elements[pos] = oldElements[i];
+                size++;
+            }
+        }
+
+        /**
+         * Removes least frequent entries, until shard is at most 3/4 full. Entries are compared by count plus error,
+         * i.e. the max frequency they could have, so pruned entries never had more than pruneBound occurrences.
+         * Threshold is the lowest one that frees enough entries, so pruneBound grows as slowly as possible
+         */
+        private void prune() {
+            int excess = size - maxEntries / 4 * 3;
+            long[] upperBounds = new long[size];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == null)
+                    continue;
+                SequenceElement element = (SequenceElement) elements[i];
+                if (!element.isSpecial() && !element.isLabel())
+                    upperBounds[n++] = counts[i] + errors[i];
+            }
+
+            // nothing to prune if only labels and special elements are present
+            if (n > 0) {
+                Arrays.sort(upperBounds, 0, n);
+                long threshold = upperBounds[Math.min(excess, n) - 1];
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == null)
+                        continue;
+                    SequenceElement element = (SequenceElement) elements[i];
+                    if (!element.isSpecial() && !element.isLabel() && counts[i] + errors[i] <= threshold) {
+                        keys[i] = null;
+                        elements[i] = null;
+                        size--;
+                    }
+                }
+                pruneBound = Math.max(pruneBound, threshold);
+            }
+
+            // removal breaks probe chains, so we rebuild the table
+            int capacity = keys.length;
+            while (capacity / 4 > size && capacity > 64)
+                capacity /= 2;
+            while (size * 2 > capacity)
+                capacity *= 2;
+            rehash(capacity);
+        }
+
+        @Override
+        public String toString() {
+            return "Shard(size=" + size + ", capacity=" + keys.length + ", pruneBound=" + pruneBound + ")";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedVocabCounter(shards=" + Arrays.toString(shards) + ")";
+    }
+}
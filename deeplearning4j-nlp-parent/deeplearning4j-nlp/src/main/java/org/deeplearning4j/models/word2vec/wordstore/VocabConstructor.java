@@ -16,6 +16,7 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
 /**
@@ -40,6 +41,8 @@ public class VocabConstructor<T extends SequenceElement> {
     private boolean enableScavenger = false;
     private T unk;
     private boolean allowParallelBuilder = true;
+    private boolean shardedCounting = false;
+    private long maxEntriesInMemory = 0;
 
     protected static final Logger log = LoggerFactory.getLogger(VocabConstructor.class);
 
@@ -205,7 +208,11 @@ public class VocabConstructor<T extends SequenceElement> {
             List<Long> timesNext = new ArrayList<>();
             int sequences = 0;
             long time3 = 0;
-            while (iterator.hasMoreSequences()) {
+            if (shardedCounting)
+                countSharded(iterator, tempHolder, source.getMinWordFrequency(), parsedCount);
+
+            // runnable-based counting, used unless sharded counting is enabled
+            while (!shardedCounting && iterator.hasMoreSequences()) {
                 Sequence<T> document = iterator.nextSequence();
 
                 seqCount.incrementAndGet();
@@ -312,12 +319,14 @@ public class VocabConstructor<T extends SequenceElement> {
 
 
 
-        System.gc();
-        System.gc();
-        try {
-            Thread.sleep(1000);
-        } catch (Exception e) {
-            //
+        if (!shardedCounting) {
+            System.gc();
+            System.gc();
+            try {
+                Thread.sleep(1000);
+            } catch (Exception e) {
+                //
+            }
         }
 
         cache.importVocabulary(topHolder);
@@ -357,12 +366,14 @@ public class VocabConstructor<T extends SequenceElement> {
 
         executorService.shutdown();
 
-        System.gc();
-        System.gc();
-        try {
-            Thread.sleep(1000);
-        } catch (Exception e) {
-            //
+        if (!shardedCounting) {
+            System.gc();
+            System.gc();
+            try {
+                Thread.sleep(1000);
+            } catch (Exception e) {
+                //
+            }
         }
         long endSequences = seqCount.get();
         long endTime = System.currentTimeMillis();
@@ -373,6 +384,108 @@ public class VocabConstructor<T extends SequenceElement> {
         return cache;
     }
 
+    /**
+     * Counts elements of the given source with ShardedVocabCounter: sequences are handed over to counting threads
+     * through bounded queue, and each thread updates shared hash-partitioned counters. Elements with frequency
+     * below minWordFrequency are not transferred to tempHolder.
+     */
+    protected void countSharded(@NonNull SequenceIterator<T> iterator, @NonNull AbstractCache<T> tempHolder,
+                    int minWordFrequency, @NonNull AtomicLong parsedCount) {
+        int numProc = Runtime.getRuntime().availableProcessors();
+        ShardedVocabCounter<T> counter = new ShardedVocabCounter<>(Math.max(16, numProc * 4), maxEntriesInMemory);
+
+        int numThreads = allowParallelBuilder ? Math.max(numProc - 1, 1) : 0;
+        BlockingQueue<Sequence<T>> queue = new ArrayBlockingQueue<>(Math.max(numThreads, 1) * 128);
+        Sequence<T> poison = new Sequence<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<CountingThread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            CountingThread thread = new CountingThread(i, counter, queue, poison, error);
+            thread.start();
+            threads.add(thread);
+        }
+
+        long lastTime = System.currentTimeMillis();
+        long lastElements = parsedCount.get();
+        try {
+            while (iterator.hasMoreSequences()) {
+                Sequence<T> document = iterator.nextSequence();
+
+                seqCount.incrementAndGet();
+                parsedCount.addAndGet(document.size());
+                tempHolder.incrementTotalDocCount();
+
+                if (numThreads == 0)
+                    countSequence(counter, document);
+                else
+                    queue.put(document);
+
+                if (seqCount.get() % 100000 == 0) {
+                    long currentTime = System.currentTimeMillis();
+                    double seconds = Math.max(currentTime - lastTime, 1) / (double) 1000;
+                    log.info("Sequences checked: [{}]; Current vocabulary size: [{}]; Words/sec: {};", seqCount.get(),
+                                    counter.size(), String.format("%.2f",
+                                                    (parsedCount.get() - lastElements) / seconds));
+                    lastTime = currentTime;
+                    lastElements = parsedCount.get();
+                }
+            }
+
+            for (int i = 0; i < numThreads; i++)
+                queue.put(poison);
+            for (CountingThread thread : threads)
+                thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        if (error.get() != null)
+            throw new RuntimeException("Vocabulary counting failed", error.get());
+
+        if (counter.getPruningErrorBound() > 0)
+            log.info("Vocabulary was pruned during counting: frequencies can be underestimated by up to [{}]",
+                            counter.getPruningErrorBound());
+
+        counter.transferTo(tempHolder, minWordFrequency);
+    }
+
+    protected void countSequence(ShardedVocabCounter<T> counter, Sequence<T> document) {
+        if (fetchLabels && document.getSequenceLabels() != null) {
+            for (T labelWord : document.getSequenceLabels())
+                counter.addLabel(labelWord);
+        }
+
+        // sorting makes equal tokens adjacent, so we can count them per sequence without temporary map
+        List<String> tokens = document.asLabels();
+        String[] words = new String[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            if (token == null || token.isEmpty())
+                continue;
+            if (stopWords != null && stopWords.contains(token))
+                continue;
+            words[n++] = token;
+        }
+        Arrays.sort(words, 0, n);
+
+        for (int i = 0; i < n;) {
+            int j = i + 1;
+            while (j < n && words[j].equals(words[i]))
+                j++;
+            counter.increment(words[i], j - i, document);
+            i = j;
+        }
+
+        if (index != null) {
+            if (document.getSequenceLabel() != null) {
+                index.addWordsToDoc(index.numDocuments(), document.getElements(), document.getSequenceLabel());
+            } else {
+                index.addWordsToDoc(index.numDocuments(), document.getElements());
+            }
+        }
+    }
+
     protected void filterVocab(AbstractCache<T> cache, int minWordFrequency) {
         int numWords = cache.numWords();
         LinkedBlockingQueue<String> labelsToRemove = new LinkedBlockingQueue<>();
@@ -399,6 +512,8 @@ public class VocabConstructor<T extends SequenceElement> {
         private boolean enableScavenger = false;
         private T unk;
         private boolean allowParallelBuilder = true;
+        private boolean shardedCounting = false;
+        private long maxEntriesInMemory = 0;
 
         public Builder() {
 
@@ -496,6 +611,35 @@ public class VocabConstructor<T extends SequenceElement> {
             return this;
         }
 
+        /**
+         * If set to true, elements are counted with lock-striped hash-partitioned counters with primitive storage,
+         * fed to counting threads through bounded queue, instead of per-sequence runnables.
+         *
+         * Default value: false
+         *
+         * @param reallyEnable
+         * @return
+         */
+        public Builder<T> enableShardedCounting(boolean reallyEnable) {
+            this.shardedCounting = reallyEnable;
+            return this;
+        }
+
+        /**
+         * This method sets approximate max number of distinct elements kept in memory during sharded counting.
+         * When this limit is hit, least frequent elements are pruned, and frequencies of the remaining elements can be
+         * underestimated by the max pruned count (which is logged).
+         *
+         * PLEASE NOTE: This method is applicable only if sharded counting is enabled. Default value: 0, no limit
+         *
+         * @param maxEntries
+         * @return
+         */
+        public Builder<T> setMaxEntriesInMemory(long maxEntries) {
+            this.maxEntriesInMemory = maxEntries;
+            return this;
+        }
+
         public Builder<T> enableScavenger(boolean reallyEnable) {
             this.enableScavenger = reallyEnable;
             return this;
@@ -518,6 +662,8 @@ public class VocabConstructor<T extends SequenceElement> {
             constructor.enableScavenger = this.enableScavenger;
             constructor.unk = this.unk;
             constructor.allowParallelBuilder = this.allowParallelBuilder;
+            constructor.shardedCounting = this.shardedCounting;
+            constructor.maxEntriesInMemory = this.maxEntriesInMemory;
 
             return constructor;
         }
@@ -532,6 +678,48 @@ public class VocabConstructor<T extends SequenceElement> {
     }
 
 
+    protected class CountingThread extends Thread {
+        private final ShardedVocabCounter<T> counter;
+        private final BlockingQueue<Sequence<T>> queue;
+        private final Sequence<T> poison;
+        private final AtomicReference<Throwable> error;
+
+        public CountingThread(int threadId, @NonNull ShardedVocabCounter<T> counter,
+                        @NonNull BlockingQueue<Sequence<T>> queue, @NonNull Sequence<T> poison,
+                        @NonNull AtomicReference<Throwable> error) {
+            this.counter = counter;
+            this.queue = queue;
+            this.poison = poison;
+            this.error = error;
+
+            this.setName("VocabConstructor counting thread " + threadId);
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Sequence<T> document = queue.take();
+                    if (document == poison)
+                        break;
+
+                    // after failure we still drain the queue, so producer never blocks
+                    if (error.get() != null)
+                        continue;
+
+                    try {
+                        countSequence(counter, document);
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     protected class VocabRunnable implements Runnable {
         private final AtomicLong finalCounter;
         private final Sequence<T> document;
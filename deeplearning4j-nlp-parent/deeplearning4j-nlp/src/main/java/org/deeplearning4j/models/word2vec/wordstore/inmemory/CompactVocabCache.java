@@ -0,0 +1,613 @@
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import lombok.NonNull;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Read-only VocabCache implementation with struct-of-arrays storage.
+ *
+ * Elements are stored in order of their Huffman index, so position in every array is the element index. Labels are
+ * packed into a single char table, and lookups by label or storage id go through open-addressing int tables, so there's
+ * no per-word object, map entry or boxed key kept in memory. VocabWord instances are created on demand, and are
+ * detached copies: changes made to them are not reflected in this vocabulary. Use primitive accessors like
+ * {@link #getCode(int, int)} and {@link #getPoint(int, int)} to avoid creating them.
+ *
+ * All mutators throw UnsupportedOperationException, so this class can't back vocabulary construction, Huffman tree
+ * building or training: build vocabulary with {@link AbstractCache} (or any other VocabCache), then convert it with
+ * {@link #fromVocabCache(VocabCache)} for lookups. Binary format of {@link #write(OutputStream)} is standalone, and is
+ * not used by WordVectorSerializer model save/load methods.
+ */
+public class CompactVocabCache implements VocabCache<VocabWord> {
+    private static final long serialVersionUID = 4853409876522157013L;
+
+    private static final int MAGIC = 0x44345643;
+    private static final int VERSION = 1;
+    private static final int MAX_CODE_LENGTH = 64;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte FLAG_SPECIAL = 1;
+    private static final byte FLAG_LABEL = 2;
+
+    private final int size;
+
+    // labels, packed one after another
+    private final char[] labelChars;
+    private final int[] labelOffsets;
+    private final int[] labelHashes;
+
+    private final long[] storageIds;
+    private final double[] frequencies;
+    private final long[] sequenceCounts;
+    private final byte[] flags;
+
+    // Huffman codes are kept as bit masks, points are packed one after another
+    private final byte[] codeLengths;
+    private final long[] codes;
+    private final int[] points;
+    private final int[] pointOffsets;
+
+    // open-addressing tables, holding index + 1, or 0 for empty slot
+    private final int[] labelTable;
+    private final int[] idTable;
+    private final int mask;
+
+    private long totalWordCount;
+    private long documentsCounter;
+
+    private CompactVocabCache(int size, char[] labelChars, int[] labelOffsets, long[] storageIds, double[] frequencies,
+                    long[] sequenceCounts, byte[] flags, byte[] codeLengths, long[] codes, int[] points) {
+        this.size = size;
+        this.labelChars = labelChars;
+        this.labelOffsets = labelOffsets;
+        this.storageIds = storageIds;
+        this.frequencies = frequencies;
+        this.sequenceCounts = sequenceCounts;
+        this.flags = flags;
+        this.codeLengths = codeLengths;
+        this.codes = codes;
+        this.points = points;
+
+        this.pointOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++)
+            pointOffsets[i + 1] = pointOffsets[i] + codeLengths[i];
+        if (pointOffsets[size] != points.length)
+            throw new IllegalArgumentException("Expected " + pointOffsets[size] + " Huffman points, got " + points.length);
+
+        int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.labelHashes = new int[size];
+        this.labelTable = new int[capacity];
+        this.idTable = new int[capacity];
+
+        for (int i = 0; i < size; i++) {
+            labelHashes[i] = labelHash(i);
+            int pos = mix(labelHashes[i]) & mask;
+            while (labelTable[pos] != 0) {
+                if (labelHashes[labelTable[pos] - 1] == labelHashes[i] && sameLabel(labelTable[pos] - 1, i))
+                    throw new IllegalArgumentException("Duplicate label in vocabulary: [" + labelAt(i) + "]");
+                pos = (pos + 1) & mask;
+            }
+            labelTable[pos] = i + 1;
+
+            pos = mix(storageIds[i]) & mask;
+            while (idTable[pos] != 0)
+                pos = (pos + 1) & mask;
+            idTable[pos] = i + 1;
+        }
+    }
+
+    /**
+     * Creates compact copy of the given vocabulary. Elements are ordered by their Huffman index; elements that don't
+     * have valid unique index yet are appended after indexed ones, and get their position as index.
+     *
+     * @param vocabCache source vocabulary
+     * @return compact vocabulary
+     */
+    public static CompactVocabCache fromVocabCache(@NonNull VocabCache<? extends SequenceElement> vocabCache) {
+        int numWords = vocabCache.numWords();
+        List<SequenceElement> ordered = new ArrayList<>(numWords);
+        SequenceElement[] indexed = new SequenceElement[numWords];
+        List<SequenceElement> unindexed = new ArrayList<>();
+        for (SequenceElement element : vocabCache.vocabWords()) {
+            int index = element.getIndex();
+            if (index >= 0 && index < numWords && indexed[index] == null)
+                indexed[index] = element;
+            else
+                unindexed.add(element);
+        }
+        for (SequenceElement element : indexed)
+            if (element != null)
+                ordered.add(element);
+        ordered.addAll(unindexed);
+
+        int size = ordered.size();
+        int totalChars = 0;
+        int totalPoints = 0;
+        for (SequenceElement element : ordered) {
+            if (element.getCodeLength() > MAX_CODE_LENGTH)
+                throw new IllegalArgumentException("Huffman code length above " + MAX_CODE_LENGTH
+                                + " isn't supported, got " + element.getCodeLength());
+            totalChars = checkedAdd(totalChars, element.getLabel().length());
+            totalPoints = checkedAdd(totalPoints, element.getCodeLength());
+        }
+
+        char[] labelChars = new char[totalChars];
+        int[] labelOffsets = new int[size + 1];
+        long[] storageIds = new long[size];
+        double[] frequencies = new double[size];
+        long[] sequenceCounts = new long[size];
+        byte[] flags = new byte[size];
+        byte[] codeLengths = new byte[size];
+        long[] codes = new long[size];
+        int[] points = new int[totalPoints];
+
+        int pointPosition = 0;
+        for (int i = 0; i < size; i++) {
+            SequenceElement element = ordered.get(i);
+            String label = element.getLabel();
+            label.getChars(0, label.length(), labelChars, labelOffsets[i]);
+            labelOffsets[i + 1] = labelOffsets[i] + label.length();
+
+            storageIds[i] = element.getStorageId();
+            frequencies[i] = element.getElementFrequency();
+            sequenceCounts[i] = element.getSequencesCount();
+            flags[i] = (byte) ((element.isSpecial() ? FLAG_SPECIAL : 0) | (element.isLabel() ? FLAG_LABEL : 0));
+
+            int codeLength = element.getCodeLength();
+            codeLengths[i] = (byte) codeLength;
+            List<Byte> elementCodes = element.getCodes();
+            List<Integer> elementPoints = element.getPoints();
+            for (int j = 0; j < codeLength; j++) {
+                if (elementCodes != null && j < elementCodes.size() && elementCodes.get(j) != 0)
+                    codes[i] |= 1L << j;
+                points[pointPosition++] =
+                                elementPoints != null && j < elementPoints.size() ? elementPoints.get(j) : 0;
+            }
+        }
+
+        CompactVocabCache cache = new CompactVocabCache(size, labelChars, labelOffsets, storageIds, frequencies,
+                        sequenceCounts, flags, codeLengths, codes, points);
+        cache.totalWordCount = vocabCache.totalWordOccurrences();
+        cache.documentsCounter = vocabCache.totalNumberOfDocs();
+        return cache;
+    }
+
+    private static int checkedAdd(int a, int b) {
+        long sum = (long) a + b;
+        if (sum > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Vocabulary is too large for compact storage");
+        return (int) sum;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int mix(long id) {
+        return mix((int) (id ^ (id >>> 32)));
+    }
+
+    /**
+     * Same value as String.hashCode() of the label, computed without creating the String
+     */
+    private int labelHash(int index) {
+        int h = 0;
+        for (int i = labelOffsets[index]; i < labelOffsets[index + 1]; i++)
+            h = 31 * h + labelChars[i];
+        return h;
+    }
+
+    private boolean sameLabel(int a, int b) {
+        int length = labelOffsets[a + 1] - labelOffsets[a];
+        if (length != labelOffsets[b + 1] - labelOffsets[b])
+            return false;
+        for (int i = 0; i < length; i++)
+            if (labelChars[labelOffsets[a] + i] != labelChars[labelOffsets[b] + i])
+                return false;
+        return true;
+    }
+
+    private String labelAt(int index) {
+        return new String(labelChars, labelOffsets[index], labelOffsets[index + 1] - labelOffsets[index]);
+    }
+
+    /**
+     * @return index of the label, or -1 if it's not in vocabulary
+     */
+    private int find(String label) {
+        if (label == null)
+            return -1;
+        int hash = label.hashCode();
+        int length = label.length();
+        int pos = mix(hash) & mask;
+        int entry;
+        while ((entry = labelTable[pos]) != 0) {
+            int index = entry - 1;
+            if (labelHashes[index] == hash && labelOffsets[index + 1] - labelOffsets[index] == length) {
+                int offset = labelOffsets[index];
+                int i = 0;
+                while (i < length && labelChars[offset + i] == label.charAt(i))
+                    i++;
+                if (i == length)
+                    return index;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int find(long id) {
+        int pos = mix(id) & mask;
+        int entry;
+        while ((entry = idTable[pos]) != 0) {
+            if (storageIds[entry - 1] == id)
+                return entry - 1;
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private VocabWord materialize(int index) {
+        if (index < 0 || index >= size)
+            return null;
+
+        VocabWord word = new VocabWord(frequencies[index], labelAt(index), storageIds[index]);
+        word.setIndex(index);
+        word.setSequencesCount(sequenceCounts[index]);
+        word.setSpecial((flags[index] & FLAG_SPECIAL) != 0);
+        word.markAsLabel((flags[index] & FLAG_LABEL) != 0);
+
+        int codeLength = codeLengths[index];
+        List<Byte> elementCodes = new ArrayList<>(codeLength);
+        List<Integer> elementPoints = new ArrayList<>(codeLength);
+        for (int i = 0; i < codeLength; i++) {
+            elementCodes.add(getCode(index, i));
+            elementPoints.add(points[pointOffsets[index] + i]);
+        }
+        word.setCodes(elementCodes);
+        word.setPoints(elementPoints);
+        word.setCodeLength((short) codeLength);
+        return word;
+    }
+
+    /**
+     * Returns Huffman code length of the element at specified index
+     */
+    public int getCodeLength(int index) {
+        return codeLengths[index];
+    }
+
+    /**
+     * Returns Huffman code at specified position, for the element at specified index
+     */
+    public byte getCode(int index, int position) {
+        return (byte) ((codes[index] >>> position) & 1L);
+    }
+
+    /**
+     * Returns Huffman point at specified position, for the element at specified index
+     */
+    public int getPoint(int index, int position) {
+        return points[pointOffsets[index] + position];
+    }
+
+    /**
+     * Returns frequency of the element at specified index
+     */
+    public double getFrequency(int index) {
+        return frequencies[index];
+    }
+
+    @Override
+    public void loadVocab() {
+        // use WordVectorSerializer.readCompactVocabCache() instead
+    }
+
+    @Override
+    public boolean vocabExists() {
+        return size > 0;
+    }
+
+    @Override
+    public void saveVocab() {
+        // use WordVectorSerializer.writeCompactVocabCache() instead
+    }
+
+    @Override
+    public Collection<String> words() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+                return labelAt(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void incrementWordCount(String word) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public void incrementWordCount(String word, int increment) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public int wordFrequency(@NonNull String word) {
+        int index = find(word);
+        return index >= 0 ? (int) frequencies[index] : 0;
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return find(word) >= 0;
+    }
+
+    @Override
+    public String wordAtIndex(int index) {
+        return index >= 0 && index < size ? labelAt(index) : null;
+    }
+
+    @Override
+    public VocabWord elementAtIndex(int index) {
+        return materialize(index);
+    }
+
+    /**
+     * Returns Huffman index for specified label
+     *
+     * @param label the label to get index for
+     * @return >=0 if label exists, -2 if specified label wasn't found
+     */
+    @Override
+    public int indexOf(String label) {
+        int index = find(label);
+        return index >= 0 ? index : -2;
+    }
+
+    /**
+     * Returns view over elements of this vocabulary, in order of their indexes. Each access creates new VocabWord.
+     */
+    @Override
+    public Collection<VocabWord> vocabWords() {
+        return new AbstractList<VocabWord>() {
+            @Override
+            public VocabWord get(int index) {
+                if (index < 0 || index >= size)
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+                return materialize(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public long totalWordOccurrences() {
+        return totalWordCount;
+    }
+
+    @Override
+    public VocabWord wordFor(@NonNull String word) {
+        return materialize(find(word));
+    }
+
+    @Override
+    public VocabWord wordFor(long id) {
+        return materialize(find(id));
+    }
+
+    @Override
+    public void addWordToIndex(int index, String word) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public void addWordToIndex(int index, long elementId) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    @Deprecated
+    public void putVocabWord(String word) {
+        if (!containsWord(word))
+            throw new IllegalStateException("Specified label is not present in vocabulary");
+    }
+
+    @Override
+    public int numWords() {
+        return size;
+    }
+
+    @Override
+    public int docAppearedIn(String word) {
+        int index = find(word);
+        return index >= 0 ? (int) sequenceCounts[index] : -1;
+    }
+
+    @Override
+    public void incrementDocCount(String word, long howMuch) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public void setCountForDoc(String word, long count) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public long totalNumberOfDocs() {
+        return documentsCounter;
+    }
+
+    @Override
+    public void incrementTotalDocCount() {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public void incrementTotalDocCount(long by) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public Collection<VocabWord> tokens() {
+        return vocabWords();
+    }
+
+    @Override
+    public void addToken(VocabWord word) {
+        throw new UnsupportedOperationException(
+                        "CompactVocabCache is read-only, build vocabulary first and use fromVocabCache()");
+    }
+
+    @Override
+    public VocabWord tokenFor(String word) {
+        return wordFor(word);
+    }
+
+    @Override
+    public VocabWord tokenFor(long id) {
+        return wordFor(id);
+    }
+
+    @Override
+    public boolean hasToken(String token) {
+        return containsWord(token);
+    }
+
+    @Override
+    public void importVocabulary(VocabCache<VocabWord> vocabCache) {
+        throw new UnsupportedOperationException(
+                        "CompactVocabCache is read-only, build vocabulary first and use fromVocabCache()");
+    }
+
+    @Override
+    public void updateWordsOccurencies() {
+        // frequencies never change
+    }
+
+    @Override
+    public void removeElement(String label) {
+        throw new UnsupportedOperationException("CompactVocabCache is read-only");
+    }
+
+    @Override
+    public void removeElement(VocabWord element) {
+        removeElement(element.getLabel());
+    }
+
+    /**
+     * Writes this vocabulary in binary form. Each column is written as one contiguous block.
+     *
+     * @param stream target stream, it's not closed by this method
+     */
+    public void write(@NonNull OutputStream stream) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeInt(size);
+        dos.writeLong(totalWordCount);
+        dos.writeLong(documentsCounter);
+
+        for (int i = 0; i < size; i++) {
+            byte[] bytes = labelAt(i).getBytes(UTF8);
+            dos.writeInt(bytes.length);
+            dos.write(bytes);
+        }
+        for (int i = 0; i < size; i++)
+            dos.writeLong(storageIds[i]);
+        for (int i = 0; i < size; i++)
+            dos.writeDouble(frequencies[i]);
+        for (int i = 0; i < size; i++)
+            dos.writeLong(sequenceCounts[i]);
+        dos.write(flags);
+        dos.write(codeLengths);
+        for (int i = 0; i < size; i++)
+            dos.writeLong(codes[i]);
+        dos.writeInt(points.length);
+        for (int point : points)
+            dos.writeInt(point);
+        dos.flush();
+    }
+
+    /**
+     * Reads vocabulary written by {@link #write(OutputStream)}
+     *
+     * @param stream source stream, it's not closed by this method
+     */
+    public static CompactVocabCache read(@NonNull InputStream stream) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (dis.readInt() != MAGIC)
+            throw new IllegalStateException("Stream doesn't contain CompactVocabCache");
+        int version = dis.readInt();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported CompactVocabCache version: " + version);
+
+        int size = dis.readInt();
+        long totalWords = dis.readLong();
+        long totalDocs = dis.readLong();
+
+        char[] labelChars = new char[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16L, size * 8L))];
+        int[] labelOffsets = new int[size + 1];
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < size; i++) {
+            int length = dis.readInt();
+            if (buffer.length < length)
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            dis.readFully(buffer, 0, length);
+            String label = new String(buffer, 0, length, UTF8);
+
+            labelOffsets[i + 1] = checkedAdd(labelOffsets[i], label.length());
+            if (labelOffsets[i + 1] > labelChars.length)
+                labelChars = Arrays.copyOf(labelChars,
+                                (int) Math.min(Integer.MAX_VALUE - 8, Math.max(labelOffsets[i + 1], labelChars.length * 2L)));
+            label.getChars(0, label.length(), labelChars, labelOffsets[i]);
+        }
+        labelChars = Arrays.copyOf(labelChars, labelOffsets[size]);
+
+        long[] storageIds = new long[size];
+        for (int i = 0; i < size; i++)
+            storageIds[i] = dis.readLong();
+        double[] frequencies = new double[size];
+        for (int i = 0; i < size; i++)
+            frequencies[i] = dis.readDouble();
+        long[] sequenceCounts = new long[size];
+        for (int i = 0; i < size; i++)
+            sequenceCounts[i] = dis.readLong();
+        byte[] flags = new byte[size];
+        dis.readFully(flags);
+        byte[] codeLengths = new byte[size];
+        dis.readFully(codeLengths);
+        long[] codes = new long[size];
+        for (int i = 0; i < size; i++)
+            codes[i] = dis.readLong();
+        int[] points = new int[dis.readInt()];
+        for (int i = 0; i < points.length; i++)
+            points[i] = dis.readInt();
+
+        CompactVocabCache cache = new CompactVocabCache(size, labelChars, labelOffsets, storageIds, frequencies,
+                        sequenceCounts, flags, codeLengths, codes, points);
+        cache.totalWordCount = totalWords;
+        cache.documentsCounter = totalDocs;
+        return cache;
+    }
+}
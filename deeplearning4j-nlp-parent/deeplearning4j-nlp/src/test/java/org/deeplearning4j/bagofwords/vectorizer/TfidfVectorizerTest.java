@@ -21,10 +21,12 @@ package org.deeplearning4j.bagofwords.vectorizer;
 import org.datavec.api.util.ClassPathResource;
 import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.text.sentenceiterator.CollectionSentenceIterator;
 import org.deeplearning4j.text.sentenceiterator.labelaware.LabelAwareFileSentenceIterator;
 import org.deeplearning4j.text.sentenceiterator.labelaware.LabelAwareSentenceIterator;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
+import org.deeplearning4j.util.MathUtils;
 import org.deeplearning4j.util.SerializationUtils;
 import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
@@ -35,8 +37,10 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeNotNull;
 
 /**
@@ -118,5 +122,45 @@ public class TfidfVectorizerTest {
         assertEquals(vector, dataSet.getFeatureMatrix());
     }
 
+    @Test
+    public void testSparseAndBatchedTransform() throws Exception {
+        List<String> corpus = Arrays.asList("This is first file.", "This is second file.", "This is 3 file.",
+                        "Another sentence, with another word");
+        TokenizerFactory tokenizerFactory = new DefaultTokenizerFactory();
+
+        TfidfVectorizer vectorizer = new TfidfVectorizer.Builder().setMinWordFrequency(1)
+                        .setStopWords(new ArrayList<String>()).setTokenizerFactory(tokenizerFactory)
+                        .setIterator(new CollectionSentenceIterator(corpus)).build();
+        vectorizer.fit();
+        VocabCache<VocabWord> vocabCache = vectorizer.getVocabCache();
+
+        // unknown word "unseen" counts towards document length, but isn't present in the vector
+        String text = "This is 3 3 unseen file.";
+        SparseVector sparse = vectorizer.transformSparse(text);
+        assertEquals(vocabCache.numWords(), sparse.getLength());
+        assertEquals(4, sparse.nnz());
+        for (int i = 1; i < sparse.nnz(); i++)
+            assertTrue(sparse.getIndices()[i] > sparse.getIndices()[i - 1]);
+
+        double idf = MathUtils.idf(4, vocabCache.docAppearedIn("3"));
+        assertEquals(MathUtils.tfidf(2.0 / 6.0, idf), sparse.get(vocabCache.indexOf("3")), 1e-10);
+        assertEquals(0.0, sparse.get(vocabCache.indexOf("Another")), 0.0);
+        assertEquals(vectorizer.transform(text), sparse.toDense());
+
+        List<String> docs = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            docs.add(i % 3 == 0 ? "" : corpus.get(i % corpus.size()) + " " + i);
+        CsrMatrix batch = vectorizer.transformBatch(docs);
+        assertEquals(docs.size(), batch.getRows());
+        assertEquals(vocabCache.numWords(), batch.getColumns());
+
+        INDArray dense = batch.toDense();
+        for (int i = 0; i < docs.size(); i++) {
+            INDArray expected = vectorizer.transform(docs.get(i));
+            assertEquals(expected, dense.getRow(i));
+            assertEquals(expected, batch.getRow(i).toDense());
+        }
+    }
+
 
 }
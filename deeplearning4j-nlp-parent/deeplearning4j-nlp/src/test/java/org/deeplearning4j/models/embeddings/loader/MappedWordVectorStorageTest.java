@@ -0,0 +1,98 @@
+package org.deeplearning4j.models.embeddings.loader;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class MappedWordVectorStorageTest {
+
+    @Rule
+    public TemporaryFolder testDir = new TemporaryFolder();
+
+    private static WordVectors buildVectors() {
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < 300; i++) {
+            VocabWord word = new VocabWord(1 + i % 13, i % 50 == 0 ? "ünïcødé_" + i : "word_" + i);
+            cache.addToken(word);
+            cache.addWordToIndex(i, word.getLabel());
+        }
+
+        InMemoryLookupTable<VocabWord> table = (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>()
+                        .vectorLength(16).cache(cache).seed(119).build();
+        table.resetWeights(true);
+
+        return WordVectorSerializer.fromTableAndVocab(table, cache);
+    }
+
+    @Test
+    public void testMappedVocabCache() throws Exception {
+        WordVectors vectors = buildVectors();
+        File file = testDir.newFile();
+        MappedWordVectorStorage.write(vectors, file);
+
+        MappedWordVectorStorage storage = MappedWordVectorStorage.open(file);
+        VocabCache<VocabWord> expected = vectors.vocab();
+        VocabCache<VocabWord> mapped = storage.getVocabCache();
+
+        assertTrue(mapped instanceof MappedVocabCache);
+        assertSame(mapped, storage.getVocabCache());
+        assertEquals(expected.numWords(), mapped.numWords());
+        assertEquals(expected.totalWordOccurrences(), mapped.totalWordOccurrences());
+
+        for (int i = 0; i < expected.numWords(); i++) {
+            String label = expected.wordAtIndex(i);
+            assertEquals(label, mapped.wordAtIndex(i));
+            assertEquals(i, mapped.indexOf(label));
+            assertTrue(mapped.containsWord(label));
+            assertEquals(expected.wordFrequency(label), mapped.wordFrequency(label));
+            assertEquals(label, mapped.wordFor(label).getLabel());
+            assertEquals(vectors.getWordVectorMatrix(label), storage.get(i));
+        }
+
+        assertFalse(mapped.containsWord("missing"));
+        assertEquals(-2, mapped.indexOf("missing"));
+        assertNull(mapped.wordFor("missing"));
+        assertEquals(expected.numWords(), mapped.words().size());
+    }
+
+    @Test
+    public void testVectorsSurviveGc() throws Exception {
+        WordVectors vectors = buildVectors();
+        File file = testDir.newFile();
+        MappedWordVectorStorage.write(vectors, file);
+
+        MappedWordVectorStorage storage = MappedWordVectorStorage.open(file);
+        INDArray row = storage.get(42);
+        INDArray last = storage.get(299);
+
+        assertFalse(row.isView());
+        assertNotSame(row, storage.get(42));
+
+        // returned vectors are copies, so they stay valid once storage and its mapping are gone
+        storage = null;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertEquals(vectors.getWordVectorMatrix(vectors.vocab().wordAtIndex(42)), row);
+        assertEquals(vectors.getWordVectorMatrix(vectors.vocab().wordAtIndex(299)), last);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() throws Exception {
+        File file = testDir.newFile();
+        MappedWordVectorStorage.write(buildVectors(), file);
+        MappedWordVectorStorage.open(file).getVocabCache().incrementWordCount("word_1");
+    }
+}
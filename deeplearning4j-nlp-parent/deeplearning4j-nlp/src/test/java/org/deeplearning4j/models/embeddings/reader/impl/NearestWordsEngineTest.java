@@ -0,0 +1,115 @@
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.paragraphvectors.ParagraphVectors;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NearestWordsEngineTest {
+
+    @Test
+    public void testTopKMatchesFullSort() {
+        Nd4j.getRandom().setSeed(119);
+        INDArray matrix = Nd4j.randn(1000, 32);
+        INDArray queries = Nd4j.randn(7, 32);
+        int k = 15;
+
+        // small blocks & several workers, so heaps of different workers are merged
+        NearestWordsEngine engine = new NearestWordsEngine(matrix, 3, 64);
+        NearestWordsEngine.TopResults[] results = engine.searchBatch(queries, k);
+        assertEquals(7, results.length);
+
+        for (int q = 0; q < queries.rows(); q++) {
+            INDArray similarities = matrix.mmul(queries.getRow(q).transpose());
+            INDArray[] sorted = Nd4j.sortWithIndices(similarities.dup(), 0, false);
+
+            int[] expected = new int[k];
+            for (int i = 0; i < k; i++)
+                expected[i] = sorted[0].getInt(i);
+
+            assertArrayEquals(expected, results[q].getIndices());
+            for (int i = 0; i < k; i++) {
+                assertEquals(sorted[1].getDouble(i), results[q].getSimilarities()[i], 1e-4);
+                if (i > 0)
+                    assertTrue(results[q].getSimilarities()[i - 1] >= results[q].getSimilarities()[i]);
+            }
+
+            NearestWordsEngine.TopResults single = engine.search(queries.getRow(q), k);
+            assertArrayEquals(results[q].getIndices(), single.getIndices());
+        }
+    }
+
+    @Test
+    public void testNearestLabels() {
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < 200; i++) {
+            VocabWord word = new VocabWord(1, i % 3 == 0 ? "LABEL_" + i : "word_" + i);
+            word.markAsLabel(i % 3 == 0);
+            cache.addToken(word);
+            cache.addWordToIndex(i, word.getLabel());
+        }
+
+        InMemoryLookupTable<VocabWord> table = (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>()
+                        .vectorLength(16).cache(cache).seed(119).build();
+        table.resetWeights(true);
+
+        ParagraphVectors vectors = new ParagraphVectors.Builder().layerSize(16).vocabCache(cache).lookupTable(table)
+                        .build();
+
+        // nearestLabels() takes candidates from engine over labels matrix, and should agree with brute force
+        Nd4j.getRandom().setSeed(119);
+        for (int q = 0; q < 10; q++) {
+            INDArray query = Nd4j.randn(1, 16);
+
+            List<BasicModelUtils.WordSimilarity> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i += 3)
+                expected.add(new BasicModelUtils.WordSimilarity("LABEL_" + i,
+                                Transforms.cosineSim(query, table.vector("LABEL_" + i))));
+            Collections.sort(expected, new BasicModelUtils.SimilarityComparator());
+
+            assertEquals(BasicModelUtils.getLabels(expected, 3), new ArrayList<>(vectors.nearestLabels(query, 3)));
+        }
+    }
+
+    @Test
+    public void testClose() {
+        INDArray matrix = Nd4j.randn(500, 8);
+        NearestWordsEngine engine = new NearestWordsEngine(matrix, 2, 64);
+        engine.search(Nd4j.randn(1, 8), 5);
+
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) engine.getExecutor();
+        engine.close();
+        assertTrue(executor.isShutdown());
+
+        try {
+            engine.search(Nd4j.randn(1, 8), 5);
+            fail("Exception expected");
+        } catch (ND4JIllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testKLargerThanMatrix() {
+        INDArray matrix = Nd4j.create(new double[][] {{1, 0}, {0, 1}, {0.6, 0.8}});
+        NearestWordsEngine engine = new NearestWordsEngine(matrix);
+
+        NearestWordsEngine.TopResults results = engine.search(Nd4j.create(new double[] {1, 0}), 10);
+        assertArrayEquals(new int[] {0, 2, 1}, results.getIndices());
+    }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author raver119@gmail.com
@@ -81,4 +82,53 @@ public class AbstractCoOccurrencesTest {
         assertEquals(16, list.size());
         assertEquals(16, cnt);
     }
+
+    @Test
+    public void testFitSpilling() throws Exception {
+        ClassPathResource resource = new ClassPathResource("other/oneline.txt");
+        File file = resource.getFile();
+
+        AbstractCache<VocabWord> vocabCache = new AbstractCache.Builder<VocabWord>().build();
+        BasicLineIterator underlyingIterator = new BasicLineIterator(file);
+
+        TokenizerFactory t = new DefaultTokenizerFactory();
+        t.setTokenPreProcessor(new CommonPreprocessor());
+
+        SentenceTransformer transformer =
+                        new SentenceTransformer.Builder().iterator(underlyingIterator).tokenizerFactory(t).build();
+
+        AbstractSequenceIterator<VocabWord> sequenceIterator =
+                        new AbstractSequenceIterator.Builder<>(transformer).build();
+
+        VocabConstructor<VocabWord> constructor = new VocabConstructor.Builder<VocabWord>()
+                        .addSource(sequenceIterator, 1).setTargetVocabCache(vocabCache).build();
+
+        constructor.buildJointVocabulary(false, true);
+
+        AbstractCoOccurrences<VocabWord> coOccurrences = new AbstractCoOccurrences.Builder<VocabWord>()
+                        .iterate(sequenceIterator).vocabCache(vocabCache).symmetric(false).windowSize(15)
+                        .spillingCounter(true).build();
+        coOccurrences.fit();
+
+        Iterator<Pair<Pair<VocabWord, VocabWord>, Double>> iterator = coOccurrences.iterator();
+        List<Pair<VocabWord, VocabWord>> list = new ArrayList<>();
+        int lastFirst = -1;
+        while (iterator.hasNext()) {
+            Pair<Pair<VocabWord, VocabWord>, Double> pair = iterator.next();
+            VocabWord first = pair.getFirst().getFirst();
+            VocabWord second = pair.getFirst().getSecond();
+            // pairs are sorted by indexes, and stored with smaller index first
+            assertTrue(first.getIndex() >= lastFirst);
+            assertTrue(first.getIndex() < second.getIndex());
+            lastFirst = first.getIndex();
+
+            assertTrue(pair.getSecond() > 0);
+            assertEquals(pair.getSecond(), coOccurrences.getCoOccurrenceCount(first, second), 1e-10);
+            list.add(pair.getFirst());
+        }
+
+        // same pairs as CountMap-based implementation
+        assertEquals(16, list.size());
+        assertEquals(0.0, coOccurrences.getCoOccurrenceCount(list.get(0).getSecond(), list.get(0).getFirst()), 0.0);
+    }
 }
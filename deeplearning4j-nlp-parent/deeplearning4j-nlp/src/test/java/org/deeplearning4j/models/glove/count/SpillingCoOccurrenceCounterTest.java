@@ -0,0 +1,84 @@
+package org.deeplearning4j.models.glove.count;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpillingCoOccurrenceCounterTest {
+
+    @Test
+    public void testPackedTable() throws Exception {
+        PackedCoOccurrenceTable table = new PackedCoOccurrenceTable(4, 64);
+        Map<Long, Double> reference = new HashMap<>();
+        Random r = new Random(12345);
+        for (int i = 0; i < 200; i++) {
+            int i1 = r.nextInt(6);
+            int i2 = r.nextInt(7);
+            double w = r.nextDouble();
+            table.increment(i1, i2, w);
+            Long key = PackedCoOccurrenceTable.pack(i1, i2);
+            reference.put(key, (reference.containsKey(key) ? reference.get(key) : 0.0) + w);
+        }
+
+        assertEquals(reference.size(), table.size());
+        for (Map.Entry<Long, Double> e : reference.entrySet()) {
+            int i1 = PackedCoOccurrenceTable.first(e.getKey());
+            int i2 = PackedCoOccurrenceTable.second(e.getKey());
+            assertEquals(e.getValue(), table.get(i1, i2), 1e-10);
+        }
+        assertEquals(0.0, table.get(10, 10), 0.0);
+        assertFalse(table.isFull());
+
+        // table can't grow beyond max capacity: 8 slots with load factor 0.75
+        PackedCoOccurrenceTable small = new PackedCoOccurrenceTable(4, 8);
+        for (int i = 0; i < 6; i++) {
+            assertFalse(small.isFull());
+            small.increment(i, i + 1, 1.0);
+        }
+        assertTrue(small.isFull());
+    }
+
+    @Test
+    public void testSpillAndMerge() throws Exception {
+        // minimal memory limit: 1024 slots per shard, so we get more spills than merge fan-in
+        SpillingCoOccurrenceCounter counter = new SpillingCoOccurrenceCounter(2, 1, null);
+        Map<Long, Double> reference = new HashMap<>();
+        Random r = new Random(12345);
+        for (int i = 0; i < 100000; i++) {
+            int i1 = r.nextInt(200);
+            int i2 = r.nextInt(200);
+            double w = 1.0 / (1 + r.nextInt(5));
+            counter.increment(i % 2, i1, i2, w);
+            Long key = PackedCoOccurrenceTable.pack(i1, i2);
+            reference.put(key, (reference.containsKey(key) ? reference.get(key) : 0.0) + w);
+        }
+
+        File target = File.createTempFile("cooccurrence", "merged");
+        target.deleteOnExit();
+        long pairs = counter.merge(target);
+        assertTrue(counter.getNumberOfSpills() > SpillingCoOccurrenceCounter.MAX_MERGE_FAN_IN);
+        assertEquals(reference.size(), pairs);
+        assertEquals(pairs * SpillingCoOccurrenceCounter.RECORD_SIZE, target.length());
+
+        long lastKey = -1;
+        int cnt = 0;
+        try (SpillingCoOccurrenceCounter.RecordReader reader = new SpillingCoOccurrenceCounter.RecordReader(target)) {
+            while (reader.next()) {
+                assertTrue(reader.getKey() > lastKey);
+                lastKey = reader.getKey();
+                assertEquals(reference.get(reader.getKey()), reader.getWeight(), 1e-8);
+                cnt++;
+            }
+        }
+        assertEquals(pairs, cnt);
+
+        assertEquals(reference.get(PackedCoOccurrenceTable.pack(17, 42)),
+                        SpillingCoOccurrenceCounter.lookup(target, 17, 42), 1e-8);
+        assertEquals(0.0, SpillingCoOccurrenceCounter.lookup(target, 500, 1), 0.0);
+    }
+}
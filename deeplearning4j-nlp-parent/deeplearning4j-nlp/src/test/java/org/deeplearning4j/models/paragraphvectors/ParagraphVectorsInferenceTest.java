@@ -0,0 +1,225 @@
+package org.deeplearning4j.models.paragraphvectors;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.learning.impl.sequence.DBOW;
+import org.deeplearning4j.models.embeddings.learning.impl.sequence.DM;
+import org.deeplearning4j.models.embeddings.learning.SequenceLearningAlgorithm;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.text.documentiterator.LabelledDocument;
+import org.deeplearning4j.text.documentiterator.SimpleLabelAwareIterator;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@Slf4j
+public class ParagraphVectorsInferenceTest {
+    private static final int NUM_TOPICS = 3;
+    private static final int WORDS_PER_TOPIC = 30;
+
+    /**
+     * Each topic has its own words, so documents of the same topic share context
+     */
+    private static String document(Random random, int topic, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++)
+            builder.append("t").append(topic).append("w").append(random.nextInt(WORDS_PER_TOPIC)).append(" ");
+        return builder.toString();
+    }
+
+    private static ParagraphVectors buildModel(SequenceLearningAlgorithm<VocabWord> algorithm) {
+        Random random = new Random(12345);
+        List<LabelledDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            int topic = i % NUM_TOPICS;
+            LabelledDocument document = new LabelledDocument();
+            document.setContent(document(random, topic, 20));
+            document.addLabel("TOPIC_" + topic);
+            documents.add(document);
+        }
+
+        ParagraphVectors vectors = new ParagraphVectors.Builder().iterate(new SimpleLabelAwareIterator(documents))
+                        .tokenizerFactory(new DefaultTokenizerFactory()).sequenceLearningAlgorithm(algorithm)
+                        .layerSize(32).minWordFrequency(1).epochs(3).seed(119).workers(1).build();
+        vectors.fit();
+        return vectors;
+    }
+
+    /**
+     * @param minAccuracy min fraction of documents which vectors should be closest to their topic label. Results are
+     *                    the same as inferVector() gives (see checkSameAsInferVector), so this depends on the model only
+     */
+    private static void checkInference(ParagraphVectors vectors, double minAccuracy) throws Exception {
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 60; i++)
+            texts.add(document(random, i % NUM_TOPICS, 15));
+
+        ParagraphVectorsInference inference =
+                        new ParagraphVectorsInference.Builder(vectors).workers(2).batchLimit(16).queueLimit(8).build();
+        try {
+            List<INDArray> inferred = inference.inferVectors(texts);
+            assertEquals(texts.size(), inferred.size());
+            assertEquals(texts.size(), inference.getDocumentsProcessed());
+            assertTrue(inference.getDocumentsPerSecond() > 0);
+
+            int matches = 0;
+            for (int i = 0; i < texts.size(); i++) {
+                INDArray vector = inferred.get(i);
+                assertArrayEquals(new int[] {1, 32}, vector.shape());
+
+                int best = -1;
+                double bestSimilarity = -2;
+                for (int topic = 0; topic < NUM_TOPICS; topic++) {
+                    double similarity = Transforms.cosineSim(vector, vectors.getWordVectorMatrix("TOPIC_" + topic));
+                    if (similarity > bestSimilarity) {
+                        bestSimilarity = similarity;
+                        best = topic;
+                    }
+                }
+                if (best == i % NUM_TOPICS)
+                    matches++;
+            }
+            assertTrue("Only " + matches + " documents matched their topic", matches >= texts.size() * minAccuracy);
+
+            // documents without known words fail individually
+            Future<INDArray> unknown = inference.inferVectorAsync("completely unknown words");
+            try {
+                unknown.get();
+                fail("Exception expected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ND4JIllegalStateException);
+            }
+            assertNotNull(inference.inferVector(texts.get(0)));
+        } finally {
+            inference.shutdown();
+        }
+
+        try {
+            inference.inferVectorAsync(texts.get(0));
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBatchedInferenceDBOW() throws Exception {
+        checkInference(buildModel(new DBOW<VocabWord>()), 0.9);
+    }
+
+    @Test
+    public void testBatchedInferenceDM() throws Exception {
+        // PV-DM vectors of this small model are less separable, and vary between training runs
+        checkInference(buildModel(new DM<VocabWord>()), 0.7);
+    }
+
+    private static void checkSameAsInferVector(ParagraphVectors vectors) throws Exception {
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            texts.add(document(random, i % NUM_TOPICS, 5 + i));
+
+        ParagraphVectorsInference inference = new ParagraphVectorsInference.Builder(vectors).workers(1)
+                        .batchLimit(16).learningRate(0.025).minLearningRate(0.001).iterations(5).build();
+        try {
+            List<INDArray> inferred = inference.inferVectors(texts);
+            for (int i = 0; i < texts.size(); i++) {
+                INDArray expected = vectors.inferVector(texts.get(i), 0.025, 0.001, 5);
+                assertEquals(texts.get(i), expected, inferred.get(i));
+            }
+        } finally {
+            inference.shutdown();
+        }
+    }
+
+    @Test
+    public void testSameAsInferVectorDBOW() throws Exception {
+        checkSameAsInferVector(buildModel(new DBOW<VocabWord>()));
+    }
+
+    @Test
+    public void testSameAsInferVectorDM() throws Exception {
+        checkSameAsInferVector(buildModel(new DM<VocabWord>()));
+    }
+
+    @Test
+    public void testShutdownDuringSubmission() throws Exception {
+        ParagraphVectors vectors = buildModel(new DBOW<VocabWord>());
+        final String text = document(new Random(42), 0, 15);
+
+        for (int round = 0; round < 20; round++) {
+            final ParagraphVectorsInference inference = new ParagraphVectorsInference.Builder(vectors).workers(2)
+                            .batchLimit(4).queueLimit(4).iterations(1).build();
+            final List<Future<INDArray>> futures = new ArrayList<>();
+            Thread[] producers = new Thread[4];
+            for (int t = 0; t < producers.length; t++) {
+                producers[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            while (true) {
+                                Future<INDArray> future = inference.inferVectorAsync(text);
+                                synchronized (futures) {
+                                    futures.add(future);
+                                }
+                            }
+                        } catch (IllegalStateException e) {
+                            // shut down
+                        }
+                    }
+                });
+                producers[t].start();
+            }
+
+            Thread.sleep(20);
+            inference.shutdown();
+            for (Thread producer : producers)
+                producer.join();
+
+            // every submitted document is either processed or failed, none is left waiting forever
+            for (Future<INDArray> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmarkBatchedInference() throws Exception {
+        ParagraphVectors vectors = buildModel(new DBOW<VocabWord>());
+        Random random = new Random(42);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 20000; i++)
+            texts.add(document(random, i % NUM_TOPICS, 50));
+
+        long time1 = System.nanoTime();
+        vectors.inferVectorBatched(texts);
+        long time2 = System.nanoTime();
+
+        ParagraphVectorsInference inference = new ParagraphVectorsInference.Builder(vectors).build();
+        long time3 = System.nanoTime();
+        inference.inferVectors(texts);
+        long time4 = System.nanoTime();
+        inference.shutdown();
+
+        log.info("inferVectorBatched(): {} docs/sec; ParagraphVectorsInference: {} docs/sec",
+                        String.format("%.0f", texts.size() / ((time2 - time1) / 1e9)),
+                        String.format("%.0f", texts.size() / ((time4 - time3) / 1e9)));
+    }
+}
@@ -15,6 +15,7 @@ import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreproc
 import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
 import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +25,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -312,4 +314,141 @@ public class VocabConstructorTest {
         assertTrue(cacheTarget.indexOf("Zscience") > sourceSize - 1);
         assertTrue(cacheTarget.indexOf("Zhealth") > sourceSize - 1);
     }
+
+    @Test
+    public void testShardedCountingMatchesDefault() throws Exception {
+        // default counting in sequential mode is used as reference
+        VocabCache<VocabWord> expected = buildSynthetic(false, false, 0, 3, 2000, 50);
+
+        for (boolean parallel : new boolean[] {false, true}) {
+            VocabCache<VocabWord> cache = buildSynthetic(true, parallel, 0, 3, 2000, 50);
+
+            assertEquals(expected.numWords(), cache.numWords());
+            assertEquals(expected.totalWordOccurrences(), cache.totalWordOccurrences());
+            assertEquals(expected.totalNumberOfDocs(), cache.totalNumberOfDocs());
+            for (VocabWord word : expected.vocabWords()) {
+                VocabWord other = cache.wordFor(word.getLabel());
+                assertNotNull(word.getLabel(), other);
+                assertEquals(word.getElementFrequency(), other.getElementFrequency(), 0.0);
+                assertEquals(word.getSequencesCount(), other.getSequencesCount());
+                // order of words with equal frequency may differ, but Huffman indexes follow frequencies
+                assertEquals(word.getElementFrequency(),
+                                cache.elementAtIndex(word.getIndex()).getElementFrequency(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testShardedCountingPruning() throws Exception {
+        VocabCache<VocabWord> expected = buildSynthetic(false, false, 0, 1, 2000, 50);
+        // 16 entries per shard at most, while there are few hundreds distinct words
+        VocabCache<VocabWord> pruned = buildSynthetic(true, true, 256, 1, 2000, 50);
+
+        assertTrue(pruned.numWords() < expected.numWords());
+
+        // most frequent words survive, and frequencies are never overestimated
+        for (int i = 0; i < 10; i++) {
+            VocabWord word = expected.elementAtIndex(i);
+            VocabWord other = pruned.wordFor(word.getLabel());
+            assertNotNull(word.getLabel(), other);
+            assertTrue(other.getElementFrequency() <= word.getElementFrequency());
+        }
+    }
+
+    @Test
+    public void testShardedCounterErrorBound() throws Exception {
+        // single shard with 16 entries at most, so the same words get pruned and inserted again many times
+        ShardedVocabCounter<VocabWord> counter = new ShardedVocabCounter<>(1, 16);
+        Map<String, Long> frequencies = new HashMap<>();
+        Random random = new Random(12345);
+        for (int i = 0; i < 20000; i++) {
+            String label = "w" + (int) Math.pow(300, random.nextDouble());
+            Sequence<VocabWord> sequence = new Sequence<>();
+            sequence.addElement(new VocabWord(1.0, label));
+            counter.increment(label, 1, sequence);
+
+            Long frequency = frequencies.get(label);
+            frequencies.put(label, frequency == null ? 1 : frequency + 1);
+        }
+
+        long bound = counter.getPruningErrorBound();
+        assertTrue(bound > 0);
+
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        counter.transferTo(cache, 0);
+        assertTrue(cache.numWords() <= 16);
+
+        for (Map.Entry<String, Long> entry : frequencies.entrySet()) {
+            VocabWord word = cache.wordFor(entry.getKey());
+            if (word == null) {
+                assertTrue(entry.getKey(), entry.getValue() <= bound);
+            } else {
+                assertTrue(entry.getKey(), word.getElementFrequency() <= entry.getValue());
+                assertTrue(entry.getKey(), word.getElementFrequency() >= entry.getValue() - bound);
+            }
+        }
+    }
+
+    /**
+     * Compares tokens/sec of default and sharded vocabulary construction on a synthetic Zipf-like corpus
+     */
+    @Test
+    @Ignore
+    public void benchmarkShardedCounting() throws Exception {
+        int numSequences = 200000;
+        int length = 100;
+        for (int i = 0; i < 3; i++) {
+            for (boolean sharded : new boolean[] {false, true}) {
+                long start = System.nanoTime();
+                VocabCache<VocabWord> cache = buildSynthetic(sharded, true, 0, 5, numSequences, length);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                log.info("{}: {} words, {} tokens/sec", sharded ? "Sharded" : "Default", cache.numWords(),
+                                String.format("%.0f", numSequences * (double) length / seconds));
+            }
+        }
+    }
+
+    private static VocabCache<VocabWord> buildSynthetic(boolean sharded, boolean parallel, long maxEntries,
+                    int minWordFrequency, final int numSequences, final int length) {
+        Iterable<Sequence<VocabWord>> iterable = new Iterable<Sequence<VocabWord>>() {
+            @Override
+            public Iterator<Sequence<VocabWord>> iterator() {
+                final Random random = new Random(12345);
+                return new Iterator<Sequence<VocabWord>>() {
+                    private int cnt = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return cnt < numSequences;
+                    }
+
+                    @Override
+                    public Sequence<VocabWord> next() {
+                        cnt++;
+                        Sequence<VocabWord> sequence = new Sequence<>();
+                        for (int i = 0; i < length; i++) {
+                            // log-uniform word ids: few frequent words, long tail of rare ones
+                            int id = (int) Math.pow(5000, random.nextDouble());
+                            sequence.addElement(new VocabWord(1.0, "w" + id));
+                        }
+                        return sequence;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+
+        VocabCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        SequenceIterator<VocabWord> sequenceIterator = new AbstractSequenceIterator.Builder<>(iterable).build();
+        VocabConstructor<VocabWord> constructor = new VocabConstructor.Builder<VocabWord>()
+                        .addSource(sequenceIterator, minWordFrequency).setTargetVocabCache(cache)
+                        .allowParallelTokenization(parallel).enableShardedCounting(sharded)
+                        .setMaxEntriesInMemory(maxEntries).build();
+        constructor.buildJointVocabulary(false, true);
+        return cache;
+    }
 }
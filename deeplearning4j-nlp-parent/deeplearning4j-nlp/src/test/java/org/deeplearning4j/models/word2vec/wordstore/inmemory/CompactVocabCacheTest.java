@@ -0,0 +1,109 @@
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
+import org.deeplearning4j.models.word2vec.Huffman;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class CompactVocabCacheTest {
+
+    private static AbstractCache<VocabWord> buildCache() {
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < 500; i++) {
+            VocabWord word = new VocabWord(1 + i % 37, "word_" + i);
+            word.setSequencesCount(i % 11);
+            cache.addToken(word);
+        }
+
+        VocabWord label = new VocabWord(1.0, "ünïcødé_label");
+        label.setSpecial(true);
+        label.markAsLabel(true);
+        cache.addToken(label);
+        cache.incrementTotalDocCount(42);
+
+        Huffman huffman = new Huffman(cache.vocabWords());
+        huffman.build();
+        huffman.applyIndexes(cache);
+        return cache;
+    }
+
+    private static void assertSameVocab(AbstractCache<VocabWord> expected, CompactVocabCache actual) {
+        assertEquals(expected.numWords(), actual.numWords());
+        assertEquals(expected.totalWordOccurrences(), actual.totalWordOccurrences());
+        assertEquals(expected.totalNumberOfDocs(), actual.totalNumberOfDocs());
+
+        for (VocabWord word : expected.vocabWords()) {
+            String label = word.getLabel();
+            assertTrue(actual.containsWord(label));
+            assertEquals(word.getIndex(), actual.indexOf(label));
+            assertEquals(label, actual.wordAtIndex(word.getIndex()));
+            assertEquals(expected.wordFrequency(label), actual.wordFrequency(label));
+            assertEquals(expected.docAppearedIn(label), actual.docAppearedIn(label));
+
+            VocabWord compact = actual.wordFor(label);
+            assertEquals(word, compact);
+            assertEquals(word.getCodeLength(), compact.getCodeLength());
+            assertEquals(word.getCodes().subList(0, word.getCodeLength()), compact.getCodes());
+            assertEquals(word.getPoints().subList(0, word.getCodeLength()), compact.getPoints());
+            assertEquals(word.isSpecial(), compact.isSpecial());
+            assertEquals(word.isLabel(), compact.isLabel());
+            assertEquals(word, actual.wordFor(word.getStorageId()));
+
+            for (int i = 0; i < word.getCodeLength(); i++) {
+                assertEquals(word.getCodes().get(i).byteValue(), actual.getCode(word.getIndex(), i));
+                assertEquals(word.getPoints().get(i).intValue(), actual.getPoint(word.getIndex(), i));
+            }
+        }
+    }
+
+    @Test
+    public void testFromVocabCache() throws Exception {
+        AbstractCache<VocabWord> cache = buildCache();
+        CompactVocabCache compact = CompactVocabCache.fromVocabCache(cache);
+
+        assertSameVocab(cache, compact);
+        assertFalse(compact.containsWord("missing"));
+        assertEquals(-2, compact.indexOf("missing"));
+        assertEquals(-1, compact.docAppearedIn("missing"));
+        assertNull(compact.wordFor("missing"));
+        assertNull(compact.elementAtIndex(compact.numWords()));
+        assertEquals(compact.numWords(), compact.words().size());
+        assertEquals(compact.numWords(), compact.vocabWords().size());
+
+        // returned elements are detached copies
+        VocabWord word = compact.wordFor("word_0");
+        word.increaseElementFrequency(5);
+        word.setIndex(-1);
+        assertEquals(cache.wordFrequency("word_0"), compact.wordFrequency("word_0"));
+        assertEquals(cache.indexOf("word_0"), compact.wordFor("word_0").getIndex());
+    }
+
+    @Test
+    public void testBinaryRoundTrip() throws Exception {
+        AbstractCache<VocabWord> cache = buildCache();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        WordVectorSerializer.writeCompactVocabCache(cache, baos);
+
+        CompactVocabCache restored =
+                        WordVectorSerializer.readCompactVocabCache(new ByteArrayInputStream(baos.toByteArray()));
+        assertSameVocab(cache, restored);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIncrementUnsupported() throws Exception {
+        CompactVocabCache compact = CompactVocabCache.fromVocabCache(buildCache());
+        compact.incrementWordCount("word_0", 5);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddTokenUnsupported() throws Exception {
+        CompactVocabCache compact = CompactVocabCache.fromVocabCache(buildCache());
+        compact.addToken(new VocabWord(1.0, "extra"));
+    }
+}
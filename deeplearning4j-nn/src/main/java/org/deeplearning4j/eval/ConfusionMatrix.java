@@ -78,8 +78,9 @@ public class ConfusionMatrix<T extends Comparable<? super T>> implements Seriali
      * Adds the entries from another confusion matrix to this one.
      */
     public synchronized void add(ConfusionMatrix<T> other) {
-        for (T actual : other.matrix.keySet()) {
-            Multiset<T> counts = other.matrix.get(actual);
+        Map<T, Multiset<T>> otherMatrix = other.getMatrix();
+        for (T actual : otherMatrix.keySet()) {
+            Multiset<T> counts = otherMatrix.get(actual);
             for (T predicted : counts.elementSet()) {
                 int count = counts.count(predicted);
                 this.add(actual, predicted, count);
@@ -250,12 +251,13 @@ public class ConfusionMatrix<T extends Comparable<? super T>> implements Seriali
         if (!(o instanceof ConfusionMatrix))
             return false;
         ConfusionMatrix<?> c = (ConfusionMatrix<?>) o;
-        return matrix.equals(c.matrix) && classes.equals(c.classes);
+        return getMatrix().equals(c.getMatrix()) && getClasses().equals(c.getClasses());
     }
 
     @Override
     public int hashCode() {
         int result = 17;
+        Map<T, Multiset<T>> matrix = getMatrix();
         result = 31 * result + (matrix == null ? 0 : matrix.hashCode());
         result = 31 * result + (classes == null ? 0 : classes.hashCode());
         return result;
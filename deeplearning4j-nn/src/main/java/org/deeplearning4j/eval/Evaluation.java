@@ -231,12 +231,7 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
     }
 
     private void createConfusion(int nClasses) {
-        List<Integer> classes = new ArrayList<>();
-        for (int i = 0; i < nClasses; i++) {
-            classes.add(i);
-        }
-
-        confusion = new ConfusionMatrix<>(classes);
+        confusion = new IntConfusionMatrix(nClasses);
     }
 
 
@@ -377,58 +372,50 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
                 //Standard case: argmax
                 guessIndex = Nd4j.argMax(guesses, 1);
             }
-            INDArray realOutcomeIndex = Nd4j.argMax(realOutcomes, 1);
-            int nExamples = guessIndex.length();
+            int[] actualIdx = toIntArray(Nd4j.argMax(realOutcomes, 1));
+            int[] predictedIdx = toIntArray(guessIndex);
+            int nExamples = actualIdx.length;
 
-            for (int i = 0; i < nExamples; i++) {
-                int actual = (int) realOutcomeIndex.getDouble(i);
-                int predicted = (int) guessIndex.getDouble(i);
-                confusion().add(actual, predicted);
-
-                if (recordMetaData != null && recordMetaData.size() > i) {
-                    Object m = recordMetaData.get(i);
-                    addToMetaConfusionMatrix(actual, predicted, m);
-                }
+            if (confusion() instanceof IntConfusionMatrix) {
+                ((IntConfusionMatrix) confusion()).add(actualIdx, predictedIdx);
+            } else {
+                for (int i = 0; i < nExamples; i++)
+                    confusion().add(actualIdx[i], predictedIdx[i]);
+            }
 
-                // instead of looping through each label for confusion
-                // matrix, instead infer those values by determining if true/false negative/positive,
-                // then just add across matrix
+            if (recordMetaData != null) {
+                for (int i = 0; i < nExamples && i < recordMetaData.size(); i++)
+                    addToMetaConfusionMatrix(actualIdx[i], predictedIdx[i], recordMetaData.get(i));
+            }
 
-                // if actual == predicted, then it's a true positive, assign true negative to every other label
+            // count true/false positives and false negatives per class for the whole minibatch first, then update
+            // the counters once per class: every example is a true negative for all classes other than its actual
+            // and predicted class
+            int[] tp = new int[nCols];
+            int[] fp = new int[nCols];
+            int[] fn = new int[nCols];
+            for (int i = 0; i < nExamples; i++) {
+                int actual = actualIdx[i];
+                int predicted = predictedIdx[i];
                 if (actual == predicted) {
-                    truePositives.incrementCount(actual, 1);
-                    for (int col = 0; col < nCols; col++) {
-                        if (col == actual) {
-                            continue;
-                        }
-                        trueNegatives.incrementCount(col, 1); // all cols prior
-                    }
+                    tp[actual]++;
                 } else {
-                    falsePositives.incrementCount(predicted, 1);
-                    falseNegatives.incrementCount(actual, 1);
-
-                    // first determine intervals for adding true negatives
-                    int lesserIndex, greaterIndex;
-                    if (actual < predicted) {
-                        lesserIndex = actual;
-                        greaterIndex = predicted;
-                    } else {
-                        lesserIndex = predicted;
-                        greaterIndex = actual;
-                    }
-
-                    // now loop through intervals
-                    for (int col = 0; col < lesserIndex; col++) {
-                        trueNegatives.incrementCount(col, 1); // all cols prior
-                    }
-                    for (int col = lesserIndex + 1; col < greaterIndex; col++) {
-                        trueNegatives.incrementCount(col, 1); // all cols after
-                    }
-                    for (int col = greaterIndex + 1; col < nCols; col++) {
-                        trueNegatives.incrementCount(col, 1); // all cols after
-                    }
+                    fp[predicted]++;
+                    fn[actual]++;
                 }
             }
+
+            for (int col = 0; col < nCols; col++) {
+                if (tp[col] > 0)
+                    truePositives.incrementCount(col, tp[col]);
+                if (fp[col] > 0)
+                    falsePositives.incrementCount(col, fp[col]);
+                if (fn[col] > 0)
+                    falseNegatives.incrementCount(col, fn[col]);
+                int tn = nExamples - tp[col] - fp[col] - fn[col];
+                if (tn > 0)
+                    trueNegatives.incrementCount(col, tn);
+            }
         }
 
         if (nCols > 1 && topN > 1) {
@@ -452,6 +439,12 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
         }
     }
 
+    private static int[] toIntArray(INDArray indices) {
+        if (indices.isView() || indices.data().length() != indices.length())
+            indices = indices.dup();
+        return indices.data().asInt();
+    }
+
     /**
      * Evaluate a single prediction (one prediction at a time)
      *
@@ -520,8 +513,11 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
         List<Integer> falseNegativesWarningClasses = new ArrayList<>();
         for (Integer clazz : classes) {
             actual = resolveLabelForClass(clazz);
-            //Output confusion matrix
-            for (Integer clazz2 : classes) {
+            //Output confusion matrix (skipping classes without any examples)
+            List<Integer> predictedClasses =
+                            confusion.getActualTotal(clazz) == 0 ? Collections.<Integer>emptyList() : classes;
+            for (Integer clazz2 : predictedClasses) {
+
                 int count = confusion().getCount(clazz, clazz2);
                 if (count != 0) {
                     predicted = resolveLabelForClass(clazz2);
@@ -1399,7 +1395,9 @@ public class Evaluation extends BaseEvaluation<Evaluation> {
         falseNegatives.incrementAll(other.falseNegatives);
 
         if (confusion == null) {
-            if (other.confusion != null)
+            if (other.confusion instanceof IntConfusionMatrix)
+                confusion = new IntConfusionMatrix((IntConfusionMatrix) other.confusion);
+            else if (other.confusion != null)
                 confusion = new ConfusionMatrix<>(other.confusion);
         } else {
             if (other.confusion != null)
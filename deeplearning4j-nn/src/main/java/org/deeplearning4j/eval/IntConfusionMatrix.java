@@ -0,0 +1,291 @@
+package org.deeplearning4j.eval;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.*;
+
+/**
+ * Confusion matrix for classes 0 to numClasses-1, backed by primitive arrays instead of maps of multisets.
+ *
+ * Counts are stored in a dense int[numClasses * numClasses] array if that's not larger than
+ * {@link #MAX_DENSE_ENTRIES}; otherwise (i.e., for tens of thousands of classes) only non-zero counts are stored, in a
+ * primitive open addressing hash table. Actual and predicted totals are maintained for every class, so
+ * {@link #getActualTotal(Integer)} and {@link #getPredictedTotal(Integer)} are O(1).
+ *
+ * Whole minibatches can be added at once with {@link #add(int[], int[])}, and merging two IntConfusionMatrix
+ * instances doesn't create any objects.
+ *
+ * PLEASE NOTE: {@link #getMatrix()} returns a snapshot of the counts, not a live view.
+ */
+public class IntConfusionMatrix extends ConfusionMatrix<Integer> {
+    /**
+     * Max number of entries (numClasses^2) for which dense storage is used
+     */
+    public static final int MAX_DENSE_ENTRIES = 1 << 22;
+
+    private static final long EMPTY = -1L;
+    private static final Object TIE_LOCK = new Object();
+
+    @Getter
+    private final int numClasses;
+    private final int[] actualTotals;
+    private final int[] predictedTotals;
+
+    // dense storage: counts[actual * numClasses + predicted]
+    private int[] dense;
+
+    // sparse storage: keys are actual * numClasses + predicted, EMPTY for unused slots
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public IntConfusionMatrix(int numClasses) {
+        super(createClasses(numClasses));
+        this.numClasses = numClasses;
+        this.actualTotals = new int[numClasses];
+        this.predictedTotals = new int[numClasses];
+
+        if ((long) numClasses * numClasses <= MAX_DENSE_ENTRIES) {
+            dense = new int[numClasses * numClasses];
+        } else {
+            keys = new long[1024];
+            values = new int[1024];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+
+    /**
+     * Creates a new IntConfusionMatrix initialized with the contents of another one
+     */
+    public IntConfusionMatrix(@NonNull IntConfusionMatrix other) {
+        this(other.numClasses);
+        add(other);
+    }
+
+    private static List<Integer> createClasses(int numClasses) {
+        if (numClasses < 1)
+            throw new IllegalArgumentException("Number of classes should be positive, got " + numClasses);
+
+        List<Integer> classes = new ArrayList<>(numClasses);
+        for (int i = 0; i < numClasses; i++)
+            classes.add(i);
+        return classes;
+    }
+
+    /**
+     * @return true if classes are exactly 0 to classes.size()-1, i.e. can be represented with IntConfusionMatrix
+     */
+    public static boolean isSupported(List<Integer> classes) {
+        if (classes == null || classes.isEmpty())
+            return false;
+        for (int i = 0; i < classes.size(); i++)
+            if (classes.get(i) == null || classes.get(i) != i)
+                return false;
+        return true;
+    }
+
+    @Override
+    public synchronized void add(Integer actual, Integer predicted, int count) {
+        increment(actual, predicted, count);
+    }
+
+    /**
+     * Increments entries for a minibatch: one (actual, predicted) pair per example
+     *
+     * @param actual    actual class for each example
+     * @param predicted predicted class for each example
+     */
+    public synchronized void add(@NonNull int[] actual, @NonNull int[] predicted) {
+        if (actual.length != predicted.length)
+            throw new IllegalArgumentException("Arrays of actual and predicted classes should have same length: got "
+                            + actual.length + " and " + predicted.length);
+
+        for (int i = 0; i < actual.length; i++)
+            increment(actual[i], predicted[i], 1);
+    }
+
+    /**
+     * Adds counts of another confusion matrix to this one. Both matrices are locked in a fixed order, so concurrent
+     * a.add(b) and b.add(a) can't deadlock
+     */
+    @Override
+    public void add(ConfusionMatrix<Integer> other) {
+        if (!(other instanceof IntConfusionMatrix)) {
+            // other matrix is read before this one is locked
+            Map<Integer, Multiset<Integer>> otherMatrix = other.getMatrix();
+            synchronized (this) {
+                for (Map.Entry<Integer, Multiset<Integer>> row : otherMatrix.entrySet())
+                    for (Multiset.Entry<Integer> entry : row.getValue().entrySet())
+                        increment(row.getKey(), entry.getElement(), entry.getCount());
+            }
+            return;
+        }
+
+        IntConfusionMatrix o = (IntConfusionMatrix) other;
+        int thisHash = System.identityHashCode(this);
+        int otherHash = System.identityHashCode(o);
+        if (o == this || thisHash != otherHash) {
+            Object first = thisHash <= otherHash ? this : o;
+            Object second = first == this ? o : this;
+            synchronized (first) {
+                synchronized (second) {
+                    addLocked(o);
+                }
+            }
+        } else {
+            // identity hash collision: order is resolved by the global tie lock
+            synchronized (TIE_LOCK) {
+                synchronized (this) {
+                    synchronized (o) {
+                        addLocked(o);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addLocked(IntConfusionMatrix o) {
+        if (o.numClasses == numClasses && o.dense != null) {
+            for (int i = 0; i < dense.length; i++)
+                dense[i] += o.dense[i];
+            for (int i = 0; i < numClasses; i++) {
+                actualTotals[i] += o.actualTotals[i];
+                predictedTotals[i] += o.predictedTotals[i];
+            }
+        } else if (o.dense != null) {
+            for (int i = 0; i < o.dense.length; i++)
+                if (o.dense[i] != 0)
+                    increment(i / o.numClasses, i % o.numClasses, o.dense[i]);
+        } else {
+            for (int i = 0; i < o.keys.length; i++)
+                if (o.keys[i] != EMPTY)
+                    increment((int) (o.keys[i] / o.numClasses), (int) (o.keys[i] % o.numClasses), o.values[i]);
+        }
+    }
+
+    @Override
+    public synchronized int getCount(Integer actual, Integer predicted) {
+        if (actual < 0 || actual >= numClasses || predicted < 0 || predicted >= numClasses)
+            return 0;
+
+        if (dense != null)
+            return dense[actual * numClasses + predicted];
+
+        int slot = find((long) actual * numClasses + predicted);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    @Override
+    public synchronized int getPredictedTotal(Integer predicted) {
+        return predicted < 0 || predicted >= numClasses ? 0 : predictedTotals[predicted];
+    }
+
+    @Override
+    public synchronized int getActualTotal(Integer actual) {
+        return actual < 0 || actual >= numClasses ? 0 : actualTotals[actual];
+    }
+
+    /**
+     * @return snapshot of the non-zero counts, in the same format as {@link ConfusionMatrix#getMatrix()}
+     */
+    @Override
+    public synchronized Map<Integer, Multiset<Integer>> getMatrix() {
+        Map<Integer, Multiset<Integer>> matrix = new LinkedHashMap<>();
+        if (dense != null) {
+            for (int i = 0; i < dense.length; i++)
+                if (dense[i] != 0)
+                    addTo(matrix, i / numClasses, i % numClasses, dense[i]);
+        } else {
+            for (int i = 0; i < keys.length; i++)
+                if (keys[i] != EMPTY && values[i] != 0)
+                    addTo(matrix, (int) (keys[i] / numClasses), (int) (keys[i] % numClasses), values[i]);
+        }
+        return matrix;
+    }
+
+    private static void addTo(Map<Integer, Multiset<Integer>> matrix, int actual, int predicted, int count) {
+        Multiset<Integer> row = matrix.get(actual);
+        if (row == null) {
+            row = HashMultiset.create();
+            matrix.put(actual, row);
+        }
+        row.add(predicted, count);
+    }
+
+    private void increment(int actual, int predicted, int count) {
+        if (actual < 0 || actual >= numClasses || predicted < 0 || predicted >= numClasses)
+            throw new IllegalArgumentException("Invalid classes: actual=" + actual + ", predicted=" + predicted
+                            + " (expected values 0 to " + (numClasses - 1) + ")");
+
+        actualTotals[actual] += count;
+        predictedTotals[predicted] += count;
+
+        if (dense != null) {
+            dense[actual * numClasses + predicted] += count;
+            return;
+        }
+
+        long key = (long) actual * numClasses + predicted;
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            values[slot] = count;
+            if (++size > keys.length / 2)
+                rehash();
+        } else {
+            values[slot] += count;
+        }
+    }
+
+    /**
+     * @return slot containing the key, or empty slot where it should be inserted
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getMatrix().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof IntConfusionMatrix))
+            return super.equals(o);
+
+        IntConfusionMatrix other = (IntConfusionMatrix) o;
+        if (numClasses != other.numClasses)
+            return false;
+        if (dense != null && other.dense != null)
+            return Arrays.equals(dense, other.dense);
+        return getMatrix().equals(other.getMatrix());
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
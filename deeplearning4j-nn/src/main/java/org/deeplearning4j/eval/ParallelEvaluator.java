@@ -0,0 +1,447 @@
+package org.deeplearning4j.eval;
+
+import lombok.NonNull;
+import org.apache.commons.lang3.SerializationUtils;
+import org.deeplearning4j.datasets.iterator.AsyncDataSetIterator;
+import org.deeplearning4j.datasets.iterator.AsyncMultiDataSetIterator;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+/**
+ * Evaluates a network on multiple threads.
+ *
+ * Minibatches are fetched from the iterator on the calling thread, and distributed between numWorkers worker threads.
+ * Each worker evaluates its minibatches with its own replica of the network (sharing the parameters of the original
+ * network, so no extra memory is used for parameters) and its own copies of the IEvaluation instances.
+ * Once the iterator is exhausted, results of all workers are combined with {@link IEvaluation#merge(IEvaluation)}
+ * into the provided IEvaluation instances.
+ *
+ * PLEASE NOTE: provided IEvaluation instances are expected to be empty (i.e., new or reset) - same as for
+ * distributed evaluation on Spark.
+ *
+ * @see MultiLayerNetwork#doEvaluation(DataSetIterator, int, IEvaluation[])
+ * @see ComputationGraph#doEvaluation(DataSetIterator, int, IEvaluation[])
+ * @see ComputationGraph#doEvaluation(MultiDataSetIterator, int, IEvaluation[])
+ */
+public class ParallelEvaluator {
+
+    private static final Object END_OF_DATA = new Object();
+
+    private ParallelEvaluator() {}
+
+    /**
+     * This method evaluates MultiLayerNetwork on the given data, using numWorkers threads
+     *
+     * @param network     network to evaluate
+     * @param iterator    data to evaluate on
+     * @param numWorkers  number of threads to use
+     * @param evaluations IEvaluation instances to store results into
+     * @return provided IEvaluation instances, after performing evaluation
+     */
+    public static <T extends IEvaluation> T[] evaluate(@NonNull MultiLayerNetwork network,
+                    @NonNull DataSetIterator iterator, int numWorkers, T... evaluations) {
+        if (numWorkers <= 1)
+            return network.doEvaluation(iterator, evaluations);
+
+        List<Replica<T>> replicas = new ArrayList<>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            final MultiLayerNetwork replica = new MultiLayerNetwork(network.getLayerWiseConfigurations().clone());
+            replica.init(network.params(), false);
+            replicas.add(new Replica<T>(evaluations) {
+                @Override
+                protected void evaluate(BlockingQueue<Object> queue, T[] workerEvaluations) {
+                    replica.doEvaluation(new QueueDataSetIterator(queue), workerEvaluations);
+                }
+            });
+        }
+
+        return run(dataSetIterator(iterator, numWorkers), replicas, evaluations);
+    }
+
+    /**
+     * This method evaluates ComputationGraph on the given data, using numWorkers threads
+     *
+     * @param graph       network to evaluate
+     * @param iterator    data to evaluate on
+     * @param numWorkers  number of threads to use
+     * @param evaluations IEvaluation instances to store results into
+     * @return provided IEvaluation instances, after performing evaluation
+     */
+    public static <T extends IEvaluation> T[] evaluate(@NonNull ComputationGraph graph,
+                    @NonNull DataSetIterator iterator, int numWorkers, T... evaluations) {
+        if (numWorkers <= 1)
+            return graph.doEvaluation(iterator, evaluations);
+
+        List<Replica<T>> replicas = new ArrayList<>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            final ComputationGraph replica = graphReplica(graph);
+            replicas.add(new Replica<T>(evaluations) {
+                @Override
+                protected void evaluate(BlockingQueue<Object> queue, T[] workerEvaluations) {
+                    replica.doEvaluation(new QueueDataSetIterator(queue), workerEvaluations);
+                }
+            });
+        }
+
+        return run(dataSetIterator(iterator, numWorkers), replicas, evaluations);
+    }
+
+    /**
+     * This method evaluates ComputationGraph on the given data, using numWorkers threads
+     *
+     * @param graph       network to evaluate
+     * @param iterator    data to evaluate on
+     * @param numWorkers  number of threads to use
+     * @param evaluations IEvaluation instances to store results into
+     * @return provided IEvaluation instances, after performing evaluation
+     */
+    public static <T extends IEvaluation> T[] evaluate(@NonNull ComputationGraph graph,
+                    @NonNull MultiDataSetIterator iterator, int numWorkers, T... evaluations) {
+        if (numWorkers <= 1)
+            return graph.doEvaluation(iterator, evaluations);
+
+        List<Replica<T>> replicas = new ArrayList<>(numWorkers);
+        for (int i = 0; i < numWorkers; i++) {
+            final ComputationGraph replica = graphReplica(graph);
+            replicas.add(new Replica<T>(evaluations) {
+                @Override
+                protected void evaluate(BlockingQueue<Object> queue, T[] workerEvaluations) {
+                    replica.doEvaluation(new QueueMultiDataSetIterator(queue), workerEvaluations);
+                }
+            });
+        }
+
+        return run(multiDataSetIterator(iterator, numWorkers), replicas, evaluations);
+    }
+
+    private static ComputationGraph graphReplica(ComputationGraph graph) {
+        ComputationGraph replica = new ComputationGraph(graph.getConfiguration().clone());
+        replica.init(graph.params(), false);
+        return replica;
+    }
+
+    private static Source dataSetIterator(DataSetIterator iterator, int numWorkers) {
+        if (iterator.resetSupported() && !iterator.hasNext())
+            iterator.reset();
+
+        //No workspace for prefetched batches: they are queued for workers, and evaluated long after the async
+        //iterator would reuse workspace memory
+        final boolean async = iterator.asyncSupported();
+        final DataSetIterator iter =
+                        async ? new AsyncDataSetIterator(iterator, Math.max(2, numWorkers), false) : iterator;
+        return new Source() {
+            @Override
+            public Object next() {
+                if (!iter.hasNext())
+                    return null;
+                DataSet next = iter.next();
+                return next.getFeatures() == null || next.getLabels() == null ? null : next;
+            }
+
+            @Override
+            public void close() {
+                if (async)
+                    ((AsyncDataSetIterator) iter).shutdown();
+            }
+        };
+    }
+
+    private static Source multiDataSetIterator(MultiDataSetIterator iterator, int numWorkers) {
+        if (iterator.resetSupported() && !iterator.hasNext())
+            iterator.reset();
+
+        //No workspace for prefetched batches, see dataSetIterator()
+        final boolean async = iterator.asyncSupported();
+        final MultiDataSetIterator iter =
+                        async ? new AsyncMultiDataSetIterator(iterator, Math.max(2, numWorkers), false) : iterator;
+        return new Source() {
+            @Override
+            public Object next() {
+                if (!iter.hasNext())
+                    return null;
+                MultiDataSet next = iter.next();
+                return next.getFeatures() == null || next.getLabels() == null ? null : next;
+            }
+
+            @Override
+            public void close() {
+                if (async)
+                    ((AsyncMultiDataSetIterator) iter).shutdown();
+            }
+        };
+    }
+
+    private static <T extends IEvaluation> T[] run(Source source, List<Replica<T>> replicas, T[] evaluations) {
+        int numWorkers = replicas.size();
+        BlockingQueue<Object> queue = new LinkedBlockingQueue<>(2 * numWorkers);
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setName("ParallelEvaluator thread");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        try {
+            List<Future<T[]>> futures = new ArrayList<>(numWorkers);
+            for (Replica<T> replica : replicas)
+                futures.add(executor.submit(replica.task(queue)));
+
+            Object next;
+            while ((next = source.next()) != null)
+                put(queue, next, futures);
+
+            for (int i = 0; i < numWorkers; i++)
+                put(queue, END_OF_DATA, futures);
+
+            for (Future<T[]> future : futures) {
+                T[] result = get(future);
+                for (int i = 0; i < evaluations.length; i++)
+                    evaluations[i].merge(result[i]);
+            }
+        } finally {
+            executor.shutdownNow();
+            source.close();
+        }
+
+        return evaluations;
+    }
+
+    /**
+     * Puts minibatch into the queue, failing fast if any of the workers has failed
+     */
+    private static void put(BlockingQueue<Object> queue, Object element, List<? extends Future<?>> workers) {
+        try {
+            while (!queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+                for (Future<?> f : workers)
+                    if (f.isDone())
+                        get(f);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static <V> V get(Future<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Source of minibatches, consumed on the calling thread
+     */
+    private static abstract class Source {
+        /**
+         * @return next minibatch, or null if there's no more data
+         */
+        public abstract Object next();
+
+        public void close() {
+            //No op by default
+        }
+    }
+
+    /**
+     * Network replica and evaluations of a single worker
+     */
+    private static abstract class Replica<T extends IEvaluation> {
+        protected final T[] evaluations;
+
+        protected Replica(T[] original) {
+            evaluations = (T[]) Array.newInstance(original.getClass().getComponentType(), original.length);
+            for (int i = 0; i < original.length; i++) {
+                evaluations[i] = (T) SerializationUtils.clone(original[i]);
+                evaluations[i].reset();
+            }
+        }
+
+        protected abstract void evaluate(BlockingQueue<Object> queue, T[] workerEvaluations);
+
+        protected Callable<T[]> task(final BlockingQueue<Object> queue) {
+            return new Callable<T[]>() {
+                @Override
+                public T[] call() throws Exception {
+                    evaluate(queue, evaluations);
+                    return evaluations;
+                }
+            };
+        }
+    }
+
+    /**
+     * Iterates over minibatches from the queue, until end of data marker is found
+     */
+    private static class QueueIterator {
+        private final BlockingQueue<Object> queue;
+        private Object next;
+        private boolean finished;
+
+        protected QueueIterator(BlockingQueue<Object> queue) {
+            this.queue = queue;
+        }
+
+        public boolean hasNext() {
+            if (finished)
+                return false;
+
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+
+                if (next == END_OF_DATA) {
+                    next = null;
+                    finished = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected Object nextElement() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Object element = next;
+            next = null;
+            return element;
+        }
+
+        public boolean resetSupported() {
+            return false;
+        }
+
+        public boolean asyncSupported() {
+            //Already prefetched on the calling thread
+            return false;
+        }
+
+        public void reset() {
+            throw new UnsupportedOperationException("Reset not supported");
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+    private static class QueueDataSetIterator extends QueueIterator implements DataSetIterator {
+        private DataSetPreProcessor preProcessor;
+
+        protected QueueDataSetIterator(BlockingQueue<Object> queue) {
+            super(queue);
+        }
+
+        @Override
+        public DataSet next() {
+            return (DataSet) nextElement();
+        }
+
+        @Override
+        public DataSet next(int num) {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public int totalExamples() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public int inputColumns() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public int totalOutcomes() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public int batch() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public int cursor() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public int numExamples() {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public void setPreProcessor(DataSetPreProcessor preProcessor) {
+            this.preProcessor = preProcessor;
+        }
+
+        @Override
+        public DataSetPreProcessor getPreProcessor() {
+            return preProcessor;
+        }
+
+        @Override
+        public List<String> getLabels() {
+            return null;
+        }
+    }
+
+    private static class QueueMultiDataSetIterator extends QueueIterator implements MultiDataSetIterator {
+        private MultiDataSetPreProcessor preProcessor;
+
+        protected QueueMultiDataSetIterator(BlockingQueue<Object> queue) {
+            super(queue);
+        }
+
+        @Override
+        public MultiDataSet next() {
+            return (MultiDataSet) nextElement();
+        }
+
+        @Override
+        public MultiDataSet next(int num) {
+            throw new UnsupportedOperationException("Not supported");
+        }
+
+        @Override
+        public void setPreProcessor(MultiDataSetPreProcessor preProcessor) {
+            this.preProcessor = preProcessor;
+        }
+
+        @Override
+        public MultiDataSetPreProcessor getPreProcessor() {
+            return preProcessor;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.nd4j.linalg.primitives.Pair;
 import org.deeplearning4j.eval.curves.PrecisionRecallCurve;
 import org.deeplearning4j.eval.curves.RocCurve;
 import org.deeplearning4j.eval.serde.ROCSerializer;
+import org.deeplearning4j.eval.sketch.TDigest;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.api.ops.Op;
 import org.nd4j.linalg.api.ops.impl.transforms.arithmetic.MulOp;
@@ -26,9 +27,10 @@ import java.util.Map;
 
 /**
  * ROC (Receiver Operating Characteristic) for binary classifiers.<br>
- * ROC has 2 modes of operation:
+ * ROC has 3 modes of operation:
  * (a) Thresholded (default, less memory)<br>
- * (b) Exact (use numSteps == 0. May not scale to very large datasets)
+ * (b) Exact (use numSteps == 0. May not scale to very large datasets)<br>
+ * (c) Sketch (use {@link #createSketch(double)}. Bounded memory, close to exact)
  *
  * <p>
  * Thresholded Is an approximate method, that (for large datasets) may use significantly less memory than exact..
@@ -39,6 +41,12 @@ import java.util.Map;
  * Note that in some cases (very skewed probability predictions, for example) the threshold approach can be inaccurate,
  * often underestimating the true area.
  * <p>
+ * Sketch mode keeps a mergeable quantile sketch ({@link TDigest}) of the predicted probabilities for each of the
+ * actual positive and actual negative examples. Memory use is fixed (set by the compression parameter), the thresholds
+ * are adapted to the data as in exact mode, and the ROC and precision-recall curves are estimated from the sketches,
+ * with an error of about 1/compression. Unlike exact mode, the sketches are stored in the JSON, and instances can be
+ * merged (i.e., for distributed evaluation) without collecting the predictions.
+ * <p>
  * The data is assumed to be binary classification - nColumns == 1 (single binary output variable) or nColumns == 2
  * (probability distribution over 2 classes, with column 1 being values for 'positive' examples)
  *
@@ -70,6 +78,11 @@ public class ROC extends BaseEvaluation<ROC> {
     private boolean rocRemoveRedundantPts;
     private int exactAllocBlockSize;
 
+    private boolean isSketch;
+    private double sketchCompression;
+    private TDigest positiveScores;
+    private TDigest negativeScores;
+
     public ROC() {
         //Default to exact
         this(0);
@@ -118,6 +131,33 @@ public class ROC extends BaseEvaluation<ROC> {
         this.exactAllocBlockSize = exactAllocBlockSize;
     }
 
+    /**
+     * Create a ROC instance that uses the sketch mode: see {@link ROC} for details.
+     *
+     * @param compression Compression for the quantile sketches. Larger values are more accurate (error of about
+     *                    1/compression), but use more memory. For example, 200
+     */
+    public static ROC createSketch(double compression) {
+        return createSketch(compression, true);
+    }
+
+    /**
+     * Create a ROC instance that uses the sketch mode: see {@link ROC} for details.
+     *
+     * @param compression           Compression for the quantile sketches. Larger values are more accurate (error of
+     *                              about 1/compression), but use more memory. For example, 200
+     * @param rocRemoveRedundantPts Usually set to true. If true,  remove any redundant points from ROC and P-R curves
+     */
+    public static ROC createSketch(double compression, boolean rocRemoveRedundantPts) {
+        ROC roc = new ROC(0, rocRemoveRedundantPts);
+        roc.isExact = false;
+        roc.isSketch = true;
+        roc.sketchCompression = compression;
+        roc.positiveScores = new TDigest(compression);
+        roc.negativeScores = new TDigest(compression);
+        return roc;
+    }
+
     protected INDArray getProbAndLabelUsed() {
         if (probAndLabel == null || exampleCount == 0) {
             return null;
@@ -149,6 +189,9 @@ public class ROC extends BaseEvaluation<ROC> {
 
         if (isExact) {
             probAndLabel = null;
+        } else if (isSketch) {
+            positiveScores = new TDigest(sketchCompression);
+            negativeScores = new TDigest(sketchCompression);
         } else {
             double step = 1.0 / thresholdSteps;
             for (int i = 0; i <= thresholdSteps; i++) {
@@ -160,6 +203,8 @@ public class ROC extends BaseEvaluation<ROC> {
         exampleCount = 0;
         auc = null;
         auprc = null;
+        rocCurve = null;
+        prCurve = null;
     }
 
     @Override
@@ -230,6 +275,35 @@ public class ROC extends BaseEvaluation<ROC> {
             int countClass1CurrMinibatch = labelClass1.sumNumber().intValue();
             countActualPositive += countClass1CurrMinibatch;
             countActualNegative += labels.size(0) - countClass1CurrMinibatch;
+        } else if (isSketch) {
+            //Sketch approach: add the probabilities to the sketch for the actual class
+            INDArray probClass1;
+            INDArray labelClass1;
+            if (singleOutput) {
+                probClass1 = predictions;
+                labelClass1 = labels;
+            } else {
+                probClass1 = predictions.getColumn(1);
+                labelClass1 = labels.getColumn(1);
+            }
+            double[] prob = probClass1.dup().data().asDouble();
+            double[] label = labelClass1.dup().data().asDouble();
+
+            double[] pos = new double[prob.length];
+            double[] neg = new double[prob.length];
+            int countPos = 0;
+            int countNeg = 0;
+            for (int i = 0; i < prob.length; i++) {
+                if (label[i] > 0.5) {
+                    pos[countPos++] = prob[i];
+                } else {
+                    neg[countNeg++] = prob[i];
+                }
+            }
+            positiveScores.add(Arrays.copyOf(pos, countPos));
+            negativeScores.add(Arrays.copyOf(neg, countNeg));
+            countActualPositive += countPos;
+            countActualNegative += countNeg;
         } else {
             //Thresholded approach
             INDArray positivePredictedClassColumn;
@@ -330,7 +404,40 @@ public class ROC extends BaseEvaluation<ROC> {
         int[] fpCountOut;
         int[] fnCountOut;
 
-        if (isExact) {
+        if (isSketch) {
+            double[][] points = getSketchPoints();
+            thresholdOut = points[0];
+            precisionOut = new double[thresholdOut.length];
+            recallOut = new double[thresholdOut.length];
+            tpCountOut = new int[thresholdOut.length];
+            fpCountOut = new int[thresholdOut.length];
+            fnCountOut = new int[thresholdOut.length];
+
+            for (int i = 0; i < thresholdOut.length; i++) {
+                //Estimated (fractional) counts; same edge cases as thresholded mode
+                double tp = countActualPositive * points[1][i];
+                double fp = countActualNegative * points[2][i];
+                precisionOut[i] = (tp == 0 && fp == 0) ? 1.0 : tp / (tp + fp);
+                recallOut[i] = countActualPositive == 0 ? 1.0 : points[1][i];
+
+                tpCountOut[i] = (int) Math.round(tp);
+                fpCountOut[i] = (int) Math.round(fp);
+                fnCountOut[i] = (int) countActualPositive - tpCountOut[i];
+            }
+
+            if (rocRemoveRedundantPts) {
+                Pair<double[][], int[][]> pair = removeRedundant(thresholdOut, precisionOut, recallOut, tpCountOut,
+                                fpCountOut, fnCountOut);
+                double[][] temp = pair.getFirst();
+                int[][] temp2 = pair.getSecond();
+                thresholdOut = temp[0];
+                precisionOut = temp[1];
+                recallOut = temp[2];
+                tpCountOut = temp2[0];
+                fpCountOut = temp2[1];
+                fnCountOut = temp2[2];
+            }
+        } else if (isExact) {
             INDArray pl = getProbAndLabelUsed();
             INDArray sorted = Nd4j.sortRows(pl, 0, false);
             INDArray isPositive = sorted.getColumn(1);
@@ -473,7 +580,22 @@ public class ROC extends BaseEvaluation<ROC> {
             return rocCurve;
         }
 
-        if (isExact) {
+        if (isSketch) {
+            double[][] points = getSketchPoints();
+            double[] tOut = points[0];
+            double[] x_fpr_out = points[2];
+            double[] y_tpr_out = points[1];
+            if (rocRemoveRedundantPts) {
+                Pair<double[][], int[][]> p = removeRedundant(tOut, x_fpr_out, y_tpr_out, null, null, null);
+                double[][] temp = p.getFirst();
+                tOut = temp[0];
+                x_fpr_out = temp[1];
+                y_tpr_out = temp[2];
+            }
+
+            this.rocCurve = new RocCurve(tOut, x_fpr_out, y_tpr_out);
+            return rocCurve;
+        } else if (isExact) {
             //Sort ascending. As we decrease threshold, more are predicted positive.
             //if(prob <= threshold> predict 0, otherwise predict 1
             //So, as we iterate from i=0..length, first 0 to i (inclusive) are predicted class 1, all others are predicted class 0
@@ -540,6 +662,44 @@ public class ROC extends BaseEvaluation<ROC> {
         }
     }
 
+    /**
+     * Sketch mode: thresholds (ascending - the centroids of both sketches, plus 0 and 1), and the estimated fraction
+     * of actual positive and actual negative examples with predicted probability above each threshold (i.e., TPR and
+     * FPR at each threshold)
+     */
+    private double[][] getSketchPoints() {
+        double[] posMeans = positiveScores.getMeans();
+        double[] negMeans = negativeScores.getMeans();
+        double[] t = new double[posMeans.length + negMeans.length + 2];
+        System.arraycopy(posMeans, 0, t, 1, posMeans.length);
+        System.arraycopy(negMeans, 0, t, 1 + posMeans.length, negMeans.length);
+        t[t.length - 1] = 1.0;
+        Arrays.sort(t);
+
+        int length = 0;
+        for (int i = 0; i < t.length; i++) {
+            if (i == 0 || t[i] != t[length - 1]) {
+                t[length++] = t[i];
+            }
+        }
+        t = Arrays.copyOf(t, length);
+
+        double[] tpr = new double[length];
+        double[] fpr = new double[length];
+        for (int i = 0; i < length; i++) {
+            tpr[i] = 1.0 - positiveScores.cdf(t[i]);
+            fpr[i] = 1.0 - negativeScores.cdf(t[i]);
+        }
+
+        //Edge cases: threshold 0 -> all predicted positive; threshold 1 -> all predicted negative
+        tpr[0] = 1.0;
+        fpr[0] = 1.0;
+        tpr[length - 1] = 0.0;
+        fpr[length - 1] = 0.0;
+
+        return new double[][] {t, tpr, fpr};
+    }
+
     private static Pair<double[][], int[][]> removeRedundant(double[] threshold, double[] x, double[] y, int[] tpCount,
                     int[] fpCount, int[] fnCount) {
         double[] t_compacted = new double[threshold.length];
@@ -638,6 +798,10 @@ public class ROC extends BaseEvaluation<ROC> {
                             "Cannot merge ROC instances with different numbers of threshold steps ("
                                             + this.thresholdSteps + " vs. " + other.thresholdSteps + ")");
         }
+        if (this.isSketch != other.isSketch) {
+            throw new UnsupportedOperationException(
+                            "Cannot merge ROC instances using sketch mode with ROC instances using exact mode");
+        }
         this.countActualPositive += other.countActualPositive;
         this.countActualNegative += other.countActualNegative;
         this.auc = null;
@@ -666,6 +830,11 @@ public class ROC extends BaseEvaluation<ROC> {
             probAndLabel.put(new INDArrayIndex[] {
                             NDArrayIndex.interval(exampleCount, exampleCount + other.exampleCount), NDArrayIndex.all()},
                             toPut);
+        } else if (isSketch) {
+            positiveScores.merge(other.positiveScores);
+            negativeScores.merge(other.negativeScores);
+            rocCurve = null;
+            prCurve = null;
         } else {
             for (Double d : this.counts.keySet()) {
                 CountsForThreshold cft = this.counts.get(d);
@@ -14,7 +14,8 @@ import java.util.List;
 
 /**
  * ROC (Receiver Operating Characteristic) for multi-task binary classifiers.
- * As per {@link ROC}, ROCBinary supports both exact (thersholdSteps == 0) and thresholded; see {@link ROC} for details.
+ * As per {@link ROC}, ROCBinary supports exact (thersholdSteps == 0), thresholded and sketch
+ * ({@link #createSketch(double)}) modes; see {@link ROC} for details.
  * <p>
  * Unlike {@link ROC} (which supports a single binary label (as a single column probability, or 2 column 'softmax' probability
  * distribution), ROCBinary assumes that all outputs are independent binary variables. This also differs from
@@ -33,6 +34,7 @@ public class ROCBinary extends BaseEvaluation<ROCBinary> {
 
     private int thresholdSteps;
     private boolean rocRemoveRedundantPts;
+    private double sketchCompression;
     private List<String> labels;
 
     public ROCBinary() {
@@ -55,6 +57,28 @@ public class ROCBinary extends BaseEvaluation<ROCBinary> {
         this.rocRemoveRedundantPts = rocRemoveRedundantPts;
     }
 
+    /**
+     * Create a ROCBinary instance that uses the sketch mode for each output: see {@link ROC#createSketch(double)}
+     *
+     * @param compression Compression for the quantile sketches. Larger values are more accurate (error of about
+     *                    1/compression), but use more memory. For example, 200
+     */
+    public static ROCBinary createSketch(double compression) {
+        return createSketch(compression, true);
+    }
+
+    /**
+     * Create a ROCBinary instance that uses the sketch mode for each output: see {@link ROC#createSketch(double, boolean)}
+     *
+     * @param compression           Compression for the quantile sketches
+     * @param rocRemoveRedundantPts Usually set to true. If true,  remove any redundant points from ROC and P-R curves
+     */
+    public static ROCBinary createSketch(double compression, boolean rocRemoveRedundantPts) {
+        ROCBinary roc = new ROCBinary(0, rocRemoveRedundantPts);
+        roc.sketchCompression = compression;
+        return roc;
+    }
+
 
     @Override
     public void reset() {
@@ -82,7 +106,8 @@ public class ROCBinary extends BaseEvaluation<ROCBinary> {
         if (underlying == null) {
             underlying = new ROC[n];
             for (int i = 0; i < n; i++) {
-                underlying[i] = new ROC(thresholdSteps, rocRemoveRedundantPts);
+                underlying[i] = sketchCompression > 0 ? ROC.createSketch(sketchCompression, rocRemoveRedundantPts)
+                                : new ROC(thresholdSteps, rocRemoveRedundantPts);
             }
         }
 
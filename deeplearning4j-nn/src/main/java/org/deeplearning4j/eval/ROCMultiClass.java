@@ -13,7 +13,8 @@ import java.util.List;
 
 /**
  * ROC (Receiver Operating Characteristic) for multi-class classifiers.
-  As per {@link ROC}, ROCBinary supports both exact (thersholdSteps == 0) and thresholded; see {@link ROC} for details.
+ * As per {@link ROC}, ROCMultiClass supports exact (thersholdSteps == 0), thresholded and sketch
+ * ({@link #createSketch(double)}) modes; see {@link ROC} for details.
  * <p>
  * The ROC curves are produced by treating the predictions as a set of one-vs-all classifiers, and then calculating
  * ROC curves for each. In practice, this means for N classes, we get N ROC curves.
@@ -27,6 +28,7 @@ public class ROCMultiClass extends BaseEvaluation<ROCMultiClass> {
 
     private int thresholdSteps;
     private boolean rocRemoveRedundantPts;
+    private double sketchCompression;
     @JsonSerialize(using = ROCArraySerializer.class)
     private ROC[] underlying;
     private List<String> labels;
@@ -52,6 +54,28 @@ public class ROCMultiClass extends BaseEvaluation<ROCMultiClass> {
         this.rocRemoveRedundantPts = rocRemoveRedundantPts;
     }
 
+    /**
+     * Create a ROCMultiClass instance that uses the sketch mode for each output: see {@link ROC#createSketch(double)}
+     *
+     * @param compression Compression for the quantile sketches. Larger values are more accurate (error of about
+     *                    1/compression), but use more memory. For example, 200
+     */
+    public static ROCMultiClass createSketch(double compression) {
+        return createSketch(compression, true);
+    }
+
+    /**
+     * Create a ROCMultiClass instance that uses the sketch mode for each output: see {@link ROC#createSketch(double, boolean)}
+     *
+     * @param compression           Compression for the quantile sketches
+     * @param rocRemoveRedundantPts Usually set to true. If true,  remove any redundant points from ROC and P-R curves
+     */
+    public static ROCMultiClass createSketch(double compression, boolean rocRemoveRedundantPts) {
+        ROCMultiClass roc = new ROCMultiClass(0, rocRemoveRedundantPts);
+        roc.sketchCompression = compression;
+        return roc;
+    }
+
     @Override
     public void reset() {
         underlying = null;
@@ -124,7 +148,8 @@ public class ROCMultiClass extends BaseEvaluation<ROCMultiClass> {
         if (underlying == null) {
             underlying = new ROC[n];
             for (int i = 0; i < n; i++) {
-                underlying[i] = new ROC(thresholdSteps, rocRemoveRedundantPts);
+                underlying[i] = sketchCompression > 0 ? ROC.createSketch(sketchCompression, rocRemoveRedundantPts)
+                                : new ROC(thresholdSteps, rocRemoveRedundantPts);
             }
         }
 
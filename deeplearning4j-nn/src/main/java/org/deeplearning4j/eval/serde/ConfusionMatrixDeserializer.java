@@ -1,6 +1,7 @@
 package org.deeplearning4j.eval.serde;
 
 import org.deeplearning4j.eval.ConfusionMatrix;
+import org.deeplearning4j.eval.IntConfusionMatrix;
 import org.nd4j.shade.jackson.core.JsonParser;
 import org.nd4j.shade.jackson.core.JsonProcessingException;
 import org.nd4j.shade.jackson.databind.DeserializationContext;
@@ -33,7 +34,8 @@ public class ConfusionMatrixDeserializer extends JsonDeserializer<ConfusionMatri
             classes.add(cn.asInt());
         }
 
-        ConfusionMatrix<Integer> cm = new ConfusionMatrix<>(classes);
+        ConfusionMatrix<Integer> cm = IntConfusionMatrix.isSupported(classes)
+                        ? new IntConfusionMatrix(classes.size()) : new ConfusionMatrix<>(classes);
 
         ObjectNode matrix = (ObjectNode) n.get("matrix");
         Iterator<Map.Entry<String, JsonNode>> matrixIter = matrix.fields();
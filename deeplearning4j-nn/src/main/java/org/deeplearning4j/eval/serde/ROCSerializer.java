@@ -41,6 +41,13 @@ public class ROCSerializer extends JsonSerializer<ROC> {
         jsonGenerator.writeBooleanField("isExact", roc.isExact());
         jsonGenerator.writeNumberField("exampleCount", roc.getExampleCount());
         jsonGenerator.writeBooleanField("rocRemoveRedundantPts", roc.isRocRemoveRedundantPts());
+        if (roc.isSketch()) {
+            //Sketches are small (fixed size), and needed for merging and recalculating the curves later
+            jsonGenerator.writeBooleanField("isSketch", true);
+            jsonGenerator.writeNumberField("sketchCompression", roc.getSketchCompression());
+            jsonGenerator.writeObjectField("positiveScores", roc.getPositiveScores());
+            jsonGenerator.writeObjectField("negativeScores", roc.getNegativeScores());
+        }
     }
 
     @Override
@@ -0,0 +1,259 @@
+package org.deeplearning4j.eval.sketch;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch (t-digest, merging variant) for streams of doubles.
+ *
+ * Values are summarized by at most O(compression) weighted centroids, with smaller centroids near the tails of the
+ * distribution (arcsin scale function), so both the CDF near 0 and 1 and the bulk of the distribution are accurate.
+ * Absolute error of {@link #cdf(double)} is roughly O(1/compression), independently of the number of values added.
+ * Two digests can be merged without access to the original values, i.e. after distributed evaluation.
+ *
+ * Values are added in batches: each call to {@link #add(double[])} sorts the batch and merges it into the centroids,
+ * so no unmerged buffer is kept between calls.
+ *
+ * See: Dunning &amp; Ertl, "Computing Extremely Accurate Quantiles Using t-Digests"
+ */
+@EqualsAndHashCode
+public class TDigest implements Serializable {
+    public static final double DEFAULT_COMPRESSION = 200;
+
+    @Getter
+    private double compression;
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    @Getter
+    private double totalWeight;
+    @Getter
+    private double min = Double.NaN;
+    @Getter
+    private double max = Double.NaN;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression Compression factor: larger values give more accurate results (max. error of about
+     *                    1/compression), but use more memory (about 2 * compression centroids)
+     */
+    public TDigest(double compression) {
+        if (compression < 10)
+            throw new IllegalArgumentException("Compression should be at least 10, got " + compression);
+        this.compression = compression;
+    }
+
+    /**
+     * Creates a copy of the other digest
+     */
+    public TDigest(@NonNull TDigest other) {
+        this.compression = other.compression;
+        this.means = other.means.clone();
+        this.weights = other.weights.clone();
+        this.totalWeight = other.totalWeight;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    /**
+     * @return Number of centroids currently used
+     */
+    public int size() {
+        return means.length;
+    }
+
+    public boolean isEmpty() {
+        return totalWeight == 0;
+    }
+
+    public void add(double value) {
+        add(new double[] {value});
+    }
+
+    /**
+     * Add all values to the digest. NaN values are not allowed
+     */
+    public void add(@NonNull double[] values) {
+        if (values.length == 0)
+            return;
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        if (Double.isNaN(sorted[sorted.length - 1]))
+            throw new IllegalArgumentException("Cannot add NaN values to TDigest");
+
+        double[] w = new double[sorted.length];
+        Arrays.fill(w, 1.0);
+        mergeSorted(sorted, w, sorted[0], sorted[sorted.length - 1]);
+    }
+
+    /**
+     * Merge other digest into this one. Other digest is not modified
+     */
+    public void merge(@NonNull TDigest other) {
+        if (other.isEmpty())
+            return;
+        mergeSorted(other.means, other.weights, other.min, other.max);
+    }
+
+    private void mergeSorted(double[] otherMeans, double[] otherWeights, double otherMin, double otherMax) {
+        int n = means.length + otherMeans.length;
+        double[] m = new double[n];
+        double[] w = new double[n];
+        int i = 0, j = 0, k = 0;
+        while (i < means.length || j < otherMeans.length) {
+            if (j >= otherMeans.length || (i < means.length && means[i] <= otherMeans[j])) {
+                m[k] = means[i];
+                w[k++] = weights[i++];
+            } else {
+                m[k] = otherMeans[j];
+                w[k++] = otherWeights[j++];
+            }
+        }
+
+        double total = totalWeight;
+        for (double d : otherWeights)
+            total += d;
+
+        min = isEmpty() ? otherMin : Math.min(min, otherMin);
+        max = isEmpty() ? otherMax : Math.max(max, otherMax);
+        totalWeight = total;
+        compress(m, w);
+    }
+
+    /**
+     * Merges adjacent centroids (sorted by mean), as long as size of each centroid is within the limit given by the
+     * scale function
+     */
+    private void compress(double[] m, double[] w) {
+        int last = 0;
+        double weightSoFar = 0;
+        double limit = totalWeight * qLimit(0);
+        for (int i = 1; i < m.length; i++) {
+            double proposed = w[last] + w[i];
+            if (weightSoFar + proposed <= limit) {
+                //Merge into current centroid
+                m[last] += (m[i] - m[last]) * w[i] / proposed;
+                w[last] = proposed;
+            } else {
+                weightSoFar += w[last];
+                limit = totalWeight * qLimit(weightSoFar / totalWeight);
+                last++;
+                m[last] = m[i];
+                w[last] = w[i];
+            }
+        }
+
+        means = Arrays.copyOf(m, last + 1);
+        weights = Arrays.copyOf(w, last + 1);
+    }
+
+    /**
+     * @return max quantile of a centroid starting at quantile q: k(q) + 1, converted back to quantile
+     */
+    private double qLimit(double q) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        if (k >= compression / 4)
+            return 1.0;
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    /**
+     * Estimate fraction of values less than or equal to x. Values equal to a centroid mean count as half
+     *
+     * @param x Value to get the CDF for
+     * @return Fraction of values, 0 to 1
+     */
+    public double cdf(double x) {
+        if (isEmpty())
+            return Double.NaN;
+        if (x < min)
+            return 0.0;
+        if (x >= max)
+            return 1.0;
+
+        int n = means.length;
+        if (n == 1) {
+            //Single centroid: interpolate between min and max
+            return max == min ? 0.5 : (x - min) / (max - min);
+        }
+
+        if (x < means[0]) {
+            //Between min and first centroid: first half of first centroid
+            return weights[0] / 2 * (x - min) / (means[0] - min) / totalWeight;
+        }
+
+        double cumulative = 0;
+        for (int i = 0; i < n - 1; i++) {
+            if (x < means[i + 1]) {
+                double halfLeft = weights[i] / 2;
+                double halfRight = weights[i + 1] / 2;
+                double fraction = means[i + 1] == means[i] ? 0.5 : (x - means[i]) / (means[i + 1] - means[i]);
+                return (cumulative + halfLeft + (halfLeft + halfRight) * fraction) / totalWeight;
+            }
+            cumulative += weights[i];
+        }
+
+        //Between last centroid and max: second half of last centroid
+        double halfLast = weights[n - 1] / 2;
+        double fraction = max == means[n - 1] ? 0.5 : (x - means[n - 1]) / (max - means[n - 1]);
+        return (cumulative + halfLast + halfLast * fraction) / totalWeight;
+    }
+
+    /**
+     * Estimate the value at the given quantile
+     *
+     * @param q Quantile, 0 to 1
+     * @return Estimated value
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1)
+            throw new IllegalArgumentException("Quantile should be between 0 and 1, got " + q);
+        if (isEmpty())
+            return Double.NaN;
+
+        int n = means.length;
+        double target = q * totalWeight;
+        if (n == 1 || target <= weights[0] / 2) {
+            double halfFirst = weights[0] / 2;
+            return n == 1 ? min + q * (max - min) : min + (means[0] - min) * target / halfFirst;
+        }
+
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < n - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step >= target)
+                return means[i] + (means[i + 1] - means[i]) * (target - cumulative) / step;
+            cumulative += step;
+        }
+
+        double halfLast = weights[n - 1] / 2;
+        return means[n - 1] + (max - means[n - 1]) * Math.min(1.0, (target - cumulative) / halfLast);
+    }
+
+    /**
+     * @return Copy of the centroid means, in ascending order
+     */
+    public double[] getMeans() {
+        return means.clone();
+    }
+
+    /**
+     * @return Copy of the centroid weights, in the same order as {@link #getMeans()}
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "TDigest(compression=" + compression + ", centroids=" + means.length + ", totalWeight=" + totalWeight
+                        + ", min=" + min + ", max=" + max + ")";
+    }
+}
@@ -39,6 +39,7 @@ import org.deeplearning4j.nn.conf.layers.FeedForwardLayer;
 import org.deeplearning4j.nn.gradient.DefaultGradient;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.util.ComputationGraphUtil;
+import org.deeplearning4j.nn.graph.util.ParallelBranchExecutor;
 import org.deeplearning4j.nn.graph.vertex.GraphVertex;
 import org.deeplearning4j.nn.graph.vertex.VertexIndices;
 import org.deeplearning4j.nn.graph.vertex.impl.InputVertex;
@@ -162,6 +163,16 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      */
     private int numOutputArrays;
 
+    /**
+     * Executor for independent branches of the graph. Null if vertices are executed sequentially (default)
+     */
+    protected transient ParallelBranchExecutor branchExecutor;
+
+    /**
+     * CacheMode set via {@link #setCacheMode(CacheMode)}. Null if layers use CacheMode from configuration
+     */
+    protected transient CacheMode cacheMode;
+
     //Current inputs, labels, input mask arrays and label mask arrays
     private transient INDArray[] inputs;
     private transient INDArray[] labels;
@@ -210,11 +221,62 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         if (mode == null)
             mode = CacheMode.NONE;
 
+        this.cacheMode = mode;
         for (Layer layer : layers) {
             layer.setCacheMode(mode);
         }
     }
 
+    /**
+     * This method enables parallel execution of independent branches of the graph (i.e. Inception or ResNet style
+     * blocks) during feed forward and backprop. Each vertex is executed by one of numThreads worker threads as soon
+     * as all of its inputs (or, for backprop, epsilons) are available.<br>
+     * PLEASE NOTE: activations and epsilons are passed between threads, so worker threads don't use workspaces.
+     * Because of that, vertices are still executed sequentially if {@link CacheMode} other than NONE is set, and
+     * during training if training {@link WorkspaceMode} other than NONE is set.
+     * This is mostly useful on many-core CPU machines, where single branch doesn't saturate all cores.
+     *
+     * @param numThreads number of worker threads. 0 or 1 disables parallel execution (default)
+     */
+    public void setBranchParallelism(int numThreads) {
+        if (numThreads < 0)
+            throw new IllegalArgumentException("Number of threads can't be negative, got " + numThreads);
+
+        if (branchExecutor != null) {
+            branchExecutor.shutdown();
+            branchExecutor = null;
+        }
+
+        if (numThreads > 1)
+            branchExecutor = new ParallelBranchExecutor(numThreads);
+    }
+
+    /**
+     * @return number of threads used for execution of independent branches; 1 if vertices are executed sequentially
+     * @see #setBranchParallelism(int)
+     */
+    public int getBranchParallelism() {
+        return branchExecutor == null ? 1 : branchExecutor.getNumThreads();
+    }
+
+    /**
+     * @param train true for training pass
+     * @return true if vertices should be executed by {@link #branchExecutor}
+     */
+    protected boolean useBranchExecutor(boolean train) {
+        if (branchExecutor == null)
+            return false;
+
+        //Worker threads have no workspaces: layers can't borrow cache workspace there, and training workspaces
+        //wouldn't be used anyway
+        CacheMode mode = cacheMode != null ? cacheMode : configuration.getCacheMode();
+        if (mode != null && mode != CacheMode.NONE)
+            return false;
+
+        return !train || configuration.getTrainingWorkspaceMode() == null
+                        || configuration.getTrainingWorkspaceMode() == WorkspaceMode.NONE;
+    }
+
     /**
      * This method returns configuration of this ComputationGraph
      *
@@ -1418,6 +1480,9 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      */
     protected Map<String, INDArray> feedForward(boolean train, boolean excludeOutputLayers,
                                                 boolean includeNonLayerVertexActivations, boolean publicApi) {
+        if (useBranchExecutor(train))
+            return feedForwardParallel(train, excludeOutputLayers, includeNonLayerVertexActivations);
+
         Map<String, INDArray> layerActivations = new HashMap<>();
 
         MemoryWorkspace workspace = configuration.getTrainingWorkspaceMode() == WorkspaceMode.NONE
@@ -1513,6 +1578,69 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return layerActivations;
     }
 
+    /**
+     * Same as {@link #feedForward(boolean, boolean, boolean, boolean)}, but independent vertices are executed in
+     * parallel, using {@link #branchExecutor}. All activations are detached, since they are passed between threads
+     */
+    protected Map<String, INDArray> feedForwardParallel(final boolean train, final boolean excludeOutputLayers,
+                                                        final boolean includeNonLayerVertexActivations) {
+        final Map<String, INDArray> layerActivations = new HashMap<>();
+
+        int[][] dependencies = new int[vertices.length][];
+        for (GraphVertex vertex : vertices)
+            dependencies[vertex.getVertexIndex()] = vertexIndices(vertex.getInputVertices());
+
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            branchExecutor.execute(topologicalOrder, dependencies, new ParallelBranchExecutor.VertexTask<INDArray>() {
+                @Override
+                public INDArray execute(int vertexIdx) {
+                    GraphVertex current = vertices[vertexIdx];
+                    if (current.isInputVertex())
+                        return inputs[current.getVertexIndex()];
+
+                    if (excludeOutputLayers && current.isOutputVertex() && current.hasLayer()
+                            && current.getLayer() instanceof IOutputLayer) {
+                        //Only the inputs to the output layers are required here
+                        return null;
+                    }
+
+                    return current.doForward(train);
+                }
+
+                @Override
+                public void onComplete(int vertexIdx, INDArray out) {
+                    if (out == null)
+                        return;
+
+                    GraphVertex current = vertices[vertexIdx];
+                    if (current.isInputVertex() || includeNonLayerVertexActivations || current.hasLayer()
+                            || current.isOutputVertex()) {
+                        layerActivations.put(current.getVertexName(), out);
+                    }
+
+                    //Now, set the inputs for the next vertices:
+                    VertexIndices[] outputsTo = current.getOutputVertices();
+                    if (outputsTo != null) {
+                        for (VertexIndices v : outputsTo)
+                            vertices[v.getVertexIndex()].setInput(v.getVertexEdgeNumber(), out);
+                    }
+                }
+            });
+        }
+
+        return layerActivations;
+    }
+
+    private static int[] vertexIndices(VertexIndices[] indices) {
+        if (indices == null)
+            return null;
+
+        int[] out = new int[indices.length];
+        for (int i = 0; i < indices.length; i++)
+            out[i] = indices[i].getVertexIndex();
+        return out;
+    }
+
     /**
      * Return an array of network outputs (predictions) at test time, given the specified network inputs
      * Network outputs are for output layers only.
@@ -1622,6 +1750,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             initGradientsView();
         }
 
+        if (useBranchExecutor(true)) {
+            calcBackpropGradientsParallel(truncatedBPTT, externalEpsilons);
+            return;
+        }
+
 
         MemoryWorkspace workspace =
                 configuration.getTrainingWorkspaceMode() == WorkspaceMode.NONE ? new DummyWorkspace()
@@ -1741,6 +1874,109 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         this.gradient = gradient;
     }
 
+    /**
+     * Same as {@link #calcBackpropGradients(boolean, INDArray...)}, but independent vertices are executed in
+     * parallel, using {@link #branchExecutor}. Each vertex is executed once epsilons from all vertices it outputs to
+     * are available. All epsilons are detached, since they are passed between threads
+     */
+    protected void calcBackpropGradientsParallel(final boolean truncatedBPTT, INDArray... externalEpsilons) {
+        //As in sequential backprop: nothing is done for vertices before the last frozen vertex in topological order
+        int first = 0;
+        for (int i = topologicalOrder.length - 1; i >= 0; i--) {
+            GraphVertex current = vertices[topologicalOrder[i]];
+            if (current.hasLayer() && current.getLayer() instanceof FrozenLayer) {
+                first = i + 1;
+                break;
+            }
+        }
+
+        List<Integer> toExecute = new ArrayList<>();
+        int[][] dependencies = new int[vertices.length][];
+        final boolean[] setVertexEpsilon = new boolean[topologicalOrder.length]; //If true: already set epsilon for this vertex; later epsilons should be *added* to the existing one, not set
+        for (int i = topologicalOrder.length - 1; i >= first; i--) {
+            GraphVertex current = vertices[topologicalOrder[i]];
+            if (current.isInputVertex())
+                continue; //No op
+
+            if (current.isOutputVertex()) {
+                int thisOutputNumber = configuration.getNetworkOutputs().indexOf(current.getVertexName());
+                if (current.getLayer() instanceof IOutputLayer) {
+                    ((IOutputLayer) current.getLayer()).setLabels(labels[thisOutputNumber]);
+                } else {
+                    if ((externalEpsilons == null || externalEpsilons.length == 0)
+                            && labels[thisOutputNumber] != null) {
+                        throw new DL4JException("Layer \"" + current.getVertexName() + "\" of type "
+                                + current.getLayer().getClass().getSimpleName()
+                                + " is set as network output "
+                                + "(but isn't an IOutputLayer). Only IOutputLayer layers can be fit via backprop with"
+                                + " a labels array. ");
+                    }
+                    current.setEpsilon(externalEpsilons[thisOutputNumber]);
+                    setVertexEpsilon[current.getVertexIndex()] = true;
+                }
+            }
+
+            toExecute.add(current.getVertexIndex());
+            dependencies[current.getVertexIndex()] = vertexIndices(current.getOutputVertices());
+        }
+
+        final Map<Integer, List<Triple<String, INDArray, Character>>> vertexGradients = new HashMap<>();
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            branchExecutor.execute(ArrayUtils.toPrimitive(toExecute.toArray(new Integer[toExecute.size()])),
+                    dependencies, new ParallelBranchExecutor.VertexTask<Pair<Gradient, INDArray[]>>() {
+                        @Override
+                        public Pair<Gradient, INDArray[]> execute(int vertexIdx) {
+                            return vertices[vertexIdx].doBackward(truncatedBPTT);
+                        }
+
+                        @Override
+                        public void onComplete(int vertexIdx, Pair<Gradient, INDArray[]> pair) {
+                            GraphVertex current = vertices[vertexIdx];
+                            INDArray[] epsilons = pair.getSecond();
+
+                            //Set epsilons for the vertices that provide inputs to this vertex:
+                            VertexIndices[] inputVertices = current.getInputVertices();
+                            if (inputVertices != null) {
+                                int j = 0;
+                                for (VertexIndices v : inputVertices) {
+                                    GraphVertex gv = vertices[v.getVertexIndex()];
+                                    if (setVertexEpsilon[gv.getVertexIndex()]) {
+                                        //This vertex: must output to multiple vertices... we want to add the epsilons here
+                                        gv.setEpsilon(gv.getEpsilon().add(epsilons[j++]));
+                                    } else {
+                                        gv.setEpsilon(epsilons[j++]);
+                                    }
+                                    setVertexEpsilon[gv.getVertexIndex()] = true;
+                                }
+                            }
+
+                            if (pair.getFirst() != null) {
+                                Gradient g = pair.getFirst();
+                                List<Triple<String, INDArray, Character>> list = new ArrayList<>();
+                                for (Map.Entry<String, INDArray> entry : g.gradientForVariable().entrySet()) {
+                                    String origName = entry.getKey();
+                                    list.add(new Triple<>(current.getVertexName() + "_" + origName,
+                                            entry.getValue(), g.flatteningOrderForVariable(origName)));
+                                }
+                                vertexGradients.put(vertexIdx, list);
+                            }
+                        }
+                    });
+        }
+
+        //Now, add the gradients in the order we need them in for flattening (same as params order)
+        Gradient gradient = new DefaultGradient(flattenedGradients);
+        for (int vertexIdx : topologicalOrder) {
+            List<Triple<String, INDArray, Character>> list = vertexGradients.get(vertexIdx);
+            if (list == null)
+                continue;
+            for (Triple<String, INDArray, Character> t : list)
+                gradient.setGradientFor(t.getFirst(), t.getSecond(), t.getThird());
+        }
+
+        this.gradient = gradient;
+    }
+
     @Override
     public ComputationGraph clone() {
         ComputationGraph cg = new ComputationGraph(configuration.clone());
@@ -3051,6 +3287,34 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return evaluations;
     }
 
+    /**
+     * Perform evaluation on the given data (DataSetIterator) with the given {@link IEvaluation} instances, on
+     * multiple threads. Minibatches are distributed between numWorkers replicas of this network (sharing its
+     * parameters), each with its own copy of the IEvaluation instances; results are then merged into the provided
+     * instances.
+     *
+     * @param iterator    Test data to evaluate on
+     * @param numWorkers  Number of threads to use. 1 is equivalent to {@link #doEvaluation(DataSetIterator, IEvaluation[])}
+     * @param evaluations IEvaluation instances (expected to be empty)
+     * @see ParallelEvaluator
+     */
+    public <T extends IEvaluation> T[] doEvaluation(DataSetIterator iterator, int numWorkers, T... evaluations) {
+        return ParallelEvaluator.evaluate(this, iterator, numWorkers, evaluations);
+    }
+
+    /**
+     * Perform evaluation on the given data (MultiDataSetIterator) with the given {@link IEvaluation} instances, on
+     * multiple threads.
+     *
+     * @param iterator    Test data to evaluate on
+     * @param numWorkers  Number of threads to use. 1 is equivalent to {@link #doEvaluation(MultiDataSetIterator, IEvaluation[])}
+     * @param evaluations IEvaluation instances (expected to be empty)
+     * @see #doEvaluation(DataSetIterator, int, IEvaluation[])
+     */
+    public <T extends IEvaluation> T[] doEvaluation(MultiDataSetIterator iterator, int numWorkers, T... evaluations) {
+        return ParallelEvaluator.evaluate(this, iterator, numWorkers, evaluations);
+    }
+
     /**
      * Perform evaluation on the given data (MultiDataSetIterator) with the given {@link IEvaluation} instance
      *
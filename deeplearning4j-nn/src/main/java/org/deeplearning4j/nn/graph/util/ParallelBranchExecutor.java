@@ -0,0 +1,169 @@
+package org.deeplearning4j.nn.graph.util;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+
+/**
+ * Executes vertices of a directed acyclic graph concurrently, respecting dependencies between them.
+ *
+ * Each vertex task is executed by one of worker threads as soon as all vertices it depends on are completed, so
+ * independent branches of the graph (i.e. Inception or ResNet style blocks) are executed in parallel.
+ * Completion callbacks are always invoked on the calling thread, one at a time, so bookkeeping (i.e. passing
+ * activations or epsilons to the next vertices) doesn't need any synchronization.
+ *
+ * @see org.deeplearning4j.nn.graph.ComputationGraph#setBranchParallelism(int)
+ */
+public class ParallelBranchExecutor {
+
+    /**
+     * Work for a single vertex
+     */
+    public interface VertexTask<T> {
+        /**
+         * This method is called on worker thread, once all dependencies of the vertex are completed
+         */
+        T execute(int vertex) throws Exception;
+
+        /**
+         * This method is called on the calling thread, before any vertex depending on this one is executed
+         */
+        void onComplete(int vertex, T result);
+    }
+
+    @Getter
+    private final int numThreads;
+    private final ExecutorService executor;
+
+    public ParallelBranchExecutor(int numThreads) {
+        if (numThreads < 1)
+            throw new IllegalArgumentException("Number of threads should be positive, got " + numThreads);
+
+        this.numThreads = numThreads;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = Executors.defaultThreadFactory().newThread(r);
+                t.setName("ParallelBranchExecutor thread");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * This method executes given vertices, and blocks until all of them are completed
+     *
+     * @param order        vertices to execute. Also defines priority: if there are more ready vertices than threads,
+     *                     vertices that come earlier in this array are executed first
+     * @param dependencies for each vertex index: vertices that have to be completed before it. Dependencies that
+     *                     aren't present in order are ignored. May contain duplicates
+     * @param task         work to do for each vertex
+     */
+    public <T> void execute(@NonNull int[] order, @NonNull int[][] dependencies, @NonNull final VertexTask<T> task) {
+        final int[] position = new int[dependencies.length];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < order.length; i++)
+            position[order[i]] = i;
+
+        int[] remaining = new int[dependencies.length];
+        List<List<Integer>> successors = new ArrayList<>(dependencies.length);
+        for (int i = 0; i < dependencies.length; i++)
+            successors.add(new ArrayList<Integer>());
+
+        for (int v : order) {
+            if (dependencies[v] == null)
+                continue;
+            for (int d : dependencies[v]) {
+                if (position[d] < 0)
+                    continue;
+                remaining[v]++;
+                successors.get(d).add(v);
+            }
+        }
+
+        PriorityQueue<Integer> ready = new PriorityQueue<>(Math.max(1, order.length), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Integer.compare(position[o1], position[o2]);
+            }
+        });
+        for (int v : order)
+            if (remaining[v] == 0)
+                ready.add(v);
+
+        CompletionService<Object[]> completionService = new ExecutorCompletionService<>(executor);
+        int inFlight = 0;
+        int completed = 0;
+        try {
+            while (completed < order.length) {
+                while (!ready.isEmpty() && inFlight < numThreads) {
+                    final int vertex = ready.poll();
+                    completionService.submit(new Callable<Object[]>() {
+                        @Override
+                        public Object[] call() throws Exception {
+                            return new Object[] {vertex, task.execute(vertex)};
+                        }
+                    });
+                    inFlight++;
+                }
+
+                if (inFlight == 0)
+                    throw new IllegalStateException("Unable to execute " + (order.length - completed)
+                                    + " vertices: dependencies can't be satisfied (cycle in graph?)");
+
+                Future<Object[]> future = completionService.take();
+                inFlight--;
+                Object[] result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new RuntimeException(cause);
+                }
+
+                int vertex = (Integer) result[0];
+                //result[1] is always returned by task.execute()
+                @SuppressWarnings("unchecked")
+                T value = (T) result[1];
+                task.onComplete(vertex, value);
+                completed++;
+
+                for (int s : successors.get(vertex))
+                    if (--remaining[s] == 0)
+                        ready.add(s);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            // never leave tasks running on the graph after returning
+            while (inFlight > 0) {
+                try {
+                    completionService.take();
+                    inFlight--;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method stops worker threads
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
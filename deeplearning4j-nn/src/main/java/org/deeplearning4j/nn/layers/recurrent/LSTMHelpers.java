@@ -15,6 +15,7 @@ import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.layers.BaseLayer;
 import org.deeplearning4j.util.Dropout;
+import org.deeplearning4j.util.TimeSeriesUtils;
 import org.nd4j.linalg.activations.IActivation;
 import org.nd4j.linalg.activations.impl.ActivationSigmoid;
 import org.nd4j.linalg.api.blas.Level1;
@@ -60,8 +61,35 @@ public class LSTMHelpers {
 
     //    public static final String SIGMOID = "sigmoid";
 
+    /**
+     * System property that controls batched input projection for time series input: if enabled (default), input
+     * projection in forward pass, and input weight gradients, bias gradients and epsilons in backward pass are
+     * calculated with one gemm for all time steps. Set to "false" to calculate them per time step, as before.
+     * Can also be changed at runtime via {@link #setBatchedInputProjection(boolean)}
+     * <p>
+     * This is a process-wide fallback rather than a layer configuration option: both paths give the same activations
+     * and gradients (up to floating point summation order, see LSTMBatchedInputProjectionTest), so the choice doesn't
+     * change the model and isn't stored with it. It's only meant for backends or shapes where per time step gemms
+     * turn out to be faster, and for ruling this path out when looking into numerical differences.
+     */
+    public static final String BATCHED_INPUT_PROJECTION = "org.deeplearning4j.lstm.batchedinputprojection.enabled";
+
+    private static volatile boolean batchedInputProjection =
+                    Boolean.parseBoolean(System.getProperty(BATCHED_INPUT_PROJECTION, "true"));
+
     private LSTMHelpers() {}
 
+    /**
+     * Enables or disables batched input projection, see {@link #BATCHED_INPUT_PROJECTION}
+     */
+    public static void setBatchedInputProjection(boolean enabled) {
+        batchedInputProjection = enabled;
+    }
+
+    public static boolean isBatchedInputProjection() {
+        return batchedInputProjection;
+    }
+
     /**
      * Returns FwdPassReturn object with activations/INDArrays. Allows activateHelper to be used for forward pass, backward pass
      * and rnnTimeStep whilst being reasonably efficient for all
@@ -194,6 +222,18 @@ public class LSTMHelpers {
             }
         }
 
+        //Input projection (input weights + biases) doesn't depend on previous time steps: for time series, calculate it
+        //for all time steps with one large gemm, instead of one small gemm per time step. Only the recurrent part
+        //(prevOutputActivations * recurrentWeights) has to be calculated sequentially
+        INDArray inputProjection = null;
+        if (batchedInputProjection && !is2dInput && timeSeriesLength > 1) {
+            INDArray input2d = Shape.toMmulCompatible(TimeSeriesUtils.reshape3dTo2d(input)); //Shape: [m*T,nIn]
+            INDArray projection2d = input2d.mmul(inputWeights).addiRowVector(biases); //Shape: [m*T,4*layerSize]
+            //F order, so that values for each time step are contiguous
+            inputProjection = Nd4j.createUninitialized(new int[] {miniBatchSize, 4 * hiddenLayerSize, timeSeriesLength},
+                            'f').assign(TimeSeriesUtils.reshape2dTo3d(projection2d, miniBatchSize));
+        }
+
         for (int iTimeIndex = 0; iTimeIndex < timeSeriesLength; iTimeIndex++) {
             int time = iTimeIndex;
 
@@ -202,23 +242,29 @@ public class LSTMHelpers {
             }
 
 
-            INDArray miniBatchData = (is2dInput ? input : input.tensorAlongDimension(time, 1, 0)); //[Expected shape: [m,nIn]. Also deals with edge case of T=1, with 'time series' data of shape [m,nIn], equiv. to [m,nIn,1]
-            miniBatchData = Shape.toMmulCompatible(miniBatchData);
-
             // if we're using cache here - let's create ifogActivations within cache workspace, so all views from this array will be valid in cache
             if (cacheMode != CacheMode.NONE)
                 Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(ComputationGraph.workspaceCache)
                                 .notifyScopeBorrowed();
 
             //Calculate activations for: network input + forget, output, input modulation gates. Next 3 lines are first part of those
-            INDArray ifogActivations = miniBatchData.mmul(inputWeights); //Shape: [miniBatch,4*layerSize]
+            INDArray ifogActivations; //Shape: [miniBatch,4*layerSize]
+            if (inputProjection != null) {
+                //Copy is required: ifogActivations is modified in-place below. Biases are already added here
+                ifogActivations = inputProjection.tensorAlongDimension(time, 1, 0).dup('f');
+            } else {
+                INDArray miniBatchData = (is2dInput ? input : input.tensorAlongDimension(time, 1, 0)); //[Expected shape: [m,nIn]. Also deals with edge case of T=1, with 'time series' data of shape [m,nIn], equiv. to [m,nIn,1]
+                miniBatchData = Shape.toMmulCompatible(miniBatchData);
+                ifogActivations = miniBatchData.mmul(inputWeights);
+            }
 
             if (cacheMode != CacheMode.NONE)
                 Nd4j.getWorkspaceManager().getWorkspaceForCurrentThread(ComputationGraph.workspaceCache)
                                 .notifyScopeLeft();
 
             Nd4j.gemm(prevOutputActivations, recurrentWeightsIFOG, ifogActivations, false, false, 1.0, 1.0);
-            ifogActivations.addiRowVector(biases);
+            if (inputProjection == null)
+                ifogActivations.addiRowVector(biases);
 
             INDArray inputActivations =
                             ifogActivations.get(NDArrayIndex.all(), NDArrayIndex.interval(0, hiddenLayerSize));
@@ -488,6 +534,14 @@ public class LSTMHelpers {
                                                         ComputationGraph.workspaceLSTM)
                                         : null;
 
+        //Input weight gradients, bias gradients and epsilonNext don't depend on the recurrent part: for time series,
+        //deltas of all time steps are collected here, and these are calculated with one large gemm each after the loop.
+        //F order here so that content for time steps are together
+        INDArray deltaifogAll = null;
+        if (batchedInputProjection && !is2dInput && timeSeriesLength > 1) {
+            deltaifogAll = Nd4j.create(new int[] {miniBatchSize, 4 * hiddenLayerSize, timeSeriesLength}, 'f');
+        }
+
         INDArray timeStepMaskColumn = null;
         for (int iTimeIndex = timeSeriesLength - 1; iTimeIndex >= endIdx; iTimeIndex--) {
 
@@ -616,13 +670,27 @@ public class LSTMHelpers {
                 //Later, the deltaifogNext is used to calculate: input weight gradients, recurrent weight gradients, bias gradients
             }
 
-            INDArray prevLayerActivationSlice =
-                            Shape.toMmulCompatible(is2dInput ? input : input.tensorAlongDimension(time, 1, 0));
-            if (iTimeIndex > 0 || prevHiddenUnitActivation != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
+            if (deltaifogAll != null) {
+                INDArray deltaifogSlice = deltaifogAll.tensorAlongDimension(time, 1, 0);
+                if (iTimeIndex > 0 || prevHiddenUnitActivation != null) {
+                    deltaifogSlice.assign(deltaifogNext);
+                } else {
+                    //No contribution from forget gate at t=0: deltafNext isn't calculated in this case
+                    deltaifogSlice.get(NDArrayIndex.all(), NDArrayIndex.interval(0, hiddenLayerSize)).assign(deltai);
+                    deltaifogSlice.get(NDArrayIndex.all(),
+                                    NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize))
+                                    .assign(deltaifogNext.get(NDArrayIndex.all(),
+                                                    NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize)));
+                }
+            } else if (iTimeIndex > 0 || prevHiddenUnitActivation != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
                 //Note that prevHiddenUnitActivations may be non-null at t=0 for TBPTT
                 //Again, deltaifog_current == deltaifogNext at this point... same array
+                INDArray prevLayerActivationSlice =
+                                Shape.toMmulCompatible(is2dInput ? input : input.tensorAlongDimension(time, 1, 0));
                 Nd4j.gemm(prevLayerActivationSlice, deltaifogNext, iwGradientsOut, true, false, 1.0, 1.0);
             } else {
+                INDArray prevLayerActivationSlice =
+                                Shape.toMmulCompatible(is2dInput ? input : input.tensorAlongDimension(time, 1, 0));
                 INDArray iwGradients_i =
                                 iwGradientsOut.get(NDArrayIndex.all(), NDArrayIndex.interval(0, hiddenLayerSize));
                 Nd4j.gemm(prevLayerActivationSlice, deltai, iwGradients_i, true, false, 1.0, 1.0);
@@ -655,45 +723,60 @@ public class LSTMHelpers {
                 l1BLAS.axpy(hiddenLayerSize, 1.0, dLdwOO, rwGradientsOO); //rwGradients[5].addi(dLdwOO);    //dL/dw_{OOxy}
             }
 
-            if (iTimeIndex > 0 || prevHiddenUnitActivation != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
-                //Note that prevHiddenUnitActivation may be non-null at t=0 for TBPTT
-                l1BLAS.axpy(4 * hiddenLayerSize, 1.0, deltaifogNext.sum(0), bGradientsOut);
-            } else {
-                l1BLAS.axpy(hiddenLayerSize, 1.0, deltai.sum(0), bGradientsOut); //Sneaky way to do bGradients_i += deltai.sum(0)
-                INDArray ogBiasToAdd = deltaifogNext.get(NDArrayIndex.all(),
-                                NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize)).sum(0);
-                INDArray ogBiasGrad = bGradientsOut.get(NDArrayIndex.point(0),
-                                NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
-                l1BLAS.axpy(2 * hiddenLayerSize, 1.0, ogBiasToAdd, ogBiasGrad);
-            }
+            //For time series, bias gradients and epsilonNext are calculated after the loop
+            if (deltaifogAll == null) {
+                if (iTimeIndex > 0 || prevHiddenUnitActivation != null) { //For time == 0 && no prevMemCellState, equivalent to muli by 0
+                    //Note that prevHiddenUnitActivation may be non-null at t=0 for TBPTT
+                    l1BLAS.axpy(4 * hiddenLayerSize, 1.0, deltaifogNext.sum(0), bGradientsOut);
+                } else {
+                    l1BLAS.axpy(hiddenLayerSize, 1.0, deltai.sum(0), bGradientsOut); //Sneaky way to do bGradients_i += deltai.sum(0)
+                    INDArray ogBiasToAdd = deltaifogNext.get(NDArrayIndex.all(),
+                                    NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize)).sum(0);
+                    INDArray ogBiasGrad = bGradientsOut.get(NDArrayIndex.point(0),
+                                    NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
+                    l1BLAS.axpy(2 * hiddenLayerSize, 1.0, ogBiasToAdd, ogBiasGrad);
+                }
 
-            //Calculate epsilonNext - i.e., equiv. to what would be (w^L*(d^(Lt))^T)^T in a normal network
-            //But here, need to add 4 weights * deltas for the IFOG gates
-            INDArray epsilonNextSlice = epsilonNext.tensorAlongDimension(time, 1, 0); //This slice: f order and contiguous, due to epsilonNext being defined as f order.
-            if (iTimeIndex > 0 || prevHiddenUnitActivation != null) {
-                //Note that prevHiddenUnitActivation may be non-null at t=0 for TBPTT
-                Nd4j.gemm(deltaifogNext, inputWeights, epsilonNextSlice, false, true, 1.0, 1.0);
-            } else {
-                //No contribution from forget gate at t=0
-                INDArray wi = inputWeights.get(NDArrayIndex.all(), NDArrayIndex.interval(0, hiddenLayerSize));
-                Nd4j.gemm(deltai, wi, epsilonNextSlice, false, true, 1.0, 1.0);
-                INDArray deltaog = deltaifogNext.get(NDArrayIndex.all(),
-                                NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
-                INDArray wog = inputWeights.get(NDArrayIndex.all(),
-                                NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
-                Nd4j.gemm(deltaog, wog, epsilonNextSlice, false, true, 1.0, 1.0); //epsilonNextSlice.addi(deltao.mmul(woTranspose)).addi(deltag.mmul(wgTranspose));
-            }
+                //Calculate epsilonNext - i.e., equiv. to what would be (w^L*(d^(Lt))^T)^T in a normal network
+                //But here, need to add 4 weights * deltas for the IFOG gates
+                INDArray epsilonNextSlice = epsilonNext.tensorAlongDimension(time, 1, 0); //This slice: f order and contiguous, due to epsilonNext being defined as f order.
+                if (iTimeIndex > 0 || prevHiddenUnitActivation != null) {
+                    //Note that prevHiddenUnitActivation may be non-null at t=0 for TBPTT
+                    Nd4j.gemm(deltaifogNext, inputWeights, epsilonNextSlice, false, true, 1.0, 1.0);
+                } else {
+                    //No contribution from forget gate at t=0
+                    INDArray wi = inputWeights.get(NDArrayIndex.all(), NDArrayIndex.interval(0, hiddenLayerSize));
+                    Nd4j.gemm(deltai, wi, epsilonNextSlice, false, true, 1.0, 1.0);
+                    INDArray deltaog = deltaifogNext.get(NDArrayIndex.all(),
+                                    NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
+                    INDArray wog = inputWeights.get(NDArrayIndex.all(),
+                                    NDArrayIndex.interval(2 * hiddenLayerSize, 4 * hiddenLayerSize));
+                    Nd4j.gemm(deltaog, wog, epsilonNextSlice, false, true, 1.0, 1.0); //epsilonNextSlice.addi(deltao.mmul(woTranspose)).addi(deltag.mmul(wgTranspose));
+                }
 
-            if (maskArray != null) {
-                //Mask array is present: bidirectional RNN -> need to zero out these errors to avoid sending anything
-                // but 0s to the layer below at this time step (for the given example)
-                epsilonNextSlice.muliColumnVector(timeStepMaskColumn);
+                if (maskArray != null) {
+                    //Mask array is present: bidirectional RNN -> need to zero out these errors to avoid sending anything
+                    // but 0s to the layer below at this time step (for the given example)
+                    epsilonNextSlice.muliColumnVector(timeStepMaskColumn);
+                }
             }
 
             if (workspace != null)
                 workspace.close();
         }
 
+        if (deltaifogAll != null) {
+            //Deltas are already masked, so no masking is required for epsilonNext here
+            INDArray input2d = Shape.toMmulCompatible(TimeSeriesUtils.reshape3dTo2d(input)); //Shape: [m*T,n^(L-1)]
+            INDArray deltaifog2d = Shape.toMmulCompatible(TimeSeriesUtils.reshape3dTo2d(deltaifogAll)); //Shape: [m*T,4n^L]
+            Nd4j.gemm(input2d, deltaifog2d, iwGradientsOut, true, false, 1.0, 1.0);
+            l1BLAS.axpy(4 * hiddenLayerSize, 1.0, deltaifog2d.sum(0), bGradientsOut);
+
+            INDArray epsilonNext2d = Nd4j.create(new int[] {miniBatchSize * timeSeriesLength, prevLayerSize}, 'f');
+            Nd4j.gemm(deltaifog2d, inputWeights, epsilonNext2d, false, true, 1.0, 0.0);
+            epsilonNext.assign(TimeSeriesUtils.reshape2dTo3d(epsilonNext2d, miniBatchSize));
+        }
+
         Gradient retGradient = new DefaultGradient();
         retGradient.gradientForVariable().put(inputWeightKey, iwGradientsOut);
         retGradient.gradientForVariable().put(recurrentWeightKey, rwGradientsOut);
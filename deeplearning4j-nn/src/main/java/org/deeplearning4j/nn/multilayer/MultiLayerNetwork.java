@@ -2924,6 +2924,20 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return evaluations;
     }
 
+    /**
+     * Perform evaluation using an arbitrary IEvaluation instance, on multiple threads.
+     * Minibatches are distributed between numWorkers replicas of this network (sharing its parameters), each with
+     * its own copy of the IEvaluation instances; results are then merged into the provided instances.
+     *
+     * @param iterator    data to evaluate on
+     * @param numWorkers  number of threads to use. 1 is equivalent to {@link #doEvaluation(DataSetIterator, IEvaluation[])}
+     * @param evaluations IEvaluation instances (expected to be empty)
+     * @see ParallelEvaluator
+     */
+    public <T extends IEvaluation> T[] doEvaluation(DataSetIterator iterator, int numWorkers, T... evaluations) {
+        return ParallelEvaluator.evaluate(this, iterator, numWorkers, evaluations);
+    }
+
     /**
      * Evaluate the network on the provided data set. Used for evaluating the performance of classifiers
      *
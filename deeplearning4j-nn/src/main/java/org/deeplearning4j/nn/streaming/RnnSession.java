@@ -0,0 +1,61 @@
+package org.deeplearning4j.nn.streaming;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle for a single stream (i.e. one user or one sensor) served by {@link RnnStreamingInference}.
+ * RNN state of the stream is kept outside of the network, in the state store of the worker this session is pinned to.
+ *
+ * Sessions are created with {@link RnnStreamingInference#openSession()}, and should be closed with
+ * {@link RnnStreamingInference#closeSession(RnnSession)} once stream is finished, so the state slot can be reused.
+ */
+public class RnnSession {
+    @Getter
+    private final long id;
+    @Getter
+    private final int worker;
+    @Getter
+    private final int slot;
+    protected final RnnStreamingInference owner;
+    // guards closing against submission of time steps, so no time step can be queued after session release
+    protected final Object lock = new Object();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    // accessed by worker thread only
+    private boolean released = false;
+
+    protected RnnSession(RnnStreamingInference owner, long id, int worker, int slot) {
+        this.owner = owner;
+        this.id = id;
+        this.worker = worker;
+        this.slot = slot;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * @return true if session was open before this call
+     */
+    protected boolean markClosed() {
+        return closed.compareAndSet(false, true);
+    }
+
+    /**
+     * @return true if state slot of this session was released by worker
+     */
+    protected boolean isReleased() {
+        return released;
+    }
+
+    protected void markReleased() {
+        released = true;
+    }
+
+    @Override
+    public String toString() {
+        return "RnnSession(id=" + id + ", worker=" + worker + ", slot=" + slot + ", closed=" + closed.get() + ")";
+    }
+}
@@ -0,0 +1,156 @@
+package org.deeplearning4j.nn.streaming;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+
+/**
+ * Pooled storage for the state of recurrent layers, for many independent sessions (streams) of the same network.
+ *
+ * Every state array of every recurrent layer (i.e., previous activations and memory cell state of an LSTM layer)
+ * is kept in a single [capacity, stateSize] matrix, with one row per session slot. This way states of any set of
+ * sessions can be gathered into a minibatch before a forward pass, and scattered back afterwards.
+ * Slots released by closed sessions are zeroed and reused, and the pool grows on demand.
+ *
+ * Pools are created lazily, from the shape of the first state scattered for each layer: until then, gather returns
+ * null for that layer, which is equivalent to the default (zero) state.
+ *
+ * @see RnnStreamingInference
+ */
+public class RnnStateStore {
+    @Getter
+    private final int numLayers;
+    private final List<Map<String, INDArray>> pools;
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    @Getter
+    private int capacity;
+    private int nextSlot;
+
+    /**
+     * @param numLayers number of recurrent layers to keep state for
+     * @param initialCapacity initial number of session slots
+     */
+    public RnnStateStore(int numLayers, int initialCapacity) {
+        if (numLayers < 0)
+            throw new IllegalArgumentException("Number of layers can't be negative: got " + numLayers);
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException("Initial capacity should be positive: got " + initialCapacity);
+
+        this.numLayers = numLayers;
+        this.capacity = initialCapacity;
+        this.pools = new ArrayList<>(numLayers);
+        for (int i = 0; i < numLayers; i++)
+            pools.add(new LinkedHashMap<String, INDArray>());
+    }
+
+    /**
+     * This method returns a free slot, with zero state. Pools are grown if there are no free slots left
+     *
+     * @return slot index
+     */
+    public synchronized int allocate() {
+        if (!freeSlots.isEmpty())
+            return freeSlots.pop();
+
+        if (nextSlot == capacity)
+            grow(capacity * 2);
+
+        return nextSlot++;
+    }
+
+    /**
+     * This method zeroes state of the slot, and makes slot available for reuse
+     *
+     * @param slot slot index, as returned by {@link #allocate()}
+     */
+    public synchronized void release(int slot) {
+        checkSlot(slot);
+        for (Map<String, INDArray> layerPools : pools)
+            for (INDArray pool : layerPools.values())
+                pool.getRow(slot).assign(0);
+
+        freeSlots.push(slot);
+    }
+
+    /**
+     * @return number of slots currently in use
+     */
+    public synchronized int size() {
+        return nextSlot - freeSlots.size();
+    }
+
+    /**
+     * This method gathers state of the given slots into minibatch
+     *
+     * @param layer index of recurrent layer
+     * @param slots slots to gather, one per minibatch example
+     * @return state map, with arrays of shape [slots.length, stateSize], or null if there's no state stored for this layer yet
+     */
+    public synchronized Map<String, INDArray> gather(int layer, @NonNull int[] slots) {
+        Map<String, INDArray> layerPools = pools.get(layer);
+        if (layerPools.isEmpty())
+            return null;
+
+        for (int slot : slots)
+            checkSlot(slot);
+
+        Map<String, INDArray> state = new HashMap<>();
+        for (Map.Entry<String, INDArray> e : layerPools.entrySet())
+            state.put(e.getKey(), Nd4j.pullRows(e.getValue(), 1, slots, 'f'));
+
+        return state;
+    }
+
+    /**
+     * This method stores minibatch state back into the given slots
+     *
+     * @param layer index of recurrent layer
+     * @param slots slots to update, one per minibatch example
+     * @param state state map, with arrays of shape [slots.length, stateSize]
+     */
+    public synchronized void scatter(int layer, @NonNull int[] slots, @NonNull Map<String, INDArray> state) {
+        Map<String, INDArray> layerPools = pools.get(layer);
+        for (Map.Entry<String, INDArray> e : state.entrySet()) {
+            INDArray array = e.getValue();
+            if (array.rank() != 2 || array.size(0) != slots.length)
+                throw new IllegalStateException("Unsupported state \"" + e.getKey() + "\" for layer " + layer
+                                + ": expected shape [" + slots.length + ",stateSize], got "
+                                + Arrays.toString(array.shape()));
+
+            INDArray pool = layerPools.get(e.getKey());
+            if (pool == null) {
+                pool = Nd4j.zeros(capacity, array.size(1));
+                layerPools.put(e.getKey(), pool);
+            } else if (pool.size(1) != array.size(1)) {
+                throw new IllegalStateException("State \"" + e.getKey() + "\" for layer " + layer + " has size "
+                                + array.size(1) + ", but " + pool.size(1) + " was stored before");
+            }
+
+            for (int i = 0; i < slots.length; i++) {
+                checkSlot(slots[i]);
+                pool.putRow(slots[i], array.getRow(i));
+            }
+        }
+    }
+
+    protected void grow(int newCapacity) {
+        for (Map<String, INDArray> layerPools : pools) {
+            for (Map.Entry<String, INDArray> e : layerPools.entrySet()) {
+                INDArray pool = e.getValue();
+                INDArray grown = Nd4j.zeros(newCapacity, pool.size(1));
+                grown.get(NDArrayIndex.interval(0, capacity), NDArrayIndex.all()).assign(pool);
+                e.setValue(grown);
+            }
+        }
+        capacity = newCapacity;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= nextSlot)
+            throw new IllegalArgumentException("Invalid slot: " + slot);
+    }
+}
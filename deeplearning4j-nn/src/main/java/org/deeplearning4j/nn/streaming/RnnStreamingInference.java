@@ -0,0 +1,504 @@
+package org.deeplearning4j.nn.streaming;
+
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.layers.RecurrentLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.INDArrayIndex;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stateful RNN inference for many concurrent streams (sessions), served by a few copies of the same network.
+ *
+ * Unlike {@link MultiLayerNetwork#rnnTimeStep(INDArray)} and {@link ComputationGraph#rnnTimeStep(INDArray...)},
+ * RNN state isn't kept in the layers between calls: every session gets a slot in the pooled {@link RnnStateStore}
+ * of the worker it's pinned to. Each worker owns one copy of the network, and collects pending time steps of
+ * different sessions into a single minibatch: state of these sessions is gathered from the store, one forward pass
+ * is done, and updated state is scattered back into the store.
+ *
+ * Time steps of the same session are always processed in submission order. Each worker has a bounded request queue:
+ * submission blocks while it's full.
+ *
+ * PLEASE NOTE: each request is a single example and a single time step: input shape [1,nIn] (or [1,nIn,1]).
+ * Only recurrent layers placed directly into the network are supported (i.e. not nested networks), and
+ * bidirectional layers can't be used, as with rnnTimeStep().
+ */
+@Slf4j
+public class RnnStreamingInference {
+    public static final int DEFAULT_NUM_WORKERS = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_BATCH_LIMIT = 64;
+    public static final int DEFAULT_INITIAL_CAPACITY = 64;
+    public static final int DEFAULT_QUEUE_LIMIT = 1024;
+
+    private final StreamingWorker[] workers;
+    private final int batchLimit;
+    private final int queueLimit;
+    private final AtomicLong sessionCounter = new AtomicLong(0);
+    private final AtomicBoolean isShutdown = new AtomicBoolean(false);
+
+    protected RnnStreamingInference(@NonNull Model model, int numWorkers, int batchLimit, int initialCapacity,
+                    int queueLimit) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalArgumentException("Only MultiLayerNetwork and ComputationGraph are supported, got "
+                            + model.getClass().getSimpleName());
+
+        this.batchLimit = batchLimit;
+        this.queueLimit = queueLimit;
+        this.workers = new StreamingWorker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            // first worker uses original model, other workers use copies
+            Model copy = i == 0 ? model
+                            : model instanceof MultiLayerNetwork ? ((MultiLayerNetwork) model).clone()
+                                            : ((ComputationGraph) model).clone();
+            workers[i] = new StreamingWorker(i, copy, initialCapacity);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * This method creates new session, with default (zero) RNN state.
+     * Session is pinned to the worker with fewest active sessions
+     *
+     * @return session handle
+     */
+    public RnnSession openSession() {
+        checkShutdown();
+
+        StreamingWorker worker = workers[0];
+        for (int i = 1; i < workers.length; i++)
+            if (workers[i].activeSessions.get() < worker.activeSessions.get())
+                worker = workers[i];
+
+        worker.activeSessions.incrementAndGet();
+        int slot = worker.store.allocate();
+        return new RnnSession(this, sessionCounter.incrementAndGet(), worker.workerId, slot);
+    }
+
+    /**
+     * This method closes session: its state slot will be reused after all time steps submitted before this call
+     * are processed. Closing a session more than once has no effect.
+     *
+     * @param session session to close
+     */
+    public void closeSession(@NonNull RnnSession session) {
+        checkSession(session);
+        synchronized (session.lock) {
+            if (!session.markClosed())
+                return;
+
+            put(workers[session.getWorker()], new StepRequest(session, null, null));
+        }
+    }
+
+    /**
+     * This method submits single time step of the given session, and returns immediately
+     *
+     * @param session session to use
+     * @param inputs input for single example and single time step: one array per network input
+     * @return future with network outputs for this time step, one array per network output
+     */
+    public Future<INDArray[]> stepAsync(@NonNull RnnSession session, @NonNull INDArray... inputs) {
+        checkShutdown();
+        checkSession(session);
+
+        StreamingWorker worker = workers[session.getWorker()];
+        if (inputs.length != worker.numInputs)
+            throw new IllegalArgumentException("Network has " + worker.numInputs + " inputs, but got "
+                            + inputs.length + " input arrays");
+
+        INDArray[] normalized = new INDArray[inputs.length];
+        for (int i = 0; i < inputs.length; i++)
+            normalized[i] = toSingleStep(inputs[i]);
+
+        SettableFuture<INDArray[]> future = SettableFuture.create();
+        StepRequest request = new StepRequest(session, normalized, future);
+        synchronized (session.lock) {
+            if (session.isClosed())
+                throw new IllegalStateException("Session is closed: " + session);
+
+            put(worker, request);
+        }
+
+        // worker could have drained its queue for the last time after the check above: nobody would take this request
+        if (isShutdown.get() && worker.queue.remove(request))
+            future.setException(new IllegalStateException("RnnStreamingInference was shut down"));
+
+        return future;
+    }
+
+    private static void put(StreamingWorker worker, StepRequest request) {
+        try {
+            worker.queue.put(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * This method does single time step of the given session, and blocks until it's processed.
+     * Time steps of other sessions submitted concurrently are batched together with this one.
+     *
+     * @param session session to use
+     * @param inputs input for single example and single time step: one array per network input
+     * @return network outputs for this time step, one array per network output
+     */
+    public INDArray[] step(@NonNull RnnSession session, @NonNull INDArray... inputs) {
+        try {
+            return stepAsync(session, inputs).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return number of sessions that are open right now
+     */
+    public int numSessions() {
+        int cnt = 0;
+        for (StreamingWorker worker : workers)
+            cnt += worker.activeSessions.get();
+        return cnt;
+    }
+
+    /**
+     * This method stops all workers. Pending time steps are failed
+     */
+    public void shutdown() {
+        if (!isShutdown.compareAndSet(false, true))
+            return;
+
+        for (StreamingWorker worker : workers)
+            worker.shutdown();
+    }
+
+    private void checkShutdown() {
+        if (isShutdown.get())
+            throw new IllegalStateException("RnnStreamingInference was shut down");
+    }
+
+    private void checkSession(RnnSession session) {
+        if (session.owner != this)
+            throw new IllegalArgumentException("Session doesn't belong to this RnnStreamingInference: " + session);
+    }
+
+    /**
+     * Single example, single time step as 2d array: [1,nIn] or [1,nIn,1] -> [1,nIn]
+     */
+    protected static INDArray toSingleStep(INDArray input) {
+        if (input.size(0) != 1)
+            throw new IllegalArgumentException("Expected input for single example, but got shape "
+                            + Arrays.toString(input.shape()));
+
+        if (input.rank() == 3) {
+            if (input.size(2) != 1)
+                throw new IllegalArgumentException("Expected input for single time step, but got shape "
+                                + Arrays.toString(input.shape()));
+            return input.tensorAlongDimension(0, 1, 0).dup();
+        }
+
+        return input.dup();
+    }
+
+    /**
+     * Slice of the given example, keeping all dimensions
+     */
+    protected static INDArray getExample(INDArray array, int example) {
+        INDArrayIndex[] indices = new INDArrayIndex[array.rank()];
+        indices[0] = NDArrayIndex.interval(example, example + 1);
+        for (int i = 1; i < indices.length; i++)
+            indices[i] = NDArrayIndex.all();
+        return array.get(indices).dup();
+    }
+
+    protected static class StepRequest {
+        protected final RnnSession session;
+        protected final INDArray[] inputs;
+        protected final SettableFuture<INDArray[]> future;
+
+        /**
+         * @param inputs inputs for time step, or null for session release
+         */
+        protected StepRequest(RnnSession session, INDArray[] inputs, SettableFuture<INDArray[]> future) {
+            this.session = session;
+            this.inputs = inputs;
+            this.future = future;
+        }
+
+        protected boolean isRelease() {
+            return inputs == null;
+        }
+    }
+
+    protected class StreamingWorker extends Thread {
+        protected final int workerId;
+        protected final Model model;
+        protected final RnnStateStore store;
+        protected final int numInputs;
+        protected final AtomicInteger activeSessions = new AtomicInteger(0);
+        protected final LinkedBlockingQueue<StepRequest> queue = new LinkedBlockingQueue<>(queueLimit);
+        // MultiLayerNetwork: layer indices. ComputationGraph: layer names
+        private final List<Integer> layerIndices = new ArrayList<>();
+        private final List<String> layerNames = new ArrayList<>();
+        private volatile boolean running = true;
+
+        protected StreamingWorker(int workerId, Model model, int initialCapacity) {
+            this.workerId = workerId;
+            this.model = model;
+
+            if (model instanceof MultiLayerNetwork) {
+                MultiLayerNetwork network = (MultiLayerNetwork) model;
+                for (int i = 0; i < network.getnLayers(); i++)
+                    if (network.getLayer(i) instanceof RecurrentLayer)
+                        layerIndices.add(i);
+                numInputs = 1;
+            } else {
+                ComputationGraph graph = (ComputationGraph) model;
+                for (Layer l : graph.getLayers())
+                    if (l instanceof RecurrentLayer)
+                        layerNames.add(l.conf().getLayer().getLayerName());
+                numInputs = graph.getNumInputArrays();
+            }
+
+            this.store = new RnnStateStore(numLayers(), initialCapacity);
+            setName("RnnStreamingInference worker " + workerId);
+            setDaemon(true);
+        }
+
+        protected int numLayers() {
+            return model instanceof MultiLayerNetwork ? layerIndices.size() : layerNames.size();
+        }
+
+        @Override
+        public void run() {
+            List<StepRequest> pending = new ArrayList<>();
+            while (running) {
+                try {
+                    StepRequest first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null)
+                        continue;
+
+                    pending.add(first);
+                    queue.drainTo(pending, batchLimit - 1);
+                    process(pending);
+                    pending.clear();
+                } catch (InterruptedException e) {
+                    // shutdown
+                    break;
+                } catch (Throwable t) {
+                    log.error("RnnStreamingInference worker {} failed", workerId, t);
+                    fail(pending, t);
+                    pending.clear();
+                }
+            }
+
+            List<StepRequest> left = new ArrayList<>();
+            queue.drainTo(left);
+            fail(left, new IllegalStateException("RnnStreamingInference was shut down"));
+        }
+
+        protected void shutdown() {
+            running = false;
+            interrupt();
+        }
+
+        /**
+         * This method splits requests into batches: batch is cut whenever session already present in current batch
+         * shows up again, so time steps of the same session are processed in order
+         */
+        protected void process(List<StepRequest> requests) {
+            List<StepRequest> batch = new ArrayList<>();
+            Set<RnnSession> inBatch = Collections.newSetFromMap(new IdentityHashMap<RnnSession, Boolean>());
+            for (StepRequest request : requests) {
+                if (inBatch.contains(request.session)) {
+                    execute(batch);
+                    batch.clear();
+                    inBatch.clear();
+                }
+
+                if (request.isRelease()) {
+                    if (!request.session.isReleased()) {
+                        request.session.markReleased();
+                        store.release(request.session.getSlot());
+                        activeSessions.decrementAndGet();
+                    }
+                } else if (request.session.isReleased()) {
+                    // slot may already belong to another session
+                    request.future.setException(
+                                    new IllegalStateException("Session is closed: " + request.session));
+                } else {
+                    batch.add(request);
+                    inBatch.add(request.session);
+                }
+            }
+
+            if (!batch.isEmpty())
+                execute(batch);
+        }
+
+        protected void execute(List<StepRequest> batch) {
+            if (batch.isEmpty())
+                return;
+
+            int n = batch.size();
+            int[] slots = new int[n];
+            for (int i = 0; i < n; i++)
+                slots[i] = batch.get(i).session.getSlot();
+
+            try {
+                INDArray[] inputs = new INDArray[numInputs];
+                for (int j = 0; j < numInputs; j++) {
+                    INDArray[] rows = new INDArray[n];
+                    for (int i = 0; i < n; i++)
+                        rows[i] = batch.get(i).inputs[j];
+                    inputs[j] = n == 1 ? rows[0] : Nd4j.concat(0, rows);
+                }
+
+                // gather
+                clearState();
+                for (int l = 0; l < numLayers(); l++) {
+                    Map<String, INDArray> state = store.gather(l, slots);
+                    if (state != null)
+                        setState(l, state);
+                }
+
+                INDArray[] outputs = timeStep(inputs);
+
+                // scatter
+                for (int l = 0; l < numLayers(); l++) {
+                    Map<String, INDArray> state = getState(l);
+                    if (state != null && !state.isEmpty())
+                        store.scatter(l, slots, state);
+                }
+
+                for (int i = 0; i < n; i++) {
+                    INDArray[] result = new INDArray[outputs.length];
+                    for (int k = 0; k < outputs.length; k++)
+                        result[k] = getExample(outputs[k], i);
+                    batch.get(i).future.set(result);
+                }
+            } catch (Throwable t) {
+                fail(batch, t);
+            }
+        }
+
+        protected INDArray[] timeStep(INDArray[] inputs) {
+            if (model instanceof MultiLayerNetwork)
+                return new INDArray[] {((MultiLayerNetwork) model).rnnTimeStep(inputs[0])};
+            return ((ComputationGraph) model).rnnTimeStep(inputs);
+        }
+
+        protected void clearState() {
+            if (model instanceof MultiLayerNetwork)
+                ((MultiLayerNetwork) model).rnnClearPreviousState();
+            else
+                ((ComputationGraph) model).rnnClearPreviousState();
+        }
+
+        protected void setState(int layer, Map<String, INDArray> state) {
+            if (model instanceof MultiLayerNetwork)
+                ((MultiLayerNetwork) model).rnnSetPreviousState(layerIndices.get(layer), state);
+            else
+                ((ComputationGraph) model).rnnSetPreviousState(layerNames.get(layer), state);
+        }
+
+        protected Map<String, INDArray> getState(int layer) {
+            if (model instanceof MultiLayerNetwork)
+                return ((MultiLayerNetwork) model).rnnGetPreviousState(layerIndices.get(layer));
+            return ((ComputationGraph) model).rnnGetPreviousState(layerNames.get(layer));
+        }
+
+        protected void fail(List<StepRequest> requests, Throwable t) {
+            for (StepRequest request : requests)
+                if (!request.isRelease())
+                    request.future.setException(t);
+        }
+    }
+
+    public static class Builder {
+        private Model model;
+        private int workers = DEFAULT_NUM_WORKERS;
+        private int batchLimit = DEFAULT_BATCH_LIMIT;
+        private int initialCapacity = DEFAULT_INITIAL_CAPACITY;
+        private int queueLimit = DEFAULT_QUEUE_LIMIT;
+
+        public Builder(@NonNull Model model) {
+            this.model = model;
+        }
+
+        /**
+         * This method defines, how many model copies (and worker threads) will be used.
+         * Default value: number of available processors
+         *
+         * @param workers
+         * @return
+         */
+        public Builder workers(int workers) {
+            if (workers < 1)
+                throw new IllegalArgumentException("Number of workers should be positive, got " + workers);
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * This method defines, how many sessions at most will be processed in single forward pass
+         *
+         * @param batchLimit
+         * @return
+         */
+        public Builder batchLimit(int batchLimit) {
+            if (batchLimit < 1)
+                throw new IllegalArgumentException("Batch limit should be positive, got " + batchLimit);
+            this.batchLimit = batchLimit;
+            return this;
+        }
+
+        /**
+         * This method defines initial number of session slots per worker. State store grows on demand
+         *
+         * @param initialCapacity
+         * @return
+         */
+        public Builder initialCapacity(int initialCapacity) {
+            if (initialCapacity < 1)
+                throw new IllegalArgumentException("Initial capacity should be positive, got " + initialCapacity);
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * This method defines max number of pending requests per worker. Submission blocks when it's reached.
+         * Default value: {@link #DEFAULT_QUEUE_LIMIT}
+         *
+         * @param queueLimit
+         * @return
+         */
+        public Builder queueLimit(int queueLimit) {
+            if (queueLimit < 1)
+                throw new IllegalArgumentException("Queue limit should be positive, got " + queueLimit);
+            this.queueLimit = queueLimit;
+            return this;
+        }
+
+        public RnnStreamingInference build() {
+            return new RnnStreamingInference(model, workers, batchLimit, initialCapacity, queueLimit);
+        }
+    }
+}
@@ -9,17 +9,28 @@ import org.deeplearning4j.nn.graph.ComputationGraph;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.deeplearning4j.parallelism.inference.InferenceRejectionHandler;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
 import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.FutureInferenceObserver;
+import org.deeplearning4j.parallelism.inference.scheduler.AdaptiveBatchScheduler;
+import org.deeplearning4j.parallelism.inference.scheduler.PendingRequest;
+import org.deeplearning4j.parallelism.inference.scheduler.WorkerStats;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Observer;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -36,6 +47,11 @@ public class ParallelInference {
     private int batchLimit;
     private InferenceMode inferenceMode;
     private int queueLimit;
+    private long latencyTargetNanos;
+    private InferenceRejectionHandler rejectionHandler;
+
+    // number of asynchronous requests submitted, but not completed yet
+    private final AtomicInteger asyncInFlight = new AtomicInteger(0);
 
     // this queue
     private BlockingQueue<InferenceObservable> observables;
@@ -44,6 +60,7 @@ public class ParallelInference {
 
     private InferenceWorker[] zoo;
     private ObservablesProvider provider;
+    private AdaptiveBatchScheduler scheduler;
 
 
 
@@ -51,6 +68,7 @@ public class ParallelInference {
     public final static int DEFAULT_BATCH_LIMIT = 32;
     public final static InferenceMode DEFAULT_INFERENCE_MODE = InferenceMode.BATCHED;
     public final static int DEFAULT_QUEUE_LIMIT = 64;
+    public final static long DEFAULT_LATENCY_TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
 
 
@@ -61,6 +79,11 @@ public class ParallelInference {
     protected void init() {
         observables = new LinkedBlockingQueue<>(queueLimit);
 
+        if (inferenceMode == InferenceMode.ADAPTIVE) {
+            log.info("Initializing AdaptiveBatchScheduler...");
+            scheduler = new AdaptiveBatchScheduler(workers, batchLimit, latencyTargetNanos);
+        }
+
         int numDevices = Nd4j.getAffinityManager().getNumberOfDevices();
         int currentDevice = Nd4j.getAffinityManager().getDeviceForCurrentThread();
         AtomicBoolean assignedRoot = new AtomicBoolean(false);
@@ -71,7 +94,7 @@ public class ParallelInference {
             boolean cRoot = !assignedRoot.get() && cDevice == currentDevice;
             assignedRoot.compareAndSet(false, cRoot);
 
-            zoo[i] = new InferenceWorker(i, model, observables, cRoot);
+            zoo[i] = new InferenceWorker(i, model, observables, cRoot, scheduler);
 
             Nd4j.getAffinityManager().attachThreadToDevice(zoo[i], cDevice);
             zoo[i].setDaemon(true);
@@ -89,6 +112,37 @@ public class ParallelInference {
         return zoo[workerIdx].getCounterValue();
     }
 
+    /**
+     * This method returns statistics snapshot for specific worker: queue depth, batch size histogram
+     * and latency histogram.
+     *
+     * PLEASE NOTE: Statistics are available in ADAPTIVE inference mode only
+     *
+     * @param workerIdx
+     * @return
+     */
+    public WorkerStats getWorkerStats(int workerIdx) {
+        if (scheduler == null)
+            throw new ND4JIllegalStateException("Worker statistics are available in ADAPTIVE inference mode only");
+
+        return scheduler.getWorkerStats(workerIdx);
+    }
+
+    /**
+     * This method returns statistics snapshots for all workers
+     *
+     * PLEASE NOTE: Statistics are available in ADAPTIVE inference mode only
+     *
+     * @return
+     */
+    public WorkerStats[] getWorkerStats() {
+        WorkerStats[] result = new WorkerStats[workers];
+        for (int i = 0; i < workers; i++)
+            result[i] = getWorkerStats(i);
+
+        return result;
+    }
+
     /**
      *
      * @param input
@@ -122,6 +176,61 @@ public class ParallelInference {
         return output(dataSet.getFeatureMatrix());
     }
 
+    /**
+     * This method returns number of asynchronous requests submitted, but not completed yet
+     *
+     * @return
+     */
+    public int getAsyncInFlight() {
+        return asyncInFlight.get();
+    }
+
+    /**
+     * This method submits input for inference, and returns immediately. Returned future is completed
+     * from the inference worker thread.
+     *
+     * If number of asynchronous requests in flight exceeds queueLimit, request is passed to
+     * InferenceRejectionHandler instead, and by default returned future fails with RejectedExecutionException.
+     *
+     * @param input
+     * @return
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray... input) {
+        FutureInferenceObserver observer = new FutureInferenceObserver();
+        CompletableFuture<INDArray[]> future = observer.getFuture();
+
+        if (asyncInFlight.incrementAndGet() > queueLimit) {
+            asyncInFlight.decrementAndGet();
+            rejectionHandler.rejected(input, future);
+            return future;
+        }
+
+        if (inferenceMode == InferenceMode.SEQUENTIAL) {
+            InferenceObservable observable = new BasicInferenceObservable(input);
+            observable.addObserver(observer);
+
+            // we don't want to block here, so full queue means rejection
+            if (!observables.offer(observable)) {
+                asyncInFlight.decrementAndGet();
+                rejectionHandler.rejected(input, future);
+                return future;
+            }
+        } else if (inferenceMode == InferenceMode.ADAPTIVE) {
+            InferenceObservable observable = new BasicInferenceObservable(input);
+            observable.addObserver(observer);
+            scheduler.submit(observable);
+        } else if (provider.offerInput(observer, input) == null) {
+            // new batch was needed, but queue is full: same as above, we don't block
+            asyncInFlight.decrementAndGet();
+            rejectionHandler.rejected(input, future);
+            return future;
+        }
+
+        future.whenComplete((output, error) -> asyncInFlight.decrementAndGet());
+
+        return future;
+    }
+
     /**
      *
      * @param input
@@ -141,6 +250,10 @@ public class ParallelInference {
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
+        } else if (inferenceMode == InferenceMode.ADAPTIVE) {
+            observable = new BasicInferenceObservable(input);
+            observable.addObserver(observer);
+            scheduler.submit(observable);
         } else {
             observable = provider.setInput(observer, input);
         }
@@ -159,6 +272,9 @@ public class ParallelInference {
             throw new RuntimeException(e);
         }
 
+        if (observable.getError() != null)
+            throw new RuntimeException(observable.getError());
+
         return observable.getOutput();
     }
 
@@ -169,6 +285,8 @@ public class ParallelInference {
         private int batchLimit = DEFAULT_BATCH_LIMIT;
         private InferenceMode inferenceMode = DEFAULT_INFERENCE_MODE;
         private int queueLimit = DEFAULT_QUEUE_LIMIT;
+        private long latencyTargetNanos = DEFAULT_LATENCY_TARGET_NANOS;
+        private InferenceRejectionHandler rejectionHandler = new InferenceRejectionHandler.AbortPolicy();
 
         public Builder(@NonNull Model model) {
             this.model = model;
@@ -181,6 +299,8 @@ public class ParallelInference {
          * SEQUENTIAL: Input will be sent to last-used worker unmodified.
          * BATCHED: Multiple inputs will be packed into single batch, and
          * sent to last-used device.
+         * ADAPTIVE: Multiple inputs will be packed into single batch, with batch size
+         * and wait window derived from latency target and observed load.
          *
          * @param inferenceMode
          * @return
@@ -213,7 +333,8 @@ public class ParallelInference {
          * be batched within given time frame.
          *
          * PLEASE NOTE: This value has no effect in
-         * SEQUENTIAL inference mode
+         * SEQUENTIAL inference mode. In ADAPTIVE mode
+         * it's the upper bound for batch size.
          *
          * @param limit
          * @return
@@ -228,6 +349,7 @@ public class ParallelInference {
 
         /**
          * This method defines buffer queue size.
+         * It's also the limit for number of asynchronous requests in flight, see outputAsync()
          *
          * Default value: 64
          *
@@ -242,6 +364,41 @@ public class ParallelInference {
             return this;
         }
 
+        /**
+         * This method defines p99 latency target for single request, from submission till output.
+         * Batch size and wait window will be adjusted to meet this target.
+         *
+         * PLEASE NOTE: This value has effect in
+         * ADAPTIVE inference mode only
+         *
+         * Default value: 10 ms
+         *
+         * @param time
+         * @param timeUnit
+         * @return
+         */
+        public Builder latencyTarget(long time, @NonNull TimeUnit timeUnit) {
+            if (time < 1)
+                throw new IllegalStateException("Latency target should be positive value");
+
+            this.latencyTargetNanos = timeUnit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * This method defines handler for asynchronous requests submitted when
+         * number of requests in flight has reached queueLimit.
+         *
+         * Default value: AbortPolicy, rejected futures fail with RejectedExecutionException
+         *
+         * @param handler
+         * @return
+         */
+        public Builder rejectionHandler(@NonNull InferenceRejectionHandler handler) {
+            this.rejectionHandler = handler;
+            return this;
+        }
+
         /**
          * This method builds new ParallelInference instance
          *
@@ -254,6 +411,8 @@ public class ParallelInference {
             inference.inferenceMode = this.inferenceMode;
             inference.model = this.model;
             inference.workers = this.workers;
+            inference.latencyTargetNanos = this.latencyTargetNanos;
+            inference.rejectionHandler = this.rejectionHandler;
 
             inference.init();
 
@@ -267,7 +426,9 @@ public class ParallelInference {
      *
      */
     private class InferenceWorker extends Thread implements Runnable {
+        private int workerIdx;
         private BlockingQueue<InferenceObservable> inputQueue;
+        private AdaptiveBatchScheduler scheduler;
         private AtomicBoolean shouldWork = new AtomicBoolean(true);
         private AtomicBoolean isStopped = new AtomicBoolean(false);
         private Model protoModel;
@@ -275,8 +436,11 @@ public class ParallelInference {
         private AtomicLong counter = new AtomicLong(0);
         private boolean rootDevice;
 
-        private InferenceWorker(int id, @NonNull Model model, @NonNull BlockingQueue inputQueue, boolean rootDevice) {
+        private InferenceWorker(int id, @NonNull Model model, @NonNull BlockingQueue inputQueue, boolean rootDevice,
+                        AdaptiveBatchScheduler scheduler) {
+            this.workerIdx = id;
             this.inputQueue = inputQueue;
+            this.scheduler = scheduler;
             this.protoModel = model;
             this.rootDevice = rootDevice;
 
@@ -323,24 +487,24 @@ public class ParallelInference {
                     }
                 }
 
-                while (shouldWork.get()) {
-                    InferenceObservable request = inputQueue.take();
-
-                    if (request != null) {
-                        counter.incrementAndGet();
-
-                        // FIXME: get rid of instanceof here, model won't change during runtime anyway
-                        if (replicatedModel instanceof ComputationGraph) {
-                            INDArray[] output = ((ComputationGraph) replicatedModel).output(false, request.getInput());
-                            request.setOutput(output);
-                        } else if (replicatedModel instanceof MultiLayerNetwork) {
-                            INDArray output = ((MultiLayerNetwork) replicatedModel).output(request.getInput()[0]);
-                            request.setOutput(output);
+                if (scheduler != null) {
+                    runAdaptive();
+                } else {
+                    while (shouldWork.get()) {
+                        InferenceObservable request = inputQueue.take();
+
+                        if (request != null) {
+                            counter.incrementAndGet();
+
+                            try {
+                                request.setOutput(output(request.getInput()));
+                            } catch (Exception e) {
+                                log.error("Inference failed", e);
+                                request.setError(e);
+                            }
+                        } else {
+                            // just do nothing, i guess and hope for next round?
                         }
-
-
-                    } else {
-                        // just do nothing, i guess and hope for next round?
                     }
                 }
             } catch (InterruptedException e) {
@@ -351,6 +515,85 @@ public class ParallelInference {
             isStopped.set(true);
         }
 
+        /**
+         * Main loop for ADAPTIVE mode: requests are taken from scheduler in batches sized wrt latency target
+         */
+        protected void runAdaptive() throws InterruptedException {
+            scheduler.register(workerIdx, this);
+            List<PendingRequest> batch = new ArrayList<>(batchLimit);
+
+            while (shouldWork.get()) {
+                scheduler.take(workerIdx, batch);
+                counter.incrementAndGet();
+
+                long time1 = System.nanoTime();
+                try {
+                    processBatch(batch);
+                } catch (Exception e) {
+                    log.error("Inference failed", e);
+                    for (PendingRequest request : batch)
+                        if (request.getObservable().getOutput() == null && request.getObservable().getError() == null)
+                            request.getObservable().setError(e);
+                }
+                long time2 = System.nanoTime();
+
+                scheduler.complete(workerIdx, batch, time2 - time1);
+            }
+        }
+
+        /**
+         * This method piles individual requests into single batch, and splits batched output back
+         */
+        protected void processBatch(List<PendingRequest> batch) {
+            if (batch.size() == 1) {
+                InferenceObservable request = batch.get(0).getObservable();
+                request.setOutput(output(request.getInput()));
+                return;
+            }
+
+            int numInputs = batch.get(0).getObservable().getInput().length;
+            INDArray[] input = new INDArray[numInputs];
+            for (int i = 0; i < numInputs; i++) {
+                List<INDArray> examples = new ArrayList<>(batch.size());
+                for (PendingRequest request : batch)
+                    examples.add(request.getObservable().getInput()[i]);
+
+                input[i] = Nd4j.pile(examples);
+            }
+
+            INDArray[] output = output(input);
+
+            INDArray[][] split = new INDArray[batch.size()][output.length];
+            for (int o = 0; o < output.length; o++) {
+                int[] dimensions = new int[output[o].rank() - 1];
+                for (int i = 1; i < output[o].rank(); i++) {
+                    dimensions[i - 1] = i;
+                }
+
+                INDArray[] parts = Nd4j.tear(output[o], dimensions);
+                if (parts.length != batch.size())
+                    throw new ND4JIllegalStateException("Number of splits [" + parts.length
+                                    + "] doesn't match number of queries [" + batch.size() + "]");
+
+                for (int e = 0; e < parts.length; e++)
+                    split[e][o] = parts[e];
+            }
+
+            for (int e = 0; e < batch.size(); e++)
+                batch.get(e).getObservable().setOutput(split[e]);
+        }
+
+        protected INDArray[] output(INDArray[] input) {
+            // FIXME: get rid of instanceof here, model won't change during runtime anyway
+            if (replicatedModel instanceof ComputationGraph) {
+                return ((ComputationGraph) replicatedModel).output(false, input);
+            } else if (replicatedModel instanceof MultiLayerNetwork) {
+                return new INDArray[] {((MultiLayerNetwork) replicatedModel).output(input[0])};
+            } else
+                throw new ND4JIllegalStateException(
+                                "Unsupported model type: " + protoModel.getClass().getSimpleName());
+        }
+
         protected void shutdown() {
             shouldWork.set(false);
             while (!isStopped.get()) {
@@ -376,15 +619,38 @@ public class ParallelInference {
 
 
         protected InferenceObservable setInput(@NonNull Observer observer, INDArray... input) {
+            return setInput(observer, true, input);
+        }
+
+        /**
+         * This method is non-blocking version of setInput(): if new batch has to be queued, but target queue is full,
+         * input is not accepted
+         *
+         * @return observable input was added to, or null if input was not accepted
+         */
+        protected InferenceObservable offerInput(@NonNull Observer observer, INDArray... input) {
+            return setInput(observer, false, input);
+        }
+
+        private InferenceObservable setInput(Observer observer, boolean blocking, INDArray... input) {
             synchronized (locker) {
                 boolean isNew = false;
                 if (currentObservable == null || currentObservable.getCounter() >= batchLimit
                                 || currentObservable.isLocked()) {
+                    // target queue is only fed under this lock, so free space can't disappear before we put
+                    if (!blocking && targetQueue.remainingCapacity() == 0)
+                        return null;
+
                     isNew = true;
                     currentObservable = new BatchedInferenceObservable();
                 }
 
                 currentObservable.setInput(input);
+
+                // asynchronous observer will be notified on worker thread, so it has to know its position in advance
+                if (observer instanceof FutureInferenceObserver)
+                    ((FutureInferenceObserver) observer).setPosition(currentObservable.getPosition());
+
                 currentObservable.addObserver(observer);
 
                 try {
@@ -18,4 +18,18 @@ public interface InferenceObservable {
     void addObserver(Observer observer);
 
     INDArray[] getOutput();
+
+    /**
+     * This method reports failure of the inference, and notifies observers
+     *
+     * @param error
+     */
+    void setError(Throwable error);
+
+    /**
+     * This method returns error happened during inference, or null if there was none
+     *
+     * @return
+     */
+    Throwable getError();
 }
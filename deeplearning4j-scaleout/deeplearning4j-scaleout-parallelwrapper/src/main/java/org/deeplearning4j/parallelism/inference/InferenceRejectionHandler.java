@@ -0,0 +1,34 @@
+package org.deeplearning4j.parallelism.inference;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Handler for asynchronous inference requests that can't be accepted, because number of
+ * requests in flight has reached queueLimit
+ */
+public interface InferenceRejectionHandler {
+
+    /**
+     * This method is called on the submitting thread for every rejected request.
+     * Implementation is responsible for completing given future: with fallback value, or exceptionally.
+     *
+     * @param input input of the rejected request
+     * @param future future that was returned to the caller
+     */
+    void rejected(INDArray[] input, CompletableFuture<INDArray[]> future);
+
+
+    /**
+     * Default handler: future is completed exceptionally with RejectedExecutionException
+     */
+    class AbortPolicy implements InferenceRejectionHandler {
+        @Override
+        public void rejected(INDArray[] input, CompletableFuture<INDArray[]> future) {
+            future.completeExceptionally(
+                            new RejectedExecutionException("Inference request rejected: queue limit exceeded"));
+        }
+    }
+}
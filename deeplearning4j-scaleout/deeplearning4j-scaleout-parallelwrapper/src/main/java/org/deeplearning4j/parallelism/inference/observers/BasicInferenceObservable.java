@@ -18,6 +18,8 @@ public class BasicInferenceObservable extends Observable implements InferenceObs
     private long id;
     @Getter
     private INDArray[] output;
+    @Getter
+    private volatile Throwable error;
 
 
     public BasicInferenceObservable(INDArray... inputs) {
@@ -35,4 +37,11 @@ public class BasicInferenceObservable extends Observable implements InferenceObs
         this.setChanged();
         notifyObservers();
     }
+
+    @Override
+    public void setError(Throwable error) {
+        this.error = error;
+        this.setChanged();
+        notifyObservers();
+    }
 }
@@ -127,6 +127,15 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
         return counter.get();
     }
 
+    /**
+     * This method returns position of the input added by current thread
+     *
+     * @return
+     */
+    public int getPosition() {
+        return position.get();
+    }
+
 
 
     public boolean isLocked() {
@@ -147,4 +156,14 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
 
         return outputs.get(position.get());
     }
+
+    /**
+     * This method returns output for specific position within batch, regardless of calling thread
+     *
+     * @param position
+     * @return
+     */
+    public INDArray[] getOutput(int position) {
+        return outputs.get(position);
+    }
 }
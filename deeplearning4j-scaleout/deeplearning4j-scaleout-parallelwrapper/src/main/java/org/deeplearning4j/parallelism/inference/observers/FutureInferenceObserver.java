@@ -0,0 +1,50 @@
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.Getter;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Observer implementation for asynchronous inference: it completes CompletableFuture
+ * on the thread that delivered output, so no caller thread is blocked while request is in flight.
+ */
+public class FutureInferenceObserver implements Observer {
+    @Getter
+    private final CompletableFuture<INDArray[]> future = new CompletableFuture<>();
+
+    // position of our request within BatchedInferenceObservable, -1 for single-request observables
+    private volatile int position = -1;
+
+    public FutureInferenceObserver() {
+        //
+    }
+
+    /**
+     * This method binds this observer to specific position within batch. Should be called before
+     * observer is attached to BatchedInferenceObservable.
+     *
+     * @param position
+     */
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        InferenceObservable observable = (InferenceObservable) o;
+        try {
+            if (observable.getError() != null)
+                future.completeExceptionally(observable.getError());
+            else if (position >= 0 && observable instanceof BatchedInferenceObservable)
+                future.complete(((BatchedInferenceObservable) observable).getOutput(position));
+            else
+                future.complete(observable.getOutput());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
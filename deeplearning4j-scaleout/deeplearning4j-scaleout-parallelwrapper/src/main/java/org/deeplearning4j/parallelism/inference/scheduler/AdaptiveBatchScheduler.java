@@ -0,0 +1,392 @@
+package org.deeplearning4j.parallelism.inference.scheduler;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class implements ADAPTIVE inference scheduling: lock-free hand-off of requests to inference workers,
+ * with batch size and batching window derived from p99 latency target and observed load.
+ *
+ * How it works:
+ * - Every worker owns its own lock-free queue. Producers pick the less loaded of two random queues,
+ *   so there's no global lock on the submission path.
+ * - Worker takes first available request (stealing from other queues if its own queue is empty), and keeps
+ *   collecting more requests for as long as next request is expected to arrive within latency budget.
+ * - Inference time is modelled as fixed + perExample * batchSize, fitted online from observed batches, and
+ *   batch size is capped so that inference fits into half of the latency budget.
+ * - Observed p99 latency is fed back: if target is violated, latency budget shrinks, and it grows back once
+ *   latency is comfortably below target.
+ */
+@Slf4j
+public class AdaptiveBatchScheduler {
+    // number of requests used to estimate p99 latency for feedback loop
+    protected static final int FEEDBACK_WINDOW = 512;
+    protected static final double MIN_SLACK = 0.05;
+    protected static final double EWMA_ALPHA = 0.1;
+    protected static final long IDLE_PARK_NANOS = 100000L;
+    protected static final long MIN_PARK_NANOS = 1000L;
+
+    private final WorkerQueue[] queues;
+    private final long latencyTargetNanos;
+    private final int batchLimit;
+
+    public AdaptiveBatchScheduler(int numWorkers, int batchLimit, long latencyTargetNanos) {
+        if (numWorkers < 1)
+            throw new IllegalStateException("Number of workers should be positive value");
+
+        if (batchLimit < 1)
+            throw new IllegalStateException("Batch limit should be positive value");
+
+        if (latencyTargetNanos < 1)
+            throw new IllegalStateException("Latency target should be positive value");
+
+        this.batchLimit = batchLimit;
+        this.latencyTargetNanos = latencyTargetNanos;
+
+        this.queues = new WorkerQueue[numWorkers];
+        for (int i = 0; i < numWorkers; i++)
+            queues[i] = new WorkerQueue(batchLimit);
+    }
+
+    /**
+     * This method binds worker thread to specific queue, so producers could wake it up
+     *
+     * @param workerIdx
+     * @param thread
+     */
+    public void register(int workerIdx, @NonNull Thread thread) {
+        queues[workerIdx].owner = thread;
+    }
+
+    public int getNumWorkers() {
+        return queues.length;
+    }
+
+    public long getLatencyTargetNanos() {
+        return latencyTargetNanos;
+    }
+
+    /**
+     * This method submits request for processing. It never blocks.
+     *
+     * @param observable
+     */
+    public void submit(@NonNull InferenceObservable observable) {
+        pickQueue().offer(new PendingRequest(observable, System.nanoTime()));
+    }
+
+    /**
+     * This method returns number of requests waiting in given worker queue
+     *
+     * @param workerIdx
+     * @return
+     */
+    public int getQueueDepth(int workerIdx) {
+        return queues[workerIdx].depth.get();
+    }
+
+    /**
+     * This method returns total number of requests waiting for processing
+     *
+     * @return
+     */
+    public int getQueueDepth() {
+        int result = 0;
+        for (WorkerQueue queue : queues)
+            result += queue.depth.get();
+
+        return result;
+    }
+
+    /**
+     * This method blocks until at least one request is available for given worker, and then fills given list
+     * with next batch of requests.
+     *
+     * PLEASE NOTE: This method should be called from worker thread only
+     *
+     * @param workerIdx
+     * @param batch list to be filled. It will be cleared first.
+     * @throws InterruptedException
+     */
+    public void take(int workerIdx, @NonNull List<PendingRequest> batch) throws InterruptedException {
+        WorkerQueue queue = queues[workerIdx];
+        batch.clear();
+
+        PendingRequest first = awaitFirst(queue);
+        batch.add(first);
+
+        queue.updateArrivalRate(System.nanoTime());
+
+        long budget = (long) (latencyTargetNanos * queue.slack);
+        int limit = queue.batchLimit(budget, batchLimit);
+        queue.currentBatchLimit = limit;
+
+        while (batch.size() < limit) {
+            PendingRequest request = queue.poll();
+            if (request != null) {
+                batch.add(request);
+                continue;
+            }
+
+            // there's no point in waiting if next request isn't expected before latency budget runs out
+            long remaining = first.getSubmittedNanos() + budget - queue.predictServiceNanos(batch.size() + 1)
+                            - System.nanoTime();
+            long expected = queue.expectedInterArrivalNanos();
+            if (remaining <= 0 || expected > remaining)
+                break;
+
+            queue.park(Math.min(remaining, Math.max(expected, MIN_PARK_NANOS)));
+
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    /**
+     * This method reports completion of the batch previously obtained via take()
+     *
+     * PLEASE NOTE: This method should be called from worker thread only
+     *
+     * @param workerIdx
+     * @param batch
+     * @param serviceNanos time spent on actual inference
+     */
+    public void complete(int workerIdx, @NonNull List<PendingRequest> batch, long serviceNanos) {
+        if (batch.isEmpty())
+            return;
+
+        WorkerQueue queue = queues[workerIdx];
+        long now = System.nanoTime();
+
+        queue.processedBatches.incrementAndGet();
+        queue.processedRequests.addAndGet(batch.size());
+        queue.batchSizes.incrementAndGet(Math.min(batch.size(), batchLimit));
+
+        for (PendingRequest request : batch) {
+            long latency = now - request.getSubmittedNanos();
+            queue.latency.record(latency);
+            queue.window.record(latency);
+        }
+
+        queue.updateServiceModel(batch.size(), serviceNanos);
+
+        if (queue.window.getCount() >= FEEDBACK_WINDOW) {
+            long p99 = queue.window.getPercentile(99.0);
+            if (p99 > latencyTargetNanos)
+                queue.slack = Math.max(MIN_SLACK, queue.slack * 0.8);
+            else if (p99 < latencyTargetNanos * 0.75)
+                queue.slack = Math.min(1.0, queue.slack * 1.1);
+
+            queue.window.reset();
+        }
+    }
+
+    /**
+     * This method returns snapshot of given worker statistics
+     *
+     * @param workerIdx
+     * @return
+     */
+    public WorkerStats getWorkerStats(int workerIdx) {
+        WorkerQueue queue = queues[workerIdx];
+
+        long[] sizes = new long[queue.batchSizes.length()];
+        for (int i = 0; i < sizes.length; i++)
+            sizes[i] = queue.batchSizes.get(i);
+
+        return new WorkerStats(workerIdx, queue.depth.get(), queue.processedRequests.get(),
+                        queue.processedBatches.get(), sizes, queue.latency.copy(), queue.currentBatchLimit,
+                        queue.slack);
+    }
+
+    /**
+     * Power of two choices: pick less loaded of two random queues
+     */
+    protected WorkerQueue pickQueue() {
+        int n = queues.length;
+        if (n == 1)
+            return queues[0];
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(n);
+        int b = random.nextInt(n - 1);
+        if (b >= a)
+            b++;
+
+        return queues[a].depth.get() <= queues[b].depth.get() ? queues[a] : queues[b];
+    }
+
+    protected PendingRequest awaitFirst(WorkerQueue queue) throws InterruptedException {
+        while (true) {
+            PendingRequest request = queue.poll();
+            if (request == null)
+                request = steal(queue);
+
+            if (request != null)
+                return request;
+
+            queue.park(IDLE_PARK_NANOS);
+
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    protected PendingRequest steal(WorkerQueue thief) {
+        int n = queues.length;
+        if (n == 1)
+            return null;
+
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            WorkerQueue victim = queues[(start + i) % n];
+            if (victim == thief || victim.depth.get() <= 0)
+                continue;
+
+            PendingRequest request = victim.poll();
+            if (request != null)
+                return request;
+        }
+
+        return null;
+    }
+
+
+    protected static class WorkerQueue {
+        private final Queue<PendingRequest> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger(0);
+        private final AtomicLong submitted = new AtomicLong(0);
+
+        private volatile Thread owner;
+        private volatile boolean parked = false;
+
+        // statistics: updated by owner thread, available to anyone
+        private final AtomicLongArray batchSizes;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong processedRequests = new AtomicLong(0);
+        private final AtomicLong processedBatches = new AtomicLong(0);
+        private volatile int currentBatchLimit;
+        private volatile double slack = 1.0;
+
+        // controller state: accessed by owner thread only
+        private final LatencyHistogram window = new LatencyHistogram();
+        private boolean hasServiceStats = false;
+        private double meanSize;
+        private double meanTime;
+        private double meanSizeSq;
+        private double meanSizeTime;
+        private double fixedNanos;
+        private double perExampleNanos;
+        private double interArrivalNanos = -1.0;
+        private long lastArrivalCheck = System.nanoTime();
+        private long lastSubmitted = 0;
+
+        protected WorkerQueue(int batchLimit) {
+            this.batchSizes = new AtomicLongArray(batchLimit + 1);
+            this.currentBatchLimit = batchLimit;
+        }
+
+        protected void offer(PendingRequest request) {
+            queue.offer(request);
+            depth.incrementAndGet();
+            submitted.incrementAndGet();
+
+            if (parked) {
+                Thread thread = owner;
+                if (thread != null)
+                    LockSupport.unpark(thread);
+            }
+        }
+
+        protected PendingRequest poll() {
+            PendingRequest request = queue.poll();
+            if (request != null)
+                depth.decrementAndGet();
+
+            return request;
+        }
+
+        protected void park(long nanos) {
+            parked = true;
+
+            // re-check after publishing parked flag, so wake-up from producer can't be lost
+            if (queue.isEmpty())
+                LockSupport.parkNanos(this, nanos);
+
+            parked = false;
+        }
+
+        protected void updateArrivalRate(long now) {
+            long currentSubmitted = submitted.get();
+            long requests = currentSubmitted - lastSubmitted;
+            long time = now - lastArrivalCheck;
+
+            // no arrivals within this time frame means that inter-arrival time is at least that long
+            double sample = requests > 0 ? time / (double) requests : time;
+            if (interArrivalNanos < 0)
+                interArrivalNanos = sample;
+            else
+                interArrivalNanos += EWMA_ALPHA * (sample - interArrivalNanos);
+
+            lastSubmitted = currentSubmitted;
+            lastArrivalCheck = now;
+        }
+
+        protected long expectedInterArrivalNanos() {
+            return interArrivalNanos < 0 ? Long.MAX_VALUE : (long) interArrivalNanos;
+        }
+
+        protected void updateServiceModel(int size, long nanos) {
+            if (!hasServiceStats) {
+                meanSize = size;
+                meanTime = nanos;
+                meanSizeSq = (double) size * size;
+                meanSizeTime = (double) size * nanos;
+                hasServiceStats = true;
+            } else {
+                meanSize += EWMA_ALPHA * (size - meanSize);
+                meanTime += EWMA_ALPHA * (nanos - meanTime);
+                meanSizeSq += EWMA_ALPHA * ((double) size * size - meanSizeSq);
+                meanSizeTime += EWMA_ALPHA * ((double) size * nanos - meanSizeTime);
+            }
+
+            // least squares fit of time = fixed + perExample * size, if we've seen enough variance in batch sizes
+            double variance = meanSizeSq - meanSize * meanSize;
+            if (variance > 0.25) {
+                perExampleNanos = (meanSizeTime - meanSize * meanTime) / variance;
+                fixedNanos = meanTime - perExampleNanos * meanSize;
+            }
+
+            if (variance <= 0.25 || perExampleNanos <= 0 || fixedNanos < 0) {
+                perExampleNanos = meanTime / meanSize;
+                fixedNanos = 0;
+            }
+        }
+
+        protected long predictServiceNanos(int size) {
+            if (!hasServiceStats)
+                return 0;
+
+            return (long) (fixedNanos + perExampleNanos * size);
+        }
+
+        protected int batchLimit(long budget, int hardLimit) {
+            if (!hasServiceStats || perExampleNanos <= 0)
+                return hardLimit;
+
+            // half of the budget is reserved for queueing, another half for inference itself
+            double size = (budget / 2.0 - fixedNanos) / perExampleNanos;
+            return (int) Math.max(1, Math.min(hardLimit, Math.floor(size)));
+        }
+    }
+}
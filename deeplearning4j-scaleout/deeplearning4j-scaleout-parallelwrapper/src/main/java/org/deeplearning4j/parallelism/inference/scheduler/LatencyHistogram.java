@@ -0,0 +1,173 @@
+package org.deeplearning4j.parallelism.inference.scheduler;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram for non-negative long values (i.e. latencies in nanoseconds).
+ *
+ * Each power of 2 is split into 8 linear sub-buckets, so any reported percentile is within 12.5% of the real value,
+ * while the whole histogram fits into less than 500 counters.
+ */
+public class LatencyHistogram implements Serializable {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public static final int NUM_BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong(0);
+    private final AtomicLong totalSum = new AtomicLong(0);
+    private final AtomicLong maxValue = new AtomicLong(0);
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(NUM_BUCKETS);
+    }
+
+    /**
+     * This method returns bucket index for given value
+     *
+     * @param value non-negative value
+     * @return
+     */
+    public static int bucketIndex(long value) {
+        if (value < 0)
+            value = 0;
+
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift);
+        return shift * SUB_BUCKETS + top;
+    }
+
+    /**
+     * This method returns smallest value that falls into given bucket
+     *
+     * @param index
+     * @return
+     */
+    public static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return top << shift;
+    }
+
+    /**
+     * This method returns largest value that falls into given bucket
+     *
+     * @param index
+     * @return
+     */
+    public static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        return bucketLowerBound(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * This method records single value
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+
+        long max;
+        while (value > (max = maxValue.get())) {
+            if (maxValue.compareAndSet(max, value))
+                break;
+        }
+    }
+
+    /**
+     * This method returns estimated value at given percentile. Estimate is conservative: upper bound of the
+     * bucket holding requested rank is returned.
+     *
+     * @param percentile value in range [0, 100]
+     * @return estimated value, or 0 if histogram is empty
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0)
+            throw new IllegalArgumentException("Percentile should be in range [0, 100], got [" + percentile + "]");
+
+        long total = totalCount.get();
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(bucketUpperBound(i), maxValue.get());
+        }
+
+        return maxValue.get();
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public double getMean() {
+        long total = totalCount.get();
+        return total == 0 ? 0.0 : totalSum.get() / (double) total;
+    }
+
+    /**
+     * This method returns number of values recorded into given bucket
+     *
+     * @param index
+     * @return
+     */
+    public long getBucketCount(int index) {
+        return counts.get(index);
+    }
+
+    /**
+     * This method resets all counters.
+     *
+     * PLEASE NOTE: values recorded concurrently with reset might be partially lost
+     */
+    public void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+            counts.set(i, 0);
+
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+
+    /**
+     * This method returns detached copy of this histogram
+     *
+     * @return
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram result = new LatencyHistogram();
+        for (int i = 0; i < NUM_BUCKETS; i++)
+            result.counts.set(i, counts.get(i));
+
+        result.totalCount.set(totalCount.get());
+        result.totalSum.set(totalSum.get());
+        result.maxValue.set(maxValue.get());
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package org.deeplearning4j.parallelism.inference.scheduler;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+
+/**
+ * Single inference request waiting in AdaptiveBatchScheduler queue, along with its submission timestamp
+ */
+public class PendingRequest {
+    @Getter
+    private final InferenceObservable observable;
+    @Getter
+    private final long submittedNanos;
+
+    public PendingRequest(@NonNull InferenceObservable observable, long submittedNanos) {
+        this.observable = observable;
+        this.submittedNanos = submittedNanos;
+    }
+}
@@ -0,0 +1,61 @@
+package org.deeplearning4j.parallelism.inference.scheduler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * Point-in-time snapshot of single inference worker statistics, as collected by AdaptiveBatchScheduler
+ */
+@Getter
+@AllArgsConstructor
+public class WorkerStats implements Serializable {
+    /**
+     * Index of the worker
+     */
+    private final int workerIdx;
+
+    /**
+     * Number of requests waiting in this worker queue
+     */
+    private final int queueDepth;
+
+    /**
+     * Number of requests processed by this worker so far
+     */
+    private final long processedRequests;
+
+    /**
+     * Number of batches processed by this worker so far
+     */
+    private final long processedBatches;
+
+    /**
+     * Batch size histogram: element i holds number of batches of size i
+     */
+    private final long[] batchSizeHistogram;
+
+    /**
+     * End-to-end request latency histogram (submission to output), in nanoseconds
+     */
+    private final LatencyHistogram latencyHistogram;
+
+    /**
+     * Batch size limit currently derived from latency target
+     */
+    private final int currentBatchLimit;
+
+    /**
+     * Fraction of latency target currently used as scheduling budget
+     */
+    private final double slack;
+
+    public long getLatencyPercentile(double percentile) {
+        return latencyHistogram.getPercentile(percentile);
+    }
+
+    public double getMeanBatchSize() {
+        return processedBatches == 0 ? 0.0 : processedRequests / (double) processedBatches;
+    }
+}
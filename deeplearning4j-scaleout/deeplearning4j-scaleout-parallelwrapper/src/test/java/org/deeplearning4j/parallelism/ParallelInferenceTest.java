@@ -6,24 +6,37 @@ import org.datavec.api.util.ClassPathResource;
 import org.nd4j.linalg.primitives.Pair;
 import org.deeplearning4j.datasets.iterator.impl.MnistDataSetIterator;
 import org.deeplearning4j.eval.Evaluation;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.deeplearning4j.parallelism.inference.InferenceRejectionHandler;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
 import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.scheduler.WorkerStats;
 import org.deeplearning4j.util.ModelSerializer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.nd4j.linalg.activations.Activation;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -135,6 +148,128 @@ public class ParallelInferenceTest {
         assertTrue(inf.getWorkerCounter(1) > 10L);
     }
 
+    @Test
+    public void testInferenceAdaptive1() throws Exception {
+        ParallelInference inf = new ParallelInference.Builder(model).inferenceMode(InferenceMode.ADAPTIVE)
+                        .batchLimit(8).latencyTarget(20, TimeUnit.MILLISECONDS).workers(2).build();
+
+        INDArray array1 = inf.output(iterator.next().getFeatureMatrix());
+        INDArray array2 = inf.output(iterator.next().getFeatureMatrix());
+
+        assertFalse(array1.isAttached());
+        assertFalse(array2.isAttached());
+
+        iterator.reset();
+
+        evalClassifcationMultipleThreads(inf, iterator, 20);
+
+        long processed = 0;
+        for (WorkerStats stats : inf.getWorkerStats()) {
+            log.info("Worker {}: mean batch size: {}; p99 latency: {} us", stats.getWorkerIdx(),
+                            stats.getMeanBatchSize(), stats.getLatencyPercentile(99.0) / 1000);
+
+            assertEquals(0, stats.getQueueDepth());
+            processed += stats.getProcessedRequests();
+        }
+
+        // 2 single requests + 256 requests from evaluation
+        assertEquals(258, processed);
+    }
+
+    @Test
+    public void testInferenceAdaptiveFailure1() throws Exception {
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                        .layer(0, new DenseLayer.Builder().nIn(4).nOut(5).activation(Activation.TANH).build())
+                        .layer(1, new OutputLayer.Builder().nIn(5).nOut(3).activation(Activation.SOFTMAX).build())
+                        .build();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        ParallelInference inf = new ParallelInference.Builder(net).inferenceMode(InferenceMode.ADAPTIVE)
+                        .batchLimit(8).latencyTarget(20, TimeUnit.MILLISECONDS).workers(1).build();
+
+        INDArray features = Nd4j.rand(1, 4);
+        INDArray expected = net.output(features);
+
+        // model call fails on wrong input shape: request fails, but single worker has to keep serving
+        for (int i = 0; i < 3; i++) {
+            try {
+                inf.outputAsync(Nd4j.create(1, 7)).get(30, TimeUnit.SECONDS);
+                fail("Exception expected");
+            } catch (ExecutionException e) {
+                // expected
+            }
+
+            assertEquals(expected, inf.output(features));
+        }
+    }
+
+    @Test
+    public void testInferenceAsync1() throws Exception {
+        ParallelInference inf = new ParallelInference.Builder(model).inferenceMode(InferenceMode.BATCHED).batchLimit(8)
+                        .queueLimit(512).workers(2).build();
+
+        DataSet ds = iterator.next();
+        INDArray expected = inf.output(ds.getFeatureMatrix());
+
+        List<CompletableFuture<INDArray[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 256; i++)
+            futures.add(inf.outputAsync(ds.getFeatureMatrix()));
+
+        for (CompletableFuture<INDArray[]> future : futures)
+            assertEquals(expected, future.get()[0]);
+
+        assertEquals(0, inf.getAsyncInFlight());
+    }
+
+    @Test
+    public void testInferenceAsyncRejection1() throws Exception {
+        final AtomicInteger rejected = new AtomicInteger(0);
+        ParallelInference inf = new ParallelInference.Builder(model).inferenceMode(InferenceMode.ADAPTIVE)
+                        .queueLimit(4).workers(1).rejectionHandler(new InferenceRejectionHandler() {
+                            @Override
+                            public void rejected(INDArray[] input, CompletableFuture<INDArray[]> future) {
+                                rejected.incrementAndGet();
+                                future.complete(null);
+                            }
+                        }).build();
+
+        INDArray features = iterator.next().getFeatureMatrix();
+
+        List<CompletableFuture<INDArray[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+            futures.add(inf.outputAsync(features));
+
+        int completed = 0;
+        for (CompletableFuture<INDArray[]> future : futures)
+            if (future.get() != null)
+                completed++;
+
+        assertTrue(rejected.get() > 0);
+        assertEquals(64, completed + rejected.get());
+    }
+
+    @Test
+    public void testProviderOfferInput() throws Exception {
+        LinkedBlockingQueue queue = new LinkedBlockingQueue(1);
+        BasicInferenceObserver observer = new BasicInferenceObserver();
+        ParallelInference.ObservablesProvider provider = new ParallelInference.ObservablesProvider(10000000L, 2, queue);
+
+        InferenceObservable observable1 = provider.offerInput(observer, Nd4j.create(100).assign(1.0));
+        InferenceObservable observable2 = provider.offerInput(observer, Nd4j.create(100).assign(2.0));
+        assertNotEquals(null, observable1);
+        assertTrue(observable1 == observable2);
+
+        // current batch is full, and there's no room in queue for new one
+        assertEquals(null, provider.offerInput(observer, Nd4j.create(100).assign(3.0)));
+        assertEquals(1, queue.size());
+        assertEquals(2, observable1.getInput()[0].rows());
+
+        queue.take();
+        InferenceObservable observable3 = provider.offerInput(observer, Nd4j.create(100).assign(3.0));
+        assertNotEquals(null, observable3);
+        assertTrue(observable1 != observable3);
+    }
 
     @Test
     public void testProvider1() throws Exception {
@@ -0,0 +1,77 @@
+package org.deeplearning4j.parallelism.inference.observers;
+
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+public class FutureInferenceObserverTest {
+
+    @Test
+    public void testBasicObservable1() throws Exception {
+        BasicInferenceObservable observable = new BasicInferenceObservable(Nd4j.create(10));
+        FutureInferenceObserver observer = new FutureInferenceObserver();
+        observable.addObserver(observer);
+
+        assertFalse(observer.getFuture().isDone());
+
+        INDArray output = Nd4j.create(5).assign(1.0);
+        observable.setOutput(output);
+
+        assertTrue(observer.getFuture().isDone());
+        assertTrue(output == observer.getFuture().get()[0]);
+    }
+
+    @Test
+    public void testBatchedObservable1() throws Exception {
+        BatchedInferenceObservable observable = new BatchedInferenceObservable();
+        FutureInferenceObserver[] observers = new FutureInferenceObserver[3];
+        for (int i = 0; i < observers.length; i++) {
+            observable.setInput(Nd4j.create(100).assign(i));
+
+            observers[i] = new FutureInferenceObserver();
+            observers[i].setPosition(observable.getPosition());
+            observable.addObserver(observers[i]);
+        }
+
+        INDArray bigOutput = Nd4j.create(3, 10);
+        for (int i = 0; i < bigOutput.rows(); i++)
+            bigOutput.getRow(i).assign((float) i);
+
+        // output is delivered from another thread, so ThreadLocal position isn't available there
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                observable.setOutput(bigOutput);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        for (int i = 0; i < observers.length; i++) {
+            INDArray out = observers[i].getFuture().get()[0];
+            assertArrayEquals(new int[] {1, 10}, out.shape());
+            assertEquals((float) i, out.meanNumber().floatValue(), 0.01f);
+        }
+    }
+
+    @Test
+    public void testError1() throws Exception {
+        BasicInferenceObservable observable = new BasicInferenceObservable(Nd4j.create(10));
+        FutureInferenceObserver observer = new FutureInferenceObserver();
+        observable.addObserver(observer);
+
+        observable.setError(new IllegalStateException("Test failure"));
+
+        assertTrue(observer.getFuture().isCompletedExceptionally());
+        try {
+            observer.getFuture().get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.deeplearning4j.parallelism.inference.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Slf4j
+public class AdaptiveBatchSchedulerTest {
+
+    @Test
+    public void testSingleWorker1() throws Exception {
+        AdaptiveBatchScheduler scheduler = new AdaptiveBatchScheduler(1, 16, TimeUnit.MILLISECONDS.toNanos(50));
+
+        for (int i = 0; i < 40; i++)
+            scheduler.submit(new BasicInferenceObservable());
+
+        assertEquals(40, scheduler.getQueueDepth(0));
+
+        List<PendingRequest> batch = new ArrayList<>();
+        scheduler.take(0, batch);
+
+        // queue is deeper than batch limit, so batch should be full
+        assertEquals(16, batch.size());
+        assertEquals(24, scheduler.getQueueDepth(0));
+
+        scheduler.complete(0, batch, 1000L);
+
+        WorkerStats stats = scheduler.getWorkerStats(0);
+        assertEquals(16, stats.getProcessedRequests());
+        assertEquals(1, stats.getProcessedBatches());
+        assertEquals(1, stats.getBatchSizeHistogram()[16]);
+        assertEquals(16, stats.getLatencyHistogram().getCount());
+        assertEquals(24, stats.getQueueDepth());
+    }
+
+    @Test
+    public void testBatchLimitFromLatencyTarget1() throws Exception {
+        long target = TimeUnit.MILLISECONDS.toNanos(10);
+        AdaptiveBatchScheduler scheduler = new AdaptiveBatchScheduler(1, 64, target);
+
+        List<PendingRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+            scheduler.submit(new BasicInferenceObservable());
+
+        scheduler.take(0, batch);
+        assertEquals(64, batch.size());
+
+        // 1 ms per example: only 5 examples fit into half of 10 ms budget
+        scheduler.complete(0, batch, TimeUnit.MILLISECONDS.toNanos(64));
+
+        for (int i = 0; i < 64; i++)
+            scheduler.submit(new BasicInferenceObservable());
+
+        scheduler.take(0, batch);
+        assertEquals(5, batch.size());
+        assertEquals(5, scheduler.getWorkerStats(0).getCurrentBatchLimit());
+    }
+
+    @Test
+    public void testMultipleProducers1() throws Exception {
+        final int numWorkers = 3;
+        final int numProducers = 8;
+        final int perProducer = 2000;
+        final AdaptiveBatchScheduler scheduler =
+                        new AdaptiveBatchScheduler(numWorkers, 32, TimeUnit.MILLISECONDS.toNanos(5));
+        final AtomicLong completed = new AtomicLong(0);
+
+        Thread[] workers = new Thread[numWorkers];
+        for (int w = 0; w < numWorkers; w++) {
+            final int workerIdx = w;
+            workers[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<PendingRequest> batch = new ArrayList<>();
+                    try {
+                        while (true) {
+                            scheduler.take(workerIdx, batch);
+                            LockSupport.parkNanos(50000L + 5000L * batch.size());
+                            for (PendingRequest request : batch)
+                                request.getObservable().setOutput();
+
+                            scheduler.complete(workerIdx, batch, 50000L + 5000L * batch.size());
+                            completed.addAndGet(batch.size());
+                        }
+                    } catch (InterruptedException e) {
+                        // we're done here
+                    }
+                }
+            });
+            workers[w].setDaemon(true);
+            scheduler.register(w, workers[w]);
+            workers[w].start();
+        }
+
+        Thread[] producers = new Thread[numProducers];
+        for (int p = 0; p < numProducers; p++) {
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++)
+                        scheduler.submit(new BasicInferenceObservable());
+                }
+            });
+            producers[p].start();
+        }
+
+        for (Thread producer : producers)
+            producer.join();
+
+        long time = System.currentTimeMillis();
+        while (completed.get() < numProducers * perProducer && System.currentTimeMillis() - time < 30000)
+            Thread.sleep(10);
+
+        for (Thread worker : workers)
+            worker.interrupt();
+
+        assertEquals(numProducers * perProducer, completed.get());
+        assertEquals(0, scheduler.getQueueDepth());
+
+        long requests = 0;
+        long batches = 0;
+        for (int w = 0; w < numWorkers; w++) {
+            WorkerStats stats = scheduler.getWorkerStats(w);
+            log.info("Worker {}: mean batch size: {}; p99 latency: {} us", w, stats.getMeanBatchSize(),
+                            stats.getLatencyPercentile(99.0) / 1000);
+
+            long histogramSum = 0;
+            for (int s = 1; s < stats.getBatchSizeHistogram().length; s++)
+                histogramSum += s * stats.getBatchSizeHistogram()[s];
+
+            assertEquals(stats.getProcessedRequests(), histogramSum);
+            requests += stats.getProcessedRequests();
+            batches += stats.getProcessedBatches();
+        }
+
+        assertEquals(numProducers * perProducer, requests);
+
+        // under this load requests should be batched
+        assertTrue(batches < requests);
+    }
+}
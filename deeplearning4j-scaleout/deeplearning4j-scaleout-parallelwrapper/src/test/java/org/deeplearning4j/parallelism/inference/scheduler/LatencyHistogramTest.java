@@ -0,0 +1,53 @@
+package org.deeplearning4j.parallelism.inference.scheduler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets1() throws Exception {
+        for (long value = 0; value < 100000; value++) {
+            int idx = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(idx) <= value);
+            assertTrue(LatencyHistogram.bucketUpperBound(idx) >= value);
+        }
+
+        assertTrue(LatencyHistogram.bucketIndex(Long.MAX_VALUE) < LatencyHistogram.NUM_BUCKETS);
+    }
+
+    @Test
+    public void testPercentiles1() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++)
+            histogram.record(i * 1000L);
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000L, histogram.getMax());
+        assertEquals(5000500.0, histogram.getMean(), 1.0);
+
+        long p50 = histogram.getPercentile(50.0);
+        long p99 = histogram.getPercentile(99.0);
+
+        assertEquals(5000000.0, p50, 5000000.0 * 0.125);
+        assertEquals(9900000.0, p99, 9900000.0 * 0.125);
+        assertEquals(10000000L, histogram.getPercentile(100.0));
+    }
+
+    @Test
+    public void testCopyAndReset1() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+
+        LatencyHistogram copy = histogram.copy();
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99.0));
+        assertEquals(2, copy.getCount());
+        assertEquals(20, copy.getMax());
+    }
+}
@@ -3,14 +3,19 @@ package org.deeplearning4j.ui.module.remote;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.api.storage.*;
+import org.deeplearning4j.api.storage.impl.StorageBatchCodec;
 import org.deeplearning4j.ui.api.FunctionType;
 import org.deeplearning4j.ui.api.HttpMethod;
 import org.deeplearning4j.ui.api.Route;
 import org.deeplearning4j.ui.api.UIModule;
+import play.mvc.Http;
 import play.mvc.Result;
 import play.mvc.Results;
 
 import javax.xml.bind.DatatypeConverter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -24,6 +29,9 @@ import static play.mvc.Http.Context.Implicit.request;
  * Used in conjunction with {@link org.deeplearning4j.api.storage.impl.RemoteUIStatsStorageRouter}, which posts to the UI.
  * UI information is then deserialized and routed to the specified StatsStorageRouter, which may (or may not)
  * be attached to the UI
+ * <p>
+ * Two endpoints are available: /remoteReceive for single objects (JSON), and /remoteReceiveBulk for batches of
+ * objects in the binary format of {@link StorageBatchCodec} (RemoteUIStatsStorageRouter in batched mode)
  *
  * @author Alex Black
  */
@@ -56,7 +64,8 @@ public class RemoteReceiverModule implements UIModule {
     @Override
     public List<Route> getRoutes() {
         Route r = new Route("/remoteReceive", HttpMethod.POST, FunctionType.Supplier, this::receiveData);
-        return Collections.singletonList(r);
+        Route rBulk = new Route("/remoteReceiveBulk", HttpMethod.POST, FunctionType.Supplier, this::receiveBulkData);
+        return Arrays.asList(r, rBulk);
     }
 
     @Override
@@ -75,7 +84,7 @@ public class RemoteReceiverModule implements UIModule {
         //No op
     }
 
-    private Result receiveData() {
+    private Result checkEnabled() {
         if (!enabled.get()) {
             return Results.forbidden(
                             "UI server remote listening is currently disabled. Use UIServer.getInstance().enableRemoteListener()");
@@ -85,6 +94,76 @@ public class RemoteReceiverModule implements UIModule {
             return Results.internalServerError(
                             "UI Server remote listener: no StatsStorage instance is set/available to store results");
         }
+        return null;
+    }
+
+    private Result receiveBulkData() {
+        Result notEnabled = checkEnabled();
+        if (notEnabled != null) {
+            return notEnabled;
+        }
+
+        Http.RequestBody body = request().body();
+        if (body.isMaxSizeExceeded()) {
+            return Results.status(413, "Batch exceeds maximum request size: use a smaller batch size");
+        }
+        Http.RawBuffer raw = body.asRaw();
+        if (raw == null) {
+            return Results.badRequest("Expected binary (application/octet-stream) content");
+        }
+
+        List<StorageBatchCodec.Entry> entries;
+        try {
+            entries = StorageBatchCodec.decode(raw.asBytes());
+        } catch (IOException e) {
+            log.warn("Received incorrectly formatted batch from remote listener", e);
+            return Results.badRequest("Received incorrectly formatted data");
+        }
+
+        //Route in order, grouped by type: metadata and static info before updates for the same batch
+        List<StorageMetaData> metas = new ArrayList<>();
+        List<Persistable> staticInfos = new ArrayList<>();
+        List<Persistable> updates = new ArrayList<>();
+        for (StorageBatchCodec.Entry e : entries) {
+            switch (e.getType()) {
+                case MetaData:
+                    StorageMetaData meta = getMetaData(e.getClassName(), e.getBytes());
+                    if (meta != null) {
+                        metas.add(meta);
+                    }
+                    break;
+                case StaticInfo:
+                    Persistable staticInfo = getPersistable(e.getClassName(), e.getBytes());
+                    if (staticInfo != null) {
+                        staticInfos.add(staticInfo);
+                    }
+                    break;
+                case Update:
+                    Persistable update = getPersistable(e.getClassName(), e.getBytes());
+                    if (update != null) {
+                        updates.add(update);
+                    }
+                    break;
+            }
+        }
+        if (!metas.isEmpty()) {
+            statsStorage.putStorageMetaData(metas);
+        }
+        if (!staticInfos.isEmpty()) {
+            statsStorage.putStaticInfo(staticInfos);
+        }
+        if (!updates.isEmpty()) {
+            statsStorage.putUpdate(updates);
+        }
+
+        return Results.ok("Receiver got data: " + entries.size() + " objects");
+    }
+
+    private Result receiveData() {
+        Result notEnabled = checkEnabled();
+        if (notEnabled != null) {
+            return notEnabled;
+        }
 
         JsonNode jn = request().body().asJson();
         JsonNode type = jn.get("type");
@@ -99,7 +178,13 @@ public class RemoteReceiverModule implements UIModule {
         }
 
         String dc = dataClass.asText();
-        String content = data.asText();
+        byte[] content;
+        try {
+            content = DatatypeConverter.parseBase64Binary(data.asText());
+        } catch (Exception e) {
+            log.warn("Skipping invalid remote UI data: exception encountered when decoding data", e);
+            return Results.badRequest("Received incorrectly formatted data");
+        }
 
         switch (type.asText().toLowerCase()) {
             case "metadata":
@@ -127,7 +212,7 @@ public class RemoteReceiverModule implements UIModule {
         return Results.ok("Receiver got data: ");
     }
 
-    private StorageMetaData getMetaData(String dataClass, String content) {
+    private StorageMetaData getMetaData(String dataClass, byte[] content) {
 
         StorageMetaData meta;
         try {
@@ -145,8 +230,7 @@ public class RemoteReceiverModule implements UIModule {
         }
 
         try {
-            byte[] bytes = DatatypeConverter.parseBase64Binary(content);
-            meta.decode(bytes);
+            meta.decode(content);
         } catch (Exception e) {
             log.warn("Skipping invalid remote UI data: exception encountered when deserializing data", e);
             return null;
@@ -155,7 +239,7 @@ public class RemoteReceiverModule implements UIModule {
         return meta;
     }
 
-    private Persistable getPersistable(String dataClass, String content) {
+    private Persistable getPersistable(String dataClass, byte[] content) {
         Persistable p;
         try {
             Class<?> c = Class.forName(dataClass);
@@ -172,8 +256,7 @@ public class RemoteReceiverModule implements UIModule {
         }
 
         try {
-            byte[] bytes = DatatypeConverter.parseBase64Binary(content);
-            p.decode(bytes);
+            p.decode(content);
         } catch (Exception e) {
             log.warn("Skipping invalid remote data: exception encountered when deserializing data", e);
             return null;
@@ -7,7 +7,6 @@ import org.deeplearning4j.api.storage.Persistable;
 import org.deeplearning4j.api.storage.StatsStorage;
 import org.deeplearning4j.api.storage.StatsStorageEvent;
 import org.deeplearning4j.api.storage.StatsStorageListener;
-import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.nd4j.linalg.primitives.Pair;
 import org.nd4j.linalg.primitives.Triple;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
@@ -59,7 +58,7 @@ public class TrainModule implements UIModule {
         MLN, CG, Layer
     };
 
-    private final int maxChartPoints; //Technically, the way it's set up: won't exceed 2*maxChartPoints
+    private final int maxChartPoints;
     private Map<String, StatsStorage> knownSessionIDs = Collections.synchronizedMap(new LinkedHashMap<>());
     private String currentSessionID;
     private int currentWorkerIdx;
@@ -374,24 +373,9 @@ public class TrainModule implements UIModule {
         result.put("scoresIter", scoresIterCount);
 
         //Get scores info
-        long[] allTimes = (noData ? null : ss.getAllUpdateTimes(currentSessionID, StatsListener.TYPE_ID, wid));
-        List<Persistable> updates = null;
-        if(allTimes != null && allTimes.length > maxChartPoints){
-            int subsamplingFrequency = allTimes.length / maxChartPoints;
-            LongArrayList timesToQuery = new LongArrayList(maxChartPoints+2);
-            int i=0;
-            for(; i<allTimes.length; i+= subsamplingFrequency){
-                timesToQuery.add(allTimes[i]);
-            }
-            if((i-subsamplingFrequency) != allTimes.length-1){
-                //Also add final point
-                timesToQuery.add(allTimes[allTimes.length-1]);
-            }
-            updates = ss.getUpdates(currentSessionID, StatsListener.TYPE_ID, wid, timesToQuery.toArray());
-        } else if(allTimes != null) {
-            //Don't subsample
-            updates = ss.getAllUpdatesAfter(currentSessionID, StatsListener.TYPE_ID, wid, 0);
-        }
+        //Subsampled by the storage: only timestamps are scanned, and at most maxChartPoints updates are loaded
+        List<Persistable> updates = (noData ? null : ss.getUpdatesInRange(currentSessionID, StatsListener.TYPE_ID, wid,
+                        Long.MIN_VALUE, Long.MAX_VALUE, maxChartPoints));
         if (updates == null || updates.size() == 0) {
             noData = true;
         }
@@ -703,27 +687,10 @@ public class TrainModule implements UIModule {
         result.put("layerInfo", layerInfoTable);
 
         //First: get all data, and subsample it if necessary, to avoid returning too many points...
-        long[] allTimes = (noData ? null : ss.getAllUpdateTimes(currentSessionID, StatsListener.TYPE_ID, wid));
-
-        List<Persistable> updates = null;
+        List<Persistable> updates = (noData ? null : ss.getUpdatesInRange(currentSessionID, StatsListener.TYPE_ID, wid,
+                        Long.MIN_VALUE, Long.MAX_VALUE, maxChartPoints));
         List<Integer> iterationCounts = null;
         boolean needToHandleLegacyIterCounts = false;
-        if(allTimes != null && allTimes.length > maxChartPoints){
-            int subsamplingFrequency = allTimes.length / maxChartPoints;
-            LongArrayList timesToQuery = new LongArrayList(maxChartPoints+2);
-            int i=0;
-            for(; i<allTimes.length; i+= subsamplingFrequency){
-                timesToQuery.add(allTimes[i]);
-            }
-            if((i-subsamplingFrequency) != allTimes.length-1){
-                //Also add final point
-                timesToQuery.add(allTimes[allTimes.length-1]);
-            }
-            updates = ss.getUpdates(currentSessionID, StatsListener.TYPE_ID, wid, timesToQuery.toArray());
-        } else if(allTimes != null) {
-            //Don't subsample
-            updates = ss.getAllUpdatesAfter(currentSessionID, StatsListener.TYPE_ID, wid, 0);
-        }
 
         iterationCounts = new ArrayList<>(updates.size());
         int lastIterCount = -1;
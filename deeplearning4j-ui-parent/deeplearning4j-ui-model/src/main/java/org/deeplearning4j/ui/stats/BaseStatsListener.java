@@ -32,11 +32,21 @@ import java.lang.management.OperatingSystemMXBean;
 import java.lang.management.RuntimeMXBean;
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * BaseStatsListener: a general purpose listener for collecting and reporting system and model information.
  *
  * Serves as a base for different ways of storing the collected data
+ * <p>
+ * By default, all stats are calculated on the training thread, from the full parameter, gradient, update and activation
+ * arrays. To reduce the overhead on the training thread for large models:<br>
+ * - {@link #setAsyncCollection(boolean)}: the arrays are copied (snapshotted) on the training thread, and histograms and
+ * summary stats are calculated and reported on a background thread. Call {@link #flush()} to wait for all pending
+ * reports<br>
+ * - {@link #setStatsSampleSize(int)}: histograms and summary stats are calculated from a random sample of the values
+ * of each array, so only the sampled values need to be copied<br>
  *
  * @author Alex Black
  */
@@ -60,6 +70,11 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
     private Map<String, INDArray> activationsMap;
     private Map<String, INDArray> gradientsPreUpdateMap = new HashMap<>();
 
+    private boolean asyncCollection;
+    private int statsSampleSize;
+    private transient Random sampleRng;
+    private transient CollectorThread collectorThread;
+
     //NOTE: may have multiple models, due to multiple pretrain layers all using the same StatsListener
     private List<ModelInfo> modelInfos = new ArrayList<>();
 
@@ -168,6 +183,64 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         this.updateConfig = newConfig;
     }
 
+    /**
+     * @return True if histograms and summary stats are calculated on a background thread
+     */
+    public boolean isAsyncCollection() {
+        return asyncCollection;
+    }
+
+    /**
+     * If true: histograms and summary stats are calculated (and reports passed to the router) on a background thread,
+     * from snapshots of the arrays taken on the training thread. Default: false.
+     * Note that reports are passed to the router after {@link #iterationDone(Model, int)} returns; use {@link #flush()}
+     * to wait for all pending reports.
+     */
+    public void setAsyncCollection(boolean asyncCollection) {
+        this.asyncCollection = asyncCollection;
+    }
+
+    /**
+     * @return Maximum number of values of each array used to calculate histograms and summary stats; 0 for all values
+     */
+    public int getStatsSampleSize() {
+        return statsSampleSize;
+    }
+
+    /**
+     * Set the maximum number of values of each parameter/gradient/update/activation array used to calculate the
+     * histograms and summary stats (mean, standard deviation, mean magnitude). For arrays with more values, a random
+     * sample (without replacement) of this size is used: the stats are then estimates, and histogram min/max values
+     * are those of the sample. Default: 0 (use all values).
+     *
+     * @param statsSampleSize Maximum number of values per array, or 0 to use all values
+     */
+    public void setStatsSampleSize(int statsSampleSize) {
+        if (statsSampleSize < 0)
+            throw new IllegalArgumentException("Sample size must be 0 (no sampling) or positive, got " + statsSampleSize);
+        this.statsSampleSize = statsSampleSize;
+    }
+
+    /**
+     * Copy the async collection and sampling settings to the given listener. For use in {@link #clone()}
+     */
+    protected <T extends BaseStatsListener> T copySettingsTo(T listener) {
+        listener.setAsyncCollection(asyncCollection);
+        listener.setStatsSampleSize(statsSampleSize);
+        return listener;
+    }
+
+    /**
+     * Wait until all pending reports (when using asynchronous collection) have been passed to the router.
+     * No-op if asynchronous collection is not used.
+     */
+    public void flush() {
+        CollectorThread t = collectorThread;
+        if (t != null) {
+            t.waitForPending();
+        }
+    }
+
     @Override
     public void setStorageRouter(StatsStorageRouter router) {
         this.router = router;
@@ -240,7 +313,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
                 int count = 0;
                 for (INDArray arr : activations) {
                     String layerName = (count == 0 ? "input" : String.valueOf(count - 1));
-                    activationsMap.put(layerName, arr.dup());
+                    activationsMap.put(layerName, snapshot(arr));
                     count++;
                 }
             }
@@ -255,7 +328,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
             activationsMap = new HashMap<>();
             try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                 for (Map.Entry<String, INDArray> e : activations.entrySet()) {
-                    activationsMap.put(e.getKey(), e.getValue().dup());
+                    activationsMap.put(e.getKey(), snapshot(e.getValue()));
                 }
             }
         }
@@ -270,7 +343,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
             gradientsPreUpdateMap.clear();
             try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                 for (Map.Entry<String, INDArray> entry : g.gradientForVariable().entrySet()) {
-                    gradientsPreUpdateMap.put(entry.getKey(), entry.getValue().dup()); //Need to clone: will be modified (updated) in-place soon...
+                    gradientsPreUpdateMap.put(entry.getKey(), snapshot(entry.getValue())); //Need to clone: will be modified (updated) in-place soon...
                 }
             }
         }
@@ -443,10 +516,57 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         }
 
 
+        //--- Histograms and Summary Stats ---
+        Map<String, INDArray> paramMap = null;
+        Map<String, INDArray> updateMap = null;
+        if (collectAny(config, StatsType.Parameters)) {
+            paramMap = model.paramTable(backpropParamsOnly);
+        }
+        if (collectAny(config, StatsType.Updates)) {
+            updateMap = model.gradient().gradientForVariable();
+        }
+
+        if (asyncCollection) {
+            //Snapshot on the training thread, calculate stats and report on the collector thread
+            PendingReport pending;
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                pending = new PendingReport(report, config, snapshot(paramMap),
+                                new LinkedHashMap<>(gradientsPreUpdateMap), snapshot(updateMap), activationsMap);
+            }
+            pending.snapshotDurationMs = getTime() - currentTime;
+            report.reportIterationCount(iteration);
+            getCollectorThread().submit(pending);
+        } else {
+            if (statsSampleSize > 0) {
+                paramMap = snapshot(paramMap);
+                updateMap = snapshot(updateMap);
+            }
+            collectModelStats(report, config, paramMap, gradientsPreUpdateMap, updateMap, activationsMap);
+
+            long endTime = getTime();
+            report.reportStatsCollectionDurationMS((int) (endTime - currentTime)); //Amount of time required to alculate all histograms, means etc.
+            report.reportIterationCount(iteration);
+            this.router.putUpdate(report);
+        }
+
+        modelInfo.lastReportTime = currentTime;
+        modelInfo.lastReportIteration = iteration;
+        modelInfo.iterCount = iteration;
+        activationsMap = null;
+    }
+
+    private static boolean collectAny(StatsUpdateConfiguration config, StatsType type) {
+        return config.collectHistograms(type) || config.collectMean(type) || config.collectStdev(type)
+                        || config.collectMeanMagnitudes(type);
+    }
+
+    private static void collectModelStats(StatsReport report, StatsUpdateConfiguration config,
+                    Map<String, INDArray> paramMap, Map<String, INDArray> gradientsPreUpdateMap,
+                    Map<String, INDArray> updateMap, Map<String, INDArray> activationsMap) {
         //--- Histograms ---
 
         if (config.collectHistograms(StatsType.Parameters)) {
-            Map<String, Histogram> paramHistograms = getHistograms(model.paramTable(backpropParamsOnly),
+            Map<String, Histogram> paramHistograms = getHistograms(paramMap,
                             config.numHistogramBins(StatsType.Parameters));
             report.reportHistograms(StatsType.Parameters, paramHistograms);
         }
@@ -458,7 +578,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         }
 
         if (config.collectHistograms(StatsType.Updates)) {
-            Map<String, Histogram> updateHistograms = getHistograms(model.gradient().gradientForVariable(),
+            Map<String, Histogram> updateHistograms = getHistograms(updateMap,
                             config.numHistogramBins(StatsType.Updates));
             report.reportHistograms(StatsType.Updates, updateHistograms);
         }
@@ -473,7 +593,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         //--- Summary Stats: Mean, Variance, Mean Magnitudes ---
 
         if (config.collectMean(StatsType.Parameters)) {
-            Map<String, Double> meanParams = calculateSummaryStats(model.paramTable(backpropParamsOnly), StatType.Mean);
+            Map<String, Double> meanParams = calculateSummaryStats(paramMap, StatType.Mean);
             report.reportMean(StatsType.Parameters, meanParams);
         }
 
@@ -484,7 +604,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
 
         if (config.collectMean(StatsType.Updates)) {
             Map<String, Double> meanUpdates =
-                            calculateSummaryStats(model.gradient().gradientForVariable(), StatType.Mean);
+                            calculateSummaryStats(updateMap, StatType.Mean);
             report.reportMean(StatsType.Updates, meanUpdates);
         }
 
@@ -496,7 +616,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
 
         if (config.collectStdev(StatsType.Parameters)) {
             Map<String, Double> stdevParams =
-                            calculateSummaryStats(model.paramTable(backpropParamsOnly), StatType.Stdev);
+                            calculateSummaryStats(paramMap, StatType.Stdev);
             report.reportStdev(StatsType.Parameters, stdevParams);
         }
 
@@ -507,7 +627,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
 
         if (config.collectStdev(StatsType.Updates)) {
             Map<String, Double> stdevUpdates =
-                            calculateSummaryStats(model.gradient().gradientForVariable(), StatType.Stdev);
+                            calculateSummaryStats(updateMap, StatType.Stdev);
             report.reportStdev(StatsType.Updates, stdevUpdates);
         }
 
@@ -519,7 +639,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
 
         if (config.collectMeanMagnitudes(StatsType.Parameters)) {
             Map<String, Double> meanMagParams =
-                            calculateSummaryStats(model.paramTable(backpropParamsOnly), StatType.MeanMagnitude);
+                            calculateSummaryStats(paramMap, StatType.MeanMagnitude);
             report.reportMeanMagnitudes(StatsType.Parameters, meanMagParams);
         }
 
@@ -530,7 +650,7 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
 
         if (config.collectMeanMagnitudes(StatsType.Updates)) {
             Map<String, Double> meanMagUpdates =
-                            calculateSummaryStats(model.gradient().gradientForVariable(), StatType.MeanMagnitude);
+                            calculateSummaryStats(updateMap, StatType.MeanMagnitude);
             report.reportMeanMagnitudes(StatsType.Updates, meanMagUpdates);
         }
 
@@ -540,16 +660,146 @@ public abstract class BaseStatsListener implements RoutingIterationListener {
         }
 
 
-        long endTime = getTime();
-        report.reportStatsCollectionDurationMS((int) (endTime - currentTime)); //Amount of time required to alculate all histograms, means etc.
-        modelInfo.lastReportTime = currentTime;
-        modelInfo.lastReportIteration = iteration;
-        report.reportIterationCount(iteration);
+    }
 
-        this.router.putUpdate(report);
+    /**
+     * Copy of the array, or a random sample of its values (as a row vector) if sampling is enabled and the array is
+     * larger than the sample size
+     */
+    private INDArray snapshot(INDArray arr) {
+        int length = arr.length();
+        if (statsSampleSize <= 0 || length <= statsSampleSize) {
+            return arr.dup();
+        }
 
-        modelInfo.iterCount = iteration;
-        activationsMap = null;
+        if (sampleRng == null) {
+            sampleRng = new Random();
+        }
+        //Sample without replacement: Floyd's algorithm
+        Set<Integer> indices = new HashSet<>();
+        for (int j = length - statsSampleSize; j < length; j++) {
+            int t = sampleRng.nextInt(j + 1);
+            indices.add(indices.contains(t) ? j : t);
+        }
+
+        double[] values = new double[statsSampleSize];
+        int i = 0;
+        if (arr.elementWiseStride() == 1 && arr.data().length() == length) {
+            //Buffer contains exactly the array's values (as is the case for parameter views): read directly from it
+            for (int idx : indices) {
+                values[i++] = arr.data().getDouble(idx);
+            }
+        } else {
+            for (int idx : indices) {
+                values[i++] = arr.getDouble(idx);
+            }
+        }
+        return Nd4j.create(values);
+    }
+
+    private Map<String, INDArray> snapshot(Map<String, INDArray> map) {
+        if (map == null)
+            return null;
+        Map<String, INDArray> out = new LinkedHashMap<>();
+        for (Map.Entry<String, INDArray> e : map.entrySet()) {
+            out.put(e.getKey(), snapshot(e.getValue()));
+        }
+        return out;
+    }
+
+    private synchronized CollectorThread getCollectorThread() {
+        if (collectorThread == null) {
+            collectorThread = new CollectorThread();
+            collectorThread.start();
+        }
+        return collectorThread;
+    }
+
+    private static class PendingReport {
+        private final StatsReport report;
+        private final StatsUpdateConfiguration config;
+        private final Map<String, INDArray> params;
+        private final Map<String, INDArray> gradients;
+        private final Map<String, INDArray> updates;
+        private final Map<String, INDArray> activations;
+        private long snapshotDurationMs;
+
+        private PendingReport(StatsReport report, StatsUpdateConfiguration config, Map<String, INDArray> params,
+                        Map<String, INDArray> gradients, Map<String, INDArray> updates,
+                        Map<String, INDArray> activations) {
+            this.report = report;
+            this.config = config;
+            this.params = params;
+            this.gradients = gradients;
+            this.updates = updates;
+            this.activations = activations;
+        }
+    }
+
+    /**
+     * Calculates histograms and summary stats for pending reports, in order, and passes them to the router.
+     * The queue is bounded: if stats collection can't keep up with training, the training thread waits.
+     */
+    private class CollectorThread extends Thread {
+        private static final int MAX_PENDING = 4;
+        private final BlockingQueue<PendingReport> queue = new LinkedBlockingQueue<>(MAX_PENDING);
+        private final Object pendingLock = new Object();
+        private int pendingCount;
+
+        private CollectorThread() {
+            super("StatsListener-collector");
+            setDaemon(true);
+        }
+
+        private void submit(PendingReport r) {
+            synchronized (pendingLock) {
+                pendingCount++;
+            }
+            try {
+                queue.put(r);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while submitting stats report", e);
+            }
+        }
+
+        private void waitForPending() {
+            synchronized (pendingLock) {
+                while (pendingCount > 0) {
+                    try {
+                        pendingLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                PendingReport r;
+                try {
+                    r = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    long start = getTime();
+                    collectModelStats(r.report, r.config, r.params, r.gradients, r.updates, r.activations);
+                    r.report.reportStatsCollectionDurationMS((int) (r.snapshotDurationMs + getTime() - start));
+                    router.putUpdate(r.report);
+                } catch (Throwable t) {
+                    log.error("Error collecting stats", t);
+                } finally {
+                    synchronized (pendingLock) {
+                        pendingCount--;
+                        pendingLock.notifyAll();
+                    }
+                }
+            }
+        }
     }
 
     private long getTime() {
@@ -69,6 +69,7 @@ public class J7StatsListener extends BaseStatsListener {
 
     @Override
     public J7StatsListener clone() {
-        return new J7StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(), null, null);
+        return copySettingsTo(new J7StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(),
+                        null, null));
     }
 }
@@ -52,7 +52,8 @@ public class StatsListener extends BaseStatsListener {
     }
 
     public StatsListener clone() {
-        return new StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(), null, null);
+        return copySettingsTo(new StatsListener(this.getStorageRouter(), this.getInitConfig(), this.getUpdateConfig(),
+                        null, null));
     }
 
     @Override
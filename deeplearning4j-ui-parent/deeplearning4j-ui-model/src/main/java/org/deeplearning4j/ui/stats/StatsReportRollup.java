@@ -0,0 +1,184 @@
+package org.deeplearning4j.ui.stats;
+
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.ui.stats.api.StatsReport;
+import org.deeplearning4j.ui.stats.api.StatsType;
+import org.deeplearning4j.ui.stats.api.SummaryType;
+import org.deeplearning4j.ui.stats.impl.java.RollupStatsReport;
+import org.deeplearning4j.ui.storage.UpdateRollup;
+import org.nd4j.linalg.primitives.Pair;
+
+import java.util.*;
+
+/**
+ * {@link UpdateRollup} for {@link StatsReport} updates, as posted by the {@link StatsListener}. The consecutive reports
+ * are combined into a single {@link RollupStatsReport}, with:<br>
+ * - The mean score, learning rates and mean/standard deviation/mean magnitude summary statistics<br>
+ * - The minimum and maximum score, and the number of reports<br>
+ * - The sum of the garbage collection counts and times<br>
+ * - The iteration count, memory use, performance stats and histograms of the last report<br>
+ * Data set metadata is not retained.
+ */
+public class StatsReportRollup implements UpdateRollup {
+
+    @Override
+    public Persistable rollup(List<Persistable> updates) {
+        if (updates == null || updates.isEmpty())
+            throw new IllegalArgumentException("Cannot roll up empty list of updates");
+
+        List<StatsReport> reports = new ArrayList<>(updates.size());
+        for (Persistable p : updates) {
+            if (!(p instanceof StatsReport))
+                throw new IllegalArgumentException("Can only roll up StatsReport updates: got "
+                                + p.getClass().getName());
+            reports.add((StatsReport) p);
+        }
+        double[] weights = new double[reports.size()];
+        int count = 0;
+        for (int i = 0; i < weights.length; i++) {
+            StatsReport r = reports.get(i);
+            int c = (r instanceof RollupStatsReport ? ((RollupStatsReport) r).getCount() : 1);
+            weights[i] = c;
+            count += c;
+        }
+
+        StatsReport first = reports.get(0);
+        StatsReport last = reports.get(reports.size() - 1);
+        RollupStatsReport out = new RollupStatsReport();
+        out.reportIDs(last.getSessionID(), last.getTypeID(), last.getWorkerID(), last.getTimeStamp());
+        out.reportIterationCount(last.getIterationCount());
+        out.reportStatsCollectionDurationMS(last.getStatsCollectionDurationMs());
+
+        //Score: mean, min and max
+        double scoreSum = 0;
+        double scoreWeight = 0;
+        double minScore = Double.NaN;
+        double maxScore = Double.NaN;
+        for (int i = 0; i < reports.size(); i++) {
+            StatsReport r = reports.get(i);
+            if (!r.hasScore())
+                continue;
+            scoreSum += weights[i] * r.getScore();
+            scoreWeight += weights[i];
+            double rMin = (r instanceof RollupStatsReport ? ((RollupStatsReport) r).getMinScore() : r.getScore());
+            double rMax = (r instanceof RollupStatsReport ? ((RollupStatsReport) r).getMaxScore() : r.getScore());
+            minScore = (Double.isNaN(minScore) ? rMin : Math.min(minScore, rMin));
+            maxScore = (Double.isNaN(maxScore) ? rMax : Math.max(maxScore, rMax));
+        }
+        if (scoreWeight > 0)
+            out.reportScore(scoreSum / scoreWeight);
+        long firstTimeStamp = (first instanceof RollupStatsReport ? ((RollupStatsReport) first).getFirstTimeStamp()
+                        : first.getTimeStamp());
+        out.reportRollup(count, firstTimeStamp, minScore, maxScore);
+
+        List<Map<String, Double>> learningRates = new ArrayList<>();
+        for (StatsReport r : reports)
+            learningRates.add(r.hasLearningRates() ? r.getLearningRates() : null);
+        Map<String, Double> lrMean = mean(learningRates, weights);
+        if (lrMean != null)
+            out.reportLearningRates(lrMean);
+
+        if (last.hasMemoryUse()) {
+            out.reportMemoryUse(last.getJvmCurrentBytes(), last.getJvmMaxBytes(), last.getOffHeapCurrentBytes(),
+                            last.getOffHeapMaxBytes(), last.getDeviceCurrentBytes(), last.getDeviceMaxBytes());
+        }
+        if (last.hasPerformance()) {
+            out.reportPerformance(last.getTotalRuntimeMs(), last.getTotalExamples(), last.getTotalMinibatches(),
+                            last.getExamplesPerSecond(), last.getMinibatchesPerSecond());
+        }
+
+        //GC stats are deltas since the last report: sum them
+        Map<String, int[]> gc = new LinkedHashMap<>();
+        for (StatsReport r : reports) {
+            if (!r.hasGarbageCollection())
+                continue;
+            for (Pair<String, int[]> p : r.getGarbageCollectionStats()) {
+                int[] sum = gc.get(p.getFirst());
+                if (sum == null) {
+                    sum = new int[2];
+                    gc.put(p.getFirst(), sum);
+                }
+                sum[0] += p.getSecond()[0];
+                sum[1] += p.getSecond()[1];
+            }
+        }
+        for (Map.Entry<String, int[]> e : gc.entrySet()) {
+            out.reportGarbageCollection(e.getKey(), e.getValue()[0], e.getValue()[1]);
+        }
+
+        for (StatsType statsType : StatsType.values()) {
+            if (last.hasHistograms(statsType))
+                out.reportHistograms(statsType, last.getHistograms(statsType));
+
+            for (SummaryType summaryType : SummaryType.values()) {
+                List<Map<String, Double>> values = new ArrayList<>();
+                for (StatsReport r : reports)
+                    values.add(r.hasSummaryStats(statsType, summaryType) ? get(r, statsType, summaryType) : null);
+                Map<String, Double> m = mean(values, weights);
+                if (m == null)
+                    continue;
+                switch (summaryType) {
+                    case Mean:
+                        out.reportMean(statsType, m);
+                        break;
+                    case Stdev:
+                        out.reportStdev(statsType, m);
+                        break;
+                    case MeanMagnitudes:
+                        out.reportMeanMagnitudes(statsType, m);
+                        break;
+                }
+            }
+        }
+
+        return out;
+    }
+
+    private static Map<String, Double> get(StatsReport r, StatsType statsType, SummaryType summaryType) {
+        switch (summaryType) {
+            case Mean:
+                return r.getMean(statsType);
+            case Stdev:
+                return r.getStdev(statsType);
+            case MeanMagnitudes:
+                return r.getMeanMagnitudes(statsType);
+            default:
+                throw new IllegalArgumentException("Unknown summary type: " + summaryType);
+        }
+    }
+
+    /**
+     * Weighted mean of the values for each key, over the maps containing that key
+     *
+     * @return Mean values, or null if all maps are null
+     */
+    private static Map<String, Double> mean(List<Map<String, Double>> maps, double[] weights) {
+        Map<String, double[]> sums = null;
+        for (int i = 0; i < maps.size(); i++) {
+            Map<String, Double> m = maps.get(i);
+            if (m == null)
+                continue;
+            if (sums == null)
+                sums = new LinkedHashMap<>();
+            for (Map.Entry<String, Double> e : m.entrySet()) {
+                if (e.getValue() == null)
+                    continue;
+                double[] sum = sums.get(e.getKey());
+                if (sum == null) {
+                    sum = new double[2];
+                    sums.put(e.getKey(), sum);
+                }
+                sum[0] += weights[i] * e.getValue();
+                sum[1] += weights[i];
+            }
+        }
+        if (sums == null)
+            return null;
+
+        Map<String, Double> out = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> e : sums.entrySet()) {
+            out.put(e.getKey(), e.getValue()[0] / e.getValue()[1]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,65 @@
+package org.deeplearning4j.ui.stats.impl.java;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Field;
+
+/**
+ * A {@link JavaStatsReport} that summarizes a number of consecutive stats reports, as produced by
+ * {@link org.deeplearning4j.ui.stats.StatsReportRollup}.<br>
+ * In addition to the (mean) values stored in the JavaStatsReport, the number of reports and the minimum and maximum
+ * score are stored.
+ */
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+@Data
+public class RollupStatsReport extends JavaStatsReport {
+
+    private int count;
+    private long firstTimeStamp;
+    private double minScore;
+    private double maxScore;
+
+    public RollupStatsReport() {
+        //No-Arg constructor only for deserialization
+    }
+
+    /**
+     * @param count          Number of reports summarized by this report
+     * @param firstTimeStamp Timestamp of the first report summarized by this report
+     * @param minScore       Minimum score of the reports
+     * @param maxScore       Maximum score of the reports
+     */
+    public void reportRollup(int count, long firstTimeStamp, double minScore, double maxScore) {
+        this.count = count;
+        this.firstTimeStamp = firstTimeStamp;
+        this.minScore = minScore;
+        this.maxScore = maxScore;
+    }
+
+    @Override
+    public void decode(byte[] decode) {
+        RollupStatsReport r;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(decode))) {
+            r = (RollupStatsReport) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e); //Should never happen
+        }
+
+        for (Class<?> c : new Class<?>[] {JavaStatsReport.class, RollupStatsReport.class}) {
+            for (Field f : c.getDeclaredFields()) {
+                f.setAccessible(true);
+                try {
+                    f.set(this, f.get(r));
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e); //Should never happen
+                }
+            }
+        }
+    }
+}
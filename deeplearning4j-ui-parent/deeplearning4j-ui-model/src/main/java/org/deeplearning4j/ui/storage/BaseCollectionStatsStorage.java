@@ -3,6 +3,7 @@ package org.deeplearning4j.ui.storage;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.deeplearning4j.api.storage.*;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 
 import java.io.Serializable;
 import java.util.*;
@@ -20,6 +21,11 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
     protected Map<SessionTypeWorkerId, Persistable> staticInfo;
 
     protected Map<SessionTypeWorkerId, Map<Long, Persistable>> updates = new ConcurrentHashMap<>();
+    //Sorted update timestamps for each session/type/worker: built lazily from the update map keys
+    //Access to each list is synchronized on the list itself
+    protected Map<SessionTypeWorkerId, LongArrayList> updateTimes = new ConcurrentHashMap<>();
+
+    protected volatile RollupTracker rollupTracker;
 
     protected List<StatsStorageListener> listeners = new ArrayList<>();
 
@@ -30,6 +36,139 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
     protected abstract Map<Long, Persistable> getUpdateMap(String sessionID, String typeID, String workerID,
                     boolean createIfRequired);
 
+    /**
+     * Set the retention policy for updates put after this call. Null: retain all updates (default)
+     *
+     * @param retentionPolicy Retention policy to use. May be null
+     */
+    public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+        this.rollupTracker = (retentionPolicy == null ? null : new RollupTracker(retentionPolicy));
+    }
+
+    /**
+     * @return The current retention policy, or null if all updates are retained
+     */
+    public RetentionPolicy getRetentionPolicy() {
+        RollupTracker t = rollupTracker;
+        return t == null ? null : t.getPolicy();
+    }
+
+    /**
+     * Get the sorted timestamps index for the given session/type/worker, creating it from the update map if required
+     *
+     * @return The index, or null if there are no updates
+     */
+    protected LongArrayList getUpdateTimesIndex(SessionTypeWorkerId id) {
+        LongArrayList times = updateTimes.get(id);
+        if (times != null)
+            return times;
+
+        Map<Long, Persistable> map = updates.get(id);
+        if (map == null)
+            return null;
+        synchronized (updateTimes) {
+            times = updateTimes.get(id);
+            if (times == null) {
+                times = new LongArrayList(map.size());
+                for (Long l : map.keySet()) {
+                    times.add(l);
+                }
+                times.sortThis();
+                updateTimes.put(id, times);
+            }
+        }
+        return times;
+    }
+
+    private static void addTime(LongArrayList times, long time) {
+        int idx = times.binarySearch(time);
+        if (idx < 0) {
+            times.addAtIndex(-(idx + 1), time);
+        }
+    }
+
+    private static void removeTime(LongArrayList times, long time) {
+        int idx = times.binarySearch(time);
+        if (idx >= 0) {
+            times.removeAtIndex(idx);
+        }
+    }
+
+    /**
+     * Should be called by subclasses after the update has been added to the update map: maintains the index of update
+     * times, and rolls up older updates if a retention policy has been set
+     *
+     * @param updateMap Update map for the update's session/type/worker
+     * @param update    Update that has been put
+     */
+    protected void updatePut(Map<Long, Persistable> updateMap, Persistable update) {
+        SessionTypeWorkerId id = new SessionTypeWorkerId(update.getSessionID(), update.getTypeID(),
+                        update.getWorkerID());
+        LongArrayList times = getUpdateTimesIndex(id);
+        synchronized (times) {
+            addTime(times, update.getTimeStamp());
+        }
+
+        RollupTracker tracker = rollupTracker;
+        if (tracker == null)
+            return;
+        long[] toRollUp = tracker.updateAdded(update);
+        if (toRollUp == null)
+            return;
+
+        List<Persistable> group = new ArrayList<>(toRollUp.length);
+        for (long l : toRollUp) {
+            Persistable p = updateMap.get(l);
+            if (p != null)
+                group.add(p);
+        }
+        if (group.isEmpty())
+            return;
+
+        Persistable rolledUp = tracker.getPolicy().getRollup().rollup(group);
+        long rolledUpTime = rolledUp.getTimeStamp();
+        synchronized (times) {
+            //Add the rolled up update before removing the group, so the range is never empty for concurrent readers
+            updateMap.put(rolledUpTime, rolledUp);
+            addTime(times, rolledUpTime);
+            for (long l : toRollUp) {
+                if (l != rolledUpTime) {
+                    updateMap.remove(l);
+                    removeTime(times, l);
+                }
+            }
+        }
+    }
+
+    private List<Persistable> getUpdatesForTimes(Map<Long, Persistable> map, long[] times) {
+        List<Persistable> out = new ArrayList<>(times.length);
+        for (long l : times) {
+            Persistable p = map.get(l);
+            if (p != null) {
+                out.add(p);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return Sorted update times in the range (exclusive start, inclusive end)
+     */
+    private long[] getUpdateTimesAfter(SessionTypeWorkerId id, long after) {
+        LongArrayList times = getUpdateTimesIndex(id);
+        if (times == null)
+            return new long[0];
+        synchronized (times) {
+            int idx = times.binarySearch(after);
+            int first = (idx >= 0 ? idx + 1 : -(idx + 1));
+            long[] out = new long[times.size() - first];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = times.get(first + i);
+            }
+            return out;
+        }
+    }
+
     //Return any relevant storage events
     //We want to return these so they can be logged later. Can't be logged immediately, as this may case a race
     //condition with whatever is receiving the events: i.e., might get the event before the contents are actually
@@ -216,11 +355,14 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
     public Persistable getLatestUpdate(String sessionID, String typeID, String workerID) {
         SessionTypeWorkerId id = new SessionTypeWorkerId(sessionID, typeID, workerID);
         Map<Long, Persistable> map = updates.get(id);
-        if (map == null || map.isEmpty())
+        LongArrayList times = getUpdateTimesIndex(id);
+        if (map == null || times == null)
             return null;
-        long maxTime = Long.MIN_VALUE;
-        for (Long l : map.keySet()) {
-            maxTime = Math.max(maxTime, l);
+        long maxTime;
+        synchronized (times) {
+            if (times.isEmpty())
+                return null;
+            maxTime = times.getLast();
         }
         return map.get(maxTime);
     }
@@ -253,26 +395,12 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
 
     @Override
     public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, String workerID, long timestamp) {
-        List<Persistable> list = new ArrayList<>();
-
         Map<Long, Persistable> map = getUpdateMap(sessionID, typeID, workerID, false);
         if (map == null)
-            return list;
+            return new ArrayList<>();
 
-        for (Long time : map.keySet()) {
-            if (time > timestamp) {
-                list.add(map.get(time));
-            }
-        }
-
-        Collections.sort(list, new Comparator<Persistable>() {
-            @Override
-            public int compare(Persistable o1, Persistable o2) {
-                return Long.compare(o1.getTimeStamp(), o2.getTimeStamp());
-            }
-        });
-
-        return list;
+        long[] times = getUpdateTimesAfter(new SessionTypeWorkerId(sessionID, typeID, workerID), timestamp);
+        return getUpdatesForTimes(map, times);
     }
 
     @Override
@@ -284,11 +412,7 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
                 Map<Long, Persistable> u = updates.get(stw);
                 if (u == null)
                     continue;
-                for (long l : u.keySet()) {
-                    if (l > timestamp) {
-                        list.add(u.get(l));
-                    }
-                }
+                list.addAll(getUpdatesForTimes(u, getUpdateTimesAfter(stw, timestamp)));
             }
         }
 
@@ -310,19 +434,13 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
 
     @Override
     public long[] getAllUpdateTimes(String sessionID, String typeID, String workerID) {
-        SessionTypeWorkerId stw = new SessionTypeWorkerId(sessionID, typeID, workerID);
-        Map<Long,Persistable> m = updates.get(stw);
-        if(m == null){
+        LongArrayList times = getUpdateTimesIndex(new SessionTypeWorkerId(sessionID, typeID, workerID));
+        if (times == null) {
             return new long[0];
         }
-
-        long[] ret = new long[m.size()];
-        int i=0;
-        for(Long l : m.keySet()){
-            ret[i++] = l;
+        synchronized (times) {
+            return times.toArray();
         }
-        Arrays.sort(ret);
-        return ret;
     }
 
     @Override
@@ -343,6 +461,32 @@ public abstract class BaseCollectionStatsStorage implements StatsStorage {
         return ret;
     }
 
+    @Override
+    public List<Persistable> getUpdatesInRange(String sessionID, String typeID, String workerID, long fromTimestamp,
+                    long toTimestamp, int maxPoints) {
+        if (maxPoints <= 0)
+            throw new IllegalArgumentException("Maximum number of points must be positive, got " + maxPoints);
+
+        SessionTypeWorkerId id = new SessionTypeWorkerId(sessionID, typeID, workerID);
+        Map<Long, Persistable> map = updates.get(id);
+        LongArrayList times = getUpdateTimesIndex(id);
+        if (map == null || times == null || fromTimestamp > toTimestamp)
+            return new ArrayList<>();
+
+        long[] inRange;
+        synchronized (times) {
+            int from = times.binarySearch(fromTimestamp);
+            from = (from >= 0 ? from : -(from + 1));
+            int to = times.binarySearch(toTimestamp);
+            to = (to >= 0 ? to + 1 : -(to + 1));
+            inRange = new long[Math.max(0, to - from)];
+            for (int i = 0; i < inRange.length; i++) {
+                inRange[i] = times.get(from + i);
+            }
+        }
+        return getUpdatesForTimes(map, RollupTracker.sampleTimes(inRange, maxPoints));
+    }
+
     // ----- Store new info -----
 
     @Override
@@ -73,6 +73,7 @@ public class InMemoryStatsStorage extends BaseCollectionStatsStorage {
         Map<Long, Persistable> updateMap =
                         getUpdateMap(update.getSessionID(), update.getTypeID(), update.getWorkerID(), true);
         updateMap.put(update.getTimeStamp(), update);
+        updatePut(updateMap, update);
 
         StatsStorageEvent sse = null;
         if (listeners.size() > 0)
@@ -0,0 +1,40 @@
+package org.deeplearning4j.ui.storage;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.io.Serializable;
+
+/**
+ * Tiered retention policy for the updates in a stats storage instance.<br>
+ * For each session, type and worker ID, the most recent fullResolutionCount updates are kept as-is. Older updates are
+ * replaced, in groups of rollupSize consecutive updates, by a single update produced by the {@link UpdateRollup}
+ * (for example, {@link org.deeplearning4j.ui.stats.StatsReportRollup}, which stores the min/max/mean values).
+ * Consequently, once more than fullResolutionCount updates have been reported, storage grows at 1/rollupSize of the
+ * rate at which updates are reported.
+ * <p>
+ * Note that only updates put after the policy has been set are rolled up: for example, updates already present in a
+ * file when it is opened are retained as-is.
+ */
+@Data
+public class RetentionPolicy implements Serializable {
+    private final int fullResolutionCount;
+    private final int rollupSize;
+    private final UpdateRollup rollup;
+
+    /**
+     * @param fullResolutionCount Number of most recent updates to keep as-is, for each session, type and worker ID
+     * @param rollupSize          Number of older updates to combine into a single update. Must be 2 or more
+     * @param rollup              Function used to combine updates
+     */
+    public RetentionPolicy(int fullResolutionCount, int rollupSize, @NonNull UpdateRollup rollup) {
+        if (fullResolutionCount < 0 || rollupSize < 2) {
+            throw new IllegalArgumentException("Invalid retention policy: fullResolutionCount must be non-negative and "
+                            + "rollupSize must be 2 or more; got fullResolutionCount=" + fullResolutionCount
+                            + ", rollupSize=" + rollupSize);
+        }
+        this.fullResolutionCount = fullResolutionCount;
+        this.rollupSize = rollupSize;
+        this.rollup = rollup;
+    }
+}
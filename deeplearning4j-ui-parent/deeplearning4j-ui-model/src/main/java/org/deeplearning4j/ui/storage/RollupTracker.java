@@ -0,0 +1,84 @@
+package org.deeplearning4j.ui.storage;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.ui.storage.BaseCollectionStatsStorage.SessionTypeWorkerId;
+import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the full resolution updates for each session, type and worker ID, to determine when they should be
+ * rolled up according to a {@link RetentionPolicy}. Used internally by the stats storage implementations.
+ */
+public class RollupTracker {
+    @Getter
+    private final RetentionPolicy policy;
+    private final Map<SessionTypeWorkerId, LongArrayList> fullResolutionTimes = new HashMap<>();
+
+    public RollupTracker(@NonNull RetentionPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Record a new (full resolution) update
+     *
+     * @param update Update that has been put
+     * @return Timestamps (ascending) of the oldest full resolution updates, that should now be rolled up into a single
+     *         update; or null if no updates should be rolled up yet
+     */
+    public synchronized long[] updateAdded(Persistable update) {
+        SessionTypeWorkerId id = new SessionTypeWorkerId(update.getSessionID(), update.getTypeID(),
+                        update.getWorkerID());
+        LongArrayList times = fullResolutionTimes.get(id);
+        if (times == null) {
+            times = new LongArrayList();
+            fullResolutionTimes.put(id, times);
+        }
+        times.add(update.getTimeStamp());
+
+        int rollupSize = policy.getRollupSize();
+        if (times.size() < policy.getFullResolutionCount() + rollupSize) {
+            return null;
+        }
+
+        times.sortThis();
+        long[] out = new long[rollupSize];
+        for (int i = 0; i < rollupSize; i++) {
+            out[i] = times.get(i);
+        }
+        LongArrayList remaining = new LongArrayList(times.size() - rollupSize);
+        for (int i = rollupSize; i < times.size(); i++) {
+            remaining.add(times.get(i));
+        }
+        fullResolutionTimes.put(id, remaining);
+        return out;
+    }
+
+    /**
+     * Select at most maxPoints of the given times, evenly spaced by index, always including the first and last time.
+     * See {@link org.deeplearning4j.api.storage.StatsStorage#getUpdatesInRange(String, String, String, long, long, int)}
+     *
+     * @param sortedTimes Times, in ascending order
+     * @param maxPoints   Maximum number of times to return
+     * @return The selected times, in ascending order
+     */
+    public static long[] sampleTimes(long[] sortedTimes, int maxPoints) {
+        if (maxPoints <= 0)
+            throw new IllegalArgumentException("Maximum number of points must be positive, got " + maxPoints);
+
+        int n = sortedTimes.length;
+        if (n <= maxPoints)
+            return sortedTimes;
+        if (maxPoints == 1)
+            return new long[] {sortedTimes[n - 1]};
+
+        long[] out = new long[maxPoints];
+        for (int i = 0; i < maxPoints; i++) {
+            out[i] = sortedTimes[(int) ((long) i * (n - 1) / (maxPoints - 1))];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,21 @@
+package org.deeplearning4j.ui.storage;
+
+import org.deeplearning4j.api.storage.Persistable;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Combines a number of consecutive updates (for a single session, type and worker ID) into a single update.
+ * Used with a {@link RetentionPolicy} to reduce the resolution of older updates in a stats storage instance.
+ */
+public interface UpdateRollup extends Serializable {
+
+    /**
+     * @param updates Updates to combine, sorted by time. All updates have the same session, type and worker IDs
+     * @return The combined update. Should have the same session, type and worker IDs as the updates, and the
+     *         timestamp of the last update
+     */
+    Persistable rollup(List<Persistable> updates);
+
+}
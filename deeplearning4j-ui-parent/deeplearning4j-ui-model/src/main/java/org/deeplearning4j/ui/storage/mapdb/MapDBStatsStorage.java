@@ -155,6 +155,7 @@ public class MapDBStatsStorage extends BaseCollectionStatsStorage {
         Map<Long, Persistable> updateMap =
                         getUpdateMap(update.getSessionID(), update.getTypeID(), update.getWorkerID(), true);
         updateMap.put(update.getTimeStamp(), update);
+        updatePut(updateMap, update);
         db.commit(); //For write ahead log: need to ensure that we persist all data to disk...
 
         StatsStorageEvent sse = null;
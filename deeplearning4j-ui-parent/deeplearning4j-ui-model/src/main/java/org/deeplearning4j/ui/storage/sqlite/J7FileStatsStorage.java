@@ -1,13 +1,18 @@
 package org.deeplearning4j.ui.storage.sqlite;
 
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.api.storage.*;
+import org.deeplearning4j.ui.storage.RetentionPolicy;
+import org.deeplearning4j.ui.storage.RollupTracker;
 import org.eclipse.collections.impl.list.mutable.primitive.LongArrayList;
 import org.nd4j.linalg.primitives.Pair;
+import org.nd4j.linalg.primitives.Triple;
 
 import java.io.*;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A Java 7 compatible file-based {@link StatsStorage} implementation, based on SQLite.
@@ -16,8 +21,13 @@ import java.util.*;
  * Obviously, the storage formats for J7FileStatsStorage and {@link org.deeplearning4j.ui.storage.FileStatsStorage} are
  * incompatible.
  *
+ * <p>
+ * The database uses write-ahead logging, and records are written in transactions: either one per put call, or (with
+ * the asynchronous writer - see {@link #J7FileStatsStorage(File, int, long)}) in batches from a background thread.
+ *
  * @author Alex Black
  */
+@Slf4j
 public class J7FileStatsStorage implements StatsStorage {
 
     private static final String TABLE_NAME_METADATA = "StorageMetaData";
@@ -31,15 +41,103 @@ public class J7FileStatsStorage implements StatsStorage {
     private static final String INSERT_UPDATE_SQL = "INSERT OR REPLACE INTO " + TABLE_NAME_UPDATES
                     + " (SessionID, TypeID, WorkerID, Timestamp, ObjectClass, ObjectBytes) VALUES ( ?, ?, ?, ?, ?, ? );";
 
+    /**
+     * Default max number of records for the asynchronous writer to wait for, before writing them
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    /**
+     * Default max time (milliseconds) for the asynchronous writer to wait, before writing any pending records
+     */
+    public static final long DEFAULT_MAX_FLUSH_DELAY_MS = 1000;
+    /**
+     * Default max number of pending records for the asynchronous writer, as a multiple of the batch size
+     */
+    public static final int DEFAULT_MAX_PENDING_BATCHES = 16;
+
     private final File file;
     private final Connection connection;
-    private List<StatsStorageListener> listeners = new ArrayList<>();
+    //Queries use their own connection, guarded by readLock: with write-ahead log they see committed records only, and
+    //don't wait for the transaction of the writer
+    private final Connection readConnection;
+    //Guarded by writeLock. Statements are prepared again after a failed write: the driver doesn't reuse them
+    private PreparedStatement insertMeta;
+    private PreparedStatement insertStatic;
+    private PreparedStatement insertUpdate;
+    private boolean statementsInvalid = false;
+    private final List<StatsStorageListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Set<String> sessionIDs = new HashSet<>();
+    private final Set<Pair<String, String>> typeIDs = new HashSet<>();
+    private final Set<Triple<String, String, String>> workerIDs = new HashSet<>();
+
+    private final Object writeLock = new Object();
+    private final Object readLock = new Object();
+    private final List<PendingWrite> pending = new ArrayList<>();
+    private final int batchSize;
+    private final long maxFlushDelayMs;
+    private final int maxPending;
+    private final WriterThread writerThread;
+    //Last error of the asynchronous writer, not yet reported to the caller of put or flush
+    private volatile Throwable writeError;
+    private volatile RollupTracker rollupTracker;
 
     /**
+     * Create a J7FileStatsStorage that writes records synchronously: each put call is written as a single transaction
+     *
      * @param file Storage location for the stats
      */
     public J7FileStatsStorage(@NonNull File file) {
+        this(file, false, DEFAULT_BATCH_SIZE, DEFAULT_MAX_FLUSH_DELAY_MS, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a J7FileStatsStorage with an asynchronous writer: records are queued by the put methods, and written
+     * in a background thread as one transaction, once batchSize records are pending or maxFlushDelayMs has elapsed.
+     * This avoids blocking (for example) training threads on disk writes, when there are many workers or a high
+     * reporting frequency. Query methods first write any pending records, hence are always consistent with the
+     * records put so far. Listeners are notified when records are put, not when they are written.
+     * At most batchSize * {@link #DEFAULT_MAX_PENDING_BATCHES} records are kept pending, see
+     * {@link #J7FileStatsStorage(File, int, long, int)}
+     *
+     * @param file            Storage location for the stats
+     * @param batchSize       Max number of records to wait for before writing. For example, {@link #DEFAULT_BATCH_SIZE}
+     * @param maxFlushDelayMs Max time to wait before writing pending records. For example,
+     *                        {@link #DEFAULT_MAX_FLUSH_DELAY_MS}
+     */
+    public J7FileStatsStorage(@NonNull File file, int batchSize, long maxFlushDelayMs) {
+        this(file, true, batchSize, maxFlushDelayMs, batchSize * DEFAULT_MAX_PENDING_BATCHES);
+    }
+
+    /**
+     * Create a J7FileStatsStorage with an asynchronous writer, as per {@link #J7FileStatsStorage(File, int, long)},
+     * and a limit on the number of pending records. If a put call would exceed this limit (i.e. the writer can't keep
+     * up with the disk), the pending records are written by the calling thread instead.<br>
+     * If the background writer fails, its records are kept pending and retried, and the error is thrown by the next
+     * put or flush call.
+     *
+     * @param file            Storage location for the stats
+     * @param batchSize       Max number of records to wait for before writing. For example, {@link #DEFAULT_BATCH_SIZE}
+     * @param maxFlushDelayMs Max time to wait before writing pending records. For example,
+     *                        {@link #DEFAULT_MAX_FLUSH_DELAY_MS}
+     * @param maxPending      Max number of pending records. Must be at least batchSize
+     */
+    public J7FileStatsStorage(@NonNull File file, int batchSize, long maxFlushDelayMs, int maxPending) {
+        this(file, true, batchSize, maxFlushDelayMs, maxPending);
+    }
+
+    private J7FileStatsStorage(File file, boolean async, int batchSize, long maxFlushDelayMs, int maxPending) {
+        if (batchSize <= 0 || maxFlushDelayMs <= 0) {
+            throw new IllegalArgumentException("Batch size and max flush delay must be positive: got batchSize="
+                            + batchSize + ", maxFlushDelayMs=" + maxFlushDelayMs);
+        }
+        if (maxPending < batchSize) {
+            throw new IllegalArgumentException("Max number of pending records must be at least batch size: got "
+                            + "maxPending=" + maxPending + ", batchSize=" + batchSize);
+        }
         this.file = file;
+        this.batchSize = batchSize;
+        this.maxFlushDelayMs = maxFlushDelayMs;
+        this.maxPending = maxPending;
 
         try {
             connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
@@ -48,10 +146,42 @@ public class J7FileStatsStorage implements StatsStorage {
         }
 
         try {
+            //Write-ahead log: commits only append to the log, and readers don't block the writer
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL;");
+                statement.execute("PRAGMA synchronous=NORMAL;");
+            }
             initializeTables();
+            loadKnownIDs();
+            prepareStatements();
+            readConnection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+
+        if (async) {
+            writerThread = new WriterThread();
+            writerThread.start();
+        } else {
+            writerThread = null;
+        }
+    }
+
+    private void prepareStatements() throws SQLException {
+        closeStatements();
+        insertMeta = connection.prepareStatement(INSERT_META_SQL);
+        insertStatic = connection.prepareStatement(INSERT_STATIC_SQL);
+        insertUpdate = connection.prepareStatement(INSERT_UPDATE_SQL);
+    }
+
+    private void closeStatements() throws SQLException {
+        for (PreparedStatement ps : new PreparedStatement[] {insertMeta, insertStatic, insertUpdate}) {
+            if (ps != null)
+                ps.close();
+        }
+        insertMeta = null;
+        insertStatic = null;
+        insertUpdate = null;
     }
 
     private void initializeTables() throws SQLException {
@@ -126,14 +256,16 @@ public class J7FileStatsStorage implements StatsStorage {
     }
 
     private <T> T queryAndGet(String sql, int columnIndex) {
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(sql);
-            if (!rs.next())
-                return null;
-            byte[] bytes = rs.getBytes(columnIndex);
-            return deserialize(bytes);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(sql);
+                if (!rs.next())
+                    return null;
+                byte[] bytes = rs.getBytes(columnIndex);
+                return deserialize(bytes);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
@@ -141,24 +273,28 @@ public class J7FileStatsStorage implements StatsStorage {
                     String conditionColumn, String conditionValue) {
         Set<String> unique = new HashSet<>();
 
-        try (Statement statement = connection.createStatement()) {
-            if (queryMeta) {
-                queryHelper(statement, querySqlHelper(columnName, TABLE_NAME_METADATA, conditionColumn, conditionValue),
-                                unique);
-            }
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                if (queryMeta) {
+                    queryHelper(statement,
+                                    querySqlHelper(columnName, TABLE_NAME_METADATA, conditionColumn, conditionValue),
+                                    unique);
+                }
 
-            if (queryStatic) {
-                queryHelper(statement,
-                                querySqlHelper(columnName, TABLE_NAME_STATIC_INFO, conditionColumn, conditionValue),
-                                unique);
-            }
+                if (queryStatic) {
+                    queryHelper(statement,
+                                    querySqlHelper(columnName, TABLE_NAME_STATIC_INFO, conditionColumn, conditionValue),
+                                    unique);
+                }
 
-            if (queryUpdates) {
-                queryHelper(statement, querySqlHelper(columnName, TABLE_NAME_UPDATES, conditionColumn, conditionValue),
-                                unique);
+                if (queryUpdates) {
+                    queryHelper(statement,
+                                    querySqlHelper(columnName, TABLE_NAME_UPDATES, conditionColumn, conditionValue),
+                                    unique);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
 
         return new ArrayList<>(unique);
@@ -181,60 +317,69 @@ public class J7FileStatsStorage implements StatsStorage {
         }
     }
 
-    protected List<StatsStorageEvent> checkStorageEvents(Persistable p) {
-        if (listeners.size() == 0)
-            return null;
+    private void loadKnownIDs() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet rs = statement.executeQuery("SELECT DISTINCT SessionID, TypeID FROM " + TABLE_NAME_METADATA + ";");
+            while (rs.next()) {
+                sessionIDs.add(rs.getString(1));
+                typeIDs.add(new Pair<>(rs.getString(1), rs.getString(2)));
+            }
 
-        StatsStorageEvent newSID = null;
-        StatsStorageEvent newTID = null;
-        StatsStorageEvent newWID = null;
+            for (String table : new String[] {TABLE_NAME_STATIC_INFO, TABLE_NAME_UPDATES}) {
+                rs = statement.executeQuery("SELECT DISTINCT SessionID, TypeID, WorkerID FROM " + table + ";");
+                while (rs.next()) {
+                    String sid = rs.getString(1);
+                    String tid = rs.getString(2);
+                    if (TABLE_NAME_STATIC_INFO.equals(table))
+                        sessionIDs.add(sid);
+                    typeIDs.add(new Pair<>(sid, tid));
+                    workerIDs.add(new Triple<>(sid, tid, rs.getString(3)));
+                }
+            }
+        }
+    }
 
+    //New session/type/worker IDs are determined from the in-memory sets of known IDs, and not by querying the
+    //database: with the asynchronous writer, the previous records may not have been written yet.
+    //Session IDs are those with metadata or static info, worker IDs those with static info or updates - as per
+    //listSessionIDs() and listWorkerIDsForSessionAndType(String, String)
+    private List<StatsStorageEvent> checkStorageEvents(Persistable p, WriteType type) {
         String sid = p.getSessionID();
         String tid = p.getTypeID();
         String wid = p.getWorkerID();
 
-        //Is this a new session ID? type ID? worker ID?
-
-        //This is not the most efficient approach
-        boolean isNewSID = false;
-        boolean isNewTID = false;
-        boolean isNewWID = false;
-        if (!listSessionIDs().contains(sid)) {
-            isNewSID = true;
-            isNewTID = true;
-            isNewWID = true;
+        boolean isNewSID;
+        boolean isNewTID;
+        boolean isNewWID;
+        synchronized (sessionIDs) {
+            isNewSID = !sessionIDs.contains(sid);
+            isNewTID = isNewSID || !typeIDs.contains(new Pair<>(sid, tid));
+            isNewWID = isNewSID || !workerIDs.contains(new Triple<>(sid, tid, wid));
+
+            if (type != WriteType.UPDATE)
+                sessionIDs.add(sid);
+            typeIDs.add(new Pair<>(sid, tid));
+            if (type != WriteType.META)
+                workerIDs.add(new Triple<>(sid, tid, wid));
         }
 
-        if (!isNewTID && !listTypeIDsForSession(sid).contains(tid)) {
-            isNewTID = true;
-        }
-
-        if (!isNewWID && !listWorkerIDsForSessionAndType(sid, tid).contains(wid)) {
-            isNewWID = true;
-        }
+        if (listeners.size() == 0)
+            return null;
 
+        List<StatsStorageEvent> sses = new ArrayList<>(4);
         if (isNewSID) {
-            newSID = new StatsStorageEvent(this, StatsStorageListener.EventType.NewSessionID, p.getSessionID(),
-                            p.getTypeID(), p.getWorkerID(), p.getTimeStamp());
+            sses.add(new StatsStorageEvent(this, StatsStorageListener.EventType.NewSessionID, sid, tid, wid,
+                            p.getTimeStamp()));
         }
         if (isNewTID) {
-            newTID = new StatsStorageEvent(this, StatsStorageListener.EventType.NewTypeID, p.getSessionID(),
-                            p.getTypeID(), p.getWorkerID(), p.getTimeStamp());
+            sses.add(new StatsStorageEvent(this, StatsStorageListener.EventType.NewTypeID, sid, tid, wid,
+                            p.getTimeStamp()));
         }
         if (isNewWID) {
-            newWID = new StatsStorageEvent(this, StatsStorageListener.EventType.NewWorkerID, p.getSessionID(),
-                            p.getTypeID(), p.getWorkerID(), p.getTimeStamp());
+            sses.add(new StatsStorageEvent(this, StatsStorageListener.EventType.NewWorkerID, sid, tid, wid,
+                            p.getTimeStamp()));
         }
-
-        if (!isNewSID && !isNewTID && !isNewWID)
-            return null;
-        List<StatsStorageEvent> sses = new ArrayList<>(3);
-        if (newSID != null)
-            sses.add(newSID);
-        if (newTID != null)
-            sses.add(newTID);
-        if (newWID != null)
-            sses.add(newWID);
+        sses.add(new StatsStorageEvent(this, type.eventType, sid, tid, wid, p.getTimeStamp()));
         return sses;
     }
 
@@ -245,43 +390,7 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public void putStorageMetaData(Collection<? extends StorageMetaData> collection) {
-        List<StatsStorageEvent> sses = null;
-        try {
-            PreparedStatement ps = connection.prepareStatement(INSERT_META_SQL);
-
-            for (StorageMetaData storageMetaData : collection) {
-                List<StatsStorageEvent> ssesTemp = checkStorageEvents(storageMetaData);
-                if (ssesTemp != null) {
-                    if (sses == null)
-                        sses = ssesTemp;
-                    else
-                        sses.addAll(ssesTemp);
-                }
-
-                if (listeners.size() > 0) {
-                    StatsStorageEvent sse = new StatsStorageEvent(this, StatsStorageListener.EventType.PostMetaData,
-                                    storageMetaData.getSessionID(), storageMetaData.getTypeID(),
-                                    storageMetaData.getWorkerID(), storageMetaData.getTimeStamp());
-                    if (sses == null)
-                        sses = new ArrayList<>();
-                    sses.add(sse);
-                }
-
-
-                //Normally we'd batch these... sqlite has an autocommit feature that messes up batching with .addBatch() and .executeUpdate()
-                Pair<String, byte[]> p = serializeForDB(storageMetaData);
-
-                ps.setString(1, storageMetaData.getSessionID());
-                ps.setString(2, storageMetaData.getTypeID());
-                ps.setString(3, p.getFirst());
-                ps.setObject(4, p.getSecond());
-                ps.executeUpdate();
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
-
-        notifyListeners(sses);
+        put(collection, WriteType.META);
     }
 
     @Override
@@ -291,94 +400,260 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public void putStaticInfo(Collection<? extends Persistable> collection) {
-        List<StatsStorageEvent> sses = null;
-        try {
-            PreparedStatement ps = connection.prepareStatement(INSERT_STATIC_SQL);
+        put(collection, WriteType.STATIC);
+    }
 
-            for (Persistable p : collection) {
-                List<StatsStorageEvent> ssesTemp = checkStorageEvents(p);
-                if (ssesTemp != null) {
-                    if (sses == null)
-                        sses = ssesTemp;
-                    else
-                        sses.addAll(ssesTemp);
-                }
+    @Override
+    public void putUpdate(Persistable update) {
+        putUpdate(Collections.singletonList(update));
+    }
 
-                if (listeners.size() > 0) {
-                    StatsStorageEvent sse = new StatsStorageEvent(this, StatsStorageListener.EventType.PostStaticInfo,
-                                    p.getSessionID(), p.getTypeID(), p.getWorkerID(), p.getTimeStamp());
-                    if (sses == null)
-                        sses = new ArrayList<>();
-                    sses.add(sse);
-                }
+    @Override
+    public void putUpdate(Collection<? extends Persistable> collection) {
+        put(collection, WriteType.UPDATE);
+    }
+
+    private void put(Collection<? extends Persistable> collection, WriteType type) {
+        if (writerThread != null && writerThread.closing)
+            throw new IllegalStateException("Cannot put records: J7FileStatsStorage has been closed");
+        checkWriteError();
 
-                //Normally we'd batch these... sqlite has an autocommit feature that messes up batching with .addBatch() and .executeUpdate()
-                Pair<String, byte[]> pair = serializeForDB(p);
+        List<StatsStorageEvent> sses = null;
+        List<PendingWrite> writes = new ArrayList<>(collection.size());
+        for (Persistable p : collection) {
+            List<StatsStorageEvent> ssesTemp = checkStorageEvents(p, type);
+            if (ssesTemp != null) {
+                if (sses == null)
+                    sses = ssesTemp;
+                else
+                    sses.addAll(ssesTemp);
+            }
+            writes.add(new PendingWrite(type, p));
+        }
 
-                ps.setString(1, p.getSessionID());
-                ps.setString(2, p.getTypeID());
-                ps.setString(3, p.getWorkerID());
-                ps.setString(4, pair.getFirst());
-                ps.setBytes(5, pair.getSecond());
-                ps.executeUpdate();
+        if (writerThread == null) {
+            //Synchronous mode: all records in one transaction
+            synchronized (writeLock) {
+                writeBatch(writes);
+            }
+        } else {
+            boolean full;
+            synchronized (pending) {
+                pending.addAll(writes);
+                full = pending.size() > maxPending;
+                if (pending.size() >= batchSize)
+                    pending.notifyAll();
+            }
+
+            //Backpressure: writer can't keep up, so records are written by the calling thread
+            if (full)
+                flush();
+        }
+
+        RollupTracker tracker = rollupTracker;
+        if (tracker != null && type == WriteType.UPDATE) {
+            for (Persistable p : collection) {
+                long[] toRollUp = tracker.updateAdded(p);
+                if (toRollUp != null) {
+                    rollUp(tracker.getPolicy(), p.getSessionID(), p.getTypeID(), p.getWorkerID(), toRollUp);
+                }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
 
         notifyListeners(sses);
     }
 
-    @Override
-    public void putUpdate(Persistable update) {
-        putUpdate(Collections.singletonList(update));
+    /**
+     * Set the retention policy for updates put after this call. Null: retain all updates (default)
+     *
+     * @param retentionPolicy Retention policy to use. May be null
+     */
+    public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+        this.rollupTracker = (retentionPolicy == null ? null : new RollupTracker(retentionPolicy));
     }
 
-    @Override
-    public void putUpdate(Collection<? extends Persistable> collection) {
-        List<StatsStorageEvent> sses = null;
+    /**
+     * @return The current retention policy, or null if all updates are retained
+     */
+    public RetentionPolicy getRetentionPolicy() {
+        RollupTracker t = rollupTracker;
+        return t == null ? null : t.getPolicy();
+    }
 
-        try {
-            PreparedStatement ps = connection.prepareStatement(INSERT_UPDATE_SQL);
+    /**
+     * Replace the given updates by a single rolled up update, in one transaction
+     */
+    private void rollUp(RetentionPolicy policy, String sessionID, String typeID, String workerID, long[] timestamps) {
+        List<Persistable> group = getUpdates(sessionID, typeID, workerID, timestamps);
+        if (group.isEmpty())
+            return;
+        Persistable rolledUp = policy.getRollup().rollup(group);
 
-            for (Persistable p : collection) {
-                List<StatsStorageEvent> ssesTemp = checkStorageEvents(p);
-                if (ssesTemp != null) {
-                    if (sses == null)
-                        sses = ssesTemp;
-                    else
-                        sses.addAll(ssesTemp);
+        StringBuilder sb = new StringBuilder();
+        sb.append("DELETE FROM ").append(TABLE_NAME_UPDATES).append(" WHERE SessionID = ? AND TypeID = ? AND ")
+                        .append("WorkerID = ? AND Timestamp IN (");
+        for (int i = 0; i < timestamps.length; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(timestamps[i]);
+        }
+        sb.append(");");
+
+        synchronized (writeLock) {
+            try (PreparedStatement delete = connection.prepareStatement(sb.toString())) {
+                if (statementsInvalid) {
+                    prepareStatements();
+                    statementsInvalid = false;
                 }
+                connection.setAutoCommit(false);
+                try {
+                    delete.setString(1, sessionID);
+                    delete.setString(2, typeID);
+                    delete.setString(3, workerID);
+                    delete.executeUpdate();
+
+                    PendingWrite w = new PendingWrite(WriteType.UPDATE, rolledUp);
+                    insertUpdate.setString(1, sessionID);
+                    insertUpdate.setString(2, typeID);
+                    insertUpdate.setString(3, workerID);
+                    insertUpdate.setLong(4, rolledUp.getTimeStamp());
+                    insertUpdate.setString(5, w.className);
+                    insertUpdate.setBytes(6, w.bytes);
+                    insertUpdate.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    statementsInvalid = true;
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Write any pending records to the database. Only required when using the asynchronous writer; note that all
+     * query methods (getLatestUpdate, getAllUpdatesAfter, etc) call this method first, so always reflect all records
+     * that have been put so far.
+     */
+    public void flush() {
+        checkWriteError();
+        writePending();
+    }
 
-                if (listeners.size() > 0) {
-                    StatsStorageEvent sse = new StatsStorageEvent(this, StatsStorageListener.EventType.PostUpdate,
-                                    p.getSessionID(), p.getTypeID(), p.getWorkerID(), p.getTimeStamp());
-                    if (sses == null)
-                        sses = new ArrayList<>();
-                    sses.add(sse);
+    /**
+     * Write all pending records in one transaction. If writing fails, records are kept pending, to be written by
+     * the next flush
+     */
+    private void writePending() {
+        synchronized (writeLock) {
+            List<PendingWrite> batch;
+            synchronized (pending) {
+                if (pending.isEmpty())
+                    return;
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            }
+
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException e) {
+                synchronized (pending) {
+                    pending.addAll(0, batch);
                 }
+                throw e;
+            }
+        }
+    }
 
-                //Normally we'd batch these... sqlite has an autocommit feature that messes up batching with .addBatch() and .executeUpdate()
-                Pair<String, byte[]> pair = serializeForDB(p);
+    /**
+     * @return Number of records put, but not yet written to the database. Always 0 without the asynchronous writer
+     */
+    public int getNumPending() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void checkWriteError() {
+        Throwable t = writeError;
+        if (t != null) {
+            writeError = null;
+            throw new RuntimeException("Error writing stats to " + file + "; records are kept pending", t);
+        }
+    }
 
-                ps.setString(1, p.getSessionID());
-                ps.setString(2, p.getTypeID());
-                ps.setString(3, p.getWorkerID());
-                ps.setLong(4, p.getTimeStamp());
-                ps.setString(5, pair.getFirst());
-                ps.setObject(6, pair.getSecond());
-                ps.executeUpdate();
+    private void writeBatch(List<PendingWrite> batch) {
+        try {
+            if (statementsInvalid) {
+                prepareStatements();
+                statementsInvalid = false;
+            }
+            connection.setAutoCommit(false);
+            try {
+                for (PendingWrite w : batch) {
+                    Persistable p = w.persistable;
+                    switch (w.type) {
+                        case META:
+                            insertMeta.setString(1, p.getSessionID());
+                            insertMeta.setString(2, p.getTypeID());
+                            insertMeta.setString(3, w.className);
+                            insertMeta.setBytes(4, w.bytes);
+                            insertMeta.executeUpdate();
+                            break;
+                        case STATIC:
+                            insertStatic.setString(1, p.getSessionID());
+                            insertStatic.setString(2, p.getTypeID());
+                            insertStatic.setString(3, p.getWorkerID());
+                            insertStatic.setString(4, w.className);
+                            insertStatic.setBytes(5, w.bytes);
+                            insertStatic.executeUpdate();
+                            break;
+                        case UPDATE:
+                            insertUpdate.setString(1, p.getSessionID());
+                            insertUpdate.setString(2, p.getTypeID());
+                            insertUpdate.setString(3, p.getWorkerID());
+                            insertUpdate.setLong(4, p.getTimeStamp());
+                            insertUpdate.setString(5, w.className);
+                            insertUpdate.setBytes(6, w.bytes);
+                            insertUpdate.executeUpdate();
+                            break;
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                statementsInvalid = true;
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
-
-        notifyListeners(sses);
     }
 
     @Override
     public void close() throws IOException {
         try {
+            if (writerThread != null) {
+                synchronized (pending) {
+                    writerThread.closing = true;
+                    pending.notifyAll();
+                }
+                writerThread.join();
+            }
+            writePending();
+            synchronized (writeLock) {
+                closeStatements();
+            }
+            synchronized (readLock) {
+                readConnection.close();
+            }
             connection.close();
         } catch (Exception e) {
             throw new IOException(e);
@@ -396,29 +671,34 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public List<String> listSessionIDs() {
+        flush();
         return selectDistinct("SessionID", true, true, false, null, null);
     }
 
     @Override
     public boolean sessionExists(String sessionID) {
+        flush();
         String existsMetaSQL = "SELECT 1 FROM " + TABLE_NAME_METADATA + " WHERE SessionID = '" + sessionID + "';";
         String existsStaticSQL = "SELECT 1 FROM " + TABLE_NAME_STATIC_INFO + " WHERE SessionID = '" + sessionID + "';";
 
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(existsMetaSQL);
-            if (rs.next()) {
-                return true;
-            }
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(existsMetaSQL);
+                if (rs.next()) {
+                    return true;
+                }
 
-            rs = statement.executeQuery(existsStaticSQL);
-            return rs.next();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+                rs = statement.executeQuery(existsStaticSQL);
+                return rs.next();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
     @Override
     public Persistable getStaticInfo(String sessionID, String typeID, String workerID) {
+        flush();
         String selectStaticSQL = "SELECT ObjectBytes FROM " + TABLE_NAME_STATIC_INFO + " WHERE SessionID = '"
                         + sessionID + "' AND TypeID = '" + typeID + "' AND WorkerID = '" + workerID + "';";
         return queryAndGet(selectStaticSQL, 1);
@@ -426,54 +706,62 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public List<Persistable> getAllStaticInfos(String sessionID, String typeID) {
+        flush();
         String selectStaticSQL = "SELECT * FROM " + TABLE_NAME_STATIC_INFO + " WHERE SessionID = '" + sessionID
                         + "' AND TypeID = '" + typeID + "';";
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(selectStaticSQL);
-            List<Persistable> out = new ArrayList<>();
-            while (rs.next()) {
-                byte[] bytes = rs.getBytes(5);
-                out.add((Persistable) deserialize(bytes));
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(selectStaticSQL);
+                List<Persistable> out = new ArrayList<>();
+                while (rs.next()) {
+                    byte[] bytes = rs.getBytes(5);
+                    out.add((Persistable) deserialize(bytes));
+                }
+                return out;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-            return out;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
     }
 
     @Override
     public List<String> listTypeIDsForSession(String sessionID) {
+        flush();
         return selectDistinct("TypeID", true, true, true, "SessionID", sessionID);
     }
 
     @Override
     public List<String> listWorkerIDsForSession(String sessionID) {
+        flush();
         return selectDistinct("WorkerID", false, true, true, "SessionID", sessionID);
     }
 
     @Override
     public List<String> listWorkerIDsForSessionAndType(String sessionID, String typeID) {
+        flush();
         String uniqueStatic = "SELECT DISTINCT WorkerID FROM " + TABLE_NAME_STATIC_INFO + " WHERE SessionID = '"
                         + sessionID + "' AND TypeID = '" + typeID + "';";
         String uniqueUpdates = "SELECT DISTINCT WorkerID FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '"
                         + sessionID + "' AND TypeID = '" + typeID + "';";
 
         Set<String> unique = new HashSet<>();
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(uniqueStatic);
-            while (rs.next()) {
-                String str = rs.getString(1);
-                unique.add(str);
-            }
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(uniqueStatic);
+                while (rs.next()) {
+                    String str = rs.getString(1);
+                    unique.add(str);
+                }
 
-            rs = statement.executeQuery(uniqueUpdates);
-            while (rs.next()) {
-                String str = rs.getString(1);
-                unique.add(str);
-            }
+                rs = statement.executeQuery(uniqueUpdates);
+                while (rs.next()) {
+                    String str = rs.getString(1);
+                    unique.add(str);
+                }
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
         }
 
         return new ArrayList<>(unique);
@@ -481,27 +769,34 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public int getNumUpdateRecordsFor(String sessionID) {
+        flush();
         String sql = "SELECT COUNT(*) FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID + "';";
-        try (Statement statement = connection.createStatement()) {
-            return statement.executeQuery(sql).getInt(1);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                return statement.executeQuery(sql).getInt(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
     @Override
     public int getNumUpdateRecordsFor(String sessionID, String typeID, String workerID) {
+        flush();
         String sql = "SELECT COUNT(*) FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID
                         + "' AND TypeID = '" + typeID + "' AND WorkerID = '" + workerID + "';";
-        try (Statement statement = connection.createStatement()) {
-            return statement.executeQuery(sql).getInt(1);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                return statement.executeQuery(sql).getInt(1);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
     @Override
     public Persistable getLatestUpdate(String sessionID, String typeID, String workerID) {
+        flush();
         String sql = "SELECT ObjectBytes FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID
                         + "' AND TypeID = '" + typeID + "' AND WorkerID = '" + workerID
                         + "' ORDER BY Timestamp DESC LIMIT 1;";
@@ -510,6 +805,7 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public Persistable getUpdate(String sessionID, String typeId, String workerID, long timestamp) {
+        flush();
         String sql = "SELECT ObjectBytes FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID
                         + "' AND TypeID = '" + typeId + "' AND WorkerID = '" + workerID + "' AND Timestamp = '"
                         + timestamp + "';";
@@ -518,19 +814,22 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public List<Persistable> getLatestUpdateAllWorkers(String sessionID, String typeID) {
+        flush();
         String sql = "SELECT workerId, MAX(Timestamp) FROM " + TABLE_NAME_UPDATES + " WHERE SessionID ='"
                 + sessionID + "' AND " + "TypeID = '" + typeID + "' GROUP BY workerId";
 
         Map<String,Long> m = new HashMap<>();
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(sql);
-            while (rs.next()) {
-                String wid = rs.getString(1);
-                long ts = rs.getLong(2);
-                m.put(wid, ts);
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(sql);
+                while (rs.next()) {
+                    String wid = rs.getString(1);
+                    long ts = rs.getLong(2);
+                    m.put(wid, ts);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
 
         List<Persistable> out = new ArrayList<>();
@@ -542,23 +841,27 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, String workerID, long timestamp) {
+        flush();
         String sql = "SELECT * FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID + "' AND TypeID = '"
                         + typeID + "' " + "AND Timestamp > " + timestamp + ";";
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(sql);
-            List<Persistable> out = new ArrayList<>();
-            while (rs.next()) {
-                byte[] bytes = rs.getBytes(6);
-                out.add((Persistable) deserialize(bytes));
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(sql);
+                List<Persistable> out = new ArrayList<>();
+                while (rs.next()) {
+                    byte[] bytes = rs.getBytes(6);
+                    out.add((Persistable) deserialize(bytes));
+                }
+                return out;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-            return out;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
     }
 
     @Override
     public List<Persistable> getAllUpdatesAfter(String sessionID, String typeID, long timestamp) {
+        flush();
         String sql = "SELECT ObjectBytes FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID + "'  "
                         + "AND Timestamp > " + timestamp + ";";
         return queryUpdates(sql);
@@ -566,6 +869,7 @@ public class J7FileStatsStorage implements StatsStorage {
 
     @Override
     public long[] getAllUpdateTimes(String sessionID, String typeID, String workerID) {
+        flush();
         /*
         statement.executeUpdate("CREATE TABLE " + TABLE_NAME_UPDATES + " (" + "SessionID TEXT NOT NULL, "
                 + "TypeID TEXT NOT NULL, " + "WorkerID TEXT NOT NULL, " + "Timestamp INTEGER NOT NULL, "
@@ -573,21 +877,24 @@ public class J7FileStatsStorage implements StatsStorage {
                 + "PRIMARY KEY ( SessionID, TypeID, WorkerID, Timestamp )" + ");");
          */
         String sql = "SELECT Timestamp FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = '" + sessionID + "'  "
-                + "AND TypeID = '" + typeID + "' AND workerID = '" + workerID + "';";
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(sql);
-            LongArrayList list = new LongArrayList();
-            while (rs.next()) {
-                list.add(rs.getLong(1));
+                + "AND TypeID = '" + typeID + "' AND workerID = '" + workerID + "' ORDER BY Timestamp;";
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(sql);
+                LongArrayList list = new LongArrayList();
+                while (rs.next()) {
+                    list.add(rs.getLong(1));
+                }
+                return list.toArray();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-            return list.toArray();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
     }
 
     @Override
     public List<Persistable> getUpdates(String sessionID, String typeID, String workerID, long[] timestamps) {
+        flush();
         if(timestamps == null || timestamps.length == 0){
             return Collections.emptyList();
         }
@@ -603,28 +910,59 @@ public class J7FileStatsStorage implements StatsStorage {
             }
             sb.append(timestamps[i]);
         }
-        sb.append(");");
+        sb.append(") ORDER BY Timestamp;");
 
         String sql = sb.toString();
         return queryUpdates(sql);
     }
 
+    @Override
+    public List<Persistable> getUpdatesInRange(String sessionID, String typeID, String workerID, long fromTimestamp,
+                    long toTimestamp, int maxPoints) {
+        if (maxPoints <= 0)
+            throw new IllegalArgumentException("Maximum number of points must be positive, got " + maxPoints);
+        flush();
+        //Timestamps only: range scan on the primary key index, without reading the update contents
+        String sql = "SELECT Timestamp FROM " + TABLE_NAME_UPDATES + " WHERE SessionID = ? AND TypeID = ? AND "
+                        + "WorkerID = ? AND Timestamp BETWEEN ? AND ? ORDER BY Timestamp;";
+        LongArrayList times = new LongArrayList();
+        synchronized (readLock) {
+            try (PreparedStatement statement = readConnection.prepareStatement(sql)) {
+                statement.setString(1, sessionID);
+                statement.setString(2, typeID);
+                statement.setString(3, workerID);
+                statement.setLong(4, fromTimestamp);
+                statement.setLong(5, toTimestamp);
+                ResultSet rs = statement.executeQuery();
+                while (rs.next()) {
+                    times.add(rs.getLong(1));
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return getUpdates(sessionID, typeID, workerID, RollupTracker.sampleTimes(times.toArray(), maxPoints));
+    }
+
     private List<Persistable> queryUpdates(String sql){
-        try (Statement statement = connection.createStatement()) {
-            ResultSet rs = statement.executeQuery(sql);
-            List<Persistable> out = new ArrayList<>();
-            while (rs.next()) {
-                byte[] bytes = rs.getBytes(1);
-                out.add((Persistable) deserialize(bytes));
+        synchronized (readLock) {
+            try (Statement statement = readConnection.createStatement()) {
+                ResultSet rs = statement.executeQuery(sql);
+                List<Persistable> out = new ArrayList<>();
+                while (rs.next()) {
+                    byte[] bytes = rs.getBytes(1);
+                    out.add((Persistable) deserialize(bytes));
+                }
+                return out;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-            return out;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
     }
 
     @Override
     public StorageMetaData getStorageMetaData(String sessionID, String typeID) {
+        flush();
         String sql = "SELECT ObjectBytes FROM " + TABLE_NAME_METADATA + " WHERE SessionID = '" + sessionID
                         + "' AND TypeID = '" + typeID + "' LIMIT 1;";
         return queryAndGet(sql, 1);
@@ -655,6 +993,84 @@ public class J7FileStatsStorage implements StatsStorage {
         return "J7FileStatsStorage(file=" + file + ")";
     }
 
+    private enum WriteType {
+        META(StatsStorageListener.EventType.PostMetaData), STATIC(
+                        StatsStorageListener.EventType.PostStaticInfo), UPDATE(
+                                        StatsStorageListener.EventType.PostUpdate);
+
+        private final StatsStorageListener.EventType eventType;
+
+        WriteType(StatsStorageListener.EventType eventType) {
+            this.eventType = eventType;
+        }
+    }
+
+    private static class PendingWrite {
+        private final WriteType type;
+        private final Persistable persistable;
+        private final String className;
+        private final byte[] bytes;
+
+        private PendingWrite(WriteType type, Persistable persistable) {
+            //Serialize immediately: record may be modified after it has been put
+            Pair<String, byte[]> pair = serializeForDB(persistable);
+            this.type = type;
+            this.persistable = persistable;
+            this.className = pair.getFirst();
+            this.bytes = pair.getSecond();
+        }
+    }
+
+    private class WriterThread extends Thread {
+        private volatile boolean closing;
+
+        private WriterThread() {
+            setDaemon(true);
+            setName("J7FileStatsStorage-writer");
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (pending) {
+                    long deadline = System.currentTimeMillis() + maxFlushDelayMs;
+                    long remaining = maxFlushDelayMs;
+                    while (!closing && pending.size() < batchSize && remaining > 0) {
+                        try {
+                            pending.wait(remaining);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                    if (closing) {
+                        //Remaining records are written by close()
+                        return;
+                    }
+                }
+
+                try {
+                    writePending();
+                } catch (Throwable t) {
+                    log.error("Error writing stats to {}", file, t);
+                    writeError = t;
+                    //Records are kept pending: retry after max flush delay, instead of immediately
+                    synchronized (pending) {
+                        if (closing)
+                            return;
+                        try {
+                            pending.wait(maxFlushDelayMs);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     protected void notifyListeners(List<StatsStorageEvent> sses) {
         if (sses == null || sses.size() == 0 || listeners.size() == 0)
             return;
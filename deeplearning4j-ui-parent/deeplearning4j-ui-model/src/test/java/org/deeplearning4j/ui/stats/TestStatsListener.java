@@ -6,17 +6,23 @@ import org.deeplearning4j.datasets.iterator.impl.IrisDataSetIterator;
 import org.deeplearning4j.nn.api.OptimizationAlgorithm;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
 import org.deeplearning4j.nn.conf.layers.OutputLayer;
 import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.ui.stats.api.Histogram;
+import org.deeplearning4j.ui.stats.api.StatsReport;
+import org.deeplearning4j.ui.stats.api.StatsType;
+import org.deeplearning4j.ui.storage.InMemoryStatsStorage;
 import org.deeplearning4j.ui.storage.mapdb.MapDBStatsStorage;
 import org.junit.Test;
 import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.lossfunctions.LossFunctions;
 
 import java.util.List;
+import java.util.Map;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 /**
  * Created by Alex on 07/10/2016.
@@ -76,4 +82,59 @@ public class TestStatsListener {
 
     }
 
+    @Test
+    public void testAsyncSampledCollection() {
+        Nd4j.getRandom().setSeed(12345);
+        DataSet ds = new DataSet(Nd4j.rand(10, 50), Nd4j.rand(10, 3));
+        int sampleSize = 100;
+
+        for (boolean async : new boolean[] {false, true}) {
+            MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder().seed(12345).list()
+                            .layer(0, new DenseLayer.Builder().nIn(50).nOut(40).build())
+                            .layer(1, new OutputLayer.Builder(LossFunctions.LossFunction.MSE).nIn(40).nOut(3).build())
+                            .pretrain(false).backprop(true).build();
+            MultiLayerNetwork net = new MultiLayerNetwork(conf);
+            net.init();
+
+            StatsStorage ss = new InMemoryStatsStorage();
+            StatsListener l = new StatsListener(ss, 1);
+            l.setAsyncCollection(async);
+            l.setStatsSampleSize(sampleSize);
+            StatsListener clone = l.clone();
+            assertEquals(async, clone.isAsyncCollection());
+            assertEquals(sampleSize, clone.getStatsSampleSize());
+            net.setListeners(l);
+
+            for (int i = 0; i < 5; i++) {
+                net.fit(ds);
+            }
+            l.flush();
+
+            String sid = ss.listSessionIDs().get(0);
+            String wid = ss.listWorkerIDsForSession(sid).get(0);
+            List<Persistable> updates = ss.getAllUpdatesAfter(sid, StatsListener.TYPE_ID, wid, 0);
+            assertEquals(5, updates.size());
+
+            for (Persistable p : updates) {
+                StatsReport r = (StatsReport) p;
+                Map<String, Histogram> paramHistograms = r.getHistograms(StatsType.Parameters);
+                Map<String, Double> meanMagnitudes = r.getMeanMagnitudes(StatsType.Updates);
+                assertEquals(4, paramHistograms.size());
+                assertEquals(4, meanMagnitudes.size());
+                for (String param : new String[] {"0_W", "0_b", "1_W", "1_b"}) {
+                    int expCount = Math.min(sampleSize, net.getParam(param).length());
+                    int count = 0;
+                    for (int c : paramHistograms.get(param).getBinCounts()) {
+                        count += c;
+                    }
+                    assertEquals(expCount, count);
+                    assertTrue(meanMagnitudes.get(param) >= 0.0);
+                }
+                //Sampled stats are estimates from the sample: check they're plausible
+                double expMean = net.getParam("0_W").meanNumber().doubleValue();
+                double stdev = net.getParam("0_W").stdNumber().doubleValue();
+                assertEquals(expMean, r.getMean(StatsType.Parameters).get("0_W"), 5 * stdev / Math.sqrt(sampleSize));
+            }
+        }
+    }
 }
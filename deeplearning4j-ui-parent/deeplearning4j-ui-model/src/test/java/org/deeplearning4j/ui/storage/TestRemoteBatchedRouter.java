@@ -0,0 +1,250 @@
+package org.deeplearning4j.ui.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.deeplearning4j.api.storage.Persistable;
+import org.deeplearning4j.api.storage.StorageMetaData;
+import org.deeplearning4j.api.storage.StorageType;
+import org.deeplearning4j.api.storage.impl.RemoteUIStatsStorageRouter;
+import org.deeplearning4j.api.storage.impl.StorageBatchCodec;
+import org.deeplearning4j.ui.stats.impl.SbeStatsReport;
+import org.deeplearning4j.ui.storage.impl.SbeStorageMetaData;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TestRemoteBatchedRouter {
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        List<StorageBatchCodec.Entry> entries = new ArrayList<>();
+        StorageMetaData smd = new SbeStorageMetaData(123, "sid", "typeid", "wid", "initTypeClass", "updaterTypeClass");
+        entries.add(new StorageBatchCodec.Entry(StorageType.MetaData, smd.getClass().getName(), smd.encode()));
+        for (int i = 0; i < 50; i++) {
+            SbeStatsReport r = getReport(i);
+            entries.add(new StorageBatchCodec.Entry(StorageType.Update, r.getClass().getName(), r.encode()));
+        }
+
+        byte[] uncompressed = StorageBatchCodec.encode(entries, false);
+        byte[] compressed = StorageBatchCodec.encode(entries, true);
+        assertTrue(compressed.length < uncompressed.length);
+
+        for (byte[] b : new byte[][] {uncompressed, compressed}) {
+            List<StorageBatchCodec.Entry> decoded = StorageBatchCodec.decode(b);
+            assertEquals(entries.size(), decoded.size());
+            for (int i = 0; i < entries.size(); i++) {
+                assertEquals(entries.get(i).getType(), decoded.get(i).getType());
+                assertEquals(entries.get(i).getClassName(), decoded.get(i).getClassName());
+                assertArrayEquals(entries.get(i).getBytes(), decoded.get(i).getBytes());
+            }
+            SbeStatsReport r = new SbeStatsReport();
+            r.decode(decoded.get(1).getBytes());
+            assertEquals(getReport(0), r);
+        }
+
+        try {
+            StorageBatchCodec.decode(new byte[] {1, 2, 3, 4, 5, 6});
+            fail("Expected exception");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testBatchedPostingAndDropOldest() throws Exception {
+        final List<StorageBatchCodec.Entry> received = Collections.synchronizedList(new ArrayList<StorageBatchCodec.Entry>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch firstRequest = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/" + RemoteUIStatsStorageRouter.DEFAULT_BULK_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                List<StorageBatchCodec.Entry> entries = StorageBatchCodec.decode(IOUtils.toByteArray(exchange.getRequestBody()));
+                firstRequest.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                received.addAll(entries);
+                batchSizes.add(entries.size());
+                byte[] response = "ok".getBytes();
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(response);
+                }
+            }
+        });
+        server.start();
+
+        try {
+            String address = "http://localhost:" + server.getAddress().getPort();
+            RemoteUIStatsStorageRouter router = new RemoteUIStatsStorageRouter.Builder(address).batchSize(4)
+                            .maxQueueSize(5).build();
+            assertTrue(router.isBatched());
+
+            //First update: in flight (blocked in the handler) while the next ones are queued
+            router.putUpdate(getReport(0));
+            assertTrue(firstRequest.await(10, TimeUnit.SECONDS));
+
+            StorageMetaData smd = new SbeStorageMetaData(123, "sid", "typeid", "wid", "initTypeClass", "updaterTypeClass");
+            router.putStorageMetaData(smd);
+            for (int i = 1; i <= 20; i++) {
+                router.putUpdate(getReport(i));
+            }
+            //Queue holds at most 5: metadata (never dropped) plus the 4 most recent updates
+            assertEquals(16, router.getDroppedCount());
+
+            release.countDown();
+            long end = System.currentTimeMillis() + 10000;
+            while (received.size() < 6 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertEquals(6, received.size());
+            assertEquals(Arrays.asList(1, 4, 1), batchSizes);
+
+            assertEquals(StorageType.MetaData, received.get(1).getType());
+            List<Integer> iterations = new ArrayList<>();
+            for (StorageBatchCodec.Entry e : received) {
+                if (e.getType() == StorageType.Update) {
+                    SbeStatsReport r = new SbeStatsReport();
+                    r.decode(e.getBytes());
+                    iterations.add(r.getIterationCount());
+                }
+            }
+            assertEquals(Arrays.asList(0, 17, 18, 19, 20), iterations);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testCodecLimits() throws Exception {
+        List<StorageBatchCodec.Entry> entries = new ArrayList<>();
+        entries.add(new StorageBatchCodec.Entry(StorageType.Update, "class", new byte[100000]));
+        byte[] uncompressed = StorageBatchCodec.encode(entries, false);
+        byte[] compressed = StorageBatchCodec.encode(entries, true);
+        assertTrue(compressed.length < 1000);
+
+        //Content above the limit: highly compressible batch must not be decompressed fully
+        for (byte[] b : new byte[][] {uncompressed, compressed}) {
+            assertEquals(1, StorageBatchCodec.decode(b, 200000).size());
+            try {
+                StorageBatchCodec.decode(b, 50000);
+                fail("Expected exception");
+            } catch (IOException e) {
+                //Expected
+            }
+        }
+
+        //Entry length beyond the remaining input: rejected before allocating
+        byte[] truncated = Arrays.copyOf(uncompressed, uncompressed.length - 1);
+        try {
+            StorageBatchCodec.decode(truncated);
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("exceeds remaining"));
+        }
+
+        byte[] huge = uncompressed.clone();
+        int lengthPos = uncompressed.length - 100000 - 4;
+        huge[lengthPos] = 0x7F;
+        try {
+            StorageBatchCodec.decode(huge);
+            fail("Expected exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("exceeds remaining"));
+        }
+    }
+
+    @Test
+    public void testFailedBatchRequeueBounded() throws Exception {
+        final List<StorageBatchCodec.Entry> received = Collections.synchronizedList(new ArrayList<StorageBatchCodec.Entry>());
+        final CountDownLatch firstRequest = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/" + RemoteUIStatsStorageRouter.DEFAULT_BULK_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                List<StorageBatchCodec.Entry> entries = StorageBatchCodec.decode(IOUtils.toByteArray(exchange.getRequestBody()));
+                int code = 200;
+                if (requests.getAndIncrement() == 0) {
+                    //First request fails, after the queue is filled up
+                    firstRequest.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    code = 500;
+                } else {
+                    received.addAll(entries);
+                }
+                byte[] response = "ok".getBytes();
+                exchange.sendResponseHeaders(code, response.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(response);
+                }
+            }
+        });
+        server.start();
+
+        try {
+            String address = "http://localhost:" + server.getAddress().getPort();
+            RemoteUIStatsStorageRouter router = new RemoteUIStatsStorageRouter.Builder(address).batchSize(10)
+                            .maxQueueSize(5).retryDelayMS(10).build();
+
+            router.putUpdate(getReport(0));
+            assertTrue(firstRequest.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i <= 5; i++) {
+                router.putUpdate(getReport(i));
+            }
+            assertEquals(0, router.getDroppedCount());
+
+            //Failed update is added back to a full queue: oldest update is dropped
+            release.countDown();
+            long end = System.currentTimeMillis() + 10000;
+            while (received.size() < 5 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(1, router.getDroppedCount());
+
+            List<Integer> iterations = new ArrayList<>();
+            for (StorageBatchCodec.Entry e : received) {
+                SbeStatsReport r = new SbeStatsReport();
+                r.decode(e.getBytes());
+                iterations.add(r.getIterationCount());
+            }
+            assertEquals(Arrays.asList(1, 2, 3, 4, 5), iterations);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static SbeStatsReport getReport(int iter) {
+        SbeStatsReport r = new SbeStatsReport();
+        r.reportIDs("sid", "tid", "wid", 123456 + iter);
+        r.reportIterationCount(iter);
+        r.reportScore(1.0 / (iter + 1));
+        r.reportPerformance(10, 20, 30, 40, 50);
+        return r;
+    }
+}
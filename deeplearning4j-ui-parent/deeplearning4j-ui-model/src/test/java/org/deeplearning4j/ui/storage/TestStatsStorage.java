@@ -7,11 +7,13 @@ import org.deeplearning4j.api.storage.StatsStorage;
 import org.deeplearning4j.api.storage.StatsStorageEvent;
 import org.deeplearning4j.api.storage.StatsStorageListener;
 import org.deeplearning4j.ui.stats.api.StatsInitializationReport;
+import org.deeplearning4j.ui.stats.StatsReportRollup;
 import org.deeplearning4j.ui.stats.api.StatsReport;
 import org.deeplearning4j.ui.stats.impl.SbeStatsInitializationReport;
 import org.deeplearning4j.ui.stats.impl.SbeStatsReport;
 import org.deeplearning4j.ui.stats.impl.java.JavaStatsInitializationReport;
 import org.deeplearning4j.ui.stats.impl.java.JavaStatsReport;
+import org.deeplearning4j.ui.stats.impl.java.RollupStatsReport;
 import org.deeplearning4j.ui.storage.mapdb.MapDBStatsStorage;
 import org.deeplearning4j.ui.storage.sqlite.J7FileStatsStorage;
 import org.junit.Test;
@@ -19,7 +21,11 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 
@@ -187,7 +193,9 @@ public class TestStatsStorage {
     public void testFileStatsStore() throws IOException {
 
         for (boolean useJ7Storage : new boolean[] {false, true}) {
-            for (int i = 0; i < 2; i++) {
+            //i == 2: J7FileStatsStorage with asynchronous writer. Large batch size and delay: records are only written
+            //when queried or on close
+            for (int i = 0; i < 3; i++) {
                 File f;
                 if (i == 0) {
                     f = Files.createTempFile("TestMapDbStatsStore", ".db").toFile();
@@ -199,8 +207,10 @@ public class TestStatsStorage {
                 StatsStorage ss;
                 if (i == 0) {
                     ss = new MapDBStatsStorage.Builder().file(f).build();
-                } else {
+                } else if (i == 1) {
                     ss = new J7FileStatsStorage(f);
+                } else {
+                    ss = new J7FileStatsStorage(f, 1000, 60000);
                 }
 
 
@@ -306,8 +316,10 @@ public class TestStatsStorage {
 
                 if (i == 0) {
                     ss = new MapDBStatsStorage.Builder().file(f).build();
-                } else {
+                } else if (i == 1) {
                     ss = new J7FileStatsStorage(f);
+                } else {
+                    ss = new J7FileStatsStorage(f, 1000, 60000);
                 }
 
 
@@ -332,6 +344,291 @@ public class TestStatsStorage {
         }
     }
 
+    @Test
+    public void testJ7FileStatsStorageAsyncConcurrent() throws Exception {
+        File f = Files.createTempFile("TestSqliteStatsStore", ".db").toFile();
+        f.delete();
+        final J7FileStatsStorage ss = new J7FileStatsStorage(f, 16, 10);
+        CountingListener l = new CountingListener();
+        ss.registerStatsStorageListener(l);
+
+        final int nThreads = 4;
+        final int nUpdates = 100;
+        Thread[] threads = new Thread[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            final int wid = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ss.putStaticInfo(getInitReport(0, 0, wid, true));
+                    for (int j = 0; j < nUpdates; j++) {
+                        ss.putUpdate(getReport(0, 0, wid, 1000 + j, true));
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(nThreads * nUpdates, ss.getNumUpdateRecordsFor("sid0"));
+        assertEquals(nThreads, ss.listWorkerIDsForSessionAndType("sid0", "tid0").size());
+        for (int i = 0; i < nThreads; i++) {
+            assertEquals(getReport(0, 0, i, 1000 + nUpdates - 1, true), ss.getLatestUpdate("sid0", "tid0", "wid" + i));
+        }
+        assertEquals(nThreads * (nUpdates / 2 - 1), ss.getAllUpdatesAfter("sid0", "tid0", 1000 + nUpdates / 2).size());
+        assertEquals(1, l.countNewSession);
+        assertEquals(nThreads, l.countNewWorkerId);
+        assertEquals(nThreads, l.countStaticInfo);
+        assertEquals(nThreads * nUpdates, l.countUpdate);
+
+        ss.putUpdate(getReport(0, 0, 0, 5000, true));
+        ss.close();
+        try {
+            ss.putUpdate(getReport(0, 0, 0, 5001, true));
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+
+        //Pending records should be written on close
+        J7FileStatsStorage reopened = new J7FileStatsStorage(f);
+        assertEquals(nThreads * nUpdates + 1, reopened.getNumUpdateRecordsFor("sid0"));
+        assertEquals(getReport(0, 0, 0, 5000, true), reopened.getLatestUpdate("sid0", "tid0", "wid0"));
+        reopened.close();
+    }
+
+    @Test(timeout = 120000L)
+    public void testJ7FileStatsStorageConcurrentReads() throws Exception {
+        File f = Files.createTempFile("TestSqliteStatsStore", ".db").toFile();
+        f.delete();
+        final J7FileStatsStorage ss = new J7FileStatsStorage(f, 8, 5);
+        ss.putStaticInfo(getInitReport(0, 0, 0, true));
+
+        final int nUpdates = 400;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            //Queries run while writer thread has its transactions open
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int last = 0;
+                        while (writing.get()) {
+                            int count = ss.getNumUpdateRecordsFor("sid0");
+                            assertTrue(count >= last);
+                            last = count;
+                            if (count > 0)
+                                assertNotNull(ss.getLatestUpdate("sid0", "tid0", "wid0"));
+                            assertEquals(1, ss.listWorkerIDsForSessionAndType("sid0", "tid0").size());
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            }));
+        }
+        //Listeners are registered and removed while events are delivered
+        threads.add(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (writing.get()) {
+                        CountingListener l = new CountingListener();
+                        ss.registerStatsStorageListener(l);
+                        ss.deregisterStatsStorageListener(l);
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            }
+        }));
+        ss.registerStatsStorageListener(new CountingListener());
+        for (Thread t : threads)
+            t.start();
+
+        for (int j = 0; j < nUpdates; j++)
+            ss.putUpdate(getReport(0, 0, 0, 1000 + j, true));
+        ss.flush();
+        writing.set(false);
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(Collections.emptyList(), errors);
+        assertEquals(nUpdates, ss.getNumUpdateRecordsFor("sid0"));
+        assertEquals(getReport(0, 0, 0, 1000 + nUpdates - 1, true), ss.getLatestUpdate("sid0", "tid0", "wid0"));
+        ss.close();
+    }
+
+    @Test
+    public void testJ7FileStatsStorageAsyncBackpressure() throws Exception {
+        File f = Files.createTempFile("TestSqliteStatsStore", ".db").toFile();
+        f.delete();
+        //Background writer waits for a long time: records exceeding max pending should be written by caller
+        J7FileStatsStorage ss = new J7FileStatsStorage(f, 2, 60000, 4);
+        ss.putStaticInfo(getInitReport(0, 0, 0, true));
+
+        List<Persistable> updates = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            updates.add(getReport(0, 0, 0, 1000 + i, true));
+        ss.putUpdate(updates);
+        assertTrue(ss.getNumPending() <= 4);
+
+        ss.putUpdate(getReport(0, 0, 0, 2000, true));
+        assertEquals(11, ss.getNumUpdateRecordsFor("sid0"));
+        assertEquals(0, ss.getNumPending());
+        ss.close();
+    }
+
+    @Test
+    public void testJ7FileStatsStorageAsyncWriteFailure() throws Exception {
+        File f = Files.createTempFile("TestSqliteStatsStore", ".db").toFile();
+        f.delete();
+        J7FileStatsStorage ss = new J7FileStatsStorage(f, 1, 10, 16);
+        ss.putStaticInfo(getInitReport(0, 0, 0, true));
+        ss.flush();
+
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + f.getAbsolutePath());
+                        Statement statement = c.createStatement()) {
+            //Writes fail while updates table is missing
+            statement.execute("ALTER TABLE Updates RENAME TO UpdatesRenamed;");
+            ss.putUpdate(getReport(0, 0, 0, 1000, true));
+
+            //Error of the background writer (or of the flush itself) should be reported to the caller
+            try {
+                ss.flush();
+                fail("Expected exception");
+            } catch (RuntimeException e) {
+                //expected
+            }
+            assertEquals(1, ss.getNumPending());
+
+            statement.execute("ALTER TABLE UpdatesRenamed RENAME TO Updates;");
+        }
+
+        //Failed records are kept pending and written once database is usable again. Writer may fail once more
+        //before the table is restored: that error is reported by the first flush
+        try {
+            ss.flush();
+        } catch (RuntimeException e) {
+            ss.flush();
+        }
+        assertEquals(0, ss.getNumPending());
+        assertEquals(1, ss.getNumUpdateRecordsFor("sid0"));
+        assertEquals(getReport(0, 0, 0, 1000, true), ss.getLatestUpdate("sid0", "tid0", "wid0"));
+        ss.close();
+    }
+
+    @Test
+    public void testUpdatesInRange() throws IOException {
+        for (boolean useJ7Storage : new boolean[] {false, true}) {
+            for (int i = 0; i < 3; i++) {
+                StatsStorage ss = createStorage(i);
+
+                //Insert out of order, to check the time index
+                List<Integer> times = new ArrayList<>();
+                for (int j = 0; j < 100; j++)
+                    times.add(1000 + 10 * j);
+                Collections.shuffle(times, new Random(12345));
+                for (int t : times)
+                    ss.putUpdate(getReport(0, 0, 0, t, useJ7Storage));
+                ss.putUpdate(getReport(0, 0, 1, 1005, useJ7Storage));
+
+                List<Persistable> all = ss.getUpdatesInRange("sid0", "tid0", "wid0", Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+                assertEquals(100, all.size());
+                for (int j = 0; j < 100; j++)
+                    assertEquals(getReport(0, 0, 0, 1000 + 10 * j, useJ7Storage), all.get(j));
+                assertEquals(1000 + 10 * 99, ss.getLatestUpdate("sid0", "tid0", "wid0").getTimeStamp());
+                assertEquals(100, ss.getAllUpdateTimes("sid0", "tid0", "wid0").length);
+
+                //Inclusive range
+                List<Persistable> range = ss.getUpdatesInRange("sid0", "tid0", "wid0", 1100, 1200, 1000);
+                assertEquals(11, range.size());
+                assertEquals(1100, range.get(0).getTimeStamp());
+                assertEquals(1200, range.get(10).getTimeStamp());
+
+                //Subsampled: first and last are always included
+                List<Persistable> sampled = ss.getUpdatesInRange("sid0", "tid0", "wid0", 0, 5000, 10);
+                assertEquals(10, sampled.size());
+                assertEquals(1000, sampled.get(0).getTimeStamp());
+                assertEquals(1990, sampled.get(9).getTimeStamp());
+                for (int j = 1; j < sampled.size(); j++)
+                    assertTrue(sampled.get(j).getTimeStamp() > sampled.get(j - 1).getTimeStamp());
+
+                assertEquals(1, ss.getUpdatesInRange("sid0", "tid0", "wid0", 0, 5000, 1).size());
+                assertEquals(0, ss.getUpdatesInRange("sid0", "tid0", "wid0", 2000, 5000, 10).size());
+                assertEquals(0, ss.getUpdatesInRange("sid0", "tid0", "wid2", 0, 5000, 10).size());
+                assertEquals(Collections.singletonList(getReport(0, 0, 1, 1005, useJ7Storage)),
+                                ss.getUpdatesInRange("sid0", "tid0", "wid1", 0, 5000, 10));
+
+                ss.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRetentionPolicy() throws IOException {
+        for (boolean useJ7Storage : new boolean[] {false, true}) {
+            for (int i = 0; i < 3; i++) {
+                StatsStorage ss = createStorage(i);
+                RetentionPolicy policy = new RetentionPolicy(20, 10, new StatsReportRollup());
+                if (ss instanceof J7FileStatsStorage) {
+                    ((J7FileStatsStorage) ss).setRetentionPolicy(policy);
+                } else {
+                    ((BaseCollectionStatsStorage) ss).setRetentionPolicy(policy);
+                }
+
+                for (int j = 0; j < 100; j++) {
+                    StatsReport r = getReport(0, 0, 0, 1000 + j, useJ7Storage);
+                    r.reportScore(j);
+                    ss.putUpdate(r);
+                }
+
+                //80 oldest updates rolled up into 8 updates; 20 most recent at full resolution
+                List<Persistable> all = ss.getUpdatesInRange("sid0", "tid0", "wid0", Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+                assertEquals(28, all.size());
+                assertEquals(28, ss.getNumUpdateRecordsFor("sid0", "tid0", "wid0"));
+                for (int j = 0; j < 8; j++) {
+                    RollupStatsReport r = (RollupStatsReport) all.get(j);
+                    assertEquals(1000 + 10 * j + 9, r.getTimeStamp());
+                    assertEquals(1000 + 10 * j, r.getFirstTimeStamp());
+                    assertEquals(10, r.getCount());
+                    assertEquals(10 * j, r.getMinScore(), 0.0);
+                    assertEquals(10 * j + 9, r.getMaxScore(), 0.0);
+                    assertEquals(10 * j + 4.5, r.getScore(), 1e-10);
+                    assertTrue(r.hasPerformance());
+                }
+                for (int j = 8; j < 28; j++) {
+                    assertEquals(getReport(0, 0, 0, 1000 + 80 + (j - 8), useJ7Storage).getTimeStamp(),
+                                    all.get(j).getTimeStamp());
+                    assertFalse(all.get(j) instanceof RollupStatsReport);
+                }
+                assertEquals(1099, ss.getLatestUpdate("sid0", "tid0", "wid0").getTimeStamp());
+
+                ss.close();
+            }
+        }
+    }
+
+    private static StatsStorage createStorage(int type) throws IOException {
+        switch (type) {
+            case 0:
+                File f = Files.createTempFile("TestMapDbStatsStore", ".db").toFile();
+                f.delete(); //Don't want file to exist...
+                return new MapDBStatsStorage.Builder().file(f).build();
+            case 1:
+                File f2 = Files.createTempFile("TestJ7FileStatsStore", ".db").toFile();
+                f2.delete(); //Don't want file to exist...
+                return new J7FileStatsStorage(f2);
+            case 2:
+                return new InMemoryStatsStorage();
+            default:
+                throw new RuntimeException();
+        }
+    }
+
     private static StatsInitializationReport getInitReport(int idNumber, int tid, int wid, boolean useJ7Storage) {
         StatsInitializationReport rep;
         if (useJ7Storage) {
@@ -377,7 +674,7 @@ public class TestStatsStorage {
         private int countMetaData;
 
         @Override
-        public void notify(StatsStorageEvent event) {
+        public synchronized void notify(StatsStorageEvent event) {
             System.out.println("Event: " + event);
             switch (event.getEventType()) {
                 case NewSessionID: